@@ -27,6 +27,10 @@ import java.util.ResourceBundle;
 public enum AppProperty {
 
     AUDIT_EVENTS_EMAILFROM                          ("audit.events.emailFrom"),
+    AUDIT_PIPELINE_BACKPRESSURE                     ("audit.pipeline.backpressure"),
+    AUDIT_PIPELINE_BATCH_SIZE                       ("audit.pipeline.batchSize"),
+    AUDIT_PIPELINE_MAX_BLOCK_MS                     ("audit.pipeline.maxBlockMS"),
+    AUDIT_PIPELINE_QUEUE_SIZE                       ("audit.pipeline.queueSize"),
     AUDIT_VAULT_MAX_RECORDS                         ("audit.vault.maxRecords"),
     BACKUP_LOCATION                                 ("backup.path"),
     BACKUP_CONFIG_COUNT                             ("backup.config.count"),
@@ -52,6 +56,12 @@ public enum AppProperty {
     CONFIG_EDITOR_QUERY_FILTER_TEST_LIMIT           ("configEditor.queryFilter.testLimit"),
     CONFIG_EDITOR_IDLE_TIMEOUT                      ("configEditor.idleTimeoutSeconds"),
     CONFIG_GUIDE_IDLE_TIMEOUT                       ("configGuide.idleTimeoutSeconds"),
+    DB_BATCH_SIZE                                   ("db.batch.size"),
+    DB_ITERATOR_FETCH_SIZE                          ("db.iterator.fetchSize"),
+    DB_POOL_MAX_CONNECTIONS                         ("db.pool.maxConnections"),
+    DB_POOL_MAX_WAIT_MS                             ("db.pool.maxWaitMS"),
+    DB_POOL_VALIDATION_FREQUENCY_MS                 ("db.pool.validationFrequencyMS"),
+    DB_POOL_VALIDATION_TIMEOUT_SECONDS              ("db.pool.validationTimeoutSeconds"),
     FORM_EMAIL_REGEX                                ("form.email.regexTest"),
     HTTP_RESOURCES_MAX_CACHE_ITEMS                  ("http.resources.maxCacheItems"),
     HTTP_RESOURCES_MAX_CACHE_BYTES                  ("http.resources.maxCacheBytes"),
@@ -97,6 +107,8 @@ public enum AppProperty {
     LOCALDB_COMPRESSION_ENABLED                     ("localdb.compression.enabled"),
     LOCALDB_DECOMPRESSION_ENABLED                   ("localdb.decompression.enabled"),
     LOCALDB_COMPRESSION_MINSIZE                     ("localdb.compression.minSize"),
+    LOCALDB_COMPRESSION_CODEC                       ("localdb.compression.codec"),
+    LOCALDB_COMPRESSION_DICTIONARY_DBS              ("localdb.compression.dictionaryDBs"),
     LOCALDB_IMPLEMENTATION                          ("localdb.implementation"),
     LOCALDB_INIT_STRING                             ("localdb.initParameters"),
     MACRO_RANDOM_CHAR_MAX_LENGTH                    ("macro.randomChar.maxLength"),
@@ -115,7 +127,14 @@ public enum AppProperty {
     INTRUDER_MAX_DELAY_PENALTY_MS                   ("intruder.maximumDelayPenaltyMS"),
     INTRUDER_DELAY_PER_COUNT_MS                     ("intruder.delayPerCountMS"),
     INTRUDER_DELAY_MAX_JITTER_MS                    ("intruder.delayMaxJitterMS"),
+
+    /** How often modified intruder records are written to the intruder table. */
+    INTRUDER_WRITE_BEHIND_FREQUENCY_MS              ("intruder.writeBehindFrequencyMS"),
+
+    /** Time an unmodified intruder record is kept in memory before being re-read from the intruder table. */
+    INTRUDER_CACHE_MAX_AGE_MS                       ("intruder.cache.maxAgeMS"),
     HEALTH_MIN_CHECK_INTERVAL_SECONDS               ("health.minimumCheckIntervalSeconds"),
+    HEALTH_CHECK_TIMEOUT_MS                         ("health.checkTimeoutMS"),
     HEALTH_CERTIFICATE_WARN_SECONDS                 ("health.certificate.warnSeconds"),
     HEALTH_LDAP_CAUTION_DURATION_MS                 ("health.ldap.cautionDurationMS"),
     HEALTH_JAVA_MAX_THREADS                         ("health.java.maxThreads"),
@@ -133,6 +152,9 @@ public enum AppProperty {
     LOGGING_FILE_MAX_ROLLOVER                       ("logging.file.maxRollover"),
     LOGGING_FILE_PATH                               ("logging.file.path"),
     LOGGING_DEV_OUTPUT                              ("logging.devOutput.enable"),
+    LOGGING_LOCALDB_BLOCK_DEADLINE_MS               ("logging.localdb.blockDeadlineMS"),
+    LOGGING_LOCALDB_MAX_BATCH_BYTES                 ("logging.localdb.maxBatchBytes"),
+    LOGGING_LOCALDB_OVERFLOW_POLICY                 ("logging.localdb.overflowPolicy"),
     NEWUSER_LDAP_USE_TEMP_PW                        ("newUser.ldap.useTempPassword"),
     NMAS_THREADS_MAX_COUNT                          ("nmas.threads.maxCount"),
     NMAS_THREADS_MIN_SECONDS                        ("nmas.threads.minSeconds"),
@@ -157,12 +179,17 @@ public enum AppProperty {
     PASSWORD_RANDOMGEN_MAX_ATTEMPTS                 ("password.randomGenerator.maxAttempts"),
     PASSWORD_RANDOMGEN_MAX_LENGTH                   ("password.randomGenerator.maxLength"),
     PASSWORD_RANDOMGEN_JITTER_COUNT                 ("password.randomGenerator.jitter.count"),
+    PASSWORD_RANDOMGEN_POOL_SIZE                    ("password.randomGenerator.pool.size"),
+    PASSWORD_RANDOMGEN_POOL_MAX_POLICIES            ("password.randomGenerator.pool.maxPolicies"),
     PEOPLESEARCH_DISPLAYNAME_USEALLMACROS           ("peoplesearch.displayName.enableAllMacros"),
     PEOPLESEARCH_MAX_VALUE_VERIFYUSERDN             ("peoplesearch.values.verifyUserDN"),
     PEOPLESEARCH_VALUE_MAXCOUNT                     ("peoplesearch.values.maxCount"),
     QUEUE_EMAIL_RETRY_TIMEOUT_MS                    ("queue.email.retryTimeoutMs"),
     QUEUE_EMAIL_MAX_AGE_MS                          ("queue.email.maxAgeMs"),
     QUEUE_EMAIL_MAX_COUNT                           ("queue.email.maxCount"),
+    QUEUE_EMAIL_MAX_MESSAGES_PER_CONNECTION         ("queue.email.maxMessagesPerConnection"),
+    QUEUE_EMAIL_MAX_SENDS_PER_SECOND                ("queue.email.maxSendsPerSecond"),
+    QUEUE_EMAIL_WORKER_THREADS                      ("queue.email.workerThreads"),
     QUEUE_SMS_RETRY_TIMEOUT_MS                      ("queue.sms.retryTimeoutMs"),
     QUEUE_SMS_MAX_AGE_MS                            ("queue.sms.maxAgeMs"),
     QUEUE_SMS_MAX_COUNT                             ("queue.sms.maxCount"),
@@ -174,6 +201,7 @@ public enum AppProperty {
     RECAPTCHA_CLIENT_IFRAME_URL                     ("recaptcha.clientIframeUrl"),
     RECAPTCHA_VALIDATE_URL                          ("recaptcha.validateUrl"),
     REPORTING_LDAP_SEARCH_TIMEOUT                   ("reporting.ldap.searchTimeoutMs"),
+    REPORTING_LDAP_MAX_THREADS                      ("reporting.ldap.maxThreads"),
     SECURITY_STRIP_INLINE_JAVASCRIPT                ("security.html.stripInlineJavascript"),
     SECURITY_HTTP_STRIP_HEADER_REGEX                ("security.http.stripHeaderRegex"),
     SECURITY_HTTP_PROMISCUOUS_ENABLE                ("security.http.promiscuousEnable"),
@@ -185,12 +213,18 @@ public enum AppProperty {
     SECURITY_SHAREDHISTORY_HASH_NAME                ("security.sharedHistory.hashName"),
     SECURITY_SHAREDHISTORY_CASE_INSENSITIVE         ("security.sharedHistory.caseInsensitive"),
     SECURITY_CERTIFICATES_VALIDATE_TIMESTAMPS       ("security.certs.validateTimestamps"),
+    TOKEN_EXPIRY_BUCKET_MS                          ("token.expiryBucketMS"),
     TOKEN_REMOVAL_DELAY_MS                          ("token.removalDelayMS"),
     TOKEN_PURGE_BATCH_SIZE                          ("token.purgeBatchSize"),
     TOKEN_MAX_UNIQUE_CREATE_ATTEMPTS                ("token.maxUniqueCreateAttempts"),
     
     /** Regular expression to be used for matching URLs to be shortened by the URL Shortening Service Class. */
     URL_SHORTNER_URL_REGEX                          ("urlshortener.url.regex"),
+    WORDLIST_FILTER_ENABLE                          ("wordlist.filter.enable"),
+    WORDLIST_FILTER_FALSE_POSITIVE_RATE             ("wordlist.filter.falsePositiveRate"),
+    WORDLIST_FILTER_MAX_BYTES                       ("wordlist.filter.maxBytes"),
+    WORDLIST_IMPORT_THREADS                         ("wordlist.import.threads"),
+    WORDLIST_STORAGE_METHOD                         ("wordlist.storageMethod"),
     WS_REST_CLIENT_PWRULE_HALTONERROR               ("ws.restClient.pwRule.haltOnError"),
 
     ;
@@ -143,7 +143,8 @@ public class PwmApplication {
             ReportService.class,
             CrService.class,
             OtpService.class,
-            CacheService.class
+            CacheService.class,
+            RandomPasswordService.class
     ));
 
 
@@ -522,6 +523,10 @@ public class PwmApplication {
         return (CacheService)pwmServices.get(CacheService.class);
     }
 
+    public RandomPasswordService getRandomPasswordService() {
+        return (RandomPasswordService)pwmServices.get(RandomPasswordService.class);
+    }
+
     public void sendSmsUsingQueue(
             final SmsItemBean smsItem,
             final MacroMachine macroMachine
@@ -41,6 +41,7 @@ import password.pwm.util.SecureHelper;
 import password.pwm.util.StringUtil;
 import password.pwm.util.logging.PwmLogLevel;
 import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.macro.MacroTemplateCache;
 
 import javax.crypto.SecretKey;
 import java.io.Serializable;
@@ -60,6 +61,8 @@ public class Configuration implements Serializable, SettingReader {
 
     private DataCache dataCache = new DataCache();
 
+    private transient volatile ConfigurationSnapshot snapshot;
+
     // --------------------------- CONSTRUCTORS ---------------------------
 
     public Configuration(final StoredConfiguration storedConfiguration) {
@@ -151,6 +154,10 @@ public class Configuration implements Serializable, SettingReader {
     }
 
     public String readSettingAsString(final PwmSetting setting) {
+        final Object decodedValue = snapshot().decodedValue(setting);
+        if (decodedValue instanceof String) {
+            return (String)decodedValue;
+        }
         return JavaTypeConverter.valueToString(readStoredValue(setting));
     }
 
@@ -362,6 +369,10 @@ public class Configuration implements Serializable, SettingReader {
     }
 
     public long readSettingAsLong(final PwmSetting setting) {
+        final Object decodedValue = snapshot().decodedValue(setting);
+        if (decodedValue instanceof Long) {
+            return (Long)decodedValue;
+        }
         return JavaTypeConverter.valueToLong(readStoredValue(setting));
     }
 
@@ -441,6 +452,10 @@ public class Configuration implements Serializable, SettingReader {
     }
 
     public List<String> readSettingAsStringArray(final PwmSetting setting) {
+        final List<String> stringArrayValue = snapshot().stringArrayValue(setting);
+        if (stringArrayValue != null) {
+            return new ArrayList<>(stringArrayValue);
+        }
         return JavaTypeConverter.valueToStringArray(readStoredValue(setting));
     }
 
@@ -477,6 +492,10 @@ public class Configuration implements Serializable, SettingReader {
     }
 
     public boolean readSettingAsBoolean(final PwmSetting setting) {
+        final Object decodedValue = snapshot().decodedValue(setting);
+        if (decodedValue instanceof Boolean) {
+            return (Boolean)decodedValue;
+        }
         return JavaTypeConverter.valueToBoolean(readStoredValue(setting));
     }
 
@@ -572,6 +591,13 @@ public class Configuration implements Serializable, SettingReader {
         return dataCache.localeFlagMap;
     }
 
+    public MacroTemplateCache getMacroTemplateCache() {
+        if (dataCache.macroTemplateCache == null) {
+            dataCache.macroTemplateCache = new MacroTemplateCache();
+        }
+        return dataCache.macroTemplateCache;
+    }
+
     private Map<Locale,String> figureLocaleFlagMap() {
         final String defaultLocaleAsString = PwmConstants.DEFAULT_LOCALE.toString();
 
@@ -642,6 +668,10 @@ public class Configuration implements Serializable, SettingReader {
     }
 
     public String readAppProperty(AppProperty property) {
+        final ConfigurationSnapshot currentSnapshot = snapshot();
+        if (currentSnapshot.hasAppProperties()) {
+            return currentSnapshot.appProperty(property);
+        }
         final Map<String,String> configurationValues = StringUtil.convertStringListToNameValuePair(this.readSettingAsStringArray(PwmSetting.APP_PROPERTY_OVERRIDES),"=");
         if (configurationValues.containsKey(property.getKey())) {
             return configurationValues.get(property.getKey());
@@ -714,22 +744,34 @@ public class Configuration implements Serializable, SettingReader {
     }
 
     private StoredValue readStoredValue(final PwmSetting setting) {
-        if (dataCache.settings.containsKey(setting)) {
-            return dataCache.settings.get(setting);
+        final ConfigurationSnapshot currentSnapshot = snapshot();
+        if (currentSnapshot.isCompiled(setting)) {
+            return currentSnapshot.storedValue(setting);
         }
+        return storedConfiguration.readSetting(setting);
+    }
 
-        final StoredValue readValue = storedConfiguration.readSetting(setting);
-        dataCache.settings.put(setting, readValue);
-        return readValue;
+    /**
+     * The snapshot is compiled on first use rather than in the constructor, since the configuration editor creates
+     * short lived instances that only read a few settings.  Concurrent first reads may each compile an equivalent
+     * snapshot; the volatile field publishes whichever is written last.
+     */
+    private ConfigurationSnapshot snapshot() {
+        ConfigurationSnapshot currentSnapshot = snapshot;
+        if (currentSnapshot == null) {
+            currentSnapshot = ConfigurationSnapshot.compile(storedConfiguration);
+            snapshot = currentSnapshot;
+        }
+        return currentSnapshot;
     }
 
     private static class DataCache implements Serializable {
         private final Map<String,Map<Locale,PwmPasswordPolicy>> cachedPasswordPolicy = new HashMap<>();
         private Map<Locale,String> localeFlagMap = null;
         private Map<String,LdapProfile> ldapProfiles;
-        private final Map<PwmSetting, StoredValue> settings = new EnumMap<>(PwmSetting.class);
         private final Map<String,Map<Locale,String>> customText = new HashMap<>();
         private final Map<ProfileType,Map<String,Profile>> profileCache = new HashMap<>();
+        private transient MacroTemplateCache macroTemplateCache;
     }
 
     public Map<AppProperty,String> readAllNonDefaultAppProperties() {
@@ -0,0 +1,145 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.config;
+
+import password.pwm.AppProperty;
+import password.pwm.config.value.BooleanValue;
+import password.pwm.config.value.NumericValue;
+import password.pwm.config.value.StringArrayValue;
+import password.pwm.config.value.StringValue;
+import password.pwm.util.StringUtil;
+import password.pwm.util.logging.PwmLogger;
+
+import java.util.*;
+
+/**
+ * Immutable copy of the non-profile setting values and the app properties of a {@link StoredConfiguration}, indexed
+ * by {@link PwmSetting} and {@link AppProperty} ordinal.  Each value is read from the xml document once, and boolean,
+ * numeric, string and string array values are decoded once, so {@link Configuration} reads are plain array lookups.
+ * <p>
+ * Profile settings are not part of the snapshot; they are read by the {@link password.pwm.config.profile.Profile}
+ * implementations when a profile is created.  A setting whose stored value can not be read is left out, so the
+ * read through {@link StoredConfiguration} reports the error to the caller as before.
+ */
+final class ConfigurationSnapshot {
+    private static final PwmLogger LOGGER = PwmLogger.forClass(ConfigurationSnapshot.class);
+
+    private final boolean[] compiled;
+    private final StoredValue[] storedValues;
+    private final Object[] decodedValues;
+    private final List<List<String>> stringArrayValues;
+    private final String[] appProperties;
+
+    private ConfigurationSnapshot(
+            final boolean[] compiled,
+            final StoredValue[] storedValues,
+            final Object[] decodedValues,
+            final List<List<String>> stringArrayValues,
+            final String[] appProperties
+    )
+    {
+        this.compiled = compiled;
+        this.storedValues = storedValues;
+        this.decodedValues = decodedValues;
+        this.stringArrayValues = stringArrayValues;
+        this.appProperties = appProperties;
+    }
+
+    static ConfigurationSnapshot compile(final StoredConfiguration storedConfiguration) {
+        final long startTime = System.currentTimeMillis();
+        final PwmSetting[] settings = PwmSetting.values();
+        final boolean[] compiled = new boolean[settings.length];
+        final StoredValue[] storedValues = new StoredValue[settings.length];
+        final Object[] decodedValues = new Object[settings.length];
+        final List<List<String>> stringArrayValues = new ArrayList<>(Collections.<List<String>>nCopies(settings.length, null));
+
+        for (final PwmSetting setting : settings) {
+            if (!setting.getCategory().hasProfiles()) {
+                try {
+                    final StoredValue storedValue = storedConfiguration.readSetting(setting);
+                    storedValues[setting.ordinal()] = storedValue;
+                    decodedValues[setting.ordinal()] = decode(storedValue);
+                    if (storedValue instanceof StringArrayValue) {
+                        stringArrayValues.set(setting.ordinal(),
+                                Collections.unmodifiableList(Configuration.JavaTypeConverter.valueToStringArray(storedValue)));
+                    }
+                    compiled[setting.ordinal()] = true;
+                } catch (RuntimeException e) {
+                    LOGGER.debug("unable to read setting " + setting.getKey() + " into configuration snapshot: " + e.getMessage());
+                }
+            }
+        }
+
+        String[] appProperties = null;
+        if (compiled[PwmSetting.APP_PROPERTY_OVERRIDES.ordinal()]) {
+            final List<String> overrideValues = stringArrayValues.get(PwmSetting.APP_PROPERTY_OVERRIDES.ordinal());
+            final Map<String,String> overrides = StringUtil.convertStringListToNameValuePair(overrideValues, "=");
+            appProperties = new String[AppProperty.values().length];
+            for (final AppProperty appProperty : AppProperty.values()) {
+                appProperties[appProperty.ordinal()] = overrides.containsKey(appProperty.getKey())
+                        ? overrides.get(appProperty.getKey())
+                        : appProperty.getDefaultValue();
+            }
+        }
+
+        LOGGER.trace("compiled configuration snapshot in " + (System.currentTimeMillis() - startTime) + "ms");
+        return new ConfigurationSnapshot(compiled, storedValues, decodedValues, stringArrayValues, appProperties);
+    }
+
+    private static Object decode(final StoredValue storedValue) {
+        if (storedValue instanceof BooleanValue || storedValue instanceof NumericValue || storedValue instanceof StringValue) {
+            return storedValue.toNativeObject();
+        }
+        return null;
+    }
+
+    boolean isCompiled(final PwmSetting setting) {
+        return compiled[setting.ordinal()];
+    }
+
+    StoredValue storedValue(final PwmSetting setting) {
+        return storedValues[setting.ordinal()];
+    }
+
+    /**
+     * @return the decoded native value, or null if the setting syntax is not decoded or its native value is null
+     */
+    Object decodedValue(final PwmSetting setting) {
+        return decodedValues[setting.ordinal()];
+    }
+
+    /**
+     * @return the decoded string array value, or null if the setting is not a compiled string array setting
+     */
+    List<String> stringArrayValue(final PwmSetting setting) {
+        return stringArrayValues.get(setting.ordinal());
+    }
+
+    boolean hasAppProperties() {
+        return appProperties != null;
+    }
+
+    String appProperty(final AppProperty appProperty) {
+        return appProperties[appProperty.ordinal()];
+    }
+}
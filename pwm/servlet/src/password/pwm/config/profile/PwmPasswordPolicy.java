@@ -51,6 +51,8 @@ public class PwmPasswordPolicy implements Profile,Serializable {
 
     private transient final ChaiPasswordPolicy chaiPasswordPolicy;
 
+    private transient volatile RuleHelper ruleHelper;
+
     private String profileID;
     private List<UserPermission> userPermissions;
     private String ruleText;
@@ -145,8 +147,19 @@ public class PwmPasswordPolicy implements Profile,Serializable {
         return chaiPasswordPolicy;
     }
 
+    /**
+     * The rule helper is built once per policy instance; the policy map does not change after construction, so the
+     * parsed rule lists and compiled patterns remain valid for the life of the policy.  Policies are cached by the
+     * {@link password.pwm.config.Configuration} they were read from and are discarded along with it when the
+     * configuration is reloaded.
+     */
     public RuleHelper getRuleHelper() {
-        return new RuleHelper(this);
+        RuleHelper helper = ruleHelper;
+        if (helper == null) {
+            helper = new RuleHelper(this);
+            ruleHelper = helper;
+        }
+        return helper;
     }
 
     public String getValue(final PwmPasswordRule rule) {
@@ -283,31 +296,40 @@ public class PwmPasswordPolicy implements Profile,Serializable {
 
     public static class RuleHelper {
         private final PwmPasswordPolicy passwordPolicy;
-        private final PasswordRuleHelper chaiRuleHelper;
+        private final List<String> disallowedValues;
+        private final List<String> disallowedAttributes;
+        private final List<Pattern> regExMatch;
+        private final List<Pattern> regExNoMatch;
+        private final List<Pattern> charGroupValues;
 
         public RuleHelper(final PwmPasswordPolicy passwordPolicy) {
             this.passwordPolicy = passwordPolicy;
-            chaiRuleHelper = DefaultChaiPasswordPolicy.createDefaultChaiPasswordPolicy(passwordPolicy.policyMap).getRuleHelper();
+            final PasswordRuleHelper chaiRuleHelper = DefaultChaiPasswordPolicy.createDefaultChaiPasswordPolicy(passwordPolicy.policyMap).getRuleHelper();
+            disallowedValues = Collections.unmodifiableList(new ArrayList<>(chaiRuleHelper.getDisallowedValues()));
+            disallowedAttributes = Collections.unmodifiableList(new ArrayList<>(chaiRuleHelper.getDisallowedAttributes()));
+            regExMatch = readRegExSetting(PwmPasswordRule.RegExMatch);
+            regExNoMatch = readRegExSetting(PwmPasswordRule.RegExNoMatch);
+            charGroupValues = readRegExSetting(PwmPasswordRule.CharGroupsValues);
         }
 
         public List<String> getDisallowedValues() {
-            return chaiRuleHelper.getDisallowedValues();
+            return disallowedValues;
         }
 
         public List<String> getDisallowedAttributes() {
-            return chaiRuleHelper.getDisallowedAttributes();
+            return disallowedAttributes;
         }
 
         public List<Pattern> getRegExMatch() {
-            return readRegExSetting(PwmPasswordRule.RegExMatch);
+            return regExMatch;
         }
 
         public List<Pattern> getRegExNoMatch() {
-            return readRegExSetting(PwmPasswordRule.RegExNoMatch);
+            return regExNoMatch;
         }
 
         public List<Pattern> getCharGroupValues() {
-            return readRegExSetting(PwmPasswordRule.CharGroupsValues);
+            return charGroupValues;
         }
 
 
@@ -354,7 +376,7 @@ public class PwmPasswordPolicy implements Profile,Serializable {
                 }
             }
 
-            return patterns;
+            return Collections.unmodifiableList(patterns);
         }
 
         public String getChangeMessage() {
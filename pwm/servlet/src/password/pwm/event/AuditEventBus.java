@@ -0,0 +1,282 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.event;
+
+import password.pwm.PwmApplication;
+import password.pwm.error.PwmException;
+import password.pwm.health.HealthRecord;
+import password.pwm.health.HealthStatus;
+import password.pwm.health.HealthTopic;
+import password.pwm.util.Helper;
+import password.pwm.util.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.stats.LatencyHistogram;
+
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers submitted audit records to the audit sinks (vault, user history, syslog, email) on background threads, so
+ * a slow directory, database or mail server does not add latency to the operation being audited.
+ * <p/>
+ * Each sink has its own bounded queue and consumer thread and receives records in batches of up to
+ * {@link Settings#getBatchSize()}.  When a sink's queue is full the {@link BackpressurePolicy} decides what happens
+ * to the submitting thread.
+ */
+class AuditEventBus {
+    private static final PwmLogger LOGGER = PwmLogger.forClass(AuditEventBus.class);
+
+    private static final long IDLE_POLL_MS = 1000;
+
+    enum BackpressurePolicy {
+        /** wait up to {@link Settings#getMaxBlockMs()} for space in the queue, then discard the record */
+        BLOCK,
+
+        /** discard the record immediately */
+        DISCARD,
+
+        /** deliver the record to the sink on the submitting thread */
+        CALLER_RUNS,
+    }
+
+    interface Sink {
+        String getName();
+
+        boolean accepts(AuditRecord auditRecord);
+
+        void process(List<AuditRecord> auditRecords) throws PwmException;
+    }
+
+    static class Settings {
+        private final int queueSize;
+        private final int batchSize;
+        private final long maxBlockMs;
+        private final BackpressurePolicy backpressurePolicy;
+
+        Settings(final int queueSize, final int batchSize, final long maxBlockMs, final BackpressurePolicy backpressurePolicy) {
+            this.queueSize = Math.max(1, queueSize);
+            this.batchSize = Math.max(1, batchSize);
+            this.maxBlockMs = Math.max(0, maxBlockMs);
+            this.backpressurePolicy = backpressurePolicy;
+        }
+
+        int getQueueSize() {
+            return queueSize;
+        }
+
+        int getBatchSize() {
+            return batchSize;
+        }
+
+        long getMaxBlockMs() {
+            return maxBlockMs;
+        }
+
+        BackpressurePolicy getBackpressurePolicy() {
+            return backpressurePolicy;
+        }
+    }
+
+    private final Settings settings;
+    private final List<SinkWorker> workers = new ArrayList<>();
+    private volatile boolean closing;
+
+    AuditEventBus(final PwmApplication pwmApplication, final Settings settings, final List<Sink> sinks) {
+        this.settings = settings;
+        for (final Sink sink : sinks) {
+            final SinkWorker worker = new SinkWorker(sink);
+            final Thread thread = new Thread(worker, Helper.makeThreadName(pwmApplication, AuditEventBus.class) + " " + sink.getName());
+            thread.setDaemon(true);
+            worker.thread = thread;
+            workers.add(worker);
+        }
+        for (final SinkWorker worker : workers) {
+            worker.thread.start();
+        }
+        LOGGER.debug("started with sinks " + sinkNames() + ", queue size " + settings.getQueueSize()
+                + ", backpressure policy " + settings.getBackpressurePolicy());
+    }
+
+    void submit(final AuditRecord auditRecord) {
+        for (final SinkWorker worker : workers) {
+            if (worker.sink.accepts(auditRecord)) {
+                worker.enqueue(auditRecord);
+            }
+        }
+    }
+
+    /**
+     * Stop accepting records and wait for the sink threads to deliver what is already queued.
+     */
+    void close(final long timeoutMs) {
+        closing = true;
+        final long deadline = System.currentTimeMillis() + timeoutMs;
+        for (final SinkWorker worker : workers) {
+            try {
+                worker.thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (worker.thread.isAlive()) {
+                worker.thread.interrupt();
+                LOGGER.warn("closed before sink '" + worker.sink.getName() + "' delivered " + worker.queue.size() + " queued audit records");
+            }
+        }
+    }
+
+    List<HealthRecord> healthCheck() {
+        final NumberFormat numberFormat = NumberFormat.getInstance();
+        final List<HealthRecord> healthRecords = new ArrayList<>();
+        for (final SinkWorker worker : workers) {
+            final long droppedCount = worker.droppedCount.get();
+            if (droppedCount > 0) {
+                healthRecords.add(new HealthRecord(HealthStatus.WARN, HealthTopic.Audit, "audit sink '" + worker.sink.getName()
+                        + "' has discarded " + numberFormat.format(droppedCount) + " records because its queue was full"));
+            }
+
+            final StringBuilder sb = new StringBuilder();
+            sb.append("audit sink '").append(worker.sink.getName()).append("': ");
+            sb.append(numberFormat.format(worker.deliveredCount.get())).append(" delivered, ");
+            sb.append(numberFormat.format(worker.failedCount.get())).append(" failed, ");
+            sb.append(numberFormat.format(worker.queue.size())).append(" queued");
+            final QueuedRecord oldestQueued = worker.queue.peek();
+            if (oldestQueued != null) {
+                sb.append(" (oldest ").append(TimeDuration.fromCurrent(oldestQueued.queuedTime).asCompactString()).append(")");
+            }
+            if (worker.deliveryLag.getCount() > 0) {
+                sb.append(", delivery lag p50=").append(LatencyHistogram.formatMs(worker.deliveryLag.getPercentile(0.50))).append("ms");
+                sb.append(" p99=").append(LatencyHistogram.formatMs(worker.deliveryLag.getPercentile(0.99))).append("ms");
+            }
+            healthRecords.add(new HealthRecord(HealthStatus.GOOD, HealthTopic.Audit, sb.toString()));
+        }
+        return healthRecords;
+    }
+
+    private List<String> sinkNames() {
+        final List<String> names = new ArrayList<>();
+        for (final SinkWorker worker : workers) {
+            names.add(worker.sink.getName());
+        }
+        return names;
+    }
+
+    private static class QueuedRecord {
+        private final AuditRecord auditRecord;
+        private final long queuedNanos = System.nanoTime();
+        private final long queuedTime = System.currentTimeMillis();
+
+        private QueuedRecord(final AuditRecord auditRecord) {
+            this.auditRecord = auditRecord;
+        }
+    }
+
+    private class SinkWorker implements Runnable {
+        private final Sink sink;
+        private final BlockingQueue<QueuedRecord> queue = new ArrayBlockingQueue<>(settings.getQueueSize());
+        private final AtomicLong deliveredCount = new AtomicLong();
+        private final AtomicLong failedCount = new AtomicLong();
+        private final AtomicLong droppedCount = new AtomicLong();
+        private final LatencyHistogram deliveryLag = new LatencyHistogram();
+        private Thread thread;
+
+        private SinkWorker(final Sink sink) {
+            this.sink = sink;
+        }
+
+        private void enqueue(final AuditRecord auditRecord) {
+            final QueuedRecord queuedRecord = new QueuedRecord(auditRecord);
+            if (queue.offer(queuedRecord)) {
+                return;
+            }
+
+            switch (settings.getBackpressurePolicy()) {
+                case BLOCK:
+                    try {
+                        if (queue.offer(queuedRecord, settings.getMaxBlockMs(), TimeUnit.MILLISECONDS)) {
+                            return;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    break;
+
+                case CALLER_RUNS:
+                    deliver(Collections.singletonList(queuedRecord));
+                    return;
+
+                default:
+                    break;
+            }
+
+            droppedCount.incrementAndGet();
+            LOGGER.warn("discarding audit record for sink '" + sink.getName() + "', queue is full; event=" + auditRecord.getEventCode());
+        }
+
+        public void run() {
+            final List<QueuedRecord> batch = new ArrayList<>(settings.getBatchSize());
+            try {
+                while (true) {
+                    final QueuedRecord first = closing ? queue.poll() : queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        if (closing) {
+                            return;
+                        }
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, settings.getBatchSize() - 1);
+                    deliver(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                LOGGER.debug("sink '" + sink.getName() + "' interrupted with " + queue.size() + " queued audit records");
+            }
+        }
+
+        private void deliver(final List<QueuedRecord> batch) {
+            final List<AuditRecord> auditRecords = new ArrayList<>(batch.size());
+            for (final QueuedRecord queuedRecord : batch) {
+                auditRecords.add(queuedRecord.auditRecord);
+            }
+
+            try {
+                sink.process(auditRecords);
+                deliveredCount.addAndGet(batch.size());
+            } catch (Exception e) {
+                failedCount.addAndGet(batch.size());
+                LOGGER.error("error delivering " + batch.size() + " audit records to sink '" + sink.getName() + "': " + e.getMessage());
+            }
+
+            final long now = System.nanoTime();
+            for (final QueuedRecord queuedRecord : batch) {
+                deliveryLag.record(TimeUnit.NANOSECONDS.toMicros(now - queuedRecord.queuedNanos));
+            }
+        }
+    }
+}
@@ -65,6 +65,7 @@ public class AuditManager implements PwmService {
     private ErrorInformation lastError;
     private UserHistoryStore userHistoryStore;
     private AuditVault auditVault;
+    private AuditEventBus eventBus;
 
     private PwmApplication pwmApplication;
 
@@ -265,12 +266,36 @@ public class AuditManager implements PwmService {
                 auditVault.init(settings);
             }
         }
+        {
+            final Configuration config = pwmApplication.getConfig();
+            final AuditEventBus.Settings busSettings = new AuditEventBus.Settings(
+                    Integer.parseInt(config.readAppProperty(AppProperty.AUDIT_PIPELINE_QUEUE_SIZE)),
+                    Integer.parseInt(config.readAppProperty(AppProperty.AUDIT_PIPELINE_BATCH_SIZE)),
+                    Long.parseLong(config.readAppProperty(AppProperty.AUDIT_PIPELINE_MAX_BLOCK_MS)),
+                    readBackpressurePolicy(config)
+            );
+
+            final List<AuditEventBus.Sink> sinks = new ArrayList<>();
+            sinks.add(new VaultSink());
+            sinks.add(new UserHistorySink());
+            if (syslogManager != null) {
+                sinks.add(new SyslogSink());
+            }
+            if (!settings.systemEmailAddresses.isEmpty() || !settings.userEmailAddresses.isEmpty()) {
+                sinks.add(new EmailSink());
+            }
+            eventBus = new AuditEventBus(pwmApplication, busSettings, sinks);
+        }
 
         this.status = STATUS.OPEN;
     }
 
     @Override
     public void close() {
+        this.status = STATUS.CLOSED;
+        if (eventBus != null) {
+            eventBus.close(Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.QUEUE_MAX_CLOSE_TIMEOUT_MS)));
+        }
         if (syslogManager != null) {
             syslogManager.close();
         }
@@ -292,6 +317,10 @@ public class AuditManager implements PwmService {
             healthRecords.add(new HealthRecord(HealthStatus.WARN, HealthTopic.Audit, lastError.toDebugStr()));
         }
 
+        if (eventBus != null) {
+            healthRecords.addAll(eventBus.healthCheck());
+        }
+
         return healthRecords;
     }
 
@@ -383,46 +412,115 @@ public class AuditManager implements PwmService {
     public void submit(final AuditRecord auditRecord)
             throws PwmUnrecoverableException
     {
-
-        final String jsonRecord = JsonUtil.serialize(auditRecord);
-
         if (status != STATUS.OPEN) {
-            LOGGER.debug("discarding audit event (AuditManager is not open); event=" + jsonRecord);
+            LOGGER.debug("discarding audit event (AuditManager is not open); event=" + JsonUtil.serialize(auditRecord));
             return;
         }
 
         if (auditRecord.getEventCode() == null) {
-            LOGGER.error("discarding audit event, missing event type; event=" + jsonRecord);
+            LOGGER.error("discarding audit event, missing event type; event=" + JsonUtil.serialize(auditRecord));
             return;
         }
 
         if (!settings.permittedEvents.contains(auditRecord.getEventCode())) {
-            LOGGER.debug("discarding event, " + auditRecord.getEventCode() + " are being ignored; event=" + jsonRecord);
+            LOGGER.debug("discarding event, " + auditRecord.getEventCode() + " are being ignored; event=" + JsonUtil.serialize(auditRecord));
             return;
         }
 
-        // add to debug log
-        LOGGER.info("audit event: " + jsonRecord);
+        // debug log, audit db, user history, syslog and email alerts are written by the event bus sinks
+        eventBus.submit(auditRecord);
+    }
 
-        // add to audit db
-        if (auditVault != null) {
-            auditVault.add(auditRecord);
+    private static AuditEventBus.BackpressurePolicy readBackpressurePolicy(final Configuration config) {
+        final String value = config.readAppProperty(AppProperty.AUDIT_PIPELINE_BACKPRESSURE);
+        try {
+            return AuditEventBus.BackpressurePolicy.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            final AuditEventBus.BackpressurePolicy defaultPolicy = AuditEventBus.BackpressurePolicy.valueOf(
+                    AppProperty.AUDIT_PIPELINE_BACKPRESSURE.getDefaultValue());
+            LOGGER.warn("unknown value '" + value + "' for app property " + AppProperty.AUDIT_PIPELINE_BACKPRESSURE.getKey()
+                    + ", using default " + defaultPolicy);
+            return defaultPolicy;
         }
+    }
 
-        // email alert
-        sendAsEmail(auditRecord);
+    private class VaultSink implements AuditEventBus.Sink {
+        public String getName() {
+            return "vault";
+        }
 
-        // add to user ldap record
-        if (auditRecord instanceof UserAuditRecord && auditRecord.getEventCode().isStoreOnUser()) {
-            userHistoryStore.updateUserHistory((UserAuditRecord)auditRecord);
+        public boolean accepts(final AuditRecord auditRecord) {
+            return true;
         }
 
-        // send to syslog
-        if (syslogManager != null) {
-            try {
-                syslogManager.add(auditRecord);
-            } catch (PwmOperationalException e) {
-                lastError = e.getErrorInformation();
+        public void process(final List<AuditRecord> auditRecords) {
+            for (final AuditRecord auditRecord : auditRecords) {
+                LOGGER.info("audit event: " + JsonUtil.serialize(auditRecord));
+            }
+            if (auditVault != null) {
+                auditVault.addAll(auditRecords);
+            }
+        }
+    }
+
+    private class UserHistorySink implements AuditEventBus.Sink {
+        public String getName() {
+            return "userHistory";
+        }
+
+        public boolean accepts(final AuditRecord auditRecord) {
+            return auditRecord instanceof UserAuditRecord && auditRecord.getEventCode().isStoreOnUser();
+        }
+
+        public void process(final List<AuditRecord> auditRecords) throws PwmUnrecoverableException {
+            // one read and write of the stored history per user in the batch
+            final Map<String,List<UserAuditRecord>> recordsByUser = new LinkedHashMap<>();
+            for (final AuditRecord auditRecord : auditRecords) {
+                final UserAuditRecord userAuditRecord = (UserAuditRecord)auditRecord;
+                final String userKey = userAuditRecord.getPerpetratorLdapProfile() + "|" + userAuditRecord.getPerpetratorDN();
+                if (!recordsByUser.containsKey(userKey)) {
+                    recordsByUser.put(userKey, new ArrayList<UserAuditRecord>());
+                }
+                recordsByUser.get(userKey).add(userAuditRecord);
+            }
+            for (final List<UserAuditRecord> userRecords : recordsByUser.values()) {
+                userHistoryStore.updateUserHistory(userRecords);
+            }
+        }
+    }
+
+    private class SyslogSink implements AuditEventBus.Sink {
+        public String getName() {
+            return "syslog";
+        }
+
+        public boolean accepts(final AuditRecord auditRecord) {
+            return true;
+        }
+
+        public void process(final List<AuditRecord> auditRecords) {
+            for (final AuditRecord auditRecord : auditRecords) {
+                try {
+                    syslogManager.add(auditRecord);
+                } catch (PwmOperationalException e) {
+                    lastError = e.getErrorInformation();
+                }
+            }
+        }
+    }
+
+    private class EmailSink implements AuditEventBus.Sink {
+        public String getName() {
+            return "email";
+        }
+
+        public boolean accepts(final AuditRecord auditRecord) {
+            return true;
+        }
+
+        public void process(final List<AuditRecord> auditRecords) throws PwmUnrecoverableException {
+            for (final AuditRecord auditRecord : auditRecords) {
+                sendAsEmail(auditRecord);
             }
         }
     }
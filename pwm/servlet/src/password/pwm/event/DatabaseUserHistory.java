@@ -38,6 +38,7 @@ import password.pwm.util.logging.PwmLogger;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 class DatabaseUserHistory implements UserHistoryStore {
@@ -55,6 +56,16 @@ class DatabaseUserHistory implements UserHistoryStore {
 
     @Override
     public void updateUserHistory(UserAuditRecord auditRecord) throws PwmUnrecoverableException {
+        updateUserHistory(Collections.singletonList(auditRecord));
+    }
+
+    @Override
+    public void updateUserHistory(final List<UserAuditRecord> auditRecords) throws PwmUnrecoverableException {
+        if (auditRecords.isEmpty()) {
+            return;
+        }
+
+        final UserAuditRecord auditRecord = auditRecords.get(0);
         final UserIdentity targetUserDN = new UserIdentity(auditRecord.getPerpetratorDN(),auditRecord.getPerpetratorLdapProfile());
         final String guid;
         try {
@@ -67,7 +78,7 @@ class DatabaseUserHistory implements UserHistoryStore {
         try {
             final StoredHistory storedHistory;
             storedHistory = readStoredHistory(guid);
-            storedHistory.getRecords().add(auditRecord);
+            storedHistory.getRecords().addAll(auditRecords);
             writeStoredHistory(guid,storedHistory);
         } catch (DatabaseException e) {
             throw new PwmUnrecoverableException(new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,e.getMessage()));
@@ -78,17 +78,28 @@ class LdapXmlUserHistory implements UserHistoryStore, Serializable {
     public void updateUserHistory(final UserAuditRecord auditRecord)
             throws PwmUnrecoverableException
     {
+        updateUserHistory(Collections.singletonList(auditRecord));
+    }
+
+    public void updateUserHistory(final List<UserAuditRecord> auditRecords)
+            throws PwmUnrecoverableException
+    {
+        if (auditRecords.isEmpty()) {
+            return;
+        }
+
         try {
-            updateUserHistoryImpl(auditRecord);
+            updateUserHistoryImpl(auditRecords);
         } catch (ChaiUnavailableException e) {
             throw new PwmUnrecoverableException(PwmError.forChaiError(e.getErrorCode()));
         }
     }
 
-    void updateUserHistoryImpl(final UserAuditRecord auditRecord)
+    void updateUserHistoryImpl(final List<UserAuditRecord> auditRecords)
             throws PwmUnrecoverableException, ChaiUnavailableException
     {
         // user info
+        final UserAuditRecord auditRecord = auditRecords.get(0);
         final UserIdentity userIdentity = new UserIdentity(auditRecord.getPerpetratorDN(),auditRecord.getPerpetratorLdapProfile());
         final ChaiUser theUser = pwmApplication.getProxiedChaiUser(userIdentity);
 
@@ -119,9 +130,10 @@ class LdapXmlUserHistory implements UserHistoryStore, Serializable {
             return;
         }
 
-        // add next record to blob
-        final StoredEvent storedEvent = StoredEvent.fromAuditRecord(auditRecord);
-        storedHistory.addEvent(storedEvent);
+        // add next records to blob
+        for (final UserAuditRecord loopRecord : auditRecords) {
+            storedHistory.addEvent(StoredEvent.fromAuditRecord(loopRecord));
+        }
 
         // trim the blob.
         final int maxUserEvents = (int) pwmApplication.getConfig().readSettingAsLong(PwmSetting.EVENTS_LDAP_MAX_EVENTS);
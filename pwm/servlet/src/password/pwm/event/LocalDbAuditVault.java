@@ -30,8 +30,10 @@ import password.pwm.util.localdb.LocalDBException;
 import password.pwm.util.localdb.LocalDBStoredQueue;
 import password.pwm.util.logging.PwmLogger;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 public class LocalDbAuditVault implements AuditVault {
@@ -125,20 +127,34 @@ public class LocalDbAuditVault implements AuditVault {
 
         final String jsonRecord = JsonUtil.serialize(record);
         auditDB.addLast(jsonRecord);
-        trim();
+        trim(MAX_REMOVALS_PER_ADD);
     }
 
-    private void trim() {
-        if (oldestRecord != null && TimeDuration.fromCurrent(oldestRecord).isLongerThan(settings.getMaxRecordAge())) {
+    public void addAll(final List<AuditRecord> records) {
+        final List<String> jsonRecords = new ArrayList<>(records.size());
+        for (final AuditRecord record : records) {
+            if (record != null) {
+                jsonRecords.add(JsonUtil.serialize(record));
+            }
+        }
+        if (jsonRecords.isEmpty()) {
             return;
         }
 
+        auditDB.addAllLast(jsonRecords);
+        trim(MAX_REMOVALS_PER_ADD * jsonRecords.size());
+    }
+
+    private void trim(final int maxRemovals) {
         if (auditDB.isEmpty()) {
             return;
         }
 
         int workActions = 0;
-        while (workActions < MAX_REMOVALS_PER_ADD && !auditDB.isEmpty()) {
+
+        // the head record is only read again once the previously read head record has reached the maximum age
+        final boolean headMayBeExpired = oldestRecord == null || TimeDuration.fromCurrent(oldestRecord).isLongerThan(settings.getMaxRecordAge());
+        while (headMayBeExpired && workActions < maxRemovals && !auditDB.isEmpty()) {
             final String stringFirstRecord = auditDB.getFirst();
             final UserAuditRecord firstRecord = JsonUtil.deserialize(stringFirstRecord, UserAuditRecord.class);
             oldestRecord = firstRecord.getTimestamp();
@@ -146,13 +162,14 @@ public class LocalDbAuditVault implements AuditVault {
                 auditDB.removeFirst();
                 workActions++;
             } else {
-                return;
+                break;
             }
         }
 
-        while (auditDB.size() > settings.getMaxRecordCount() && workActions < MAX_REMOVALS_PER_ADD) {
+        while (auditDB.size() > settings.getMaxRecordCount() && workActions < maxRemovals) {
             auditDB.removeFirst();
             workActions++;
+            oldestRecord = null;
         }
     }
 }
@@ -30,5 +30,10 @@ import java.util.List;
 public interface UserHistoryStore {
     void updateUserHistory(final UserAuditRecord auditRecord) throws PwmUnrecoverableException;
 
+    /**
+     * Add several records for the same user with a single read and write of the stored history.
+     */
+    void updateUserHistory(final List<UserAuditRecord> auditRecords) throws PwmUnrecoverableException;
+
     List<UserAuditRecord> readUserHistory(final UserInfoBean userInfoBean) throws PwmUnrecoverableException;
 }
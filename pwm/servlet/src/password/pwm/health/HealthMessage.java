@@ -64,6 +64,8 @@ public enum HealthMessage {
     LDAP_RecentlyUnreachable                (HealthStatus.CAUTION,  HealthTopic.LDAP),
     CryptoTokenWithNewUserVerification      (HealthStatus.CAUTION,  HealthTopic.Configuration),
     TokenServiceError                       (HealthStatus.WARN,     HealthTopic.TokenService),
+    TokenService_PurgeStatus                (HealthStatus.GOOD,     HealthTopic.TokenService),
+    TokenService_PurgeBacklog               (HealthStatus.GOOD,     HealthTopic.TokenService),
     Java_HighThreads                        (HealthStatus.CAUTION,  HealthTopic.Platform),
     Java_SmallHeap                          (HealthStatus.CAUTION,  HealthTopic.Platform),
     Java_OK                                 (HealthStatus.GOOD,     HealthTopic.Platform),
@@ -74,6 +76,7 @@ public enum HealthMessage {
     ServiceClosed_LocalDBUnavail            (HealthStatus.CAUTION,  HealthTopic.Application),
     ServiceClosed_AppReadOnly               (HealthStatus.CAUTION,  HealthTopic.Application),
     SMS_SendFailure                         (HealthStatus.WARN,     HealthTopic.SMS),
+    HealthCheck_Timeout                     (HealthStatus.CAUTION,  HealthTopic.Application),
 
     ;
 
@@ -27,10 +27,14 @@ import password.pwm.PwmApplication;
 import password.pwm.PwmService;
 import password.pwm.config.option.DataStorageMethod;
 import password.pwm.error.PwmException;
+import password.pwm.util.Helper;
+import password.pwm.util.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class HealthMonitor implements PwmService {
     private static final PwmLogger LOGGER = PwmLogger.forClass(HealthMonitor.class);
@@ -38,13 +42,21 @@ public class HealthMonitor implements PwmService {
     private static final int MAX_INTERVAL_SECONDS = 60 * 60 * 24;
 
     private PwmApplication pwmApplication;
-    private Set<HealthRecord> healthRecords = Collections.emptySet();
-    private final List<HealthChecker> healthCheckers = new ArrayList<>();
+    private volatile HealthSnapshot healthSnapshot = HealthSnapshot.EMPTY;
+    private final List<HealthChecker> healthCheckers = new CopyOnWriteArrayList<>();
+
+    // only accessed by the health check thread
+    private final Map<String,List<HealthRecord>> lastCheckResults = new HashMap<>();
+    private final Map<String,Future<List<HealthRecord>>> runningChecks = new HashMap<>();
+
+    private final AtomicBoolean refreshPending = new AtomicBoolean(false);
+    private ExecutorService healthCheckExecutor;
+    private ExecutorService checkerExecutor;
 
-    private Date lastHealthCheckDate = null;
     private int intervalSeconds = 0;
+    private long checkTimeoutMs = 0;
 
-    private Map<HealthProperty, Serializable> healthProperties = new HashMap<>();
+    private Map<HealthProperty, Serializable> healthProperties = new ConcurrentHashMap<>();
 
     private STATUS status = STATUS.NEW;
 
@@ -58,7 +70,15 @@ public class HealthMonitor implements PwmService {
     }
 
     public Date getLastHealthCheckDate() {
-        return lastHealthCheckDate;
+        return healthSnapshot.getTimestamp();
+    }
+
+    /**
+     * @return the time taken by each health checker and service health check during the most recent health check
+     * process, keyed by class name.
+     */
+    public Map<String,TimeDuration> getHealthCheckDurations() {
+        return healthSnapshot.getDurations();
     }
 
     public HealthStatus getMostSevereHealthStatus() {
@@ -85,17 +105,21 @@ public class HealthMonitor implements PwmService {
         return getHealthRecords(false);
     }
 
-    public synchronized Set<HealthRecord> getHealthRecords(final boolean refreshImmediate) {
-        if (lastHealthCheckDate == null || refreshImmediate) {
-            doHealthChecks();
-        } else {
-            final long lastHealthCheckMs = lastHealthCheckDate.getTime();
-            final long lastValidHealthCheckMs = System.currentTimeMillis() - (intervalSeconds * 1000);
-            if (lastHealthCheckMs < lastValidHealthCheckMs) {
-                doHealthChecks();
+    /**
+     * Returns the results of the most recent health check process without waiting for a new one.  If the results are
+     * older than the check interval, a new health check process is started in the background.
+     *
+     * @param refreshImmediate if true, wait for a new health check process to complete before returning
+     */
+    public Set<HealthRecord> getHealthRecords(final boolean refreshImmediate) {
+        if (status == STATUS.OPEN) {
+            if (refreshImmediate) {
+                waitForHealthChecks();
+            } else if (healthSnapshot.isOlderThan(intervalSeconds * 1000L)) {
+                requestHealthChecks();
             }
         }
-        return healthRecords;
+        return healthSnapshot.getHealthRecords();
     }
 
     public STATUS status() {
@@ -106,6 +130,7 @@ public class HealthMonitor implements PwmService {
         status = STATUS.OPENING;
         this.pwmApplication = pwmApplication;
         this.intervalSeconds = Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.HEALTH_MIN_CHECK_INTERVAL_SECONDS));
+        this.checkTimeoutMs = Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.HEALTH_CHECK_TIMEOUT_MS));
 
         if (intervalSeconds < MIN_INTERVAL_SECONDS) {
             intervalSeconds = MIN_INTERVAL_SECONDS;
@@ -121,48 +146,222 @@ public class HealthMonitor implements PwmService {
 
         final Set<HealthRecord> newHealthRecords = new HashSet<>();
         newHealthRecords.add(new HealthRecord(HealthStatus.CAUTION, HealthTopic.Application, "Health Check operation has not been performed since PWM has started."));
-        healthRecords = Collections.unmodifiableSet(newHealthRecords);
+        healthSnapshot = new HealthSnapshot(Collections.unmodifiableSet(newHealthRecords), null, Collections.<String,TimeDuration>emptyMap());
+
+        final String threadName = Helper.makeThreadName(pwmApplication, this.getClass());
+        healthCheckExecutor = Executors.newSingleThreadExecutor(Helper.makePwmThreadFactory(threadName, true));
+        checkerExecutor = Executors.newCachedThreadPool(Helper.makePwmThreadFactory(threadName + "-checker-", true));
 
         status = STATUS.OPEN;
     }
 
     public void close() {
-        healthRecords = Collections.emptySet();
         status = STATUS.CLOSED;
+        if (healthCheckExecutor != null) {
+            healthCheckExecutor.shutdownNow();
+            healthCheckExecutor = null;
+        }
+        if (checkerExecutor != null) {
+            checkerExecutor.shutdownNow();
+            checkerExecutor = null;
+        }
+        healthSnapshot = HealthSnapshot.EMPTY;
     }
 
     public List<HealthRecord> healthCheck() {
         return Collections.emptyList();
     }
 
+    private void requestHealthChecks() {
+        if (refreshPending.compareAndSet(false, true)) {
+            try {
+                healthCheckExecutor.submit(new HealthCheckTask(true));
+            } catch (RejectedExecutionException e) {
+                refreshPending.set(false);
+            }
+        }
+    }
+
+    private void waitForHealthChecks() {
+        try {
+            final Future<?> future = healthCheckExecutor.submit(new HealthCheckTask(false));
+            // allow for a health check process that is already running ahead of this one
+            future.get(checkTimeoutMs * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            LOGGER.warn("timed out waiting for health check process to complete, returning previous results");
+        } catch (RejectedExecutionException | ExecutionException e) {
+            LOGGER.warn("unable to complete health check process: " + e.getMessage());
+        }
+    }
+
+    private class HealthCheckTask implements Runnable {
+        private final boolean backgroundRequest;
+
+        private HealthCheckTask(final boolean backgroundRequest) {
+            this.backgroundRequest = backgroundRequest;
+        }
+
+        public void run() {
+            try {
+                doHealthChecks();
+            } catch (Exception e) {
+                LOGGER.error("unexpected error during health check process: " + e.getMessage(), e);
+            } finally {
+                if (backgroundRequest) {
+                    refreshPending.set(false);
+                }
+            }
+        }
+    }
+
     private void doHealthChecks() {
         if (status != STATUS.OPEN) {
             return;
         }
 
         LOGGER.trace("beginning health check process");
+        final long startTime = System.currentTimeMillis();
+        final Map<String,TimeDuration> durations = new ConcurrentHashMap<>();
+        final Map<String,Future<List<HealthRecord>>> checkFutures = new LinkedHashMap<>();
+        for (final Map.Entry<String,Callable<List<HealthRecord>>> entry : makeChecks().entrySet()) {
+            final String name = entry.getKey();
+            final Future<List<HealthRecord>> runningCheck = runningChecks.get(name);
+            if (runningCheck != null && !runningCheck.isDone()) {
+                // still running from a previous health check process, do not start a second copy
+                checkFutures.put(name, runningCheck);
+            } else {
+                final Future<List<HealthRecord>> future = checkerExecutor.submit(new TimedCheck(name, entry.getValue(), durations));
+                runningChecks.put(name, future);
+                checkFutures.put(name, future);
+            }
+        }
+
         final List<HealthRecord> newResults = new ArrayList<>();
-        for (final HealthChecker loopChecker : healthCheckers) {
+        final long deadline = startTime + checkTimeoutMs;
+        for (final Map.Entry<String,Future<List<HealthRecord>>> entry : checkFutures.entrySet()) {
+            final String name = entry.getKey();
+            List<HealthRecord> loopResults = null;
             try {
-                final List<HealthRecord> loopResults = loopChecker.doHealthCheck(pwmApplication);
-                if (loopResults != null) {
-                    newResults.addAll(loopResults);
+                loopResults = entry.getValue().get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                lastCheckResults.put(name, loopResults);
+            } catch (TimeoutException e) {
+                final TimeDuration timeout = new TimeDuration(checkTimeoutMs);
+                LOGGER.warn("health check " + name + " did not complete within " + timeout.asCompactString() + ", previous results will be reported");
+                if (!durations.containsKey(name)) {
+                    durations.put(name, TimeDuration.fromCurrent(startTime));
                 }
-            } catch (Exception e) {
-                LOGGER.warn("unexpected error during healthCheck: " + e.getMessage(), e);
+                newResults.add(HealthRecord.forMessage(HealthMessage.HealthCheck_Timeout, name, timeout.asCompactString()));
+                loopResults = lastCheckResults.get(name);
+            } catch (ExecutionException e) {
+                LOGGER.warn("unexpected error during healthCheck: " + e.getCause().getMessage(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             }
-        }
-        for (final PwmService service : pwmApplication.getPwmServices()) {
-            final List<HealthRecord> loopResults = service.healthCheck();
             if (loopResults != null) {
                 newResults.addAll(loopResults);
             }
         }
+
         final Set<HealthRecord> sortedRecordList = new TreeSet<>();
         sortedRecordList.addAll(newResults);
-        healthRecords = Collections.unmodifiableSet(sortedRecordList);
-        lastHealthCheckDate = new Date();
-        LOGGER.trace("health check process completed");
+        final Map<String,TimeDuration> sortedDurations = new LinkedHashMap<>();
+        for (final String name : checkFutures.keySet()) {
+            sortedDurations.put(name, durations.get(name));
+        }
+        healthSnapshot = new HealthSnapshot(
+                Collections.unmodifiableSet(sortedRecordList),
+                new Date(),
+                Collections.unmodifiableMap(sortedDurations)
+        );
+        LOGGER.trace("health check process completed (" + TimeDuration.fromCurrent(startTime).asCompactString() + "), check durations: " + sortedDurations);
+    }
+
+    private Map<String,Callable<List<HealthRecord>>> makeChecks() {
+        final Map<String,Callable<List<HealthRecord>>> checks = new LinkedHashMap<>();
+        for (final HealthChecker loopChecker : healthCheckers) {
+            checks.put(makeCheckName(loopChecker, checks.keySet()), new Callable<List<HealthRecord>>() {
+                public List<HealthRecord> call() throws Exception {
+                    return loopChecker.doHealthCheck(pwmApplication);
+                }
+            });
+        }
+        for (final PwmService service : pwmApplication.getPwmServices()) {
+            checks.put(makeCheckName(service, checks.keySet()), new Callable<List<HealthRecord>>() {
+                public List<HealthRecord> call() throws Exception {
+                    return service.healthCheck();
+                }
+            });
+        }
+        return checks;
+    }
+
+    private static String makeCheckName(final Object check, final Set<String> existingNames) {
+        final String className = check.getClass().getSimpleName().isEmpty()
+                ? check.getClass().getName()
+                : check.getClass().getSimpleName();
+        String name = className;
+        for (int i = 2; existingNames.contains(name); i++) {
+            name = className + "-" + i;
+        }
+        return name;
+    }
+
+    private static class TimedCheck implements Callable<List<HealthRecord>> {
+        private final String name;
+        private final Callable<List<HealthRecord>> check;
+        private final Map<String,TimeDuration> durations;
+
+        private TimedCheck(final String name, final Callable<List<HealthRecord>> check, final Map<String,TimeDuration> durations) {
+            this.name = name;
+            this.check = check;
+            this.durations = durations;
+        }
+
+        public List<HealthRecord> call() throws Exception {
+            final long startTime = System.currentTimeMillis();
+            try {
+                return check.call();
+            } finally {
+                durations.put(name, TimeDuration.fromCurrent(startTime));
+            }
+        }
+    }
+
+    /**
+     * Immutable result of a health check process, replaced as a whole so readers never need to lock.
+     */
+    private static class HealthSnapshot {
+        private static final HealthSnapshot EMPTY = new HealthSnapshot(
+                Collections.<HealthRecord>emptySet(), null, Collections.<String,TimeDuration>emptyMap());
+
+        private final Set<HealthRecord> healthRecords;
+        private final Date timestamp;
+        private final Map<String,TimeDuration> durations;
+
+        private HealthSnapshot(final Set<HealthRecord> healthRecords, final Date timestamp, final Map<String,TimeDuration> durations) {
+            this.healthRecords = healthRecords;
+            this.timestamp = timestamp;
+            this.durations = durations;
+        }
+
+        Set<HealthRecord> getHealthRecords() {
+            return healthRecords;
+        }
+
+        Date getTimestamp() {
+            return timestamp;
+        }
+
+        Map<String,TimeDuration> getDurations() {
+            return durations;
+        }
+
+        boolean isOlderThan(final long maxAgeMs) {
+            return timestamp == null || timestamp.getTime() < System.currentTimeMillis() - maxAgeMs;
+        }
     }
 
     public ServiceInfo serviceInfo()
@@ -0,0 +1,111 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.http.filter;
+
+import password.pwm.PwmApplication;
+import password.pwm.PwmService;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.http.ContextManager;
+import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.stats.Statistic;
+import password.pwm.util.stats.StatisticsManager;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Records the duration of each REST web service call into the latency histogram of the called endpoint.
+ */
+public class RestTimingFilter implements Filter {
+    private static final PwmLogger LOGGER = PwmLogger.forClass(RestTimingFilter.class);
+
+    private static final Map<String,Statistic> ENDPOINT_STATISTICS;
+
+    static {
+        final Map<String,Statistic> endpointMap = new HashMap<>();
+        endpointMap.put("app-data", Statistic.REST_APPDATA_TIME);
+        endpointMap.put("challenges", Statistic.REST_CHALLENGES_TIME);
+        endpointMap.put("checkpassword", Statistic.REST_CHECKPASSWORD_TIME);
+        endpointMap.put("command", Statistic.REST_COMMAND_TIME);
+        endpointMap.put("health", Statistic.REST_HEALTH_TIME);
+        endpointMap.put("profile", Statistic.REST_PROFILE_TIME);
+        endpointMap.put("randompassword", Statistic.REST_RANDOMPASSWORD_TIME);
+        endpointMap.put("report", Statistic.REST_REPORT_TIME);
+        endpointMap.put("setpassword", Statistic.REST_SETPASSWORD_TIME);
+        endpointMap.put("statistics", Statistic.REST_STATISTICS_TIME);
+        endpointMap.put("status", Statistic.REST_STATUS_TIME);
+        endpointMap.put("verifyotp", Statistic.REST_VERIFYOTP_TIME);
+        endpointMap.put("verifyresponses", Statistic.REST_VERIFYRESPONSES_TIME);
+        ENDPOINT_STATISTICS = Collections.unmodifiableMap(endpointMap);
+    }
+
+    public void init(FilterConfig filterConfig)
+            throws ServletException
+    {
+    }
+
+    public void destroy()
+    {
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain)
+            throws IOException, ServletException
+    {
+        final long startTime = System.nanoTime();
+        try {
+            filterChain.doFilter(servletRequest, servletResponse);
+        } finally {
+            final Statistic statistic = endpointStatistic(((HttpServletRequest) servletRequest).getPathInfo());
+            if (statistic != null) {
+                recordTime((HttpServletRequest) servletRequest, statistic, (System.nanoTime() - startTime) / 1000);
+            }
+        }
+    }
+
+    static Statistic endpointStatistic(final String pathInfo) {
+        if (pathInfo == null) {
+            return null;
+        }
+        final String path = pathInfo.startsWith("/") ? pathInfo.substring(1) : pathInfo;
+        final int slashIndex = path.indexOf('/');
+        final String endpoint = slashIndex == -1 ? path : path.substring(0, slashIndex);
+        return ENDPOINT_STATISTICS.get(endpoint.toLowerCase());
+    }
+
+    private static void recordTime(final HttpServletRequest request, final Statistic statistic, final long microseconds) {
+        try {
+            final PwmApplication pwmApplication = ContextManager.getPwmApplication(request);
+            final StatisticsManager statisticsManager = pwmApplication.getStatisticsManager();
+            if (statisticsManager != null && statisticsManager.status() == PwmService.STATUS.OPEN) {
+                statisticsManager.updateHistogramValue(statistic, microseconds);
+            }
+        } catch (PwmUnrecoverableException e) {
+            LOGGER.trace("unable to record rest request time: " + e.getMessage());
+        }
+    }
+}
@@ -292,7 +292,7 @@ public class ActivateUserServlet extends PwmServlet {
         if (agreementText != null && agreementText.length() > 0 && !activateUserBean.isAgreementPassed()) {
             if (activateUserBean.getAgreementText() == null) {
                 final MacroMachine macroMachine = MacroMachine.forUser(pwmRequest, activateUserBean.getUserIdentity());
-                final String expandedText = macroMachine.expandMacros(agreementText);
+                final String expandedText = macroMachine.expandConfiguredMacros(agreementText);
                 activateUserBean.setAgreementText(expandedText);
             }
             pwmRequest.forwardToJsp(PwmConstants.JSP_URL.ACTIVATE_USER_AGREEMENT);
@@ -384,7 +384,7 @@ public class ChangePasswordServlet extends PwmServlet {
         final String agreementMsg = pwmApplication.getConfig().readSettingAsLocalizedString(PwmSetting.PASSWORD_CHANGE_AGREEMENT_MESSAGE, pwmRequest.getLocale());
         if (agreementMsg != null && agreementMsg.length() > 0 && !changePasswordBean.isAgreementPassed()) {
             final MacroMachine macroMachine = pwmSession.getSessionManager().getMacroMachine(pwmApplication);
-            final String expandedText = macroMachine.expandMacros(agreementMsg);
+            final String expandedText = macroMachine.expandConfiguredMacros(agreementMsg);
             pwmRequest.setAttribute(PwmConstants.REQUEST_ATTR.AgreementText,expandedText);
             pwmRequest.forwardToJsp(PwmConstants.JSP_URL.PASSWORD_AGREEMENT);
             return;
@@ -626,7 +626,7 @@ public class ChangePasswordServlet extends PwmServlet {
             final String completeMessage = pwmRequest.getConfig().readSettingAsLocalizedString(PwmSetting.PASSWORD_COMPLETE_MESSAGE,locale);
             if (completeMessage != null && !completeMessage.isEmpty()) {
                 final MacroMachine macroMachine = pwmRequest.getPwmSession().getSessionManager().getMacroMachine(pwmRequest.getPwmApplication());
-                final String expandedText = macroMachine.expandMacros(completeMessage);
+                final String expandedText = macroMachine.expandConfiguredMacros(completeMessage);
                 pwmRequest.setAttribute(PwmConstants.REQUEST_ATTR.CompleteText, expandedText);
                 pwmRequest.forwardToJsp(PwmConstants.JSP_URL.PASSWORD_COMPLETE);
             } else {
@@ -550,16 +550,9 @@ public class ConfigManagerServlet extends PwmServlet {
         final PwmApplication pwmApplication = pwmRequest.getPwmApplication();
         final PwmSession pwmSession = pwmRequest.getPwmSession();
 
-        { // kick off health check so that it might be faster later..
-            Thread healthThread = new Thread() {
-                public void run() {
-                    pwmApplication.getHealthMonitor().getHealthRecords();
-                }
-            };
-            healthThread.setName(Helper.makeThreadName(pwmApplication, ConfigManagerServlet.class) + "-HealthCheck");
-            healthThread.setDaemon(true);
-            healthThread.start();
-        }
+        // kick off health check so that it might be faster later..
+        pwmApplication.getHealthMonitor().getHealthRecords();
+
         final StoredConfiguration storedConfiguration = readCurrentConfiguration(pwmRequest);
         storedConfiguration.resetAllPasswordValues("value removed from " + PwmConstants.PWM_APP_NAME + "-Support configuration export");
         {
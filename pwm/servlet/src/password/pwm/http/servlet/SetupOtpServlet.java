@@ -393,7 +393,7 @@ public class SetupOtpServlet extends PwmServlet {
             try {
                 final Configuration config = pwmApplication.getConfig();
                 final String identifierConfigValue = config.readSettingAsString(PwmSetting.OTP_SECRET_IDENTIFIER);
-                final String identifier = pwmSession.getSessionManager().getMacroMachine(pwmApplication).expandMacros(identifierConfigValue);
+                final String identifier = pwmSession.getSessionManager().getMacroMachine(pwmApplication).expandConfiguredMacros(identifierConfigValue);
                 final OTPUserRecord otpUserRecord = new OTPUserRecord();
                 final List<String> rawRecoveryCodes = pwmApplication.getOtpService().initializeUserRecord(
                         otpUserRecord,
@@ -513,7 +513,7 @@ public class PeopleSearchServlet extends PwmServlet {
         try {
             if (overrideURL != null && !overrideURL.isEmpty()) {
                 final MacroMachine macroMachine = getMacroMachine(pwmRequest, userIdentity);
-                return macroMachine.expandMacros(overrideURL);
+                return macroMachine.expandConfiguredMacros(overrideURL);
             }
 
             try {
@@ -537,7 +537,7 @@ public class PeopleSearchServlet extends PwmServlet {
     {
         final MacroMachine macroMachine = getMacroMachine(pwmRequest, userIdentity);
         final String settingValue = pwmRequest.getConfig().readSettingAsString(PwmSetting.PEOPLE_SEARCH_DISPLAY_NAME);
-        return macroMachine.expandMacros(settingValue);
+        return macroMachine.expandConfiguredMacros(settingValue);
     }
 
     private static List<String> figureDisplaynames(
@@ -551,7 +551,7 @@ public class PeopleSearchServlet extends PwmServlet {
         if (displayStringSettings != null) {
             final MacroMachine macroMachine = getMacroMachine(pwmRequest, userIdentity);
             for (final String displayStringSetting : displayStringSettings) {
-                final String displayLabel = macroMachine.expandMacros(displayStringSetting);
+                final String displayLabel = macroMachine.expandConfiguredMacros(displayStringSetting);
                 displayLabels.add(displayLabel);
             }
         }
@@ -95,7 +95,7 @@ public class PwmValueTag extends TagSupport {
                     try {
                         MacroMachine macroMachine = pwmRequest.getPwmSession().getSessionManager().getMacroMachine(
                                 pwmRequest.getPwmApplication());
-                        outputURL = macroMachine.expandMacros(outputURL);
+                        outputURL = macroMachine.expandConfiguredMacros(outputURL);
                     } catch ( PwmUnrecoverableException e) {
                         LOGGER.error(pwmRequest, "error expanding macros in homeURL: " + e.getMessage());
                     }
@@ -120,7 +120,7 @@ public class PwmValueTag extends TagSupport {
                     try {
                         final MacroMachine macroMachine = pwmRequest.getPwmSession().getSessionManager().getMacroMachine(
                                 pwmRequest.getPwmApplication());
-                        final String expandedScript = macroMachine.expandMacros(customScript);
+                        final String expandedScript = macroMachine.expandConfiguredMacros(customScript);
                         return expandedScript;
                     } catch (Exception e) {
                         LOGGER.error(pwmRequest, "error while expanding customJavascript macros: " + e.getMessage());
@@ -0,0 +1,92 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.ldap;
+
+import com.novell.ldapchai.provider.ChaiProvider;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dynamic proxy around a {@link ChaiProvider} that counts the ldap operations made through it, so the number of
+ * directory round trips needed to read a user's status can be measured.  All interfaces of the wrapped provider are
+ * proxied so ldapChai's own casts to its implementor interfaces continue to work.
+ */
+class CountingChaiProvider implements InvocationHandler {
+
+    private static final Set<String> NON_OPERATIONS = new HashSet<>(Arrays.asList(
+            "close",
+            "getChaiConfiguration",
+            "getDirectoryVendor",
+            "getProviderStatistics",
+            "isConnected"
+    ));
+
+    private final ChaiProvider wrappedProvider;
+    private final ChaiProvider proxyProvider;
+    private final AtomicInteger operationCount = new AtomicInteger();
+
+    CountingChaiProvider(final ChaiProvider wrappedProvider) {
+        this.wrappedProvider = wrappedProvider;
+        this.proxyProvider = (ChaiProvider) Proxy.newProxyInstance(
+                wrappedProvider.getClass().getClassLoader(),
+                allInterfaces(wrappedProvider.getClass()),
+                this
+        );
+    }
+
+    ChaiProvider getProvider() {
+        return proxyProvider;
+    }
+
+    int getOperationCount() {
+        return operationCount.get();
+    }
+
+    @Override
+    public Object invoke(final Object proxy, final Method method, final Object[] args)
+            throws Throwable
+    {
+        if (method.getDeclaringClass() == ChaiProvider.class && !NON_OPERATIONS.contains(method.getName())) {
+            operationCount.incrementAndGet();
+        }
+        try {
+            return method.invoke(wrappedProvider, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Class<?>[] allInterfaces(final Class<?> providerClass) {
+        final Set<Class<?>> interfaces = new LinkedHashSet<>();
+        for (Class<?> loopClass = providerClass; loopClass != null; loopClass = loopClass.getSuperclass()) {
+            interfaces.addAll(Arrays.asList(loopClass.getInterfaces()));
+        }
+        interfaces.add(ChaiProvider.class);
+        return interfaces.toArray(new Class<?>[interfaces.size()]);
+    }
+}
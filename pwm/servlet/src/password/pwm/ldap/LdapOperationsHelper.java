@@ -287,7 +287,7 @@ public class LdapOperationsHelper {
         {
             final MacroMachine macroMachine = MacroMachine.forNonUserSpecific(pwmApplication, sessionLabel);
             final String guidPattern = pwmApplication.getConfig().readAppProperty(AppProperty.LDAP_GUID_PATTERN);
-            return macroMachine.expandMacros(guidPattern);
+            return macroMachine.expandConfiguredMacros(guidPattern);
         }
     }
 
@@ -378,6 +378,7 @@ public class UserSearchEngine {
         LOGGER.debug(sessionLabel, "performing ldap search for user; " + debugInfo);
 
         final Date startTime = new Date();
+        final long startNanos = System.nanoTime();
         final Map<String, Map<String,String>> results;
         try {
             results = chaiProvider.search(context, searchHelper);
@@ -390,6 +391,7 @@ public class UserSearchEngine {
 
         if (pwmApplication.getStatisticsManager() != null && pwmApplication.getStatisticsManager().status() == PwmService.STATUS.OPEN) {
             pwmApplication.getStatisticsManager().updateAverageValue(Statistic.AVG_LDAP_SEARCH_TIME, searchDuration.getTotalMilliseconds());
+            pwmApplication.getStatisticsManager().updateHistogramValue(Statistic.LDAP_SEARCH_TIME, (System.nanoTime() - startNanos) / 1000);
         }
 
         if (results.isEmpty()) {
@@ -29,6 +29,7 @@ import com.novell.ldapchai.exception.ChaiUnavailableException;
 import com.novell.ldapchai.provider.ChaiProvider;
 import password.pwm.PwmApplication;
 import password.pwm.PwmConstants;
+import password.pwm.PwmService;
 import password.pwm.bean.*;
 import password.pwm.config.*;
 import password.pwm.config.option.ADPolicyComplexity;
@@ -49,6 +50,7 @@ import password.pwm.util.operations.CrService;
 import password.pwm.util.operations.OtpService;
 import password.pwm.util.operations.PasswordUtility;
 import password.pwm.util.otp.OTPUserRecord;
+import password.pwm.util.stats.Statistic;
 
 import java.io.Serializable;
 import java.util.*;
@@ -88,6 +90,18 @@ public class UserStatusReader {
             final PasswordData currentPassword
     )
             throws ChaiUnavailableException, PwmUnrecoverableException
+    {
+        return readPasswordStatus(theUser, passwordPolicy, userInfoBean, currentPassword, readPasswordExpirationTime(theUser));
+    }
+
+    private PasswordStatus readPasswordStatus(
+            final ChaiUser theUser,
+            final PwmPasswordPolicy passwordPolicy,
+            final UserInfoBean userInfoBean,
+            final PasswordData currentPassword,
+            final Date ldapPasswordExpirationTime
+    )
+            throws ChaiUnavailableException, PwmUnrecoverableException
     {
         final Configuration config = pwmApplication.getConfig();
         final PasswordStatus passwordStatus = new PasswordStatus();
@@ -122,59 +136,64 @@ public class UserStatusReader {
             LOGGER.info(sessionLabel, "error reading LDAP attributes for " + userDN + " while reading isPasswordExpired(): " + e.getMessage());
         }
 
-        try {
-            Date ldapPasswordExpirationTime = theUser.readPasswordExpirationDate();
-            if (ldapPasswordExpirationTime != null && ldapPasswordExpirationTime.getTime() < 0) {
-                // If ldapPasswordExpirationTime is less than 0, this may indicate an extremely late date, past the epoch.
-                LOGGER.debug(sessionLabel, "ignoring past-dated password expiration time: " + PwmConstants.DEFAULT_DATETIME_FORMAT.format(ldapPasswordExpirationTime));
-                ldapPasswordExpirationTime = null;
+        if (ldapPasswordExpirationTime != null) {
+            TimeDuration expirationInterval = TimeDuration.fromCurrent(ldapPasswordExpirationTime);
+            LOGGER.trace(sessionLabel, "read password expiration time: "
+                    + PwmConstants.DEFAULT_DATETIME_FORMAT.format(ldapPasswordExpirationTime)
+                    + ", " + expirationInterval.asCompactString() + " from now"
+            );
+            final long diff = ldapPasswordExpirationTime.getTime() - System.currentTimeMillis();
+
+            // now check to see if the user's expire time is within the 'preExpireTime' setting.
+            final long preExpireMs = config.readSettingAsLong(PwmSetting.PASSWORD_EXPIRE_PRE_TIME) * 1000;
+            if (diff > 0 && diff < preExpireMs) {
+                LOGGER.debug(sessionLabel, "user " + userDN + " password will expire within " + TimeDuration.asCompactString(diff) + ", marking as pre-expired");
+                passwordStatus.setPreExpired(true);
+            } else if (passwordStatus.isExpired()) {
+                LOGGER.debug(sessionLabel, "user " + userDN + " password is expired, marking as pre-expired.");
+                passwordStatus.setPreExpired(true);
             }
 
-            if (ldapPasswordExpirationTime != null) {
-                TimeDuration expirationInterval = TimeDuration.fromCurrent(ldapPasswordExpirationTime);
-                LOGGER.trace(sessionLabel, "read password expiration time: "
-                        + PwmConstants.DEFAULT_DATETIME_FORMAT.format(ldapPasswordExpirationTime)
-                        + ", " + expirationInterval.asCompactString() + " from now"
-                );
-                final long diff = ldapPasswordExpirationTime.getTime() - System.currentTimeMillis();
-
-                // now check to see if the user's expire time is within the 'preExpireTime' setting.
-                final long preExpireMs = config.readSettingAsLong(PwmSetting.PASSWORD_EXPIRE_PRE_TIME) * 1000;
-                if (diff > 0 && diff < preExpireMs) {
-                    LOGGER.debug(sessionLabel, "user " + userDN + " password will expire within " + TimeDuration.asCompactString(diff) + ", marking as pre-expired");
-                    passwordStatus.setPreExpired(true);
-                } else if (passwordStatus.isExpired()) {
-                    LOGGER.debug(sessionLabel, "user " + userDN + " password is expired, marking as pre-expired.");
-                    passwordStatus.setPreExpired(true);
-                }
-
-                // now check to see if the user's expire time is within the 'preWarnTime' setting.
-                final long preWarnMs = config.readSettingAsLong(PwmSetting.PASSWORD_EXPIRE_WARN_TIME) * 1000;
-                // don't check if the 'preWarnTime' setting is zero or less than the expirePreTime
-                if (!passwordStatus.isExpired() && !passwordStatus.isPreExpired()) {
-                    if (!(preWarnMs == 0 || preWarnMs < preExpireMs)) {
-                        if (diff > 0 && diff < preWarnMs) {
-                            LOGGER.debug(sessionLabel,
-                                    "user " + userDN + " password will expire within " + TimeDuration.asCompactString(
-                                            diff) + ", marking as within warn period");
-                            passwordStatus.setWarnPeriod(true);
-                        } else if (passwordStatus.isExpired()) {
-                            LOGGER.debug(sessionLabel,
-                                    "user " + userDN + " password is expired, marking as within warn period");
-                            passwordStatus.setWarnPeriod(true);
-                        }
+            // now check to see if the user's expire time is within the 'preWarnTime' setting.
+            final long preWarnMs = config.readSettingAsLong(PwmSetting.PASSWORD_EXPIRE_WARN_TIME) * 1000;
+            // don't check if the 'preWarnTime' setting is zero or less than the expirePreTime
+            if (!passwordStatus.isExpired() && !passwordStatus.isPreExpired()) {
+                if (!(preWarnMs == 0 || preWarnMs < preExpireMs)) {
+                    if (diff > 0 && diff < preWarnMs) {
+                        LOGGER.debug(sessionLabel,
+                                "user " + userDN + " password will expire within " + TimeDuration.asCompactString(
+                                        diff) + ", marking as within warn period");
+                        passwordStatus.setWarnPeriod(true);
+                    } else if (passwordStatus.isExpired()) {
+                        LOGGER.debug(sessionLabel,
+                                "user " + userDN + " password is expired, marking as within warn period");
+                        passwordStatus.setWarnPeriod(true);
                     }
                 }
             }
-
-        } catch (ChaiOperationException e) {
-            LOGGER.info(sessionLabel, "error reading user attrs for " + userDN + " while reading passwordExpirationDate(): " + e.getMessage());
         }
 
         LOGGER.debug(sessionLabel, "completed user password status check for " + userDN + " " + passwordStatus + " (" + TimeDuration.fromCurrent(startTime).asCompactString() + ")");
         return passwordStatus;
     }
 
+    private Date readPasswordExpirationTime(final ChaiUser theUser)
+            throws ChaiUnavailableException
+    {
+        try {
+            final Date ldapPasswordExpirationTime = theUser.readPasswordExpirationDate();
+            if (ldapPasswordExpirationTime != null && ldapPasswordExpirationTime.getTime() < 0) {
+                // If ldapPasswordExpirationTime is less than 0, this may indicate an extremely late date, past the epoch.
+                LOGGER.debug(sessionLabel, "ignoring past-dated password expiration time: " + PwmConstants.DEFAULT_DATETIME_FORMAT.format(ldapPasswordExpirationTime));
+                return null;
+            }
+            return ldapPasswordExpirationTime;
+        } catch (ChaiOperationException e) {
+            LOGGER.info(sessionLabel, "error reading user attrs for " + theUser.getEntryDN() + " while reading passwordExpirationDate(): " + e.getMessage());
+        }
+        return null;
+    }
+
     public void populateActorUserInfoBean(
             final PwmSession pwmSession,
             final UserIdentity userIdentity
@@ -266,7 +285,8 @@ public class UserStatusReader {
         //attempt to add the object class to the user
         LdapOperationsHelper.addConfiguredUserObjectClass(sessionLabel, userIdentity, pwmApplication);
 
-        final ChaiUser theUser = ChaiFactory.createChaiUser(userIdentity.getUserDN(), provider);
+        final CountingChaiProvider countingProvider = new CountingChaiProvider(provider);
+        final ChaiUser theUser = ChaiFactory.createChaiUser(userIdentity.getUserDN(), countingProvider.getProvider());
         final UserDataReader userDataReader = new LdapUserDataReader(userIdentity, theUser);
 
         try {
@@ -276,7 +296,14 @@ public class UserStatusReader {
             uiBean.setUserIdentity(userIdentity);
         }
 
-        populateLocaleSpecificUserInfoBean(uiBean, userLocale);
+        populateLocaleSpecificUserInfoBean(uiBean, userLocale, theUser);
+
+        // read all the attributes used below in one operation, later reads are answered from the reader's cache
+        try {
+            userDataReader.readStringAttributes(figurePrefetchAttributes(config, uiBean));
+        } catch (ChaiOperationException e) {
+            LOGGER.warn(sessionLabel, "error prefetching user attributes: " + e.getMessage());
+        }
 
         //populate OTP data
         if (config.readSettingAsBoolean(PwmSetting.OTP_ENABLED)){
@@ -321,7 +348,7 @@ public class UserStatusReader {
         }
 
         { // set guid
-            final String userGuid = LdapOperationsHelper.readLdapGuidValue(pwmApplication, sessionLabel, userIdentity, false);
+            final String userGuid = readUserGuid(config, userIdentity, userDataReader);
             uiBean.setUserGuid(userGuid);
         }
 
@@ -344,19 +371,11 @@ public class UserStatusReader {
         }
 
         // read password expiration time
-        try {
-            Date ldapPasswordExpirationTime = theUser.readPasswordExpirationDate();
-            if (ldapPasswordExpirationTime != null && ldapPasswordExpirationTime.getTime() < 0) {
-                // If ldapPasswordExpirationTime is less than 0, this may indicate an extremely late date, past the epoch.
-                ldapPasswordExpirationTime = null;
-            }
-            uiBean.setPasswordExpirationTime(ldapPasswordExpirationTime);
-        } catch (Exception e) {
-            LOGGER.warn(sessionLabel, "error reading password expiration time: " + e.getMessage());
-        }
+        final Date ldapPasswordExpirationTime = readPasswordExpirationTime(theUser);
+        uiBean.setPasswordExpirationTime(ldapPasswordExpirationTime);
 
         // read password state
-        uiBean.setPasswordState(readPasswordStatus(theUser, uiBean.getPasswordPolicy(), uiBean, currentPassword));
+        uiBean.setPasswordState(readPasswordStatus(theUser, uiBean.getPasswordPolicy(), uiBean, currentPassword, ldapPasswordExpirationTime));
 
         // mark if new pw required
         uiBean.setRequiresNewPassword(checkIfNewPasswordRequired(userIdentity, uiBean.getPasswordState()));
@@ -403,7 +422,13 @@ public class UserStatusReader {
             }
         }
 
-        LOGGER.trace(sessionLabel, "populateUserInfoBean for " + userIdentity + " completed in " + TimeDuration.fromCurrent(methodStartTime).asCompactString());
+        final int ldapOperations = countingProvider.getOperationCount();
+        if (pwmApplication.getStatisticsManager() != null && pwmApplication.getStatisticsManager().status() == PwmService.STATUS.OPEN) {
+            pwmApplication.getStatisticsManager().updateAverageValue(Statistic.AVG_LDAP_USER_READ_OPERATIONS, ldapOperations);
+        }
+
+        LOGGER.trace(sessionLabel, "populateUserInfoBean for " + userIdentity + " completed in " + TimeDuration.fromCurrent(methodStartTime).asCompactString()
+                + " using " + ldapOperations + " ldap operations");
     }
 
     public void populateLocaleSpecificUserInfoBean(
@@ -411,13 +436,20 @@ public class UserStatusReader {
             final Locale userLocale
     )
             throws PwmUnrecoverableException, ChaiUnavailableException {
-        final long startTime = System.currentTimeMillis();
-
         if (uiBean == null || uiBean.getUserIdentity() == null) {
             return;
         }
 
-        final ChaiUser theUser = pwmApplication.getProxiedChaiUser(uiBean.getUserIdentity());
+        populateLocaleSpecificUserInfoBean(uiBean, userLocale, pwmApplication.getProxiedChaiUser(uiBean.getUserIdentity()));
+    }
+
+    private void populateLocaleSpecificUserInfoBean(
+            final UserInfoBean uiBean,
+            final Locale userLocale,
+            final ChaiUser theUser
+    )
+            throws PwmUnrecoverableException, ChaiUnavailableException {
+        final long startTime = System.currentTimeMillis();
 
         //populate password policy
         uiBean.setPasswordPolicy(PasswordUtility.readPasswordPolicyForUser(pwmApplication, sessionLabel, uiBean.getUserIdentity(), theUser, userLocale));
@@ -456,6 +488,75 @@ public class UserStatusReader {
         return interestingUserAttributes;
     }
 
+    /**
+     * Every plain attribute read while populating the {@link UserInfoBean}, so they can be fetched in one operation.
+     * Values computed by ldapChai itself (expiration and login times) and attributes of other entries are not included.
+     */
+    private static Set<String> figurePrefetchAttributes(
+            final Configuration config,
+            final UserInfoBean uiBean
+    ) {
+        final Set<String> attributes = new HashSet<>();
+        if (uiBean.getPasswordPolicy() != null) {
+            attributes.addAll(figurePasswordRuleAttributes(uiBean));
+        }
+
+        final List<String> cachedAttributeNames = config.readSettingAsStringArray(PwmSetting.CACHED_USER_ATTRIBUTES);
+        if (cachedAttributeNames != null) {
+            attributes.addAll(cachedAttributeNames);
+        }
+
+        final LdapProfile ldapProfile = config.getLdapProfiles().get(uiBean.getUserIdentity().getLdapProfileID());
+        attributes.add(ldapProfile.getUsernameAttribute());
+        attributes.add(figureGuidAttribute(ldapProfile));
+        attributes.add(config.readSettingAsString(PwmSetting.EMAIL_USER_MAIL_ATTRIBUTE));
+        attributes.add(config.readSettingAsString(PwmSetting.SMS_USER_PHONE_ATTRIBUTE));
+
+        if (config.readSettingAsBoolean(PwmSetting.UPDATE_PROFILE_ENABLE) && config.readSettingAsBoolean(PwmSetting.UPDATE_PROFILE_FORCE_SETUP)) {
+            for (final FormConfiguration formItem : config.readSettingAsForm(PwmSetting.UPDATE_PROFILE_FORM)) {
+                attributes.add(formItem.getName());
+            }
+        }
+
+        attributes.remove(null);
+        attributes.remove("");
+        return attributes;
+    }
+
+    /**
+     * @return the guid attribute name, or null if the guid is not stored in a plain attribute of the user entry
+     */
+    private static String figureGuidAttribute(final LdapProfile ldapProfile) {
+        final String guidAttributeName = ldapProfile.readSettingAsString(PwmSetting.LDAP_GUID_ATTRIBUTE);
+        if ("DN".equalsIgnoreCase(guidAttributeName) || "VENDORGUID".equalsIgnoreCase(guidAttributeName)) {
+            return null;
+        }
+        return guidAttributeName;
+    }
+
+    private String readUserGuid(
+            final Configuration config,
+            final UserIdentity userIdentity,
+            final UserDataReader userDataReader
+    )
+            throws ChaiUnavailableException, PwmUnrecoverableException
+    {
+        final String guidAttributeName = figureGuidAttribute(config.getLdapProfiles().get(userIdentity.getLdapProfileID()));
+        if (guidAttributeName != null) {
+            try {
+                final String guidValue = userDataReader.readStringAttribute(guidAttributeName);
+                if (guidValue != null && !guidValue.isEmpty()) {
+                    return guidValue;
+                }
+            } catch (ChaiOperationException e) {
+                LOGGER.debug(sessionLabel, "error reading guid attribute from prefetched values: " + e.getMessage());
+            }
+        }
+
+        // missing values may need to be assigned, and other guid types are read by the helper
+        return LdapOperationsHelper.readLdapGuidValue(pwmApplication, sessionLabel, userIdentity, false);
+    }
+
     public static class Settings implements Serializable {
         private boolean skipReportUpdate;
 
@@ -30,6 +30,7 @@ import com.novell.ldapchai.impl.oracleds.entry.OracleDSEntries;
 import com.novell.ldapchai.provider.ChaiProvider;
 import password.pwm.PwmApplication;
 import password.pwm.PwmConstants;
+import password.pwm.PwmService;
 import password.pwm.bean.SessionLabel;
 import password.pwm.bean.UserIdentity;
 import password.pwm.config.PwmSetting;
@@ -282,6 +283,7 @@ class LDAPAuthenticationRequest implements AuthenticationRequest {
         log(PwmLogLevel.TRACE, "attempting authentication using ldap BIND");
 
         boolean bindSucceeded = false;
+        final long bindStartNanos = System.nanoTime();
         try {
             //read a provider using the user's DN and password.
             userProvider = LdapOperationsHelper.createChaiProvider(
@@ -313,6 +315,10 @@ class LDAPAuthenticationRequest implements AuthenticationRequest {
             log(PwmLogLevel.DEBUG, errorInformation.toDebugStr());
             throw new PwmOperationalException(errorInformation);
         } finally {
+            final StatisticsManager statisticsManager = pwmApplication.getStatisticsManager();
+            if (statisticsManager != null && statisticsManager.status() == PwmService.STATUS.OPEN) {
+                statisticsManager.updateHistogramValue(Statistic.LDAP_BIND_TIME, (System.nanoTime() - bindStartNanos) / 1000);
+            }
             if (!bindSucceeded && userProvider != null){
                 try {
                     userProvider.close();
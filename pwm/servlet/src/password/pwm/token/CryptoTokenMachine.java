@@ -76,7 +76,12 @@ class CryptoTokenMachine implements TokenMachine {
         return Collections.<String>emptyList().iterator();
     }
 
-    public void cleanup() {
+    public int cleanup() {
+        return 0;
+    }
+
+    public int purgeBacklog() {
+        return 0;
     }
 
     public boolean supportsName() {
@@ -25,12 +25,21 @@ package password.pwm.token;
 import password.pwm.bean.SessionLabel;
 import password.pwm.error.PwmOperationalException;
 import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.ClosableIterator;
+import password.pwm.util.TimeDuration;
 import password.pwm.util.db.DatabaseAccessorImpl;
+import password.pwm.util.db.DatabaseException;
 import password.pwm.util.db.DatabaseTable;
+import password.pwm.util.logging.PwmLogger;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 class DBTokenMachine implements TokenMachine {
+    private static final PwmLogger LOGGER = PwmLogger.forClass(DBTokenMachine.class);
+
     private DatabaseAccessorImpl databaseAccessor;
     private TokenService tokenService;
 
@@ -81,8 +90,52 @@ class DBTokenMachine implements TokenMachine {
         return databaseAccessor.iterator(DatabaseTable.TOKENS);
     }
 
-    public void cleanup() throws PwmUnrecoverableException, PwmOperationalException {
-        tokenService.purgeOutdatedTokens();
+    public int cleanup() throws PwmUnrecoverableException, PwmOperationalException {
+        // tokens are written once when issued, so the row modification time is the issue time
+        final TimeDuration maxAge = new TimeDuration(tokenService.getMaxTokenPurgeAgeMS());
+        final int removedCount = databaseAccessor.removeOlderThan(DatabaseTable.TOKENS, maxAge);
+        return removedCount >= 0 ? removedCount : purgeByScan();
+    }
+
+    public int purgeBacklog() {
+        try {
+            return databaseAccessor.countOlderThan(DatabaseTable.TOKENS, new TimeDuration(tokenService.getMaxTokenPurgeAgeMS()));
+        } catch (DatabaseException e) {
+            LOGGER.debug("unable to read token purge backlog: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Used only when the table has no modification time column: read every stored token a page at a time.
+     */
+    private int purgeByScan() throws PwmUnrecoverableException, PwmOperationalException {
+        final int pageSize = tokenService.getPurgeBatchSize();
+        final List<String> purgeableKeys = new ArrayList<>();
+        final List<String> page = new ArrayList<>();
+        final ClosableIterator<String> iterator = databaseAccessor.iterator(DatabaseTable.TOKENS);
+        try {
+            while (tokenService.status() == TokenService.STATUS.OPEN && iterator.hasNext()) {
+                page.add(iterator.next());
+                if (page.size() >= pageSize || !iterator.hasNext()) {
+                    final Map<String,String> storedValues = databaseAccessor.getAll(DatabaseTable.TOKENS, page);
+                    for (final Map.Entry<String,String> entry : storedValues.entrySet()) {
+                        try {
+                            final TokenPayload tokenPayload = tokenService.fromEncryptedString(entry.getValue());
+                            if (tokenService.testIfTokenIsPurgable(tokenPayload)) {
+                                purgeableKeys.add(entry.getKey());
+                            }
+                        } catch (PwmOperationalException | PwmUnrecoverableException e) {
+                            LOGGER.debug("unable to read stored token during cleanup: " + e.getMessage());
+                        }
+                    }
+                    page.clear();
+                }
+            }
+        } finally {
+            iterator.close();
+        }
+        return databaseAccessor.removeAll(DatabaseTable.TOKENS, purgeableKeys);
     }
 
     public boolean supportsName() {
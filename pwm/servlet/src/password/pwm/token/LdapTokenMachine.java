@@ -155,7 +155,12 @@ class LdapTokenMachine implements TokenMachine {
         return Collections.<String>emptyList().iterator();
     }
 
-    public void cleanup() throws PwmUnrecoverableException, PwmOperationalException {
+    public int cleanup() throws PwmUnrecoverableException, PwmOperationalException {
+        return 0;
+    }
+
+    public int purgeBacklog() {
+        return -1;
     }
 
     @Override
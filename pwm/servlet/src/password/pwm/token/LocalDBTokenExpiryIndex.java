@@ -0,0 +1,221 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.token;
+
+import password.pwm.util.JsonUtil;
+import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBException;
+import password.pwm.util.logging.PwmLogger;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Secondary index of stored LocalDB tokens by issue time.  Token keys are grouped into fixed width time buckets;
+ * each token is a separate entry in {@link LocalDB.DB#TOKEN_EXPIRY} keyed by its bucket and its position within
+ * the bucket, so the cleaner only reads the buckets that are due rather than every stored token.
+ * <p/>
+ * The index entry is written before the token itself, so a token is never stored without being indexed.  Entries
+ * for tokens that were never stored or were removed before they expired are harmless; purging a missing key does
+ * nothing.  Tokens stored before the index existed are indexed by a one time scan, see {@link #isIndexComplete()}.
+ */
+class LocalDBTokenExpiryIndex {
+    private static final PwmLogger LOGGER = PwmLogger.forClass(LocalDBTokenExpiryIndex.class);
+
+    private static final LocalDB.DB INDEX_DB = LocalDB.DB.TOKEN_EXPIRY;
+    private static final String KEY_INDEX_STATE = "indexState";
+    private static final String STATE_BUCKET_MS = "bucketMS";
+    private static final String STATE_KEY_FORMAT = "keyFormat";
+    private static final String KEY_FORMAT = "bucket:position";
+    private static final String KEY_SEPARATOR = ":";
+    private static final int PURGE_BATCH_SIZE = 1000;
+
+    private final LocalDB localDB;
+    private final long bucketMs;
+
+    // bucket number to its indexed positions, guarded by this
+    private final TreeMap<Long,Bucket> buckets = new TreeMap<>();
+    private volatile boolean indexComplete;
+
+    LocalDBTokenExpiryIndex(final LocalDB localDB, final long bucketMs)
+            throws LocalDBException
+    {
+        this.localDB = localDB;
+        this.bucketMs = Math.max(1, bucketMs);
+
+        final String stateValue = localDB.get(INDEX_DB, KEY_INDEX_STATE);
+        final Map<String,String> state = stateValue == null ? null : JsonUtil.deserializeStringMap(stateValue);
+        if (state != null
+                && String.valueOf(this.bucketMs).equals(state.get(STATE_BUCKET_MS))
+                && KEY_FORMAT.equals(state.get(STATE_KEY_FORMAT))) {
+            loadBuckets();
+            indexComplete = true;
+        } else {
+            // index is missing or was built with a different layout; existing tokens will be re-indexed
+            localDB.truncate(INDEX_DB);
+        }
+    }
+
+    /**
+     * @return false until the stored tokens that pre-date the index have been indexed by {@link #markIndexComplete()}
+     */
+    boolean isIndexComplete() {
+        return indexComplete;
+    }
+
+    void markIndexComplete()
+            throws LocalDBException
+    {
+        final Map<String,String> state = new HashMap<>();
+        state.put(STATE_BUCKET_MS, String.valueOf(bucketMs));
+        state.put(STATE_KEY_FORMAT, KEY_FORMAT);
+        localDB.put(INDEX_DB, KEY_INDEX_STATE, JsonUtil.serializeMap(state));
+        indexComplete = true;
+    }
+
+    /**
+     * Index a token key.  Only the position within the bucket is reserved under the lock; the index entry itself is
+     * written without holding it.
+     */
+    void add(final String storedKey, final Date issueDate)
+            throws LocalDBException
+    {
+        final long bucketNumber = (issueDate == null ? System.currentTimeMillis() : issueDate.getTime()) / bucketMs;
+        final int position;
+        synchronized (this) {
+            Bucket bucket = buckets.get(bucketNumber);
+            if (bucket == null) {
+                bucket = new Bucket();
+                buckets.put(bucketNumber, bucket);
+            }
+            position = bucket.nextPosition++;
+        }
+        localDB.put(INDEX_DB, makeIndexKey(bucketNumber, position), storedKey);
+    }
+
+    /**
+     * Remove the stored tokens of every bucket that ends before the cutoff time, along with their index entries.
+     * Tokens are issued with the current time, so due buckets are not being added to while they are purged.
+     *
+     * @return the number of index entries purged, including those of tokens that were already removed
+     */
+    int purge(final long cutoffTime)
+            throws LocalDBException
+    {
+        final Map<Long,Bucket> dueBuckets;
+        synchronized (this) {
+            dueBuckets = new TreeMap<>(buckets.headMap(cutoffTime / bucketMs, false));
+        }
+
+        int removedCount = 0;
+        for (final Map.Entry<Long,Bucket> entry : dueBuckets.entrySet()) {
+            final long bucketNumber = entry.getKey();
+            final Bucket bucket = entry.getValue();
+            final int purgeEnd;
+            synchronized (this) {
+                purgeEnd = bucket.nextPosition;
+            }
+
+            final List<String> indexKeys = new ArrayList<>();
+            for (int position = bucket.purgedPosition; position < purgeEnd; position++) {
+                indexKeys.add(makeIndexKey(bucketNumber, position));
+                if (indexKeys.size() >= PURGE_BATCH_SIZE || position == purgeEnd - 1) {
+                    removedCount += purgeEntries(indexKeys);
+                    indexKeys.clear();
+                }
+            }
+
+            synchronized (this) {
+                bucket.purgedPosition = purgeEnd;
+                if (bucket.nextPosition == purgeEnd) {
+                    buckets.remove(bucketNumber);
+                }
+            }
+        }
+        return removedCount;
+    }
+
+    /**
+     * @return the number of indexed token keys in buckets that end before the cutoff time
+     */
+    synchronized int backlog(final long cutoffTime) {
+        int total = 0;
+        for (final Bucket bucket : buckets.headMap(cutoffTime / bucketMs, false).values()) {
+            total += bucket.nextPosition - bucket.purgedPosition;
+        }
+        return total;
+    }
+
+    private int purgeEntries(final List<String> indexKeys)
+            throws LocalDBException
+    {
+        final Map<String,String> entries = localDB.getAll(INDEX_DB, indexKeys);
+        localDB.removeAll(LocalDB.DB.TOKENS, entries.values());
+        localDB.removeAll(INDEX_DB, indexKeys);
+        return entries.size();
+    }
+
+    private void loadBuckets()
+            throws LocalDBException
+    {
+        int entryCount = 0;
+        final LocalDB.LocalDBIterator<String> iterator = localDB.iterator(INDEX_DB);
+        try {
+            while (iterator.hasNext()) {
+                final String indexKey = iterator.next();
+                if (!KEY_INDEX_STATE.equals(indexKey)) {
+                    final int separatorIndex = indexKey.indexOf(KEY_SEPARATOR);
+                    try {
+                        final long bucketNumber = Long.parseLong(indexKey.substring(0, separatorIndex));
+                        final int position = Integer.parseInt(indexKey.substring(separatorIndex + 1));
+                        Bucket bucket = buckets.get(bucketNumber);
+                        if (bucket == null) {
+                            bucket = new Bucket();
+                            buckets.put(bucketNumber, bucket);
+                        }
+                        bucket.nextPosition = Math.max(bucket.nextPosition, position + 1);
+                        entryCount++;
+                    } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                        LOGGER.warn("ignoring unexpected token expiry index key '" + indexKey + "'");
+                    }
+                }
+            }
+        } finally {
+            iterator.close();
+        }
+        LOGGER.trace("loaded token expiry index with " + entryCount + " entries in " + buckets.size() + " buckets");
+    }
+
+    private static String makeIndexKey(final long bucketNumber, final int position) {
+        return bucketNumber + KEY_SEPARATOR + position;
+    }
+
+    private static class Bucket {
+        private int nextPosition;
+        private int purgedPosition;
+    }
+}
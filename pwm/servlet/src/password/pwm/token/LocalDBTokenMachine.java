@@ -26,17 +26,29 @@ import password.pwm.bean.SessionLabel;
 import password.pwm.error.PwmOperationalException;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBException;
+import password.pwm.util.logging.PwmLogger;
+
+import java.util.ArrayList;
+import java.util.List;
 
 class LocalDBTokenMachine implements TokenMachine {
+    private static final PwmLogger LOGGER = PwmLogger.forClass(LocalDBTokenMachine.class);
+
     private LocalDB localDB;
     private TokenService tokenService;
+    private final LocalDBTokenExpiryIndex expiryIndex;
 
     LocalDBTokenMachine(
             TokenService tokenService,
-            LocalDB localDB
-    ) {
+            LocalDB localDB,
+            long expiryBucketMs
+    )
+            throws LocalDBException
+    {
         this.tokenService = tokenService;
         this.localDB = localDB;
+        this.expiryIndex = new LocalDBTokenExpiryIndex(localDB, expiryBucketMs);
     }
 
     public String generateToken(
@@ -64,6 +76,8 @@ class LocalDBTokenMachine implements TokenMachine {
     public void storeToken(String tokenKey, TokenPayload tokenPayload) throws PwmOperationalException, PwmUnrecoverableException {
         final String rawValue = tokenService.toEncryptedString(tokenPayload);
         final String md5sumToken = TokenService.makeTokenHash(tokenKey);
+        // indexed first so a stored token is always found by the purge, even if the put below fails
+        expiryIndex.add(md5sumToken, tokenPayload.getDate());
         localDB.put(LocalDB.DB.TOKENS, md5sumToken, rawValue);
     }
 
@@ -83,8 +97,59 @@ class LocalDBTokenMachine implements TokenMachine {
         return localDB.iterator(LocalDB.DB.TOKENS);
     }
 
-    public void cleanup() throws PwmUnrecoverableException, PwmOperationalException {
-        tokenService.purgeOutdatedTokens();
+    public int cleanup() throws PwmUnrecoverableException, PwmOperationalException {
+        int removedCount = 0;
+        if (!expiryIndex.isIndexComplete()) {
+            removedCount += indexStoredTokens();
+        }
+        removedCount += expiryIndex.purge(System.currentTimeMillis() - tokenService.getMaxTokenPurgeAgeMS());
+        return removedCount;
+    }
+
+    public int purgeBacklog() {
+        return expiryIndex.backlog(System.currentTimeMillis() - tokenService.getMaxTokenPurgeAgeMS());
+    }
+
+    /**
+     * Add tokens stored before the expiry index existed to the index, removing those already due.  Tokens that
+     * can not be read are indexed as if issued now, so they are removed after one purge period.
+     */
+    private int indexStoredTokens()
+            throws PwmUnrecoverableException, PwmOperationalException
+    {
+        LOGGER.debug("indexing stored tokens by issue date");
+        final List<String> purgeableKeys = new ArrayList<>();
+        int indexedCount = 0;
+        final LocalDB.LocalDBIterator<String> iterator = localDB.iterator(LocalDB.DB.TOKENS);
+        try {
+            while (tokenService.status() != TokenService.STATUS.CLOSED && iterator.hasNext()) {
+                final String storedKey = iterator.next();
+                TokenPayload tokenPayload = null;
+                try {
+                    final String storedRawValue = localDB.get(LocalDB.DB.TOKENS, storedKey);
+                    if (storedRawValue != null && storedRawValue.length() > 0) {
+                        tokenPayload = tokenService.fromEncryptedString(storedRawValue);
+                    }
+                } catch (PwmOperationalException | PwmUnrecoverableException e) {
+                    LOGGER.debug("unable to read stored token while indexing: " + e.getMessage());
+                }
+                if (tokenPayload != null && tokenService.testIfTokenIsPurgable(tokenPayload)) {
+                    purgeableKeys.add(storedKey);
+                } else {
+                    expiryIndex.add(storedKey, tokenPayload == null ? null : tokenPayload.getDate());
+                    indexedCount++;
+                }
+            }
+        } finally {
+            iterator.close();
+        }
+
+        localDB.removeAll(LocalDB.DB.TOKENS, purgeableKeys);
+        if (tokenService.status() != TokenService.STATUS.CLOSED) {
+            expiryIndex.markIndexComplete();
+            LOGGER.debug("indexed " + indexedCount + " stored tokens, removed " + purgeableKeys.size() + " expired tokens");
+        }
+        return purgeableKeys.size();
     }
 
     public boolean supportsName() {
@@ -47,8 +47,17 @@ interface TokenMachine {
     Iterator<String> keyIterator()
             throws PwmOperationalException, PwmUnrecoverableException;
 
-    void cleanup()
+    /**
+     * Remove stored tokens that are old enough to be purged.
+     * @return the number of tokens removed
+     */
+    int cleanup()
             throws PwmUnrecoverableException, PwmOperationalException;
 
+    /**
+     * @return the number of stored tokens that are due to be purged but have not yet been removed, or -1 if unknown
+     */
+    int purgeBacklog();
+
     boolean supportsName();
 }
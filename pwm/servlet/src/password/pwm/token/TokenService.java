@@ -43,7 +43,6 @@ import password.pwm.http.PwmSession;
 import password.pwm.ldap.auth.SessionAuthenticator;
 import password.pwm.util.*;
 import password.pwm.util.intruder.RecordType;
-import password.pwm.util.localdb.LocalDB;
 import password.pwm.util.logging.PwmLogger;
 import password.pwm.util.macro.MacroMachine;
 import password.pwm.util.operations.PasswordUtility;
@@ -51,7 +50,9 @@ import password.pwm.util.stats.Statistic;
 import password.pwm.util.stats.StatisticsManager;
 
 import javax.crypto.SecretKey;
+import java.text.NumberFormat;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This PWM service is responsible for reading/writing tokens used for forgotten password,
@@ -78,6 +79,10 @@ public class TokenService implements PwmService {
     private SecretKey secretKey;
     private long counter;
 
+    private final AtomicLong purgedTokenCount = new AtomicLong();
+    private volatile int lastPurgeCount;
+    private volatile TimeDuration lastPurgeDuration;
+
     private ServiceInfo serviceInfo = new ServiceInfo(Collections.<DataStorageMethod>emptyList());
     private STATUS status = STATUS.NEW;
 
@@ -132,7 +137,8 @@ public class TokenService implements PwmService {
             DataStorageMethod usedStorageMethod = null;
             switch (storageMethod) {
                 case STORE_LOCALDB:
-                    tokenMachine = new LocalDBTokenMachine(this, pwmApplication.getLocalDB());
+                    final long expiryBucketMs = Long.parseLong(configuration.readAppProperty(AppProperty.TOKEN_EXPIRY_BUCKET_MS));
+                    tokenMachine = new LocalDBTokenMachine(this, pwmApplication.getLocalDB(), expiryBucketMs);
                     usedStorageMethod = DataStorageMethod.LOCALDB;
                     break;
 
@@ -291,10 +297,27 @@ public class TokenService implements PwmService {
             }
         }
 
+        if (status == STATUS.OPEN && tokenMachine != null) {
+            final NumberFormat numberFormat = NumberFormat.getInstance();
+            final TimeDuration purgeDuration = lastPurgeDuration;
+            if (purgeDuration != null) {
+                final long purgeMs = Math.max(1, purgeDuration.getTotalMilliseconds());
+                returnRecords.add(HealthRecord.forMessage(HealthMessage.TokenService_PurgeStatus,
+                        numberFormat.format(purgedTokenCount.get()),
+                        numberFormat.format(lastPurgeCount),
+                        purgeDuration.asCompactString(),
+                        numberFormat.format(lastPurgeCount * 1000L / purgeMs)
+                ));
+            }
+            final int backlog = tokenMachine.purgeBacklog();
+            if (backlog >= 0) {
+                returnRecords.add(HealthRecord.forMessage(HealthMessage.TokenService_PurgeBacklog, numberFormat.format(backlog)));
+            }
+        }
+
         return returnRecords;
     }
 
-
     private boolean testIfTokenIsExpired(final TokenPayload theToken) {
         if (theToken == null) {
             return false;
@@ -308,7 +331,7 @@ public class TokenService implements PwmService {
         return duration.isLongerThan(maxTokenAgeMS);
     }
 
-    private boolean testIfTokenIsPurgable(final TokenPayload theToken) {
+    boolean testIfTokenIsPurgable(final TokenPayload theToken) {
         if (theToken == null) {
             return false;
         }
@@ -322,56 +345,14 @@ public class TokenService implements PwmService {
     }
 
 
-    void purgeOutdatedTokens() throws
-            PwmUnrecoverableException, PwmOperationalException
-    {
-        final long startTime = System.currentTimeMillis();
-        int cleanedTokens = 0;
-        List<String> tempKeyList = new ArrayList<>();
-        final int purgeBatchSize = Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.TOKEN_PURGE_BATCH_SIZE));
-        tempKeyList.addAll(discoverPurgeableTokenKeys(purgeBatchSize));
-        while (status() == STATUS.OPEN && !tempKeyList.isEmpty()) {
-            for (final String loopKey : tempKeyList) {
-                tokenMachine.removeToken(loopKey);
-            }
-            cleanedTokens = cleanedTokens + tempKeyList.size();
-            tempKeyList.clear();
-        }
-        if (cleanedTokens > 0) {
-            LOGGER.trace("cleaner thread removed " + cleanedTokens + " tokens in " + TimeDuration.fromCurrent(startTime).asCompactString());
-        }
+    long getMaxTokenPurgeAgeMS() {
+        return maxTokenPurgeAgeMS;
     }
 
-    private List<String> discoverPurgeableTokenKeys(final int maxCount)
-            throws PwmUnrecoverableException, PwmOperationalException
-    {
-        final List<String> returnList = new ArrayList<>();
-        Iterator<String> keyIterator = null;
-
-        try {
-            keyIterator = tokenMachine.keyIterator();
-
-            while (status() == STATUS.OPEN && returnList.size() < maxCount && keyIterator.hasNext()) {
-                final String loopKey = keyIterator.next();
-                final TokenPayload loopInfo = tokenMachine.retrieveToken(loopKey);
-                if (loopInfo != null) {
-                    if (testIfTokenIsPurgable(loopInfo)) {
-                        returnList.add(loopKey);
-                    }
-                }
-            }
-        } catch (Exception e) {
-            LOGGER.error("unexpected error while cleaning expired stored tokens: " + e.getMessage());
-        } finally {
-            if (keyIterator != null && storageMethod == TokenStorageMethod.STORE_LOCALDB) {
-                try {((LocalDB.LocalDBIterator)keyIterator).close(); } catch (Exception e) {LOGGER.error("unexpected error returning LocalDB token DB iterator: " + e.getMessage());}
-            }
-        }
-
-        return returnList;
+    int getPurgeBatchSize() {
+        return Integer.parseInt(configuration.readAppProperty(AppProperty.TOKEN_PURGE_BATCH_SIZE));
     }
 
-
     private static String makeRandomCode(final Configuration config) {
         final String RANDOM_CHARS = config.readSettingAsString(PwmSetting.TOKEN_CHARACTERS);
         final int CODE_LENGTH = (int) config.readSettingAsLong(PwmSetting.TOKEN_LENGTH);
@@ -383,7 +364,14 @@ public class TokenService implements PwmService {
     private class CleanerTask extends TimerTask {
         public void run() {
             try {
-                tokenMachine.cleanup();
+                final Date startTime = new Date();
+                final int purgeCount = tokenMachine.cleanup();
+                lastPurgeDuration = TimeDuration.fromCurrent(startTime);
+                lastPurgeCount = purgeCount;
+                purgedTokenCount.addAndGet(purgeCount);
+                if (purgeCount > 0) {
+                    LOGGER.debug("purged " + purgeCount + " expired tokens in " + lastPurgeDuration.asCompactString());
+                }
             } catch (Exception e) {
                 LOGGER.warn("unexpected error while cleaning expired stored tokens: " + e.getMessage(),e);
             }
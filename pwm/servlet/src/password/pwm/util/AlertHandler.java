@@ -145,7 +145,7 @@ public abstract class AlertHandler {
         htmlBody.append("<br/>");
 
         { // health check data
-            final Collection<HealthRecord> healthRecords = pwmApplication.getHealthMonitor().getHealthRecords();
+            final Collection<HealthRecord> healthRecords = pwmApplication.getHealthMonitor().getHealthRecords(true);
             textBody.append("-- Health Check Results --\n");
             htmlBody.append("<h2>Health Check Results</h2>");
 
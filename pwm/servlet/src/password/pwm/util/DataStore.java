@@ -24,6 +24,9 @@ package password.pwm.util;
 
 import password.pwm.error.PwmDataStoreException;
 
+import java.util.Collection;
+import java.util.Map;
+
 public interface DataStore {
     public static enum Status {
         NEW, OPEN, CLOSED
@@ -51,4 +54,23 @@ public interface DataStore {
 
     int size()
             throws PwmDataStoreException;
+
+    void putAll(Map<String,String> keyValueMap)
+            throws PwmDataStoreException;
+
+    /**
+     * @return values for the keys that are present; missing keys are not included
+     */
+    Map<String,String> getAll(Collection<String> keys)
+            throws PwmDataStoreException;
+
+    void removeAll(Collection<String> keys)
+            throws PwmDataStoreException;
+
+    /**
+     * Remove entries that have not been written within {@code maxAge}, without reading them.
+     * @return the number of entries removed, or -1 if the store does not track modification times
+     */
+    int removeOlderThan(TimeDuration maxAge)
+            throws PwmDataStoreException;
 }
@@ -52,6 +52,8 @@ import java.net.URI;
 import java.net.UnknownHostException;
 import java.text.NumberFormat;
 import java.util.*;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 /**
@@ -405,6 +407,25 @@ public class
     }
 
 
+    /**
+     * Create a thread factory producing named threads, suitable for use with {@link java.util.concurrent.ExecutorService}s.
+     *
+     * @param namePrefix thread name prefix, a sequence number is appended to each thread name
+     * @param daemon     if the created threads should be daemon threads
+     * @return a new thread factory
+     */
+    public static ThreadFactory makePwmThreadFactory(final String namePrefix, final boolean daemon) {
+        return new ThreadFactory() {
+            private final AtomicInteger threadCounter = new AtomicInteger(1);
+
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, namePrefix + "-" + threadCounter.getAndIncrement());
+                thread.setDaemon(daemon);
+                return thread;
+            }
+        };
+    }
+
     public static String makeThreadName(final PwmApplication pwmApplication, final Class theClass) {
         String instanceName = "-";
         if (pwmApplication != null && pwmApplication.getInstanceID() != null) {
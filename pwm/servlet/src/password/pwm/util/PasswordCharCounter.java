@@ -22,17 +22,81 @@
 
 package password.pwm.util;
 
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Character class statistics for a password.  All counts are gathered in a single pass over the password when the
+ * counter is constructed; the character string accessors are built on demand.
+ */
 public class PasswordCharCounter {
     private final String password;
     private final int passwordLength;
 
+    private int numericCount;
+    private int upperCount;
+    private int lowerCount;
+    private int alphaCount;
+    private int specialCount;
+    private int otherLetterCount;
+    private int repeatedChars;
+    private int sequentialRepeatedChars;
+    private int uniqueChars;
+
     public PasswordCharCounter(final String password) {
         this.password = password;
         this.passwordLength = password.length();
+        countChars();
+    }
+
+    private void countChars() {
+        final Map<Character,Integer> charOccurrences = new HashMap<>();
+        char previousChar = 0;
+        int sequentialRun = 0;
+
+        for (int i = 0; i < passwordLength; i++) {
+            final char loopChar = password.charAt(i);
+            if (Character.isDigit(loopChar)) {
+                numericCount++;
+            }
+            if (Character.isUpperCase(loopChar)) {
+                upperCount++;
+            }
+            if (Character.isLowerCase(loopChar)) {
+                lowerCount++;
+            }
+            if (Character.isLetter(loopChar)) {
+                alphaCount++;
+            }
+            if (!Character.isLetterOrDigit(loopChar)) {
+                specialCount++;
+            }
+            if (Character.getType(loopChar) == Character.OTHER_LETTER) {
+                otherLetterCount++;
+            }
+
+            final char lowerChar = Character.toLowerCase(loopChar);
+            final Integer previousOccurrences = charOccurrences.get(lowerChar);
+            final int occurrences = previousOccurrences == null ? 1 : previousOccurrences + 1;
+            charOccurrences.put(lowerChar, occurrences);
+            repeatedChars = Math.max(repeatedChars, occurrences);
+
+            sequentialRun = (i > 0 && lowerChar == previousChar) ? sequentialRun + 1 : 1;
+            sequentialRepeatedChars = Math.max(sequentialRepeatedChars, sequentialRun);
+            previousChar = lowerChar;
+        }
+
+        uniqueChars = charOccurrences.size();
+
+        // single character passwords have never been reported as containing a repeat
+        if (passwordLength < 2) {
+            repeatedChars = 0;
+            sequentialRepeatedChars = 0;
+        }
     }
 
     public int getNumericCharCount() {
-        return getNumericChars().length();
+        return numericCount;
     }
 
     public String getNumericChars() {
@@ -40,7 +104,7 @@ public class PasswordCharCounter {
     }
 
     public int getUpperCharCount() {
-        return getUpperChars().length();
+        return upperCount;
     }
 
     public String getUpperChars() {
@@ -48,7 +112,7 @@ public class PasswordCharCounter {
     }
 
     public int getAlphaCharCount() {
-        return getAlphaChars().length();
+        return alphaCount;
     }
 
     public String getAlphaChars() {
@@ -56,7 +120,7 @@ public class PasswordCharCounter {
     }
 
     public int getNonAlphaCharCount() {
-        return getNonAlphaChars().length();
+        return passwordLength - alphaCount;
     }
 
     public String getNonAlphaChars() {
@@ -64,7 +128,7 @@ public class PasswordCharCounter {
     }
 
     public int getLowerCharCount() {
-        return getLowerChars().length();
+        return lowerCount;
     }
 
     public String getLowerChars() {
@@ -72,7 +136,7 @@ public class PasswordCharCounter {
     }
 
     public int getSpecialCharsCount() {
-        return getSpecialChars().length();
+        return specialCount;
     }
 
     public String getSpecialChars() {
@@ -80,39 +144,11 @@ public class PasswordCharCounter {
     }
 
     public int getRepeatedChars() {
-        int numberOfRepeats = 0;
-        final CharSequence passwordL = password.toString().toLowerCase();
-
-        for (int i = 0; i < passwordLength - 1; i++) {
-            int loopRepeats = 0;
-            final char loopChar = passwordL.charAt(i);
-            for (int j = i; j < passwordLength; j++)
-                if (loopChar == passwordL.charAt(j))
-                    loopRepeats++;
-
-            if (loopRepeats > numberOfRepeats)
-                numberOfRepeats = loopRepeats;
-        }
-        return numberOfRepeats;
+        return repeatedChars;
     }
 
     public int getSequentialRepeatedChars() {
-        int numberOfRepeats = 0;
-        final CharSequence passwordL = password.toString().toLowerCase();
-
-        for (int i = 0; i < passwordLength - 1; i++) {
-            int loopRepeats = 0;
-            final char loopChar = passwordL.charAt(i);
-            for (int j = i; j < passwordLength; j++)
-                if (loopChar == passwordL.charAt(j))
-                    loopRepeats++;
-                else
-                    break;
-
-            if (loopRepeats > numberOfRepeats)
-                numberOfRepeats = loopRepeats;
-        }
-        return numberOfRepeats;
+        return sequentialRepeatedChars;
     }
 
     public int getSequentialNumericChars() {
@@ -148,18 +184,11 @@ public class PasswordCharCounter {
     }
 
     public int getUniqueChars() {
-        final StringBuilder sb = new StringBuilder();
-        final String passwordL = password.toString().toLowerCase();
-        for (int i = 0; i < passwordLength; i++) {
-            final char loopChar = passwordL.charAt(i);
-            if (sb.indexOf(String.valueOf(loopChar)) == -1)
-                sb.append(loopChar);
-        }
-        return sb.length();
+        return uniqueChars;
     }
 
     public int getOtherLetterCharCount() {
-        return getOtherLetterChars().length();
+        return otherLetterCount;
     }
 
     public String getOtherLetterChars() {
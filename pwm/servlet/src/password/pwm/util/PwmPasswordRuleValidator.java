@@ -51,6 +51,8 @@ public class PwmPasswordRuleValidator {
 
     private static final PwmLogger LOGGER = PwmLogger.forClass(PwmPasswordRuleValidator.class);
 
+    private static final Pattern DISPLAY_NAME_TOKEN_SEPARATOR = Pattern.compile("[,\\.\\-\u2013\u2014_ \u00a3\\t]+");
+
     private final PwmApplication pwmApplication;
     private final PwmPasswordPolicy policy;
     private final Locale locale;
@@ -114,7 +116,8 @@ public class PwmPasswordRuleValidator {
 
     /**
      * Validates a password against the configured rules of PWM.  No directory operations
-     * are performed here.
+     * are performed here.  Only the first error is reported to the caller, so the external
+     * rule service is not consulted once the local policy has already rejected the password.
      *
      * @param password        desired new password
      * @return true if the password is okay, never returns false.
@@ -126,8 +129,8 @@ public class PwmPasswordRuleValidator {
     )
             throws PwmUnrecoverableException
     {
-        final List<ErrorInformation> internalResults = internalPwmPolicyValidator(password, oldPassword, uiBean, false);
-        if (pwmApplication != null) {
+        final List<ErrorInformation> internalResults = internalPwmPolicyValidator(password, oldPassword, uiBean, true);
+        if (pwmApplication != null && internalResults.isEmpty()) {
             final List<ErrorInformation> externalResults = invokeExternalRuleMethods(pwmApplication.getConfig(), policy, password, uiBean);
             internalResults.addAll(externalResults);
         }
@@ -162,6 +165,8 @@ public class PwmPasswordRuleValidator {
 
         final List<ErrorInformation> errorList = new ArrayList<>();
         final PwmPasswordPolicy.RuleHelper ruleHelper = policy.getRuleHelper();
+        final PasswordCharCounter charCounter = new PasswordCharCounter(passwordString);
+        final String lcasePwd = passwordString.toLowerCase();
 
         //check against old password
         if (oldPasswordString != null && oldPasswordString.length() > 0 && ruleHelper.readBooleanValue(PwmPasswordRule.DisallowCurrent)) {
@@ -175,12 +180,11 @@ public class PwmPasswordRuleValidator {
             final int maxOldAllowed = ruleHelper.readIntValue(PwmPasswordRule.MaximumOldChars);
             if (maxOldAllowed > 0) {
                 if (oldPasswordString.length() > 0) {
-                    final String lPassword = passwordString.toLowerCase();
                     final Set<Character> dupeChars = new HashSet<>();
 
                     //add all dupes to the set.
                     for (final char loopChar : oldPasswordString.toLowerCase().toCharArray()) {
-                        if (lPassword.indexOf(loopChar) != -1) {
+                        if (lcasePwd.indexOf(loopChar) != -1) {
                             dupeChars.add(loopChar);
                         }
                     }
@@ -197,7 +201,7 @@ public class PwmPasswordRuleValidator {
             return errorList;
         }
 
-        errorList.addAll(basicSyntaxRuleChecks(passwordString,policy,uiBean));
+        errorList.addAll(basicSyntaxRuleChecks(passwordString,charCounter,policy,uiBean));
 
         if (failFast && errorList.size() > 1) {
             return errorList;
@@ -205,7 +209,6 @@ public class PwmPasswordRuleValidator {
 
         // check against disallowed values;
         if (!ruleHelper.getDisallowedValues().isEmpty()) {
-            final String lcasePwd = passwordString.toLowerCase();
             final Set<String> paramValues = new HashSet<>(ruleHelper.getDisallowedValues());
 
             for (final String loopValue : paramValues) {
@@ -223,11 +226,10 @@ public class PwmPasswordRuleValidator {
         }
 
         // check disallowed attributes.
-        if (!policy.getRuleHelper().getDisallowedAttributes().isEmpty()) {
-            final List paramConfigs = policy.getRuleHelper().getDisallowedAttributes();
+        if (!ruleHelper.getDisallowedAttributes().isEmpty()) {
+            final List paramConfigs = ruleHelper.getDisallowedAttributes();
             if (uiBean != null) {
                 final Map<String,String> userValues = uiBean.getCachedPasswordRuleAttributes();
-                final String lcasePwd = passwordString.toLowerCase();
                 for (final Object paramConfig : paramConfigs) {
                     final String attr = (String) paramConfig;
                     final String userValue = userValues.get(attr) == null ? "" : userValues.get(attr).toLowerCase();
@@ -255,7 +257,7 @@ public class PwmPasswordRuleValidator {
             final int requiredPasswordStrength = ruleHelper.readIntValue(PwmPasswordRule.MinimumStrength);
             if (requiredPasswordStrength > 0) {
                 if (pwmApplication != null) {
-                    final int passwordStrength = PasswordUtility.judgePasswordStrength(passwordString);
+                    final int passwordStrength = PasswordUtility.judgePasswordStrength(passwordString, charCounter);
                     if (passwordStrength < requiredPasswordStrength) {
                         errorList.add(new ErrorInformation(PwmError.PASSWORD_TOO_WEAK));
                         //LOGGER.trace(pwmSession, "password rejected, password strength of " + passwordStrength + " is lower than policy requirement of " + requiredPasswordStrength);
@@ -316,6 +318,12 @@ public class PwmPasswordRuleValidator {
             return errorList;
         }
 
+        // the remaining checks are lookups against the wordlist and shared history stores; don't pay for them when
+        // the caller only needs to know the password has already failed.
+        if (failFast && !errorList.isEmpty()) {
+            return errorList;
+        }
+
         // check if the password is in the dictionary.
         if (ruleHelper.readBooleanValue(PwmPasswordRule.EnableWordlist)) {
             if (pwmApplication != null) {
@@ -490,7 +498,7 @@ public class PwmPasswordRuleValidator {
             return false;
 
         final String baseValueLower = baseValue.toLowerCase();
-        final String[] tokens = checkPattern.toLowerCase().split("[,\\.\\-\u2013\u2014_ \u00a3\\t]+");
+        final String[] tokens = DISPLAY_NAME_TOKEN_SEPARATOR.split(checkPattern.toLowerCase());
         if (tokens != null && tokens.length > 0) {
             for (final String token : tokens) {
                 if (token.length() > 2) {
@@ -574,12 +582,12 @@ public class PwmPasswordRuleValidator {
 
     private static List<ErrorInformation> basicSyntaxRuleChecks(
             final String password,
+            final PasswordCharCounter charCounter,
             final PwmPasswordPolicy policy,
             final UserInfoBean uiBean
     ) {
         final List<ErrorInformation> errorList = new ArrayList<>();
         final PwmPasswordPolicy.RuleHelper ruleHelper = policy.getRuleHelper();
-        final PasswordCharCounter charCounter = new PasswordCharCounter(password);
 
         final int passwordLength = password.length();
 
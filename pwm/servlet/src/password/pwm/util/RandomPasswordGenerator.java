@@ -68,6 +68,8 @@ public class RandomPasswordGenerator {
 
     private static final PwmRandom RANDOM = PwmRandom.getInstance();
 
+    private static final int MAX_STRENGTHENING_CHARS = 32;
+
     private static final PwmLogger LOGGER = PwmLogger.forClass(RandomPasswordGenerator.class);
 
 // -------------------------- STATIC METHODS --------------------------
@@ -126,6 +128,45 @@ public class RandomPasswordGenerator {
 
         validateSettings(pwmApplication, randomGeneratorConfig);
 
+        PasswordData password = null;
+        final RandomPasswordService randomPasswordService = pwmApplication.getRandomPasswordService();
+        if (randomPasswordService != null && randomGeneratorConfig.isPoolable()) {
+            password = randomPasswordService.takePooledPassword(randomGeneratorConfig.getPasswordPolicy());
+        }
+
+        if (password == null) {
+            password = generateRandomPassword(sessionLabel, randomGeneratorConfig, pwmApplication);
+        }
+
+        final long elapsedMS = System.currentTimeMillis() - startTimeMS;
+        if (pwmApplication.getStatisticsManager() != null) {
+            pwmApplication.getStatisticsManager().incrementValue(Statistic.GENERATED_PASSWORDS);
+            pwmApplication.getStatisticsManager().updateAverageValue(Statistic.AVG_PASSWORD_GENERATE_TIME, elapsedMS);
+        }
+
+        final StringBuilder sb = new StringBuilder();
+        sb.append("real-time random password generator called");
+        sb.append(" (").append(new TimeDuration(elapsedMS).asCompactString());
+        sb.append(")");
+        LOGGER.trace(sessionLabel, sb.toString());
+
+        return password;
+    }
+
+    /**
+     * Generate a new password without consulting the {@link RandomPasswordService} pool.  Used directly by the pool
+     * to fill itself, and by {@link #createRandomPassword(SessionLabel, RandomGeneratorConfig, PwmApplication)} when
+     * no pooled value is available.
+     */
+    static PasswordData generateRandomPassword(
+            final SessionLabel sessionLabel,
+            final RandomGeneratorConfig randomGeneratorConfig,
+            final PwmApplication pwmApplication
+    )
+            throws PwmUnrecoverableException
+    {
+        final long startTimeMS = System.currentTimeMillis();
+
         if (randomGeneratorConfig.getSeedlistPhrases() == null || randomGeneratorConfig.getSeedlistPhrases().isEmpty()) {
             Set<String> seeds = DEFAULT_SEED_PHRASES;
 
@@ -167,8 +208,10 @@ public class RandomPasswordGenerator {
             randomGenPolicy = PwmPasswordPolicy.createPwmPasswordPolicy(newPolicyMap);
         }
 
-        // initial creation
+        // initial creation, shaped to the character rules so that usually a single validation pass is needed
+        final PwmPasswordPolicy.RuleHelper ruleHelper = randomGenPolicy.getRuleHelper();
         password.append(generateNewPassword(seedMachine, randomGeneratorConfig.getMinimumLength()));
+        applyCharacterRules(password, ruleHelper, seedMachine);
 
         // read a rule validator
         final PwmPasswordRuleValidator pwmPasswordRuleValidator = new PwmPasswordRuleValidator(pwmApplication, randomGenPolicy);
@@ -184,6 +227,7 @@ public class RandomPasswordGenerator {
             if (tryCount % JITTER_COUNT == 0) {
                 password.delete(0,password.length());
                 password.append(generateNewPassword(seedMachine, randomGeneratorConfig.getMinimumLength()));
+                applyCharacterRules(password, ruleHelper, seedMachine);
             }
 
             final List<ErrorInformation> errors = pwmPasswordRuleValidator.internalPwmPolicyValidator(
@@ -191,6 +235,7 @@ public class RandomPasswordGenerator {
             if (errors != null && !errors.isEmpty()) {
                 validPassword = false;
                 modifyPasswordBasedOnErrors(password, errors, seedMachine);
+                applyCharacterRules(password, ruleHelper, seedMachine);
             } else if (checkPasswordAgainstDisallowedHttpValues(pwmApplication.getConfig(), password.toString())) {
                 validPassword = false;
                 password.delete(0, password.length());
@@ -213,17 +258,252 @@ public class RandomPasswordGenerator {
             }
         }
 
-        if (pwmApplication != null && pwmApplication.getStatisticsManager() != null) {
-            pwmApplication.getStatisticsManager().incrementValue(Statistic.GENERATED_PASSWORDS);
+        return new PasswordData(password.toString());
+    }
+
+    /**
+     * Adjusts the candidate so that it meets the length and character class count rules of the policy directly,
+     * rather than discovering each violation through a validation pass.  Rules that can not be expressed as
+     * character counts (regular expressions, wordlist, disallowed values and so on) are left to the validator.
+     */
+    static void applyCharacterRules(
+            final StringBuilder password,
+            final PwmPasswordPolicy.RuleHelper ruleHelper,
+            final SeedMachine seedMachine
+    ) {
+        final boolean allowNumeric = ruleHelper.readBooleanValue(PwmPasswordRule.AllowNumeric);
+        final boolean allowSpecial = ruleHelper.readBooleanValue(PwmPasswordRule.AllowSpecial);
+        final Map<CharClass,Integer> maximums = new EnumMap<>(CharClass.class);
+        maximums.put(CharClass.NUMERIC, allowNumeric ? ruleHelper.readIntValue(PwmPasswordRule.MaximumNumeric) : -1);
+        maximums.put(CharClass.SPECIAL, allowSpecial ? ruleHelper.readIntValue(PwmPasswordRule.MaximumSpecial) : -1);
+        maximums.put(CharClass.UPPER, ruleHelper.readIntValue(PwmPasswordRule.MaximumUpperCase));
+        maximums.put(CharClass.LOWER, ruleHelper.readIntValue(PwmPasswordRule.MaximumLowerCase));
+        final Map<CharClass,Integer> minimums = new EnumMap<>(CharClass.class);
+        minimums.put(CharClass.NUMERIC, allowNumeric ? ruleHelper.readIntValue(PwmPasswordRule.MinimumNumeric) : 0);
+        minimums.put(CharClass.SPECIAL, allowSpecial ? ruleHelper.readIntValue(PwmPasswordRule.MinimumSpecial) : 0);
+        minimums.put(CharClass.UPPER, ruleHelper.readIntValue(PwmPasswordRule.MinimumUpperCase));
+        minimums.put(CharClass.LOWER, ruleHelper.readIntValue(PwmPasswordRule.MinimumLowerCase));
+
+        // remove disallowed and surplus characters
+        for (final CharClass charClass : CharClass.values()) {
+            final int maximum = maximums.get(charClass);
+            while ((maximum < 0 && charClass.count(password) > 0) || (maximum > 0 && charClass.count(password) > maximum)) {
+                charClass.deleteRandom(password);
+            }
         }
 
-        final StringBuilder sb = new StringBuilder();
-        sb.append("real-time random password generator called");
-        sb.append(" (").append(TimeDuration.fromCurrent(startTimeMS).asCompactString());
-        sb.append(")");
-        LOGGER.trace(sessionLabel, sb.toString());
+        // add missing required characters
+        for (final CharClass charClass : CharClass.values()) {
+            charClass.topUp(password, seedMachine, minimums.get(charClass));
+        }
 
-        return new PasswordData(password.toString());
+        final int minimumAlpha = ruleHelper.readIntValue(PwmPasswordRule.MinimumAlpha);
+        while (new PasswordCharCounter(password.toString()).getAlphaCharCount() < minimumAlpha) {
+            if (!addCharWithHeadroom(password, seedMachine, maximums, CharClass.LOWER, CharClass.UPPER)) {
+                break;
+            }
+        }
+
+        final int minimumNonAlpha = ruleHelper.readIntValue(PwmPasswordRule.MinimumNonAlpha);
+        while (new PasswordCharCounter(password.toString()).getNonAlphaCharCount() < minimumNonAlpha) {
+            if (!addCharWithHeadroom(password, seedMachine, maximums, CharClass.NUMERIC, CharClass.SPECIAL)) {
+                break;
+            }
+        }
+
+        // fit the length
+        final int minimumLength = ruleHelper.readIntValue(PwmPasswordRule.MinimumLength);
+        while (password.length() < minimumLength) {
+            if (!addCharWithHeadroom(password, seedMachine, maximums, CharClass.LOWER, CharClass.UPPER, CharClass.NUMERIC, CharClass.SPECIAL)) {
+                break;
+            }
+        }
+
+        final int maximumLength = ruleHelper.readIntValue(PwmPasswordRule.MaximumLength);
+        while (maximumLength > 0 && password.length() > maximumLength) {
+            if (!deleteSurplusChar(password, minimums, minimumAlpha, minimumNonAlpha)) {
+                break;
+            }
+        }
+
+        // strengthen with whichever character classes still have room; bounded, as the seeds may not allow the
+        // required strength to be reached at all
+        final int minimumStrength = ruleHelper.readIntValue(PwmPasswordRule.MinimumStrength);
+        int strengtheningChars = 0;
+        while (minimumStrength > 0 && strengtheningChars < MAX_STRENGTHENING_CHARS
+                && (maximumLength <= 0 || password.length() < maximumLength)
+                && PasswordUtility.judgePasswordStrength(password.toString(), new PasswordCharCounter(password.toString())) < minimumStrength) {
+            final CharClass randomClass = CharClass.values()[RANDOM.nextInt(CharClass.values().length)];
+            if (!addCharWithHeadroom(password, seedMachine, maximums, randomClass, CharClass.LOWER, CharClass.UPPER)) {
+                break;
+            }
+            strengtheningChars++;
+        }
+
+        // keep numeric and special characters away from the ends of the password where disallowed
+        if (password.length() > 2) {
+            final boolean firstCharAllowed = allowedAtEnd(password.charAt(0),
+                    ruleHelper.readBooleanValue(PwmPasswordRule.AllowFirstCharNumeric),
+                    ruleHelper.readBooleanValue(PwmPasswordRule.AllowFirstCharSpecial));
+            if (!firstCharAllowed) {
+                swapWithInteriorLetter(password, 0);
+            }
+            final boolean lastCharAllowed = allowedAtEnd(password.charAt(password.length() - 1),
+                    ruleHelper.readBooleanValue(PwmPasswordRule.AllowLastCharNumeric),
+                    ruleHelper.readBooleanValue(PwmPasswordRule.AllowLastCharSpecial));
+            if (!lastCharAllowed) {
+                swapWithInteriorLetter(password, password.length() - 1);
+            }
+        }
+    }
+
+    private static boolean addCharWithHeadroom(
+            final StringBuilder password,
+            final SeedMachine seedMachine,
+            final Map<CharClass,Integer> maximums,
+            final CharClass... candidates
+    ) {
+        for (final CharClass charClass : candidates) {
+            final int maximum = maximums.get(charClass);
+            if (maximum == 0 || (maximum > 0 && charClass.count(password) < maximum)) {
+                addRandChar(password, charClass.seedChars(seedMachine), interiorPosition(password));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean deleteSurplusChar(
+            final StringBuilder password,
+            final Map<CharClass,Integer> minimums,
+            final int minimumAlpha,
+            final int minimumNonAlpha
+    ) {
+        final PasswordCharCounter charCounter = new PasswordCharCounter(password.toString());
+        final boolean alphaSurplus = charCounter.getAlphaCharCount() > minimumAlpha;
+        final boolean nonAlphaSurplus = charCounter.getNonAlphaCharCount() > minimumNonAlpha;
+        final List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < password.length(); i++) {
+            final char character = password.charAt(i);
+            if (!(Character.isLetter(character) ? alphaSurplus : nonAlphaSurplus)) {
+                continue;
+            }
+            final CharClass charClass = CharClass.forChar(character);
+            if (charClass == null || charClass.count(password) > minimums.get(charClass)) {
+                positions.add(i);
+            }
+        }
+        if (positions.isEmpty()) {
+            return false;
+        }
+        password.deleteCharAt(positions.get(RANDOM.nextInt(positions.size())));
+        return true;
+    }
+
+    private static boolean allowedAtEnd(final char character, final boolean allowNumeric, final boolean allowSpecial) {
+        if (Character.isDigit(character)) {
+            return allowNumeric;
+        }
+        return Character.isLetterOrDigit(character) || allowSpecial;
+    }
+
+    private static void swapWithInteriorLetter(final StringBuilder password, final int position) {
+        final List<Integer> letterPositions = new ArrayList<>();
+        for (int i = 1; i < password.length() - 1; i++) {
+            if (Character.isLetter(password.charAt(i))) {
+                letterPositions.add(i);
+            }
+        }
+        if (!letterPositions.isEmpty()) {
+            final int swapPosition = letterPositions.get(RANDOM.nextInt(letterPositions.size()));
+            final char swapChar = password.charAt(swapPosition);
+            password.setCharAt(swapPosition, password.charAt(position));
+            password.setCharAt(position, swapChar);
+        }
+    }
+
+    private static int interiorPosition(final StringBuilder password) {
+        return password.length() < 2 ? RANDOM.nextInt(password.length() + 1) : 1 + RANDOM.nextInt(password.length() - 1);
+    }
+
+    private enum CharClass {
+        NUMERIC {
+            boolean matches(final char character) {
+                return Character.isDigit(character);
+            }
+
+            String seedChars(final SeedMachine seedMachine) {
+                return seedMachine.getNumChars();
+            }
+        },
+        SPECIAL {
+            boolean matches(final char character) {
+                return !Character.isLetterOrDigit(character);
+            }
+
+            String seedChars(final SeedMachine seedMachine) {
+                return seedMachine.getSpecialChars();
+            }
+        },
+        UPPER {
+            boolean matches(final char character) {
+                return Character.isUpperCase(character);
+            }
+
+            String seedChars(final SeedMachine seedMachine) {
+                return seedMachine.getUpperChars();
+            }
+        },
+        LOWER {
+            boolean matches(final char character) {
+                return Character.isLowerCase(character);
+            }
+
+            String seedChars(final SeedMachine seedMachine) {
+                return seedMachine.getLowerChars();
+            }
+        },
+
+        ;
+
+        abstract boolean matches(char character);
+
+        abstract String seedChars(SeedMachine seedMachine);
+
+        static CharClass forChar(final char character) {
+            for (final CharClass charClass : values()) {
+                if (charClass.matches(character)) {
+                    return charClass;
+                }
+            }
+            return null;
+        }
+
+        int count(final CharSequence password) {
+            int count = 0;
+            for (int i = 0; i < password.length(); i++) {
+                if (matches(password.charAt(i))) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        void topUp(final StringBuilder password, final SeedMachine seedMachine, final int minimum) {
+            for (int i = count(password); i < minimum; i++) {
+                addRandChar(password, seedChars(seedMachine), interiorPosition(password));
+            }
+        }
+
+        void deleteRandom(final StringBuilder password) {
+            final List<Integer> positions = new ArrayList<>();
+            for (int i = 0; i < password.length(); i++) {
+                if (matches(password.charAt(i))) {
+                    positions.add(i);
+                }
+            }
+            password.deleteCharAt(positions.get(RANDOM.nextInt(positions.size())));
+        }
     }
 
     private static void modifyPasswordBasedOnErrors(
@@ -594,6 +874,18 @@ public class RandomPasswordGenerator {
             return passwordPolicy;
         }
 
+        /**
+         * @return true if only the password policy differs from the defaults, so a pre-generated value for the
+         * policy is equivalent to a newly generated one
+         */
+        boolean isPoolable() {
+            return (seedlistPhrases == null || seedlistPhrases.isEmpty())
+                    && minimumLength == DEFAULT_MINIMUM_LENGTH
+                    && maximumLength == DEFAULT_MAXIMUM_LENGTH
+                    && minimumStrength == DEFAULT_DESIRED_STRENGTH
+                    && passwordPolicy != null;
+        }
+
         public void setPasswordPolicy(final PwmPasswordPolicy passwordPolicy) {
             this.passwordPolicy = passwordPolicy;
         }
@@ -0,0 +1,213 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util;
+
+import password.pwm.AppProperty;
+import password.pwm.PwmApplication;
+import password.pwm.PwmService;
+import password.pwm.bean.SessionLabel;
+import password.pwm.config.option.DataStorageMethod;
+import password.pwm.config.profile.PwmPasswordPolicy;
+import password.pwm.error.PwmException;
+import password.pwm.health.HealthRecord;
+import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.stats.Statistic;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps a small pool of pre-generated random passwords for each recently used password policy, so that callers
+ * asking for a password with the default generator settings do not wait for generation, validation and seed list
+ * reads.  Pools are keyed by the policy rule values, so equivalent policies read for different users share a pool.
+ * Pools are refilled by a single background thread after each take.
+ */
+public class RandomPasswordService implements PwmService {
+    private static final PwmLogger LOGGER = PwmLogger.forClass(RandomPasswordService.class);
+
+    private PwmApplication pwmApplication;
+    private ExecutorService executorService;
+    private Map<Map<String,String>,PasswordPool> pools;
+    private int poolSize;
+
+    private volatile STATUS status = STATUS.NEW;
+
+    @Override
+    public STATUS status() {
+        return status;
+    }
+
+    @Override
+    public void init(final PwmApplication pwmApplication)
+            throws PwmException
+    {
+        this.pwmApplication = pwmApplication;
+        poolSize = Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.PASSWORD_RANDOMGEN_POOL_SIZE));
+        if (poolSize < 1) {
+            LOGGER.debug("skipping random password pool init due to app property setting");
+            status = STATUS.CLOSED;
+            return;
+        }
+
+        final int maxPolicies = Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.PASSWORD_RANDOMGEN_POOL_MAX_POLICIES));
+        pools = new LinkedHashMap<Map<String,String>,PasswordPool>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Map<String,String>,PasswordPool> eldest) {
+                return size() > maxPolicies;
+            }
+        };
+        executorService = Executors.newSingleThreadExecutor(
+                Helper.makePwmThreadFactory(Helper.makeThreadName(pwmApplication, this.getClass()), true));
+        status = STATUS.OPEN;
+    }
+
+    @Override
+    public void close() {
+        status = STATUS.CLOSED;
+        if (executorService != null) {
+            executorService.shutdownNow();
+            executorService = null;
+        }
+        if (pools != null) {
+            synchronized (pools) {
+                pools.clear();
+            }
+        }
+    }
+
+    @Override
+    public List<HealthRecord> healthCheck() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public ServiceInfo serviceInfo() {
+        return new ServiceInfo(Collections.<DataStorageMethod>emptyList());
+    }
+
+    /**
+     * @return a pre-generated password for the policy, or null if none is currently available.  Either way a refill
+     * of the policy's pool is scheduled.
+     */
+    PasswordData takePooledPassword(final PwmPasswordPolicy passwordPolicy) {
+        if (status != STATUS.OPEN || passwordPolicy == null) {
+            return null;
+        }
+
+        final Map<String,String> poolKey = new HashMap<>(passwordPolicy.getPolicyMap());
+        final PasswordPool pool;
+        synchronized (pools) {
+            PasswordPool existingPool = pools.get(poolKey);
+            if (existingPool == null) {
+                existingPool = new PasswordPool(passwordPolicy);
+                pools.put(poolKey, existingPool);
+            }
+            pool = existingPool;
+        }
+
+        final PasswordData password = pool.take();
+        if (pwmApplication.getStatisticsManager() != null) {
+            pwmApplication.getStatisticsManager().incrementValue(password == null
+                    ? Statistic.GENERATED_PASSWORD_POOL_MISSES
+                    : Statistic.GENERATED_PASSWORD_POOL_HITS);
+        }
+        scheduleRefill(pool);
+        return password;
+    }
+
+    private void scheduleRefill(final PasswordPool pool) {
+        final ExecutorService executor = executorService;
+        if (executor == null || !pool.beginRefill()) {
+            return;
+        }
+        try {
+            executor.submit(new RefillTask(pool));
+        } catch (RejectedExecutionException e) {
+            pool.endRefill();
+        }
+    }
+
+    /**
+     * Pre-generated passwords for a single policy.  Each added password is returned by {@link #take()} at most once,
+     * and at most one refill is in progress at a time.
+     */
+    static class PasswordPool {
+        private final PwmPasswordPolicy passwordPolicy;
+        private final Queue<PasswordData> passwords = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean refillPending = new AtomicBoolean(false);
+
+        PasswordPool(final PwmPasswordPolicy passwordPolicy) {
+            this.passwordPolicy = passwordPolicy;
+        }
+
+        PwmPasswordPolicy getPasswordPolicy() {
+            return passwordPolicy;
+        }
+
+        PasswordData take() {
+            return passwords.poll();
+        }
+
+        void add(final PasswordData password) {
+            passwords.add(password);
+        }
+
+        int size() {
+            return passwords.size();
+        }
+
+        boolean beginRefill() {
+            return refillPending.compareAndSet(false, true);
+        }
+
+        void endRefill() {
+            refillPending.set(false);
+        }
+    }
+
+    private class RefillTask implements Runnable {
+        private final PasswordPool pool;
+
+        RefillTask(final PasswordPool pool) {
+            this.pool = pool;
+        }
+
+        public void run() {
+            try {
+                while (status == STATUS.OPEN && pool.size() < poolSize) {
+                    final RandomPasswordGenerator.RandomGeneratorConfig randomGeneratorConfig = new RandomPasswordGenerator.RandomGeneratorConfig();
+                    randomGeneratorConfig.setPasswordPolicy(pool.getPasswordPolicy());
+                    pool.add(RandomPasswordGenerator.generateRandomPassword(SessionLabel.SYSTEM_LABEL, randomGeneratorConfig, pwmApplication));
+                }
+            } catch (Exception e) {
+                LOGGER.warn("error while filling random password pool: " + e.getMessage());
+            } finally {
+                pool.endRefill();
+            }
+        }
+    }
+}
@@ -26,6 +26,7 @@ import password.pwm.util.Helper;
 import password.pwm.util.JsonUtil;
 import password.pwm.util.TimeDuration;
 import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBCompressor;
 import password.pwm.util.localdb.LocalDBUtility;
 
 import java.text.NumberFormat;
@@ -44,6 +45,9 @@ public class LocalDBInfoCommand extends AbstractCliCommand {
             out("---" + db.toString() + "---");
             final Map<LocalDBUtility.STATS_KEY,Object> stats = LocalDBUtility.dbStats(localDB, db);
             out(JsonUtil.serializeMap(stats, JsonUtil.Flag.PrettyPrint));
+            if (localDB instanceof LocalDBCompressor) {
+                out("codec statistics: " + JsonUtil.serializeMap(((LocalDBCompressor) localDB).getCodecStatistics(db)));
+            }
         }
         out("completed LocalDBInfo in " + TimeDuration.fromCurrent(startTime).asCompactString());
     }
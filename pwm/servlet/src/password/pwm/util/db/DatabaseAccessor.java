@@ -23,9 +23,12 @@
 package password.pwm.util.db;
 
 import password.pwm.util.ClosableIterator;
+import password.pwm.util.TimeDuration;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.util.Collection;
+import java.util.Map;
 
 public interface DatabaseAccessor {
     /**
@@ -45,6 +48,10 @@ public interface DatabaseAccessor {
     }
 
 
+    /**
+     * @return true if the key was already present.  Only reported by databases that can tell from the write itself
+     * (MySQL, and databases without a native upsert); otherwise false.
+     */
     @DbOperation
     @DbModifyOperation
     boolean put(
@@ -82,4 +89,62 @@ public interface DatabaseAccessor {
     @DbOperation
     int size(DatabaseTable table) throws
             DatabaseException;
+
+    /**
+     * Store all of the values in a single transaction, using batched statements.
+     */
+    @DbOperation
+    @DbModifyOperation
+    void putAll(
+            DatabaseTable table,
+            Map<String,String> keyValueMap
+    )
+            throws DatabaseException;
+
+    /**
+     * @return the stored values for the keys that are present; missing keys are not included in the result
+     */
+    @DbOperation
+    Map<String,String> getAll(
+            DatabaseTable table,
+            Collection<String> keys
+    )
+            throws DatabaseException;
+
+    /**
+     * Remove all of the keys in a single transaction, using batched statements.
+     * @return the number of rows removed
+     */
+    @DbOperation
+    @DbModifyOperation
+    int removeAll(
+            DatabaseTable table,
+            Collection<String> keys
+    )
+            throws DatabaseException;
+
+    /**
+     * Remove rows that have not been modified within {@code maxAge}, entirely on the database server.  Rows written
+     * without a modification time, such as by an older version sharing the database, are first given the current
+     * time so they are removed once they reach {@code maxAge}.
+     * @return the number of rows removed, or -1 if the table does not track modification times
+     */
+    @DbOperation
+    @DbModifyOperation
+    int removeOlderThan(
+            DatabaseTable table,
+            TimeDuration maxAge
+    )
+            throws DatabaseException;
+
+    /**
+     * @return the number of rows that have not been modified within {@code maxAge}, or -1 if the table does not
+     * track modification times
+     */
+    @DbOperation
+    int countOlderThan(
+            DatabaseTable table,
+            TimeDuration maxAge
+    )
+            throws DatabaseException;
 }
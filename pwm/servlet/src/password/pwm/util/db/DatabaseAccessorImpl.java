@@ -22,6 +22,7 @@
 
 package password.pwm.util.db;
 
+import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.PwmConstants;
 import password.pwm.PwmService;
@@ -37,15 +38,16 @@ import password.pwm.health.HealthRecord;
 import password.pwm.health.HealthStatus;
 import password.pwm.health.HealthTopic;
 import password.pwm.util.ClosableIterator;
+import password.pwm.util.Helper;
 import password.pwm.util.JsonUtil;
 import password.pwm.util.PasswordData;
 import password.pwm.util.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.stats.LatencyHistogram;
 import password.pwm.util.stats.Statistic;
 import password.pwm.util.stats.StatisticsManager;
 
 import java.io.*;
-import java.lang.reflect.Method;
 import java.sql.*;
 import java.util.*;
 import java.util.jar.JarEntry;
@@ -60,6 +62,11 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
     private static final PwmLogger LOGGER = PwmLogger.forClass(DatabaseAccessorImpl.class, true);
     private static final String KEY_COLUMN = "id";
     private static final String VALUE_COLUMN = "value";
+    private static final String MODIFIED_COLUMN = "modified";
+    private static final String MODIFIED_COLUMN_TYPE = "NUMERIC(19)";
+
+    // some databases (notably Oracle) limit an IN list to 1000 entries
+    private static final int MAX_IN_LIST_SIZE = 1000;
 
     private static final int KEY_COLUMN_LENGTH = PwmConstants.DATABASE_ACCESSOR_KEY_LENGTH;
 
@@ -70,7 +77,15 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
     private Driver driver;
     private String instanceID;
     private boolean traceLogging;
-    private volatile Connection connection;
+    private int poolMaxConnections;
+    private long poolMaxWaitMs;
+    private long poolValidationFrequencyMs;
+    private int poolValidationTimeoutSeconds;
+    private int iteratorFetchSize;
+    private int batchSize;
+    private volatile DatabaseConnectionPool connectionPool;
+    private volatile DatabaseDialect dialect = DatabaseDialect.GENERIC;
+    private volatile Map<DatabaseTable,TableStatements> tableStatements = Collections.emptyMap();
     private volatile PwmService.STATUS status = PwmService.STATUS.NEW;
     private ErrorInformation lastError;
     private PwmApplication pwmApplication;
@@ -120,6 +135,12 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
 
         this.instanceID = pwmApplication == null ? null : pwmApplication.getInstanceID();
         this.traceLogging = config.readSettingAsBoolean(PwmSetting.DATABASE_DEBUG_TRACE);
+        this.poolMaxConnections = Integer.parseInt(config.readAppProperty(AppProperty.DB_POOL_MAX_CONNECTIONS));
+        this.poolMaxWaitMs = Long.parseLong(config.readAppProperty(AppProperty.DB_POOL_MAX_WAIT_MS));
+        this.poolValidationFrequencyMs = Long.parseLong(config.readAppProperty(AppProperty.DB_POOL_VALIDATION_FREQUENCY_MS));
+        this.poolValidationTimeoutSeconds = Integer.parseInt(config.readAppProperty(AppProperty.DB_POOL_VALIDATION_TIMEOUT_SECONDS));
+        this.iteratorFetchSize = Math.max(1, Integer.parseInt(config.readAppProperty(AppProperty.DB_ITERATOR_FETCH_SIZE)));
+        this.batchSize = Math.max(1, Integer.parseInt(config.readAppProperty(AppProperty.DB_BATCH_SIZE)));
 
         if (this.dbConfiguration.isEmpty()) {
             status = PwmService.STATUS.CLOSED;
@@ -130,9 +151,9 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
     public void close()
     {
         status = PwmService.STATUS.CLOSED;
-        if (connection != null) {
+        if (connectionPool != null) {
             try {
-                connection.close();
+                connectionPool.close();
             } catch (Exception e) {
                 LOGGER.debug("error while closing DB: " + e.getMessage());
             }
@@ -144,7 +165,7 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
             LOGGER.debug("error while de-registering driver: " + e.getMessage());
         }
 
-        connection = null;
+        connectionPool = null;
     }
 
     public List<HealthRecord> healthCheck() {
@@ -184,6 +205,11 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
             returnRecords.add(new HealthRecord(HealthStatus.GOOD, HealthTopic.Database, "Database connection to " + this.dbConfiguration.getConnectionString() + " okay"));
         }
 
+        final DatabaseConnectionPool pool = connectionPool;
+        if (pool != null) {
+            returnRecords.add(new HealthRecord(HealthStatus.GOOD, HealthTopic.Database, poolStatistics(pool)));
+        }
+
         return returnRecords;
     }
 
@@ -192,13 +218,55 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
     private synchronized void init()
             throws DatabaseException
     {
+        if (status == PwmService.STATUS.OPEN) {
+            return;
+        }
+        if (status == PwmService.STATUS.CLOSED) {
+            throw new DatabaseException(new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"database connection is not open"));
+        }
+
         status = PwmService.STATUS.OPENING;
         LOGGER.debug("opening connection to database " + this.dbConfiguration.getConnectionString());
 
-        connection = openDB(dbConfiguration);
+        if (connectionPool != null) {
+            connectionPool.close();
+        }
+        final DatabaseConnectionPool pool = openPool(dbConfiguration);
+        final Set<DatabaseTable> trackedTables = EnumSet.noneOf(DatabaseTable.class);
+        try {
+            final DatabaseConnectionPool.PooledConnection pooledConnection = pool.borrow();
+            final long startTime = System.nanoTime();
+            try {
+                final Connection connection = pooledConnection.getConnection();
+                try {
+                    dialect = DatabaseDialect.forMetaData(connection.getMetaData());
+                } catch (SQLException e) {
+                    LOGGER.debug("unable to read database metadata, generic sql will be used: " + e.getMessage());
+                    dialect = DatabaseDialect.GENERIC;
+                }
+                LOGGER.debug("using " + dialect + " sql dialect for database " + this.dbConfiguration.getConnectionString());
+
+                for (final DatabaseTable table : DatabaseTable.values()) {
+                    initTable(connection, table, dbConfiguration);
+                    if (table.isTrackModification() && initModifiedColumn(connection, table)) {
+                        trackedTables.add(table);
+                    }
+                }
+            } finally {
+                pooledConnection.release(startTime);
+            }
+        } catch (DatabaseException e) {
+            pool.close();
+            throw e;
+        }
+
+        final Map<DatabaseTable,TableStatements> statements = new EnumMap<>(DatabaseTable.class);
         for (final DatabaseTable table : DatabaseTable.values()) {
-            initTable(connection, table, dbConfiguration);
+            statements.put(table, new TableStatements(table, dialect, trackedTables.contains(table), Math.min(batchSize, MAX_IN_LIST_SIZE)));
         }
+        tableStatements = statements;
+        pool.startValidation(Helper.makeThreadName(pwmApplication, this.getClass()) + " validator", poolValidationFrequencyMs);
+        connectionPool = pool;
 
         status = PwmService.STATUS.OPEN;
 
@@ -210,7 +278,7 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
         }
     }
 
-    private Connection openDB(final DBConfiguration dbConfiguration) throws DatabaseException {
+    private DatabaseConnectionPool openPool(final DBConfiguration dbConfiguration) throws DatabaseException {
         final String connectionURL = dbConfiguration.getConnectionString();
         final String jdbcClassName = dbConfiguration.getDriverClassname();
 
@@ -241,7 +309,7 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
         }
 
         try {
-            LOGGER.debug("opening connection to database " + connectionURL);
+            LOGGER.debug("opening connection pool to database " + connectionURL + " with up to " + poolMaxConnections + " connections");
             final Properties connectionProperties = new Properties();
             if (dbConfiguration.getUsername() != null && !dbConfiguration.getUsername().isEmpty()) {
                 connectionProperties.setProperty("user", dbConfiguration.getUsername());
@@ -249,11 +317,8 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
             if (dbConfiguration.getPassword() != null) {
                 connectionProperties.setProperty("password", dbConfiguration.getPassword().getStringValue());
             }
-            final Connection connection = driver.connect(connectionURL, connectionProperties);
-            LOGGER.debug("successfully opened connection to database " + connectionURL);
-            connection.setAutoCommit(true);
-            return connection;
-        } catch (PwmUnrecoverableException | SQLException e) {
+            return new DatabaseConnectionPool(driver, connectionURL, connectionProperties, poolMaxConnections, poolMaxWaitMs, poolValidationTimeoutSeconds);
+        } catch (PwmUnrecoverableException e) {
             final String errorMsg = "error connecting to database: " + e.getMessage();
             final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,errorMsg);
             throw new DatabaseException(errorInformation);
@@ -311,6 +376,51 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
         }
     }
 
+    /**
+     * Make sure the table has a modification time column, adding it to tables created by older versions.  Rows
+     * without a modification time are stamped with the current time so they age out normally.
+     *
+     * @return false if the column is not available, in which case old rows can only be found by reading them
+     */
+    private static boolean initModifiedColumn(final Connection connection, final DatabaseTable table) {
+        Statement statement = null;
+        try {
+            statement = connection.createStatement();
+            try {
+                final ResultSet resultSet = statement.executeQuery("SELECT " + MODIFIED_COLUMN + " FROM " + table.toString() + " WHERE " + KEY_COLUMN + " = '0'");
+                close(resultSet);
+            } catch (SQLException e) { // assume error was due to column missing
+                statement.execute("ALTER TABLE " + table.toString() + " ADD " + MODIFIED_COLUMN + " " + MODIFIED_COLUMN_TYPE);
+                LOGGER.debug("added column " + MODIFIED_COLUMN + " to table " + table.toString());
+                try {
+                    statement.execute("CREATE index " + table.toString() + "_MOD_IDX ON " + table.toString() + " (" + MODIFIED_COLUMN + ")");
+                } catch (SQLException ex) {
+                    LOGGER.error("error creating new index " + table.toString() + "_MOD_IDX: " + ex.getMessage());
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.error("unable to add column " + MODIFIED_COLUMN + " to table " + table.toString() + ", stale rows will be found by reading each row: " + e.getMessage());
+            return false;
+        } finally {
+            close(statement);
+        }
+
+        PreparedStatement preparedStatement = null;
+        try {
+            preparedStatement = connection.prepareStatement("UPDATE " + table.toString() + " SET " + MODIFIED_COLUMN + "=? WHERE " + MODIFIED_COLUMN + " IS NULL");
+            preparedStatement.setLong(1, System.currentTimeMillis());
+            final int rowCount = preparedStatement.executeUpdate();
+            if (rowCount > 0) {
+                LOGGER.debug("set modification time on " + rowCount + " existing rows of table " + table.toString());
+            }
+        } catch (SQLException e) {
+            LOGGER.error("error setting modification time on existing rows of table " + table.toString() + ": " + e.getMessage());
+        } finally {
+            close(preparedStatement);
+        }
+        return true;
+    }
+
     private static void checkIfTableExists(final Connection connection, final DatabaseTable table) throws SQLException {
         final StringBuilder sb = new StringBuilder();
         sb.append("SELECT * FROM  ").append(table.toString()).append(" WHERE " + KEY_COLUMN + " = '0'");
@@ -325,6 +435,11 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
         }
     }
 
+    /**
+     * Stores the value using a single upsert statement where the database dialect supports one.  The returned
+     * value indicates the key was already present only where the dialect can tell from the write itself, see
+     * {@link DatabaseDialect}.
+     */
     @Override
     public boolean put(
             final DatabaseTable table,
@@ -337,39 +452,22 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
         if (traceLogging) {
             LOGGER.trace("attempting put operation for table=" + table + ", key=" + key);
         }
-        if (!contains(table, key)) {
-            final String sqlText = "INSERT INTO " + table.toString() + "(" + KEY_COLUMN + ", " + VALUE_COLUMN + ") VALUES(?,?)";
-            PreparedStatement statement = null;
-
-            try {
-                statement = connection.prepareStatement(sqlText);
-                statement.setString(1, key);
-                statement.setString(2, value);
-                statement.executeUpdate();
-            } catch (SQLException e) {
-                final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"put operation failed: " + e.getMessage());
-                lastError = errorInformation;
-                throw new DatabaseException(errorInformation);
-            } finally {
-                close(statement);
-            }
-            return false;
-        }
-
-        final String sqlText = "UPDATE " + table.toString() + " SET " + VALUE_COLUMN + "=? WHERE " + KEY_COLUMN + "=?";
-        PreparedStatement statement = null;
 
+        final TableStatements statements = tableStatements.get(table);
+        final DatabaseConnectionPool.PooledConnection pooledConnection = borrowConnection();
+        final long startTime = System.nanoTime();
+        final boolean preExisting;
         try {
-            statement = connection.prepareStatement(sqlText);
-            statement.setString(1, value);
-            statement.setString(2, key);
-            statement.executeUpdate();
+            final Object[] values = statements.values(value, System.currentTimeMillis());
+            if (statements.upsert != null) {
+                preExisting = upsert(pooledConnection, statements, dialect, key, values);
+            } else {
+                preExisting = updateOrInsert(pooledConnection, statements, key, values);
+            }
         } catch (SQLException e) {
-            final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"put operation failed: " + e.getMessage());
-            lastError = errorInformation;
-            throw new DatabaseException(errorInformation);
+            throw operationFailed(pooledConnection, "put", e);
         } finally {
-            close(statement);
+            pooledConnection.release(startTime);
         }
 
         if (traceLogging) {
@@ -381,64 +479,121 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
         }
 
         updateStats(false,true);
-        return true;
+        return preExisting;
     }
 
-    private synchronized void preOperationCheck() throws DatabaseException {
-        if (status == PwmService.STATUS.CLOSED) {
-            throw new DatabaseException(new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"database connection is not open"));
+    private static boolean upsert(
+            final DatabaseConnectionPool.PooledConnection pooledConnection,
+            final TableStatements statements,
+            final DatabaseDialect dialect,
+            final String key,
+            final Object[] values
+    )
+            throws SQLException
+    {
+        final PreparedStatement statement = pooledConnection.prepare(statements.upsert);
+        dialect.bindUpsert(statement, key, values);
+        try {
+            return dialect.executeUpsert(statement);
+        } catch (SQLException e) {
+            // a MERGE can race a concurrent insert of the same key; the key now exists so the retry takes the update path
+            if (DatabaseDialect.isConstraintViolation(e)) {
+                dialect.bindUpsert(statement, key, values);
+                dialect.executeUpsert(statement);
+                return true;
+            }
+            throw e;
         }
+    }
 
-        if (status == PwmService.STATUS.NEW) {
-            init();
+    private static boolean updateOrInsert(
+            final DatabaseConnectionPool.PooledConnection pooledConnection,
+            final TableStatements statements,
+            final String key,
+            final Object[] values
+    )
+            throws SQLException
+    {
+        final PreparedStatement updateStatement = pooledConnection.prepare(statements.update);
+        bindUpdate(updateStatement, key, values);
+        if (updateStatement.executeUpdate() > 0) {
+            return true;
         }
 
-        if (!isValid(connection)) {
-            init();
+        try {
+            final PreparedStatement statement = pooledConnection.prepare(statements.insert);
+            bindInsert(statement, key, values);
+            statement.executeUpdate();
+            return false;
+        } catch (SQLException e) {
+            // a concurrent put inserted the key after our update
+            if (DatabaseDialect.isConstraintViolation(e)) {
+                bindUpdate(updateStatement, key, values);
+                updateStatement.executeUpdate();
+                return true;
+            }
+            throw e;
         }
     }
 
-    private boolean isValid(final Connection connection) {
-        if (connection == null) {
-            return false;
+    private static void bindUpdate(final PreparedStatement statement, final String key, final Object[] values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            DatabaseDialect.bindParameter(statement, i + 1, values[i]);
         }
+        statement.setString(values.length + 1, key);
+    }
 
-        if (status != PwmService.STATUS.OPEN) {
-            return false;
+    private static void bindInsert(final PreparedStatement statement, final String key, final Object[] values) throws SQLException {
+        statement.setString(1, key);
+        for (int i = 0; i < values.length; i++) {
+            DatabaseDialect.bindParameter(statement, i + 2, values[i]);
         }
+    }
 
-        try {
-            final Method getFreeSpaceMethod = File.class.getMethod("isValid");
-            final Object rawResult = getFreeSpaceMethod.invoke(connection,10);
-            return (Boolean) rawResult;
-        } catch (NoSuchMethodException e) {
-            /* no error, pre java 1.6 doesn't have this method */
-        } catch (Exception e) {
-            LOGGER.debug("error checking for isValid for " + connection.toString() + ",: " + e.getMessage());
+    private void preOperationCheck() throws DatabaseException {
+        if (status == PwmService.STATUS.CLOSED) {
+            throw new DatabaseException(new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"database connection is not open"));
         }
 
-        final StringBuilder sb = new StringBuilder();
-        sb.append("SELECT * FROM ").append(DatabaseTable.PWM_META.toString()).append(" WHERE " + KEY_COLUMN + " = ?");
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
+        if (status != PwmService.STATUS.OPEN) {
+            init();
+        }
+    }
+
+    private DatabaseConnectionPool.PooledConnection borrowConnection() throws DatabaseException {
+        final DatabaseConnectionPool pool = connectionPool;
+        if (pool == null) {
+            throw new DatabaseException(new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"database connection is not open"));
+        }
         try {
-            statement = connection.prepareStatement(sb.toString());
-            statement.setString(1, KEY_ENGINE_START_PREFIX + instanceID);
-            statement.setMaxRows(1);
-            resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                resultSet.getString(VALUE_COLUMN);
-            }
-        } catch (SQLException e) {
-            final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"isValid operation failed: " + e.getMessage());
-            lastError = errorInformation;
-            LOGGER.error(errorInformation.toDebugStr());
-            return false;
-        } finally {
-            close(statement);
-            close(resultSet);
+            return pool.borrow();
+        } catch (DatabaseException e) {
+            lastError = e.getErrorInformation();
+            throw e;
         }
-        return true;
+    }
+
+    private DatabaseException operationFailed(
+            final DatabaseConnectionPool.PooledConnection pooledConnection,
+            final String operation,
+            final SQLException e
+    ) {
+        pooledConnection.markSuspect();
+        final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,operation + " operation failed: " + e.getMessage());
+        lastError = errorInformation;
+        return new DatabaseException(errorInformation);
+    }
+
+    private static String poolStatistics(final DatabaseConnectionPool pool) {
+        final LatencyHistogram waitTimes = pool.getWaitTimes();
+        final LatencyHistogram queryTimes = pool.getQueryTimes();
+        return "Database connection pool has " + pool.getOpenConnections() + " of " + pool.getMaxConnections() + " connections open"
+                + ", " + pool.getWaitTimeouts() + " wait timeouts"
+                + "; connection wait p99=" + LatencyHistogram.formatMs(waitTimes.getPercentile(0.99)) + "ms"
+                + " max=" + LatencyHistogram.formatMs(waitTimes.getMax()) + "ms"
+                + "; query p50=" + LatencyHistogram.formatMs(queryTimes.getPercentile(0.50)) + "ms"
+                + " p99=" + LatencyHistogram.formatMs(queryTimes.getPercentile(0.99)) + "ms"
+                + " max=" + LatencyHistogram.formatMs(queryTimes.getMax()) + "ms";
     }
 
     private static void close(final Statement statement) {
@@ -468,7 +623,28 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
     )
             throws DatabaseException
     {
-        final boolean result = get(table, key) != null;
+        if (traceLogging) {
+            LOGGER.trace("attempting contains operation for table=" + table + ", key=" + key);
+        }
+        preOperationCheck();
+
+        final DatabaseConnectionPool.PooledConnection pooledConnection = borrowConnection();
+        final long startTime = System.nanoTime();
+        ResultSet resultSet = null;
+        final boolean result;
+        try {
+            final PreparedStatement statement = pooledConnection.prepare(tableStatements.get(table).contains);
+            statement.setString(1, key);
+            statement.setMaxRows(1);
+            resultSet = statement.executeQuery();
+            result = resultSet.next();
+        } catch (SQLException e) {
+            throw operationFailed(pooledConnection, "contains", e);
+        } finally {
+            close(resultSet);
+            pooledConnection.release(startTime);
+        }
+
         if (traceLogging) {
             final Map<String,Object> debugOutput = new LinkedHashMap<>();
             debugOutput.put("table",table);
@@ -491,14 +667,13 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
             LOGGER.trace("attempting get operation for table=" + table + ", key=" + key);
         }
         preOperationCheck();
-        final StringBuilder sb = new StringBuilder();
-        sb.append("SELECT * FROM ").append(table.toString()).append(" WHERE " + KEY_COLUMN + " = ?");
 
-        PreparedStatement statement = null;
+        final DatabaseConnectionPool.PooledConnection pooledConnection = borrowConnection();
+        final long startTime = System.nanoTime();
         ResultSet resultSet = null;
         String returnValue = null;
         try {
-            statement = connection.prepareStatement(sb.toString());
+            final PreparedStatement statement = pooledConnection.prepare(tableStatements.get(table).get);
             statement.setString(1, key);
             statement.setMaxRows(1);
             resultSet = statement.executeQuery();
@@ -507,12 +682,10 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
                 returnValue = resultSet.getString(VALUE_COLUMN);
             }
         } catch (SQLException e) {
-            final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"get operation failed: " + e.getMessage());
-            lastError = errorInformation;
-            throw new DatabaseException(errorInformation);
+            throw operationFailed(pooledConnection, "get", e);
         } finally {
-            close(statement);
             close(resultSet);
+            pooledConnection.release(startTime);
         }
 
         if (traceLogging) {
@@ -545,25 +718,19 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
         if (traceLogging) {
             LOGGER.trace("attempting remove operation for table=" + table + ", key=" + key);
         }
+        preOperationCheck();
 
-        boolean result = contains(table, key);
-        if (result) {
-            final StringBuilder sqlText = new StringBuilder();
-            sqlText.append("DELETE FROM ").append(table.toString()).append(" WHERE " + KEY_COLUMN + "=?");
-
-            PreparedStatement statement = null;
-            try {
-                statement = connection.prepareStatement(sqlText.toString());
-                statement.setString(1, key);
-                statement.executeUpdate();
-                LOGGER.trace("remove operation succeeded for table=" + table + ", key=" + key);
-            } catch (SQLException e) {
-                final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"remove operation failed: " + e.getMessage());
-                lastError = errorInformation;
-                throw new DatabaseException(errorInformation);
-            } finally {
-                close(statement);
-            }
+        final DatabaseConnectionPool.PooledConnection pooledConnection = borrowConnection();
+        final long startTime = System.nanoTime();
+        final boolean result;
+        try {
+            final PreparedStatement statement = pooledConnection.prepare(tableStatements.get(table).remove);
+            statement.setString(1, key);
+            result = statement.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw operationFailed(pooledConnection, "remove", e);
+        } finally {
+            pooledConnection.release(startTime);
         }
 
         if (traceLogging) {
@@ -574,7 +741,7 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
             LOGGER.trace("remove operation result: " + JsonUtil.serializeMap(debugOutput, JsonUtil.Flag.PrettyPrint));
         }
 
-        updateStats(true, false);
+        updateStats(false, true);
         return result;
     }
 
@@ -583,60 +750,504 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
             DatabaseException {
         preOperationCheck();
 
-        final StringBuilder sb = new StringBuilder();
-        sb.append("SELECT COUNT(" + KEY_COLUMN + ") FROM ").append(table.toString());
-
-        PreparedStatement statement = null;
+        final DatabaseConnectionPool.PooledConnection pooledConnection = borrowConnection();
+        final long startTime = System.nanoTime();
         ResultSet resultSet = null;
+        int returnValue = 0;
         try {
-            statement = connection.prepareStatement(sb.toString());
+            final PreparedStatement statement = pooledConnection.prepare(tableStatements.get(table).size);
             resultSet = statement.executeQuery();
             if (resultSet.next()) {
-                return resultSet.getInt(1);
+                returnValue = resultSet.getInt(1);
             }
         } catch (SQLException e) {
-            final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"size operation failed: " + e.getMessage());
-            lastError = errorInformation;
-            throw new DatabaseException(errorInformation);
+            throw operationFailed(pooledConnection, "size", e);
         } finally {
-            close(statement);
             close(resultSet);
+            pooledConnection.release(startTime);
         }
 
         updateStats(true,false);
-        return 0;
+        return returnValue;
+    }
+
+    @Override
+    public void putAll(
+            final DatabaseTable table,
+            final Map<String,String> keyValueMap
+    )
+            throws DatabaseException
+    {
+        if (keyValueMap == null || keyValueMap.isEmpty()) {
+            return;
+        }
+        if (traceLogging) {
+            LOGGER.trace("attempting putAll operation for table=" + table + ", size=" + keyValueMap.size());
+        }
+        preOperationCheck();
+
+        final TableStatements statements = tableStatements.get(table);
+        executeInTransaction("putAll", new TransactionOperation() {
+            public int execute(final DatabaseConnectionPool.PooledConnection pooledConnection) throws SQLException {
+                final long now = System.currentTimeMillis();
+                if (statements.upsert != null) {
+                    final PreparedStatement statement = pooledConnection.prepare(statements.upsert);
+                    final List<Object[]> batchValues = new ArrayList<>();
+                    final List<String> batchKeys = new ArrayList<>();
+                    for (final Map.Entry<String,String> entry : keyValueMap.entrySet()) {
+                        batchKeys.add(entry.getKey());
+                        batchValues.add(statements.values(entry.getValue(), now));
+                        if (batchKeys.size() >= batchSize) {
+                            executeUpsertBatch(statement, batchKeys, batchValues);
+                        }
+                    }
+                    executeUpsertBatch(statement, batchKeys, batchValues);
+                } else {
+                    final Map<String,Object[]> batch = new LinkedHashMap<>();
+                    for (final Map.Entry<String,String> entry : keyValueMap.entrySet()) {
+                        batch.put(entry.getKey(), statements.values(entry.getValue(), now));
+                        if (batch.size() >= batchSize) {
+                            executeUpdateOrInsertBatch(pooledConnection, statements, batch);
+                        }
+                    }
+                    executeUpdateOrInsertBatch(pooledConnection, statements, batch);
+                }
+                return keyValueMap.size();
+            }
+        });
+
+        updateStats(false, true, keyValueMap.size());
+    }
+
+    private void executeUpsertBatch(
+            final PreparedStatement statement,
+            final List<String> keys,
+            final List<Object[]> values
+    )
+            throws SQLException
+    {
+        if (keys.isEmpty()) {
+            return;
+        }
+        try {
+            for (int i = 0; i < keys.size(); i++) {
+                dialect.bindUpsert(statement, keys.get(i), values.get(i));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        } finally {
+            clearBatch(statement);
+            keys.clear();
+            values.clear();
+        }
+    }
+
+    /**
+     * Batch an UPDATE for every key, then batch an INSERT for each key the update did not find.  Keys where the
+     * driver does not report an update count are handled one at a time.
+     */
+    private static void executeUpdateOrInsertBatch(
+            final DatabaseConnectionPool.PooledConnection pooledConnection,
+            final TableStatements statements,
+            final Map<String,Object[]> batch
+    )
+            throws SQLException
+    {
+        if (batch.isEmpty()) {
+            return;
+        }
+        final Map<String,Object[]> missingKeys = new LinkedHashMap<>();
+        final Map<String,Object[]> unknownKeys = new LinkedHashMap<>();
+        final PreparedStatement updateStatement = pooledConnection.prepare(statements.update);
+        try {
+            for (final Map.Entry<String,Object[]> entry : batch.entrySet()) {
+                bindUpdate(updateStatement, entry.getKey(), entry.getValue());
+                updateStatement.addBatch();
+            }
+            final int[] updateCounts = updateStatement.executeBatch();
+            int index = 0;
+            for (final Map.Entry<String,Object[]> entry : batch.entrySet()) {
+                final int updateCount = index < updateCounts.length ? updateCounts[index] : Statement.SUCCESS_NO_INFO;
+                if (updateCount == 0) {
+                    missingKeys.put(entry.getKey(), entry.getValue());
+                } else if (updateCount < 0) {
+                    unknownKeys.put(entry.getKey(), entry.getValue());
+                }
+                index++;
+            }
+        } finally {
+            clearBatch(updateStatement);
+            batch.clear();
+        }
+
+        if (!missingKeys.isEmpty()) {
+            final PreparedStatement insertStatement = pooledConnection.prepare(statements.insert);
+            try {
+                for (final Map.Entry<String,Object[]> entry : missingKeys.entrySet()) {
+                    bindInsert(insertStatement, entry.getKey(), entry.getValue());
+                    insertStatement.addBatch();
+                }
+                insertStatement.executeBatch();
+            } finally {
+                clearBatch(insertStatement);
+            }
+        }
+
+        for (final Map.Entry<String,Object[]> entry : unknownKeys.entrySet()) {
+            updateOrInsert(pooledConnection, statements, entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public Map<String,String> getAll(
+            final DatabaseTable table,
+            final Collection<String> keys
+    )
+            throws DatabaseException
+    {
+        if (keys == null || keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        if (traceLogging) {
+            LOGGER.trace("attempting getAll operation for table=" + table + ", size=" + keys.size());
+        }
+        preOperationCheck();
+
+        final TableStatements statements = tableStatements.get(table);
+        final Map<String,String> returnMap = new LinkedHashMap<>();
+        final DatabaseConnectionPool.PooledConnection pooledConnection = borrowConnection();
+        final long startTime = System.nanoTime();
+        try {
+            final PreparedStatement statement = pooledConnection.prepare(statements.getAll);
+            final Iterator<String> keyIterator = keys.iterator();
+            while (keyIterator.hasNext()) {
+                // the statement has a fixed number of parameters, so a short final chunk repeats its last key
+                String key = null;
+                for (int i = 1; i <= statements.getAllSize; i++) {
+                    if (keyIterator.hasNext()) {
+                        key = keyIterator.next();
+                    }
+                    statement.setString(i, key);
+                }
+                ResultSet resultSet = null;
+                try {
+                    resultSet = statement.executeQuery();
+                    while (resultSet.next()) {
+                        returnMap.put(resultSet.getString(KEY_COLUMN), resultSet.getString(VALUE_COLUMN));
+                    }
+                } finally {
+                    close(resultSet);
+                }
+            }
+        } catch (SQLException e) {
+            throw operationFailed(pooledConnection, "getAll", e);
+        } finally {
+            pooledConnection.release(startTime);
+        }
+
+        updateStats(true, false, keys.size());
+        return returnMap;
+    }
+
+    @Override
+    public int removeAll(
+            final DatabaseTable table,
+            final Collection<String> keys
+    )
+            throws DatabaseException
+    {
+        if (keys == null || keys.isEmpty()) {
+            return 0;
+        }
+        if (traceLogging) {
+            LOGGER.trace("attempting removeAll operation for table=" + table + ", size=" + keys.size());
+        }
+        preOperationCheck();
+
+        final TableStatements statements = tableStatements.get(table);
+        final int removedCount = executeInTransaction("removeAll", new TransactionOperation() {
+            public int execute(final DatabaseConnectionPool.PooledConnection pooledConnection) throws SQLException {
+                final PreparedStatement statement = pooledConnection.prepare(statements.remove);
+                int rowCount = 0;
+                int pending = 0;
+                try {
+                    for (final String key : keys) {
+                        statement.setString(1, key);
+                        statement.addBatch();
+                        if (++pending >= batchSize) {
+                            rowCount += sumUpdateCounts(statement.executeBatch());
+                            pending = 0;
+                        }
+                    }
+                    if (pending > 0) {
+                        rowCount += sumUpdateCounts(statement.executeBatch());
+                    }
+                } finally {
+                    clearBatch(statement);
+                }
+                return rowCount;
+            }
+        });
+
+        updateStats(false, true, keys.size());
+        return removedCount;
+    }
+
+    @Override
+    public int removeOlderThan(
+            final DatabaseTable table,
+            final TimeDuration maxAge
+    )
+            throws DatabaseException
+    {
+        preOperationCheck();
+
+        final TableStatements statements = tableStatements.get(table);
+        if (statements.removeOlderThan == null) {
+            return -1;
+        }
+
+        final DatabaseConnectionPool.PooledConnection pooledConnection = borrowConnection();
+        final long startTime = System.nanoTime();
+        final int rowCount;
+        try {
+            // rows written by instances that predate the modified column have no time; start their age from now
+            final long now = System.currentTimeMillis();
+            final PreparedStatement stampStatement = pooledConnection.prepare(statements.stampUnmodified);
+            stampStatement.setLong(1, now);
+            final int stampedCount = stampStatement.executeUpdate();
+            if (stampedCount > 0) {
+                LOGGER.debug("set modification time on " + stampedCount + " rows of table " + table + " written without one");
+            }
+
+            final PreparedStatement statement = pooledConnection.prepare(statements.removeOlderThan);
+            statement.setLong(1, now - maxAge.getTotalMilliseconds());
+            rowCount = statement.executeUpdate();
+        } catch (SQLException e) {
+            throw operationFailed(pooledConnection, "removeOlderThan", e);
+        } finally {
+            pooledConnection.release(startTime);
+        }
+
+        if (traceLogging) {
+            LOGGER.trace("removeOlderThan operation for table=" + table + ", maxAge=" + maxAge.asCompactString() + " removed " + rowCount + " rows");
+        }
+        updateStats(false, true);
+        return rowCount;
+    }
+
+    @Override
+    public int countOlderThan(
+            final DatabaseTable table,
+            final TimeDuration maxAge
+    )
+            throws DatabaseException
+    {
+        preOperationCheck();
+
+        final TableStatements statements = tableStatements.get(table);
+        if (statements.countOlderThan == null) {
+            return -1;
+        }
+
+        final DatabaseConnectionPool.PooledConnection pooledConnection = borrowConnection();
+        final long startTime = System.nanoTime();
+        ResultSet resultSet = null;
+        int returnValue = 0;
+        try {
+            final PreparedStatement statement = pooledConnection.prepare(statements.countOlderThan);
+            statement.setLong(1, System.currentTimeMillis() - maxAge.getTotalMilliseconds());
+            resultSet = statement.executeQuery();
+            if (resultSet.next()) {
+                returnValue = resultSet.getInt(1);
+            }
+        } catch (SQLException e) {
+            throw operationFailed(pooledConnection, "countOlderThan", e);
+        } finally {
+            close(resultSet);
+            pooledConnection.release(startTime);
+        }
+
+        updateStats(true, false);
+        return returnValue;
+    }
+
+    private interface TransactionOperation {
+        int execute(DatabaseConnectionPool.PooledConnection pooledConnection) throws SQLException;
+    }
+
+    /**
+     * Run the operation on one pooled connection with auto-commit disabled, committing if it completes and
+     * rolling back otherwise.
+     */
+    private int executeInTransaction(final String operation, final TransactionOperation transactionOperation)
+            throws DatabaseException
+    {
+        final DatabaseConnectionPool.PooledConnection pooledConnection = borrowConnection();
+        final long startTime = System.nanoTime();
+        try {
+            final Connection connection = pooledConnection.getConnection();
+            connection.setAutoCommit(false);
+            try {
+                final int result = transactionOperation.execute(pooledConnection);
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackException) {
+                    LOGGER.error("error rolling back " + operation + " transaction: " + rollbackException.getMessage());
+                }
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw operationFailed(pooledConnection, operation, e);
+        } finally {
+            pooledConnection.release(startTime);
+        }
+    }
+
+    private static int sumUpdateCounts(final int[] updateCounts) {
+        int total = 0;
+        for (final int updateCount : updateCounts) {
+            if (updateCount > 0) {
+                total += updateCount;
+            }
+        }
+        return total;
+    }
+
+    private static void clearBatch(final PreparedStatement statement) {
+        try {
+            statement.clearBatch();
+        } catch (SQLException e) {
+            LOGGER.debug("error clearing statement batch: " + e.getMessage());
+        }
     }
 
 // -------------------------- ENUMERATIONS --------------------------
 
     // -------------------------- INNER CLASSES --------------------------
 
+    /**
+     * SQL text for each operation against a table, built once per table when the database is opened.  The
+     * statements themselves are prepared and cached per pooled connection.
+     */
+    private static class TableStatements {
+        private final boolean trackModification;
+        private final String upsert;
+        private final String insert;
+        private final String update;
+        private final String get;
+        private final String getAll;
+        private final int getAllSize;
+        private final String contains;
+        private final String remove;
+        private final String removeOlderThan;
+        private final String countOlderThan;
+        private final String stampUnmodified;
+        private final String size;
+        private final String iterateFirst;
+        private final String iterateNext;
+
+        private TableStatements(
+                final DatabaseTable table,
+                final DatabaseDialect dialect,
+                final boolean trackModification,
+                final int getAllSize
+        ) {
+            final String tableName = table.toString();
+            final List<String> valueColumns = trackModification
+                    ? Arrays.asList(VALUE_COLUMN, MODIFIED_COLUMN)
+                    : Collections.singletonList(VALUE_COLUMN);
+            this.trackModification = trackModification;
+            this.getAllSize = getAllSize;
+            upsert = dialect.upsertSql(tableName, KEY_COLUMN, valueColumns);
+            insert = DatabaseDialect.insertSql(tableName, KEY_COLUMN, valueColumns);
+            update = "UPDATE " + tableName + " SET " + VALUE_COLUMN + "=?"
+                    + (trackModification ? ", " + MODIFIED_COLUMN + "=?" : "")
+                    + " WHERE " + KEY_COLUMN + "=?";
+            get = "SELECT " + VALUE_COLUMN + " FROM " + tableName + " WHERE " + KEY_COLUMN + " = ?";
+            final StringBuilder getAllSql = new StringBuilder();
+            getAllSql.append("SELECT ").append(KEY_COLUMN).append(", ").append(VALUE_COLUMN).append(" FROM ").append(tableName);
+            getAllSql.append(" WHERE ").append(KEY_COLUMN).append(" IN (?");
+            for (int i = 1; i < getAllSize; i++) {
+                getAllSql.append(",?");
+            }
+            getAll = getAllSql.append(")").toString();
+            removeOlderThan = trackModification
+                    ? "DELETE FROM " + tableName + " WHERE " + MODIFIED_COLUMN + " < ?"
+                    : null;
+            countOlderThan = trackModification
+                    ? "SELECT COUNT(" + KEY_COLUMN + ") FROM " + tableName + " WHERE " + MODIFIED_COLUMN + " < ?"
+                    : null;
+            stampUnmodified = trackModification
+                    ? "UPDATE " + tableName + " SET " + MODIFIED_COLUMN + "=? WHERE " + MODIFIED_COLUMN + " IS NULL"
+                    : null;
+            contains = "SELECT " + KEY_COLUMN + " FROM " + tableName + " WHERE " + KEY_COLUMN + " = ?";
+            remove = "DELETE FROM " + tableName + " WHERE " + KEY_COLUMN + "=?";
+            size = "SELECT COUNT(" + KEY_COLUMN + ") FROM " + tableName;
+            iterateFirst = "SELECT " + KEY_COLUMN + " FROM " + tableName + " ORDER BY " + KEY_COLUMN;
+            iterateNext = "SELECT " + KEY_COLUMN + " FROM " + tableName + " WHERE " + KEY_COLUMN + " > ? ORDER BY " + KEY_COLUMN;
+        }
+
+        /**
+         * @return the parameter values for the value columns of this table
+         */
+        private Object[] values(final String value, final long modifiedTime) {
+            return trackModification
+                    ? new Object[] {value, modifiedTime}
+                    : new Object[] {value};
+        }
+    }
+
+    /**
+     * Iterates the keys of a table a page at a time, ordered by key.  A pooled connection is only held while a page
+     * is being read, so an iterator that is abandoned without being closed does not hold a connection.
+     */
     public class DBIterator implements ClosableIterator<String> {
         private final DatabaseTable table;
-        private final ResultSet resultSet;
-        private java.lang.String nextValue;
+        private final LinkedList<String> page = new LinkedList<>();
+        private String lastKey;
+        private boolean lastPage;
         private boolean finished;
 
         public DBIterator(final DatabaseTable table)
                 throws DatabaseException
         {
             this.table = table;
-            this.resultSet = init();
-            getNextItem();
+            readPage();
+            finished = page.isEmpty();
         }
 
-        private ResultSet init() throws DatabaseException {
-            final StringBuilder sb = new StringBuilder();
-            sb.append("SELECT " + KEY_COLUMN + " FROM ").append(table.toString());
-
+        private void readPage() throws DatabaseException {
+            final DatabaseConnectionPool.PooledConnection pooledConnection = borrowConnection();
+            final long startTime = System.nanoTime();
+            ResultSet resultSet = null;
             try {
-                final PreparedStatement statement = connection.prepareStatement(sb.toString());
-                return statement.executeQuery();
+                final TableStatements statements = tableStatements.get(table);
+                final PreparedStatement statement = pooledConnection.prepare(lastKey == null ? statements.iterateFirst : statements.iterateNext);
+                statement.setMaxRows(iteratorFetchSize);
+                if (lastKey != null) {
+                    statement.setString(1, lastKey);
+                }
+                resultSet = statement.executeQuery();
+                int rowCount = 0;
+                while (resultSet.next()) {
+                    lastKey = resultSet.getString(KEY_COLUMN);
+                    page.add(lastKey);
+                    rowCount++;
+                }
+                lastPage = rowCount < iteratorFetchSize;
             } catch (SQLException e) {
-                final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE,"get iterator failed: " + e.getMessage());
-                lastError = errorInformation;
-                throw new DatabaseException(errorInformation);
+                throw operationFailed(pooledConnection, "get iterator", e);
+            } finally {
+                DatabaseAccessorImpl.close(resultSet);
+                pooledConnection.release(startTime);
             }
+            updateStats(true,false);
         }
 
         public boolean hasNext() {
@@ -647,7 +1258,7 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
             if (finished) {
                 throw new IllegalStateException("iterator completed");
             }
-            final String returnValue = nextValue;
+            final String returnValue = page.removeFirst();
             getNextItem();
             return returnValue;
         }
@@ -657,27 +1268,20 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
         }
 
         private void getNextItem() {
-            try {
-                if (resultSet.next()) {
-                    nextValue = resultSet.getString(KEY_COLUMN);
-                } else {
-                    close();
+            if (page.isEmpty() && !lastPage) {
+                try {
+                    readPage();
+                } catch (DatabaseException e) {
+                    LOGGER.warn("unexpected error during result set iteration: " + e.getMessage());
                 }
-            } catch (SQLException e) {
-                finished = true;
-                LOGGER.warn("unexpected error during result set iteration: " + e.getMessage());
             }
-            updateStats(true,false);
+            if (page.isEmpty()) {
+                close();
+            }
         }
 
         public void close() {
-            if (resultSet != null) {
-                try {
-                    resultSet.close();
-                } catch (SQLException e) {
-                    LOGGER.error("error closing inner resultset in iterator: " + e.getMessage());
-                }
-            }
+            page.clear();
             finished = true;
         }
     }
@@ -763,14 +1367,18 @@ public class DatabaseAccessorImpl implements PwmService, DatabaseAccessor {
     }
 
     private void updateStats(boolean readOperation, boolean writeOperation) {
+        updateStats(readOperation, writeOperation, 1);
+    }
+
+    private void updateStats(boolean readOperation, boolean writeOperation, int itemCount) {
         if (pwmApplication != null && pwmApplication.getApplicationMode() == PwmApplication.MODE.RUNNING) {
             final StatisticsManager statisticsManager = pwmApplication.getStatisticsManager();
             if (statisticsManager != null && statisticsManager.status() == STATUS.OPEN) {
                 if (readOperation) {
-                    statisticsManager.updateEps(Statistic.EpsType.DB_READS,1);
+                    statisticsManager.updateEps(Statistic.EpsType.DB_READS,itemCount);
                 }
                 if (writeOperation) {
-                    statisticsManager.updateEps(Statistic.EpsType.DB_WRITES,1);
+                    statisticsManager.updateEps(Statistic.EpsType.DB_WRITES,itemCount);
                 }
             }
         }
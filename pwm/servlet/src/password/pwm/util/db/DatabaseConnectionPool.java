@@ -0,0 +1,300 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.db;
+
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmError;
+import password.pwm.util.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.stats.LatencyHistogram;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of JDBC connections.  At most {@code maxConnections} connections are checked out at once; callers
+ * beyond that wait up to {@code maxWait} for a connection to be returned.  Idle connections are validated in the
+ * background rather than before each operation, and a connection that failed during use is validated when it is
+ * returned.  Each pooled connection keeps its own prepared statement cache.
+ */
+class DatabaseConnectionPool {
+
+    private static final PwmLogger LOGGER = PwmLogger.forClass(DatabaseConnectionPool.class, true);
+
+    private final Driver driver;
+    private final String connectionURL;
+    private final Properties connectionProperties;
+    private final int maxConnections;
+    private final long maxWaitMs;
+    private final int validationTimeoutSeconds;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger waitTimeouts = new AtomicInteger();
+    private final LatencyHistogram waitTimes = new LatencyHistogram();
+    private final LatencyHistogram queryTimes = new LatencyHistogram();
+
+    private volatile Timer validationTimer;
+    private volatile boolean closed;
+
+    DatabaseConnectionPool(
+            final Driver driver,
+            final String connectionURL,
+            final Properties connectionProperties,
+            final int maxConnections,
+            final long maxWaitMs,
+            final int validationTimeoutSeconds
+    ) {
+        this.driver = driver;
+        this.connectionURL = connectionURL;
+        this.connectionProperties = connectionProperties;
+        this.maxConnections = Math.max(1, maxConnections);
+        this.maxWaitMs = maxWaitMs;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.permits = new Semaphore(this.maxConnections, true);
+    }
+
+    void startValidation(final String threadName, final long frequencyMs) {
+        if (frequencyMs <= 0) {
+            return;
+        }
+        validationTimer = new Timer(threadName, true);
+        validationTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    validateIdleConnections();
+                } catch (Exception e) {
+                    LOGGER.error("error validating idle database connections: " + e.getMessage(), e);
+                }
+            }
+        }, frequencyMs, frequencyMs);
+    }
+
+    PooledConnection borrow() throws DatabaseException {
+        if (closed) {
+            throw new DatabaseException(new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE, "database connection pool is closed"));
+        }
+
+        final long startTime = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS)) {
+                waitTimeouts.incrementAndGet();
+                final String errorMsg = "timed out after " + new TimeDuration(maxWaitMs).asCompactString()
+                        + " waiting for one of " + maxConnections + " database connections";
+                throw new DatabaseException(new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE, errorMsg));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException(new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE, "interrupted waiting for database connection"));
+        } finally {
+            waitTimes.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+        }
+
+        try {
+            final PooledConnection idleConnection = idleConnections.pollFirst();
+            return idleConnection != null ? idleConnection : openConnection();
+        } catch (DatabaseException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void release(final PooledConnection pooledConnection) {
+        try {
+            if (closed || (pooledConnection.suspect && !isValid(pooledConnection))) {
+                discard(pooledConnection);
+            } else {
+                pooledConnection.suspect = false;
+                idleConnections.offerFirst(pooledConnection);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Validate each idle connection once, discarding any that are no longer usable.  A connection is only taken
+     * for validation if a permit is free, so validation never pushes the pool over its size limit.
+     */
+    void validateIdleConnections() {
+        final int idleCount = idleConnections.size();
+        for (int i = 0; i < idleCount && !closed; i++) {
+            if (!permits.tryAcquire()) {
+                return;
+            }
+            try {
+                final PooledConnection pooledConnection = idleConnections.pollLast();
+                if (pooledConnection == null) {
+                    return;
+                }
+                if (isValid(pooledConnection)) {
+                    idleConnections.offerLast(pooledConnection);
+                } else {
+                    LOGGER.debug("discarding idle database connection that failed validation");
+                    discard(pooledConnection);
+                }
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    void close() {
+        closed = true;
+        if (validationTimer != null) {
+            validationTimer.cancel();
+            validationTimer = null;
+        }
+        PooledConnection pooledConnection;
+        while ((pooledConnection = idleConnections.poll()) != null) {
+            discard(pooledConnection);
+        }
+    }
+
+    LatencyHistogram getWaitTimes() {
+        return waitTimes;
+    }
+
+    LatencyHistogram getQueryTimes() {
+        return queryTimes;
+    }
+
+    int getMaxConnections() {
+        return maxConnections;
+    }
+
+    int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    int getWaitTimeouts() {
+        return waitTimeouts.get();
+    }
+
+    private PooledConnection openConnection() throws DatabaseException {
+        try {
+            LOGGER.trace("opening new pooled connection to database " + connectionURL);
+            final Connection connection = driver.connect(connectionURL, connectionProperties);
+            if (connection == null) {
+                throw new SQLException("driver does not accept connection url " + connectionURL);
+            }
+            connection.setAutoCommit(true);
+            openConnections.incrementAndGet();
+            return new PooledConnection(connection);
+        } catch (SQLException e) {
+            final String errorMsg = "error connecting to database: " + e.getMessage();
+            throw new DatabaseException(new ErrorInformation(PwmError.ERROR_DB_UNAVAILABLE, errorMsg));
+        }
+    }
+
+    private boolean isValid(final PooledConnection pooledConnection) {
+        try {
+            return pooledConnection.connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            LOGGER.debug("error checking connection validity: " + e.getMessage());
+            return false;
+        } catch (AbstractMethodError e) {
+            /* pre JDBC 4 driver, rely on failures during use to discover broken connections */
+            return !pooledConnection.suspect;
+        }
+    }
+
+    private void discard(final PooledConnection pooledConnection) {
+        openConnections.decrementAndGet();
+        pooledConnection.close();
+    }
+
+    class PooledConnection {
+        private final Connection connection;
+        private final Map<String,PreparedStatement> statementCache = new HashMap<>();
+        private volatile boolean suspect;
+
+        private PooledConnection(final Connection connection) {
+            this.connection = connection;
+        }
+
+        Connection getConnection() {
+            return connection;
+        }
+
+        /**
+         * Return a prepared statement for the sql text, creating it on first use.  Cached statements remain open
+         * for the life of the connection and must not be closed by the caller.
+         */
+        PreparedStatement prepare(final String sqlText) throws SQLException {
+            PreparedStatement statement = statementCache.get(sqlText);
+            if (statement == null) {
+                statement = connection.prepareStatement(sqlText);
+                statementCache.put(sqlText, statement);
+            }
+            return statement;
+        }
+
+        /**
+         * Mark the connection for validation when it is returned to the pool, typically after an {@link SQLException}.
+         */
+        void markSuspect() {
+            suspect = true;
+        }
+
+        /**
+         * Return the connection to the pool, recording the time spent since {@code startNanos} as query time.
+         */
+        void release(final long startNanos) {
+            queryTimes.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+            DatabaseConnectionPool.this.release(this);
+        }
+
+        private void close() {
+            final List<PreparedStatement> statements = new ArrayList<>(statementCache.values());
+            statementCache.clear();
+            for (final PreparedStatement statement : statements) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    /* connection is being discarded anyway */
+                }
+            }
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOGGER.debug("error while closing pooled database connection: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -26,6 +26,10 @@ import password.pwm.PwmService;
 import password.pwm.error.PwmDataStoreException;
 import password.pwm.util.ClosableIterator;
 import password.pwm.util.DataStore;
+import password.pwm.util.TimeDuration;
+
+import java.util.Collection;
+import java.util.Map;
 
 public class DatabaseDataStore implements DataStore {
     private final DatabaseAccessorImpl databaseAccessor;
@@ -84,4 +88,20 @@ public class DatabaseDataStore implements DataStore {
     public int size() throws PwmDataStoreException {
         return databaseAccessor.size(table);
     }
+
+    public void putAll(Map<String, String> keyValueMap) throws PwmDataStoreException {
+        databaseAccessor.putAll(table, keyValueMap);
+    }
+
+    public Map<String, String> getAll(Collection<String> keys) throws PwmDataStoreException {
+        return databaseAccessor.getAll(table, keys);
+    }
+
+    public void removeAll(Collection<String> keys) throws PwmDataStoreException {
+        databaseAccessor.removeAll(table, keys);
+    }
+
+    public int removeOlderThan(TimeDuration maxAge) throws PwmDataStoreException {
+        return databaseAccessor.removeOlderThan(table, maxAge);
+    }
 }
@@ -0,0 +1,232 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.db;
+
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * SQL variants used for the single statement "upsert" performed by {@link DatabaseAccessorImpl#put}.  Databases
+ * without a usable native upsert fall back to {@link #GENERIC}, which issues an UPDATE followed by an INSERT on the
+ * same connection only when no row was updated.
+ * <p>
+ * Only MySQL reports whether an upsert replaced an existing row.  With the other native upserts
+ * {@link DatabaseAccessor#put} returns false whether or not the key was present, rather than spending a second
+ * statement to find out.
+ */
+enum DatabaseDialect {
+    MYSQL {
+        @Override
+        String upsertSql(final String table, final String keyColumn, final List<String> valueColumns) {
+            final StringBuilder sb = new StringBuilder();
+            sb.append(insertSql(table, keyColumn, valueColumns)).append(" ON DUPLICATE KEY UPDATE ");
+            for (int i = 0; i < valueColumns.size(); i++) {
+                final String column = valueColumns.get(i);
+                sb.append(i > 0 ? ", " : "").append(column).append("=VALUES(").append(column).append(")");
+            }
+            return sb.toString();
+        }
+
+        @Override
+        boolean executeUpsert(final PreparedStatement statement) throws SQLException {
+            // affected rows is 1 for an insert and 2 for an update.  An update that changes nothing reports 0, or 1 when
+            // the driver uses found rows (Connector/J's default useAffectedRows=false), but every put writes a new
+            // modified timestamp so in practice the row always changes.
+            return statement.executeUpdate() != 1;
+        }
+    },
+
+    POSTGRESQL {
+        @Override
+        String upsertSql(final String table, final String keyColumn, final List<String> valueColumns) {
+            final StringBuilder sb = new StringBuilder();
+            sb.append(insertSql(table, keyColumn, valueColumns));
+            sb.append(" ON CONFLICT (").append(keyColumn).append(") DO UPDATE SET ");
+            for (int i = 0; i < valueColumns.size(); i++) {
+                final String column = valueColumns.get(i);
+                sb.append(i > 0 ? ", " : "").append(column).append("=EXCLUDED.").append(column);
+            }
+            return sb.toString();
+        }
+    },
+
+    ORACLE {
+        @Override
+        String upsertSql(final String table, final String keyColumn, final List<String> valueColumns) {
+            return mergeSql("MERGE INTO " + table + " t USING dual", keyColumn, valueColumns);
+        }
+
+        @Override
+        void bindUpsert(final PreparedStatement statement, final String key, final Object[] values) throws SQLException {
+            bindMerge(statement, key, values);
+        }
+    },
+
+    MSSQL {
+        @Override
+        String upsertSql(final String table, final String keyColumn, final List<String> valueColumns) {
+            return mergeSql("MERGE INTO " + table + " WITH (HOLDLOCK) t USING (SELECT 1 AS one) s", keyColumn, valueColumns) + ";";
+        }
+
+        @Override
+        void bindUpsert(final PreparedStatement statement, final String key, final Object[] values) throws SQLException {
+            bindMerge(statement, key, values);
+        }
+    },
+
+    H2 {
+        @Override
+        String upsertSql(final String table, final String keyColumn, final List<String> valueColumns) {
+            final StringBuilder sb = new StringBuilder();
+            sb.append("MERGE INTO ").append(table).append(" (").append(keyColumn);
+            for (final String column : valueColumns) {
+                sb.append(", ").append(column);
+            }
+            sb.append(") KEY(").append(keyColumn).append(") VALUES(?");
+            for (int i = 0; i < valueColumns.size(); i++) {
+                sb.append(",?");
+            }
+            sb.append(")");
+            return sb.toString();
+        }
+    },
+
+    GENERIC {
+        @Override
+        String upsertSql(final String table, final String keyColumn, final List<String> valueColumns) {
+            return null;
+        }
+    },
+
+    ;
+
+    /**
+     * @return the upsert statement text, or null if the dialect has no single statement upsert
+     */
+    abstract String upsertSql(String table, String keyColumn, List<String> valueColumns);
+
+    /**
+     * Execute a bound upsert statement.
+     *
+     * @return true if the key was already present; always false for dialects whose upsert does not report it
+     */
+    boolean executeUpsert(final PreparedStatement statement) throws SQLException {
+        statement.executeUpdate();
+        return false;
+    }
+
+    /**
+     * @return true if the exception is an integrity constraint violation, such as a concurrent insert of the same key
+     */
+    static boolean isConstraintViolation(final SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("23");
+    }
+
+    /**
+     * Bind the key and the values, in the same order as the value columns given to {@link #upsertSql}.
+     */
+    void bindUpsert(final PreparedStatement statement, final String key, final Object[] values) throws SQLException {
+        statement.setString(1, key);
+        for (int i = 0; i < values.length; i++) {
+            bindParameter(statement, i + 2, values[i]);
+        }
+    }
+
+    static String insertSql(final String table, final String keyColumn, final List<String> valueColumns) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("INSERT INTO ").append(table).append(" (").append(keyColumn);
+        for (final String column : valueColumns) {
+            sb.append(", ").append(column);
+        }
+        sb.append(") VALUES(?");
+        for (int i = 0; i < valueColumns.size(); i++) {
+            sb.append(",?");
+        }
+        sb.append(")");
+        return sb.toString();
+    }
+
+    static void bindParameter(final PreparedStatement statement, final int index, final Object value) throws SQLException {
+        if (value instanceof Long) {
+            statement.setLong(index, (Long) value);
+        } else {
+            statement.setString(index, (String) value);
+        }
+    }
+
+    private static String mergeSql(final String mergeInto, final String keyColumn, final List<String> valueColumns) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(mergeInto).append(" ON (t.").append(keyColumn).append("=?)");
+        sb.append(" WHEN MATCHED THEN UPDATE SET ");
+        for (int i = 0; i < valueColumns.size(); i++) {
+            sb.append(i > 0 ? ", " : "").append("t.").append(valueColumns.get(i)).append("=?");
+        }
+        sb.append(" WHEN NOT MATCHED THEN INSERT (").append(keyColumn);
+        for (final String column : valueColumns) {
+            sb.append(", ").append(column);
+        }
+        sb.append(") VALUES(?");
+        for (int i = 0; i < valueColumns.size(); i++) {
+            sb.append(",?");
+        }
+        sb.append(")");
+        return sb.toString();
+    }
+
+    private static void bindMerge(final PreparedStatement statement, final String key, final Object[] values) throws SQLException {
+        int index = 1;
+        statement.setString(index++, key);
+        for (final Object value : values) {
+            bindParameter(statement, index++, value);
+        }
+        statement.setString(index++, key);
+        for (final Object value : values) {
+            bindParameter(statement, index++, value);
+        }
+    }
+
+    static DatabaseDialect forMetaData(final DatabaseMetaData metaData) throws SQLException {
+        final String productName = metaData.getDatabaseProductName() == null ? "" : metaData.getDatabaseProductName().toLowerCase();
+        if (productName.contains("mysql") || productName.contains("mariadb")) {
+            return MYSQL;
+        }
+        if (productName.contains("postgresql")) {
+            // ON CONFLICT is only available from 9.5
+            final int major = metaData.getDatabaseMajorVersion();
+            final int minor = metaData.getDatabaseMinorVersion();
+            return major > 9 || (major == 9 && minor >= 5) ? POSTGRESQL : GENERIC;
+        }
+        if (productName.contains("oracle")) {
+            return ORACLE;
+        }
+        if (productName.contains("microsoft sql server")) {
+            return MSSQL;
+        }
+        if (productName.equals("h2")) {
+            return H2;
+        }
+        return GENERIC;
+    }
+}
@@ -23,10 +23,26 @@
 package password.pwm.util.db;
 
 public enum DatabaseTable {
-    PWM_META,
-    PWM_RESPONSES,
-    USER_AUDIT,
-    INTRUDER,
-    TOKENS,
-    OTP
+    PWM_META(false),
+    PWM_RESPONSES(false),
+    USER_AUDIT(false),
+    INTRUDER(true),
+    TOKENS(true),
+    OTP(false),
+
+    ;
+
+    private final boolean trackModification;
+
+    DatabaseTable(final boolean trackModification) {
+        this.trackModification = trackModification;
+    }
+
+    /**
+     * @return true if rows of this table carry a last modified time, allowing old rows to be removed by
+     * {@link DatabaseAccessor#removeOlderThan(DatabaseTable, password.pwm.util.TimeDuration)}
+     */
+    public boolean isTrackModification() {
+        return trackModification;
+    }
 }
@@ -135,6 +135,18 @@ class DataStoreRecordStore implements RecordStore {
 
     @Override
     public void cleanup(final TimeDuration maxRecordAge) {
+        try {
+            final long startTime = System.currentTimeMillis();
+            final int removedCount = dataStore.removeOlderThan(maxRecordAge);
+            if (removedCount >= 0) {
+                LOGGER.trace("completed cleanup of intruder table in " + TimeDuration.fromCurrent(startTime).asCompactString() + ", recordsRemoved=" + removedCount);
+                return;
+            }
+        } catch (PwmDataStoreException e) {
+            LOGGER.error("unable to perform removal of stale records: " + e.getMessage());
+            return;
+        }
+
         if (TimeDuration.fromCurrent(eldestRecord).isShorterThan(maxRecordAge)) {
             return;
         }
@@ -153,9 +165,7 @@ class DataStoreRecordStore implements RecordStore {
                 complete = true;
             }
             try {
-                for (final String key : recordsToRemove) {
-                    dataStore.remove(key);
-                }
+                dataStore.removeAll(recordsToRemove);
             } catch (PwmDataStoreException e) {
                 LOGGER.error("unable to perform removal of identified stale records: " + e.getMessage());
             }
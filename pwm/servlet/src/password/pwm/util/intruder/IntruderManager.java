@@ -67,6 +67,7 @@ public class IntruderManager implements Serializable, PwmService {
     private STATUS status = STATUS.NEW;
     private ErrorInformation startupError;
     private Timer timer;
+    private IntruderRecordCache recordCache;
 
     private final Map<RecordType, RecordManager> recordManagers = new HashMap<>();
 
@@ -157,6 +158,21 @@ public class IntruderManager implements Serializable, PwmService {
                     }
                 }
             },1000,cleanerRunFrequency);
+
+            final long cacheMaxAge = Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.INTRUDER_CACHE_MAX_AGE_MS));
+            final long writeBehindFrequency = Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.INTRUDER_WRITE_BEHIND_FREQUENCY_MS));
+            recordCache = new IntruderRecordCache(recordStore, cacheMaxAge);
+            timer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    try {
+                        recordCache.flush();
+                        recordCache.expire();
+                    } catch (Exception e) {
+                        LOGGER.error("error writing intruder records: " + e.getMessage(),e);
+                    }
+                }
+            },writeBehindFrequency,writeBehindFrequency);
         }
 
         try {
@@ -168,8 +184,8 @@ public class IntruderManager implements Serializable, PwmService {
                 if (settings.getCheckCount() == 0 || settings.getCheckDuration().getTotalMilliseconds() == 0 || settings.getResetDuration().getTotalMilliseconds() == 0) {
                     LOGGER.info("intruder user checking will remain disabled due to configuration settings");
                 } else {
-                    recordManagers.put(RecordType.USERNAME, new RecordManagerImpl(RecordType.USERNAME, recordStore, settings));
-                    recordManagers.put(RecordType.USER_ID, new RecordManagerImpl(RecordType.USER_ID, recordStore, settings));
+                    recordManagers.put(RecordType.USERNAME, new RecordManagerImpl(RecordType.USERNAME, recordCache, settings));
+                    recordManagers.put(RecordType.USER_ID, new RecordManagerImpl(RecordType.USER_ID, recordCache, settings));
                 }
             }
             {
@@ -180,7 +196,7 @@ public class IntruderManager implements Serializable, PwmService {
                 if (settings.getCheckCount() == 0 || settings.getCheckDuration().getTotalMilliseconds() == 0 || settings.getResetDuration().getTotalMilliseconds() == 0) {
                     LOGGER.info("intruder user checking will remain disabled due to configuration settings");
                 } else {
-                    recordManagers.put(RecordType.ATTRIBUTE, new RecordManagerImpl(RecordType.ATTRIBUTE, recordStore, settings));
+                    recordManagers.put(RecordType.ATTRIBUTE, new RecordManagerImpl(RecordType.ATTRIBUTE, recordCache, settings));
                 }
             }
             {
@@ -191,7 +207,7 @@ public class IntruderManager implements Serializable, PwmService {
                 if (settings.getCheckCount() == 0 || settings.getCheckDuration().getTotalMilliseconds() == 0 || settings.getResetDuration().getTotalMilliseconds() == 0) {
                     LOGGER.info("intruder user checking will remain disabled due to configuration settings");
                 } else {
-                    recordManagers.put(RecordType.TOKEN_DEST, new RecordManagerImpl(RecordType.TOKEN_DEST, recordStore, settings));
+                    recordManagers.put(RecordType.TOKEN_DEST, new RecordManagerImpl(RecordType.TOKEN_DEST, recordCache, settings));
                 }
             }
             {
@@ -202,7 +218,7 @@ public class IntruderManager implements Serializable, PwmService {
                 if (settings.getCheckCount() == 0 || settings.getCheckDuration().getTotalMilliseconds() == 0 || settings.getResetDuration().getTotalMilliseconds() == 0) {
                     LOGGER.info("intruder address checking will remain disabled due to configuration settings");
                 } else {
-                    recordManagers.put(RecordType.ADDRESS, new RecordManagerImpl(RecordType.ADDRESS, recordStore, settings));
+                    recordManagers.put(RecordType.ADDRESS, new RecordManagerImpl(RecordType.ADDRESS, recordCache, settings));
                 }
             }
             status = STATUS.OPEN;
@@ -225,6 +241,9 @@ public class IntruderManager implements Serializable, PwmService {
             timer.cancel();
             timer = null;
         }
+        if (recordCache != null) {
+            recordCache.flush();
+        }
     }
 
     @Override
@@ -317,7 +336,7 @@ public class IntruderManager implements Serializable, PwmService {
         try {
             check(recordType, subject);
         } catch (PwmUnrecoverableException e) {
-            if (!manager.isAlerted(subject) ) {
+            if (manager.markAlerted(subject)) { // only the first attempt to reach the lock sends alerts
                 { // send intruder attempt lock event
                     final Map<String,Object> messageObj = new LinkedHashMap<>();
                     messageObj.put("type", recordType);
@@ -338,7 +357,6 @@ public class IntruderManager implements Serializable, PwmService {
                     sendAlert(manager.readIntruderRecord(subject));
                 }
 
-                manager.markAlerted(subject);
                 final StatisticsManager statisticsManager = pwmApplication.getStatisticsManager();
                 if (statisticsManager != null && statisticsManager.status() == STATUS.OPEN) {
                     statisticsManager.incrementValue(Statistic.INTRUDER_ATTEMPTS);
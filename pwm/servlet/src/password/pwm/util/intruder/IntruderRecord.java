@@ -46,6 +46,14 @@ public class IntruderRecord implements Serializable {
         this.subject = subject;
     }
 
+    IntruderRecord(final IntruderRecord source) {
+        this.type = source.type;
+        this.subject = source.subject;
+        this.timeStamp = source.timeStamp;
+        this.attemptCount = source.attemptCount;
+        this.alerted = source.alerted;
+    }
+
     public RecordType getType() {
         return type;
     }
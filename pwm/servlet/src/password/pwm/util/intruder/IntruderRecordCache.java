@@ -0,0 +1,230 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.intruder;
+
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmOperationalException;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.ClosableIterator;
+import password.pwm.util.JsonUtil;
+import password.pwm.util.SecureHelper;
+import password.pwm.util.logging.PwmLogger;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * In-memory tier in front of the {@link RecordStore}.  Each record is read and modified under one of a fixed set of
+ * striped locks, so concurrent attempts against the same subject are never lost, and modified records are written
+ * behind to the store by {@link #flush()}.  Subjects without a stored record are cached as well, so repeated checks
+ * of an unknown address or user do not reach the store.
+ * <p/>
+ * Records that have not been modified are dropped by {@link #expire()} once they are older than the maximum age, so
+ * changes made to a shared store by other application instances are picked up.
+ */
+class IntruderRecordCache {
+    private static final PwmLogger LOGGER = PwmLogger.forClass(IntruderRecordCache.class);
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final RecordStore recordStore;
+    private final long maxAgeMs;
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final Map<CacheKey, CachedRecord> records = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<CacheKey> dirtyKeys = new ConcurrentLinkedQueue<>();
+
+    IntruderRecordCache(final RecordStore recordStore, final long maxAgeMs) {
+        this.recordStore = recordStore;
+        this.maxAgeMs = maxAgeMs;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    interface RecordUpdater {
+        /**
+         * Called while holding the lock for the record's subject.
+         *
+         * @param record the current record, or null if there is none
+         * @return the record to store, or null if nothing was changed
+         */
+        IntruderRecord update(IntruderRecord record);
+    }
+
+    /**
+     * @return a copy of the current record, or null if there is none
+     */
+    IntruderRecord read(final RecordType recordType, final String subject) {
+        final CacheKey key = new CacheKey(recordType, subject);
+        synchronized (lockFor(key)) {
+            final IntruderRecord record = load(key).record;
+            return record == null ? null : new IntruderRecord(record);
+        }
+    }
+
+    /**
+     * Atomically read, modify and mark a record for writing.
+     *
+     * @return a copy of the record after the update, or null if there is none
+     */
+    IntruderRecord update(final RecordType recordType, final String subject, final RecordUpdater updater) {
+        final CacheKey key = new CacheKey(recordType, subject);
+        synchronized (lockFor(key)) {
+            final CachedRecord cachedRecord = load(key);
+            final IntruderRecord updatedRecord = updater.update(cachedRecord.record);
+            if (updatedRecord != null) {
+                cachedRecord.record = updatedRecord;
+                if (!cachedRecord.dirty) {
+                    cachedRecord.dirty = true;
+                    records.put(key, cachedRecord);
+                    dirtyKeys.add(key);
+                }
+            }
+            return cachedRecord.record == null ? null : new IntruderRecord(cachedRecord.record);
+        }
+    }
+
+    /**
+     * Write all modified records to the record store.
+     */
+    void flush() {
+        CacheKey key;
+        final int count = dirtyKeys.size();
+        for (int i = 0; i < count && (key = dirtyKeys.poll()) != null; i++) {
+            final IntruderRecord snapshot;
+            synchronized (lockFor(key)) {
+                final CachedRecord cachedRecord = records.get(key);
+                if (cachedRecord == null || !cachedRecord.dirty) {
+                    continue;
+                }
+                cachedRecord.dirty = false;
+                snapshot = new IntruderRecord(cachedRecord.record);
+            }
+
+            try {
+                recordStore.write(makeStoreKey(key), snapshot);
+            } catch (PwmOperationalException e) {
+                LOGGER.warn("unexpected error attempting to write intruder record " + JsonUtil.serialize(snapshot) + ", will retry; error: " + e.getMessage());
+                synchronized (lockFor(key)) {
+                    final CachedRecord cachedRecord = records.get(key);
+                    if (cachedRecord != null && !cachedRecord.dirty) {
+                        cachedRecord.dirty = true;
+                        dirtyKeys.add(key);
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drop unmodified records older than the maximum age.
+     */
+    void expire() {
+        final long now = System.currentTimeMillis();
+        for (final Iterator<Map.Entry<CacheKey, CachedRecord>> iterator = records.entrySet().iterator(); iterator.hasNext(); ) {
+            final Map.Entry<CacheKey, CachedRecord> entry = iterator.next();
+            synchronized (lockFor(entry.getKey())) {
+                final CachedRecord cachedRecord = entry.getValue();
+                if (!cachedRecord.dirty && now - cachedRecord.loadTime > maxAgeMs) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    int size() {
+        return records.size();
+    }
+
+    ClosableIterator<IntruderRecord> iterator() throws PwmOperationalException {
+        flush();
+        return recordStore.iterator();
+    }
+
+    private CachedRecord load(final CacheKey key) {
+        final CachedRecord existing = records.get(key);
+        if (existing != null && (existing.dirty || System.currentTimeMillis() - existing.loadTime <= maxAgeMs)) {
+            return existing;
+        }
+
+        // a failed read is not cached, so the store is tried again on the next access
+        final CachedRecord cachedRecord = new CachedRecord();
+        try {
+            cachedRecord.record = recordStore.read(makeStoreKey(key));
+            records.put(key, cachedRecord);
+        } catch (PwmUnrecoverableException | PwmOperationalException e) {
+            LOGGER.error("unable to read read intruder record from storage: " + e.getMessage());
+        }
+        return cachedRecord;
+    }
+
+    private Object lockFor(final CacheKey key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return locks[h & (LOCK_STRIPES - 1)];
+    }
+
+    private static String makeStoreKey(final CacheKey key) throws PwmOperationalException {
+        final String md5sum;
+        try {
+            md5sum = SecureHelper.md5sum(key.subject);
+        } catch (PwmUnrecoverableException e) {
+            throw new PwmOperationalException(PwmError.ERROR_UNKNOWN,"error generating md5sum for intruder record: " + e.getMessage());
+        }
+        return md5sum + key.recordType.toString();
+    }
+
+    private static class CachedRecord {
+        private final long loadTime = System.currentTimeMillis();
+        private IntruderRecord record;
+        private boolean dirty;
+    }
+
+    private static class CacheKey {
+        private final RecordType recordType;
+        private final String subject;
+
+        private CacheKey(final RecordType recordType, final String subject) {
+            this.recordType = recordType;
+            this.subject = subject;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            final CacheKey cacheKey = (CacheKey) o;
+            return recordType == cacheKey.recordType && subject.equals(cacheKey.subject);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * recordType.hashCode() + subject.hashCode();
+        }
+    }
+}
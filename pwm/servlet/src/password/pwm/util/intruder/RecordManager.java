@@ -30,7 +30,10 @@ public interface RecordManager {
     public void markSubject(final String subject);
     public void clearSubject(final String subject);
     public boolean isAlerted(final String subject);
-    public void markAlerted(final String subject);
+    /**
+     * @return true if this call marked the subject as alerted, false if it was already alerted or has no record
+     */
+    public boolean markAlerted(final String subject);
     public IntruderRecord readIntruderRecord(final String subject);
     public ClosableIterator<IntruderRecord> iterator() throws PwmOperationalException;
 }
@@ -22,13 +22,9 @@
 
 package password.pwm.util.intruder;
 
-import password.pwm.error.PwmError;
-import password.pwm.error.PwmException;
 import password.pwm.error.PwmOperationalException;
-import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.util.ClosableIterator;
 import password.pwm.util.JsonUtil;
-import password.pwm.util.SecureHelper;
 import password.pwm.util.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
@@ -36,12 +32,12 @@ class RecordManagerImpl implements RecordManager {
     private static final PwmLogger LOGGER = PwmLogger.forClass(RecordManagerImpl.class);
 
     private final RecordType recordType;
-    private final RecordStore recordStore;
+    private final IntruderRecordCache recordCache;
     private final IntruderSettings settings;
 
-    RecordManagerImpl(final RecordType recordType, final RecordStore recordStore, final IntruderSettings settings) {
+    RecordManagerImpl(final RecordType recordType, final IntruderRecordCache recordCache, final IntruderSettings settings) {
         this.recordType = recordType;
-        this.recordStore = recordStore;
+        this.recordCache = recordCache;
         this.settings = settings;
     }
 
@@ -68,35 +64,36 @@ class RecordManagerImpl implements RecordManager {
             throw new IllegalArgumentException("subject is required value");
         }
 
-        IntruderRecord record = readIntruderRecord(subject);
+        recordCache.update(recordType, subject, new IntruderRecordCache.RecordUpdater() {
+            public IntruderRecord update(final IntruderRecord existingRecord) {
+                IntruderRecord record = existingRecord;
+                if (record == null) {
+                    record = new IntruderRecord(recordType, subject);
+                }
 
-        if (record == null) {
-            record = new IntruderRecord(recordType, subject);
-        }
-
-        final TimeDuration age = TimeDuration.fromCurrent(record.getTimeStamp());
-        if (age.isLongerThan(settings.getCheckDuration())) {
-            LOGGER.debug("re-setting existing outdated record=" + JsonUtil.serialize(record) + " (" + age.asCompactString() + ")");
-            record = new IntruderRecord(recordType, subject);
-        }
+                final TimeDuration age = TimeDuration.fromCurrent(record.getTimeStamp());
+                if (age.isLongerThan(settings.getCheckDuration())) {
+                    LOGGER.debug("re-setting existing outdated record=" + JsonUtil.serialize(record) + " (" + age.asCompactString() + ")");
+                    record = new IntruderRecord(recordType, subject);
+                }
 
-        record.incrementAttemptCount();
-
-        writeIntruderRecord(record);
+                record.incrementAttemptCount();
+                return record;
+            }
+        });
     }
 
     public void clearSubject(final String subject) {
-        final IntruderRecord record = readIntruderRecord(subject);
-        if (record == null) {
-            return;
-        }
-
-        if (record.getAttemptCount() == 0) {
-            return;
-        }
-
-        record.clearAttemptCount();
-        writeIntruderRecord(record);
+        recordCache.update(recordType, subject, new IntruderRecordCache.RecordUpdater() {
+            public IntruderRecord update(final IntruderRecord record) {
+                if (record == null || record.getAttemptCount() == 0) {
+                    return null;
+                }
+
+                record.clearAttemptCount();
+                return record;
+            }
+        });
     }
 
     public boolean isAlerted(final String subject) {
@@ -104,49 +101,30 @@ class RecordManagerImpl implements RecordManager {
         return record != null && record.isAlerted();
     }
 
-    public void markAlerted(final String subject)
+    public boolean markAlerted(final String subject)
     {
-        final IntruderRecord record = readIntruderRecord(subject);
-        if (record == null || record.isAlerted()) {
-            return;
-        }
-        record.setAlerted();
-        writeIntruderRecord(record);
+        final boolean[] marked = new boolean[1];
+        recordCache.update(recordType, subject, new IntruderRecordCache.RecordUpdater() {
+            public IntruderRecord update(final IntruderRecord record) {
+                if (record == null || record.isAlerted()) {
+                    return null;
+                }
+                record.setAlerted();
+                marked[0] = true;
+                return record;
+            }
+        });
+        return marked[0];
     }
 
     @Override
     public IntruderRecord readIntruderRecord(final String subject) {
-        try {
-            return recordStore.read(makeKey(subject));
-        } catch (PwmException e) {
-            LOGGER.error("unable to read read intruder record from storage: " + e.getMessage());
-        }
-        return null;
-    }
-
-    private void writeIntruderRecord(final IntruderRecord intruderRecord) {
-        try {
-            recordStore.write(makeKey(intruderRecord.getSubject()),intruderRecord);
-        } catch (PwmOperationalException e) {
-            LOGGER.warn("unexpected error attempting to write intruder record " + JsonUtil.serialize(intruderRecord) + ", error: " + e.getMessage());
-        }
-    }
-
-    private String makeKey(final String subject) throws PwmOperationalException {
-        final String md5sum;
-        try {
-            md5sum = SecureHelper.md5sum(subject);
-        } catch (PwmUnrecoverableException e) {
-            throw new PwmOperationalException(PwmError.ERROR_UNKNOWN,"error generating md5sum for intruder record: " + e.getMessage());
-        }
-        return md5sum + recordType.toString();
+        return recordCache.read(recordType, subject);
     }
 
-
-
     @Override
     public ClosableIterator<IntruderRecord> iterator() throws PwmOperationalException {
-        return new RecordIterator<>(recordStore.iterator());
+        return new RecordIterator<>(recordCache.iterator());
     }
 
     public static class RecordIterator<IntruderRecord> implements ClosableIterator<IntruderRecord> {
@@ -40,7 +40,8 @@ class StubRecordManager implements RecordManager {
         return false;
     }
 
-    public void markAlerted(String subject) {
+    public boolean markAlerted(String subject) {
+        return false;
     }
 
     public IntruderRecord readIntruderRecord(String subject) {
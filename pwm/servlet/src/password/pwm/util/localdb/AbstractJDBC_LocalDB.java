@@ -39,6 +39,7 @@ public abstract class AbstractJDBC_LocalDB implements LocalDBProvider {
     private static final String KEY_COLUMN = "id";
     private static final String VALUE_COLUMN = "value";
     private final static int ITERATOR_LIMIT = 100;
+    private final static int MAX_IN_CLAUSE_SIZE = 500;
 
     private static final String WIDTH_KEY = String.valueOf(LocalDB.MAX_KEY_LENGTH);
 
@@ -224,6 +225,91 @@ public abstract class AbstractJDBC_LocalDB implements LocalDBProvider {
         return null;
     }
 
+    public Map<String, String> getAll(final LocalDB.DB db, final Collection<String> keys)
+            throws LocalDBException {
+        preCheck(false);
+        final Map<String, String> foundValues = new HashMap<>();
+        final List<String> keyList = new ArrayList<>(keys);
+
+        try {
+            LOCK.readLock().lock();
+            for (int i = 0; i < keyList.size(); i += MAX_IN_CLAUSE_SIZE) {
+                final List<String> chunk = keyList.subList(i, Math.min(keyList.size(), i + MAX_IN_CLAUSE_SIZE));
+                PreparedStatement statement = null;
+                ResultSet resultSet = null;
+                try {
+                    statement = prepareInStatement("SELECT " + KEY_COLUMN + ", " + VALUE_COLUMN, db, chunk);
+                    resultSet = statement.executeQuery();
+                    while (resultSet.next()) {
+                        foundValues.put(resultSet.getString(KEY_COLUMN), resultSet.getString(VALUE_COLUMN));
+                    }
+                } finally {
+                    close(statement);
+                    close(resultSet);
+                }
+            }
+        } catch (SQLException ex) {
+            throw new LocalDBException(new ErrorInformation(PwmError.ERROR_LOCALDB_UNAVAILABLE,ex.getMessage()));
+        } finally {
+            LOCK.readLock().unlock();
+        }
+
+        final Map<String, String> returnMap = new LinkedHashMap<>();
+        for (final String key : keyList) {
+            if (foundValues.containsKey(key)) {
+                returnMap.put(key, foundValues.get(key));
+            }
+        }
+        return returnMap;
+    }
+
+    public boolean containsAny(final LocalDB.DB db, final Collection<String> keys)
+            throws LocalDBException {
+        preCheck(false);
+        final List<String> keyList = new ArrayList<>(keys);
+
+        try {
+            LOCK.readLock().lock();
+            for (int i = 0; i < keyList.size(); i += MAX_IN_CLAUSE_SIZE) {
+                final List<String> chunk = keyList.subList(i, Math.min(keyList.size(), i + MAX_IN_CLAUSE_SIZE));
+                PreparedStatement statement = null;
+                ResultSet resultSet = null;
+                try {
+                    statement = prepareInStatement("SELECT " + KEY_COLUMN, db, chunk);
+                    statement.setMaxRows(1);
+                    resultSet = statement.executeQuery();
+                    if (resultSet.next()) {
+                        return true;
+                    }
+                } finally {
+                    close(statement);
+                    close(resultSet);
+                }
+            }
+        } catch (SQLException ex) {
+            throw new LocalDBException(new ErrorInformation(PwmError.ERROR_LOCALDB_UNAVAILABLE,ex.getMessage()));
+        } finally {
+            LOCK.readLock().unlock();
+        }
+        return false;
+    }
+
+    private PreparedStatement prepareInStatement(final String selectClause, final LocalDB.DB db, final List<String> keys)
+            throws SQLException {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(selectClause).append(" FROM ").append(db.toString()).append(" WHERE " + KEY_COLUMN + " IN (");
+        for (int i = 0; i < keys.size(); i++) {
+            sb.append(i == 0 ? "?" : ",?");
+        }
+        sb.append(")");
+
+        final PreparedStatement statement = dbConnection.prepareStatement(sb.toString());
+        for (int i = 0; i < keys.size(); i++) {
+            statement.setString(i + 1, keys.get(i));
+        }
+        return statement;
+    }
+
     public void init(final File dbDirectory, final Map<String, String> initParams, final boolean readOnly)
             throws LocalDBException {
         this.dbDirectory = dbDirectory;
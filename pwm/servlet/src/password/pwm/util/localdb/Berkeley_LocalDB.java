@@ -185,6 +185,64 @@ public class Berkeley_LocalDB implements LocalDBProvider {
         }
     }
 
+    public Map<String, String> getAll(final DB db, final Collection<String> keys)
+            throws LocalDBException {
+        preCheck(false);
+        final Map<String, String> returnMap = new LinkedHashMap<>();
+        Cursor cursor = null;
+        try {
+            cursor = cachedDatabases.get(db).openCursor(null, CursorConfig.READ_COMMITTED);
+            final DatabaseEntry keyEntry = new DatabaseEntry();
+            final DatabaseEntry valueEntry = new DatabaseEntry();
+            for (final String key : keys) {
+                STRING_TUPLE.objectToEntry(key, keyEntry);
+                if (cursor.getSearchKey(keyEntry, valueEntry, null) == OperationStatus.SUCCESS) {
+                    returnMap.put(key, STRING_TUPLE.entryToObject(valueEntry));
+                }
+            }
+        } catch (DatabaseException e) {
+            LOGGER.error("error during multiple-get: " + e.toString());
+            throw new LocalDBException(new ErrorInformation(PwmError.ERROR_LOCALDB_UNAVAILABLE,e.toString()));
+        } finally {
+            closeCursor(cursor);
+        }
+        return returnMap;
+    }
+
+    public boolean containsAny(final DB db, final Collection<String> keys)
+            throws LocalDBException {
+        preCheck(false);
+        Cursor cursor = null;
+        try {
+            cursor = cachedDatabases.get(db).openCursor(null, CursorConfig.READ_COMMITTED);
+            final DatabaseEntry keyEntry = new DatabaseEntry();
+            final DatabaseEntry valueEntry = new DatabaseEntry();
+            valueEntry.setPartial(0, 0, true); // only the key is of interest
+            for (final String key : keys) {
+                STRING_TUPLE.objectToEntry(key, keyEntry);
+                if (cursor.getSearchKey(keyEntry, valueEntry, null) == OperationStatus.SUCCESS) {
+                    return true;
+                }
+            }
+        } catch (DatabaseException e) {
+            LOGGER.error("error during multiple-contains check: " + e.toString());
+            throw new LocalDBException(new ErrorInformation(PwmError.ERROR_LOCALDB_UNAVAILABLE,e.toString()));
+        } finally {
+            closeCursor(cursor);
+        }
+        return false;
+    }
+
+    private static void closeCursor(final Cursor cursor) {
+        if (cursor != null) {
+            try {
+                cursor.close();
+            } catch (DatabaseException e) {
+                LOGGER.error("error closing cursor: " + e.toString());
+            }
+        }
+    }
+
     public void init(final File dbDirectory, final Map<String, String> initParameters, final boolean readOnly)
             throws LocalDBException {
         LOGGER.trace("begin initialization");
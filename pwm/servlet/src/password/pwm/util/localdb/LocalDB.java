@@ -63,6 +63,29 @@ public interface LocalDB {
     String get(DB db, String key)
             throws LocalDBException;
 
+    /**
+     * Read the values of multiple keys in a single operation.
+     *
+     * @param db   database to perform the operation on
+     * @param keys keys to read
+     * @return a map of each key that exists to its value, in the iteration order of the supplied keys.  Keys that do
+     * not exist are not included.
+     * @throws LocalDBException if there is an error reading from the store
+     */
+    @ReadOperation
+    Map<String, String> getAll(DB db, Collection<String> keys)
+            throws LocalDBException;
+
+    /**
+     * @param db   database to perform the operation on
+     * @param keys keys to test
+     * @return true if at least one of the keys exists
+     * @throws LocalDBException if there is an error reading from the store
+     */
+    @ReadOperation
+    boolean containsAny(DB db, Collection<String> keys)
+            throws LocalDBException;
+
     LocalDBIterator<String> iterator(DB db)
             throws LocalDBException;
 
@@ -133,6 +156,9 @@ public interface LocalDB {
         TEMP(false),
         SYSLOG_QUEUE(true),
         CACHE(false),
+        TOKEN_EXPIRY(true),
+        EVENTLOG_SEGMENTS(true),
+        REPORT_QUEUE(false),
 
         ;
 
@@ -31,6 +31,7 @@ import password.pwm.util.stats.Statistic;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -66,8 +67,9 @@ public class LocalDBAdaptor implements LocalDB {
         ParameterValidator.validateDBValue(db);
         ParameterValidator.validateKeyValue(key);
 
+        final long startTime = System.nanoTime();
         final boolean value = innerDB.contains(db, key);
-        markRead(1);
+        markRead(1, startTime);
         return value;
     }
 
@@ -76,8 +78,37 @@ public class LocalDBAdaptor implements LocalDB {
         ParameterValidator.validateDBValue(db);
         ParameterValidator.validateKeyValue(key);
 
+        final long startTime = System.nanoTime();
         final String value = innerDB.get(db, key);
-        markRead(1);
+        markRead(1, startTime);
+        return value;
+    }
+
+    public Map<String, String> getAll(final DB db, final Collection<String> keys) throws LocalDBException {
+        ParameterValidator.validateDBValue(db);
+        ParameterValidator.validateKeyValues(keys);
+
+        if (keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        final long startTime = System.nanoTime();
+        final Map<String, String> values = innerDB.getAll(db, keys);
+        markRead(keys.size(), startTime);
+        return values;
+    }
+
+    public boolean containsAny(final DB db, final Collection<String> keys) throws LocalDBException {
+        ParameterValidator.validateDBValue(db);
+        ParameterValidator.validateKeyValues(keys);
+
+        if (keys.isEmpty()) {
+            return false;
+        }
+
+        final long startTime = System.nanoTime();
+        final boolean value = innerDB.containsAny(db, keys);
+        markRead(keys.size(), startTime);
         return value;
     }
 
@@ -140,13 +171,14 @@ public class LocalDBAdaptor implements LocalDB {
             }
         }
 
+        final long startTime = System.nanoTime();
         try {
             innerDB.putAll(db, keyValueMap);
         } finally {
             SIZE_CACHE_MANAGER.clearSize(db);
         }
 
-        markWrite(keyValueMap.size());
+        markWrite(keyValueMap.size(), startTime);
     }
 
     @WriteOperation
@@ -155,12 +187,13 @@ public class LocalDBAdaptor implements LocalDB {
         ParameterValidator.validateKeyValue(key);
         ParameterValidator.validateValueValue(value);
 
+        final long startTime = System.nanoTime();
         final boolean preExisting = innerDB.put(db, key, value);
         if (!preExisting) {
             SIZE_CACHE_MANAGER.incrementSize(db);
         }
 
-        markWrite(1);
+        markWrite(1, startTime);
         return preExisting;
     }
 
@@ -169,12 +202,13 @@ public class LocalDBAdaptor implements LocalDB {
         ParameterValidator.validateDBValue(db);
         ParameterValidator.validateKeyValue(key);
 
+        final long startTime = System.nanoTime();
         final boolean result = innerDB.remove(db, key);
         if (result) {
             SIZE_CACHE_MANAGER.decrementSize(db);
         }
 
-        markWrite(1);
+        markWrite(1, startTime);
         return result;
     }
 
@@ -191,6 +225,7 @@ public class LocalDBAdaptor implements LocalDB {
             }
         }
 
+        final long startTime = System.nanoTime();
         if (keys.size() > 1) {
             try {
                 innerDB.removeAll(db, keys);
@@ -203,7 +238,7 @@ public class LocalDBAdaptor implements LocalDB {
             }
         }
 
-        markWrite(keys.size());
+        markWrite(keys.size(), startTime);
     }
 
     public int size(final DB db) throws LocalDBException {
@@ -328,6 +363,16 @@ public class LocalDBAdaptor implements LocalDB {
             }
         }
 
+        private static void validateKeyValues(final Collection<String> keys) throws LocalDBException {
+            if (keys == null) {
+                throw new NullPointerException("keys cannot be null");
+            }
+
+            for (final String key : keys) {
+                validateKeyValue(key);
+            }
+        }
+
         private static void validateValueValue(final String value) throws LocalDBException {
             if (value == null) {
                 throw new NullPointerException("value cannot be null");
@@ -339,18 +384,20 @@ public class LocalDBAdaptor implements LocalDB {
         }
     }
 
-    private void markRead(final int events) {
+    private void markRead(final int events, final long startTime) {
         if (pwmApplication != null) {
             if (pwmApplication.getStatisticsManager() != null) {
                 pwmApplication.getStatisticsManager().updateEps(Statistic.EpsType.PWMDB_READS,events);
+                pwmApplication.getStatisticsManager().updateHistogramValue(Statistic.LOCALDB_READ_TIME,(System.nanoTime() - startTime) / 1000);
             }
         }
     }
 
-    private void markWrite(final int events) {
+    private void markWrite(final int events, final long startTime) {
         if (pwmApplication != null) {
             if (pwmApplication.getStatisticsManager() != null) {
                 pwmApplication.getStatisticsManager().updateEps(Statistic.EpsType.PWMDB_WRITES,events);
+                pwmApplication.getStatisticsManager().updateHistogramValue(Statistic.LOCALDB_WRITE_TIME,(System.nanoTime() - startTime) / 1000);
             }
         }
     }
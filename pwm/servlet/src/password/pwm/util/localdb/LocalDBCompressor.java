@@ -22,48 +22,94 @@
 
 package password.pwm.util.localdb;
 
-import password.pwm.PwmConstants;
-import password.pwm.util.StringUtil;
 import password.pwm.util.logging.PwmLogger;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Collection;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class LocalDBCompressor implements LocalDB {
     private static final PwmLogger LOGGER = PwmLogger.forClass(LocalDBCompressor.class);
 
-    static final String COMPRESS_PREFIX = "c!";
-
     final LocalDB innerLocalDB;
     final int minCompressLength;
     final boolean enableCompression;
 
+    private final LocalDBValueCodec encoder;
+    private final List<LocalDBValueCodec> decoders = new ArrayList<>();
+    private final Map<DB, CodecStatistics> statistics = new EnumMap<>(DB.class);
+
     public LocalDBCompressor(
             final LocalDB innerLocalDB,
             final int minCompressLength,
             final boolean enableCompression
+    ) {
+        this(innerLocalDB, minCompressLength, enableCompression, LocalDBValueCodec.Type.GZIP);
+    }
+
+    LocalDBCompressor(
+            final LocalDB innerLocalDB,
+            final int minCompressLength,
+            final boolean enableCompression,
+            final LocalDBValueCodec.Type codecType
+    ) {
+        this(innerLocalDB, minCompressLength, enableCompression, codecType, EnumSet.noneOf(DB.class));
+    }
+
+    LocalDBCompressor(
+            final LocalDB innerLocalDB,
+            final int minCompressLength,
+            final boolean enableCompression,
+            final LocalDBValueCodec.Type codecType,
+            final Set<DB> dictionaryDBs
     ) {
         this.innerLocalDB = innerLocalDB;
         this.minCompressLength = minCompressLength;
         this.enableCompression = enableCompression;
+
+        encoder = LocalDBValueCodec.forType(codecType, innerLocalDB, dictionaryDBs);
+        decoders.add(encoder);
+        for (final LocalDBValueCodec.Type type : LocalDBValueCodec.Type.values()) {
+            if (type != codecType) {
+                decoders.add(LocalDBValueCodec.forType(type, innerLocalDB, dictionaryDBs));
+            }
+        }
+
+        for (final DB db : DB.values()) {
+            statistics.put(db, new CodecStatistics());
+        }
     }
 
     public static LocalDBCompressor createLocalDBCompressor(
             final LocalDB innerLocalDB,
             final int minCompressLength,
             final boolean enableCompression
+    ) {
+        return createLocalDBCompressor(innerLocalDB, minCompressLength, enableCompression, LocalDBValueCodec.Type.GZIP, EnumSet.noneOf(DB.class));
+    }
+
+    static LocalDBCompressor createLocalDBCompressor(
+            final LocalDB innerLocalDB,
+            final int minCompressLength,
+            final boolean enableCompression,
+            final LocalDBValueCodec.Type codecType,
+            final Set<DB> dictionaryDBs
     ) {
         if (innerLocalDB == null) {
             return null;
         }
-        return new LocalDBCompressor(innerLocalDB, minCompressLength, enableCompression);
+        return new LocalDBCompressor(innerLocalDB, minCompressLength, enableCompression, codecType, dictionaryDBs);
     }
 
     @Override
     public void close() throws LocalDBException {
+        for (final DB db : DB.values()) {
+            final CodecStatistics dbStatistics = statistics.get(db);
+            if (dbStatistics.encodeCount.get() > 0 || dbStatistics.decodeCount.get() > 0) {
+                LOGGER.debug("value codec statistics for " + db + ": " + dbStatistics.toString());
+            }
+        }
         innerLocalDB.close();
     }
 
@@ -74,7 +120,25 @@ public class LocalDBCompressor implements LocalDB {
 
     @Override
     public String get(DB db, String key) throws LocalDBException {
-        return decompressData(innerLocalDB.get(db, key));
+        return decompressData(db, innerLocalDB.get(db, key));
+    }
+
+    @Override
+    public Map<String, String> getAll(DB db, Collection<String> keys) throws LocalDBException {
+        final Map<String, String> values = innerLocalDB.getAll(db, keys);
+        if (values.isEmpty()) {
+            return values;
+        }
+        final Map<String, String> returnMap = new LinkedHashMap<>();
+        for (final String key : values.keySet()) {
+            returnMap.put(key, decompressData(db, values.get(key)));
+        }
+        return returnMap;
+    }
+
+    @Override
+    public boolean containsAny(DB db, Collection<String> keys) throws LocalDBException {
+        return innerLocalDB.containsAny(db, keys);
     }
 
     @Override
@@ -86,7 +150,7 @@ public class LocalDBCompressor implements LocalDB {
     public void putAll(DB db, Map<String, String> keyValueMap) throws LocalDBException {
         final Map<String,String> tempMap = new LinkedHashMap<>();
         for (final String key : keyValueMap.keySet()) {
-            tempMap.put(key,compressData(keyValueMap.get(key)));
+            tempMap.put(key,compressData(db, keyValueMap.get(key)));
         }
 
         innerLocalDB.putAll(db,tempMap);
@@ -99,7 +163,7 @@ public class LocalDBCompressor implements LocalDB {
 
     @Override
     public boolean put(DB db, String key, String value) throws LocalDBException {
-        return innerLocalDB.put(db, key, compressData(value));
+        return innerLocalDB.put(db, key, compressData(db, value));
     }
 
     @Override
@@ -127,7 +191,23 @@ public class LocalDBCompressor implements LocalDB {
         return innerLocalDB.getFileLocation();
     }
 
-    private String compressData(final String input) {
+    /**
+     * @param storedValue a value as read from the inner LocalDB
+     * @return true if the value was written by one of the value codecs
+     */
+    boolean isCompressed(final String storedValue) {
+        return storedValue != null && findDecoder(storedValue) != null;
+    }
+
+    /**
+     * @param db database
+     * @return compression ratio and codec timing for values written and read since the LocalDB was opened
+     */
+    public Map<String, Object> getCodecStatistics(final DB db) {
+        return statistics.get(db).asMap();
+    }
+
+    private String compressData(final DB db, final String input) {
         if (input == null) {
             return null;
         }
@@ -137,33 +217,85 @@ public class LocalDBCompressor implements LocalDB {
         if (input.length() < minCompressLength) {
             return input;
         }
-        final String compressedValue;
+
+        final long startTime = System.nanoTime();
+        String compressedValue;
         try {
-            compressedValue = StringUtil.base64Encode(input.getBytes(PwmConstants.DEFAULT_CHARSET),StringUtil.Base64Options.GZIP);
+            compressedValue = encoder.encode(db, input);
         } catch (IOException e) {
-            return input;
+            compressedValue = null;
         }
-        if (compressedValue.length() < input.length()) {
-            return COMPRESS_PREFIX + compressedValue;
-        }
-        return input;
+        final String storedValue = compressedValue == null ? input : compressedValue;
+        statistics.get(db).markEncode(input.length(), storedValue.length(), System.nanoTime() - startTime);
+        return storedValue;
     }
 
-    private String decompressData(final String input) {
+    private String decompressData(final DB db, final String input) {
         if (input == null) {
             return null;
         }
 
-        if (input.startsWith(COMPRESS_PREFIX)) {
-            final String compressedValue = input.substring(COMPRESS_PREFIX.length(),input.length());
-            try {
-                return new String(StringUtil.base64Decode(compressedValue, StringUtil.Base64Options.GZIP),PwmConstants.DEFAULT_CHARSET);
-            } catch (IOException e) {
-                LOGGER.warn("error decompressing data string: " + input + "\n error: " + e.getMessage());
-                return compressedValue;
+        final LocalDBValueCodec decoder = findDecoder(input);
+        if (decoder == null) {
+            return input;
+        }
+
+        final long startTime = System.nanoTime();
+        try {
+            final String value = decoder.decode(db, input);
+            statistics.get(db).markDecode(System.nanoTime() - startTime);
+            return value;
+        } catch (IOException e) {
+            LOGGER.warn("error decompressing data string: " + input + "\n error: " + e.getMessage());
+            return input;
+        }
+    }
+
+    private LocalDBValueCodec findDecoder(final String storedValue) {
+        for (final LocalDBValueCodec decoder : decoders) {
+            if (decoder.isEncodedBy(storedValue)) {
+                return decoder;
             }
         }
+        return null;
+    }
+
+    private static class CodecStatistics {
+        private final AtomicLong encodeCount = new AtomicLong();
+        private final AtomicLong encodeNanos = new AtomicLong();
+        private final AtomicLong inputChars = new AtomicLong();
+        private final AtomicLong storedChars = new AtomicLong();
+        private final AtomicLong decodeCount = new AtomicLong();
+        private final AtomicLong decodeNanos = new AtomicLong();
+
+        private void markEncode(final int inputLength, final int storedLength, final long nanos) {
+            encodeCount.incrementAndGet();
+            inputChars.addAndGet(inputLength);
+            storedChars.addAndGet(storedLength);
+            encodeNanos.addAndGet(nanos);
+        }
+
+        private void markDecode(final long nanos) {
+            decodeCount.incrementAndGet();
+            decodeNanos.addAndGet(nanos);
+        }
 
-        return input;
+        private Map<String, Object> asMap() {
+            final Map<String, Object> returnMap = new LinkedHashMap<>();
+            final long encodes = encodeCount.get();
+            final long decodes = decodeCount.get();
+            final long input = inputChars.get();
+            returnMap.put("encodeCount", encodes);
+            returnMap.put("compressionRatio", input == 0 ? "n/a" : String.format("%.3f", (double) storedChars.get() / input));
+            returnMap.put("avgEncodeMicroseconds", encodes == 0 ? 0 : encodeNanos.get() / encodes / 1000);
+            returnMap.put("decodeCount", decodes);
+            returnMap.put("avgDecodeMicroseconds", decodes == 0 ? 0 : decodeNanos.get() / decodes / 1000);
+            return returnMap;
+        }
+
+        @Override
+        public String toString() {
+            return asMap().toString();
+        }
     }
 }
@@ -25,7 +25,9 @@ package password.pwm.util.localdb;
 import password.pwm.error.PwmDataStoreException;
 import password.pwm.util.ClosableIterator;
 import password.pwm.util.DataStore;
+import password.pwm.util.TimeDuration;
 
+import java.util.Collection;
 import java.util.Map;
 
 public class LocalDBDataStore implements DataStore {
@@ -57,6 +59,18 @@ public class LocalDBDataStore implements DataStore {
         localDB.putAll(db, keyValueMap);
     }
 
+    public Map<String, String> getAll(Collection<String> keys) throws PwmDataStoreException {
+        return localDB.getAll(db, keys);
+    }
+
+    public void removeAll(Collection<String> keys) throws PwmDataStoreException {
+        localDB.removeAll(db, keys);
+    }
+
+    public int removeOlderThan(TimeDuration maxAge) throws PwmDataStoreException {
+        return -1;
+    }
+
     public Status status() {
         final LocalDB.Status dbStatus = localDB.status();
         if (dbStatus == null) {
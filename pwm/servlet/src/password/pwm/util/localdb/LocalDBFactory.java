@@ -32,7 +32,9 @@ import password.pwm.util.logging.PwmLogger;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author Jason D. Rivard
@@ -147,8 +149,31 @@ public class LocalDBFactory {
         final boolean enableDecompression = Boolean.parseBoolean(config.readAppProperty(AppProperty.LOCALDB_DECOMPRESSION_ENABLED));
         final int compressionMinSize = Integer.parseInt(config.readAppProperty(AppProperty.LOCALDB_COMPRESSION_MINSIZE));
 
+        LocalDBValueCodec.Type codecType = LocalDBValueCodec.Type.GZIP;
+        try {
+            codecType = LocalDBValueCodec.Type.valueOf(config.readAppProperty(AppProperty.LOCALDB_COMPRESSION_CODEC));
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("unknown LocalDB compression codec, using " + codecType + ": " + e.getMessage());
+        }
+
+        final Set<LocalDB.DB> dictionaryDBs = EnumSet.noneOf(LocalDB.DB.class);
+        for (final String dbName : config.readAppProperty(AppProperty.LOCALDB_COMPRESSION_DICTIONARY_DBS).split(",")) {
+            if (!dbName.trim().isEmpty()) {
+                try {
+                    final LocalDB.DB db = LocalDB.DB.valueOf(dbName.trim());
+                    if (LocalDBValueCodec.DictionaryCodec.SENSITIVE_DBS.contains(db)) {
+                        LOGGER.warn("compression dictionaries are not permitted for " + db + ", its values will use plain deflate");
+                    } else {
+                        dictionaryDBs.add(db);
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.warn("ignoring unknown LocalDB '" + dbName.trim() + "' in compression dictionary list");
+                }
+            }
+        }
+
         if (enableCompression || enableDecompression) {
-            return LocalDBCompressor.createLocalDBCompressor(localDB, compressionMinSize, enableCompression);
+            return LocalDBCompressor.createLocalDBCompressor(localDB, compressionMinSize, enableCompression, codecType, dictionaryDBs);
         }
 
         return localDB;
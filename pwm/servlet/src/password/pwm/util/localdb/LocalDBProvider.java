@@ -39,6 +39,14 @@ public interface LocalDBProvider {
     String get(LocalDB.DB db, String key)
             throws LocalDBException;
 
+    @LocalDB.ReadOperation
+    Map<String, String> getAll(LocalDB.DB db, Collection<String> keys)
+            throws LocalDBException;
+
+    @LocalDB.ReadOperation
+    boolean containsAny(LocalDB.DB db, Collection<String> keys)
+            throws LocalDBException;
+
     @LocalDB.WriteOperation
     void init(File dbDirectory, Map<String, String> initParameters, boolean readOnly)
             throws LocalDBException;
@@ -23,9 +23,9 @@
 package password.pwm.util.localdb;
 
 import password.pwm.PwmApplication;
+import password.pwm.util.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
-import java.math.BigInteger;
 import java.util.*;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -33,6 +33,11 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 /**
  * A LIFO {@link Queue} implementation backed by a localDB instance.  {@code this} instances are internally
  * synchronized.
+ * <p>
+ * Values are stored under fixed width keys derived from a {@code long} position, and occupy a contiguous range of
+ * positions.  The range boundaries are kept in memory and only checkpointed to the db periodically; at startup the
+ * boundaries are recovered by probing outward from the last checkpoint, so a checkpoint that is behind the stored
+ * values costs at most a few reads rather than any data.
  */
 public class
         LocalDBStoredQueue implements Queue<String>, Deque<String>
@@ -42,10 +47,15 @@ public class
     private final static PwmLogger LOGGER = PwmLogger.forClass(LocalDBStoredQueue.class, true);
     private final static int MAX_SIZE = Integer.MAX_VALUE - 3;
 
-    private final static String KEY_HEAD_POSITION = "_HEAD_POSITION";
-    private final static String KEY_TAIL_POSITION = "_TAIL_POSITION";
+    private final static String KEY_CHECKPOINT = "_CHECKPOINT";
     private final static String KEY_VERSION = "_KEY_VERSION";
-    private final static String VALUE_VERSION = "7a";
+    private final static String VALUE_VERSION = "8a";
+
+    private final static String KEY_LEGACY_HEAD_POSITION = "_HEAD_POSITION";
+    private final static String KEY_LEGACY_TAIL_POSITION = "_TAIL_POSITION";
+    private final static String VALUE_LEGACY_VERSION = "7a";
+
+    private final static int ITERATOR_FETCH_SIZE = 100;
 
     private final InternalQueue internalQueue;
 
@@ -90,6 +100,14 @@ public class
         return new LocalDBStoredQueue(pwmDB, DB, debugEnabled);
     }
 
+    public void removeFirst(final int removalCount) {
+        try {
+            internalQueue.removeFirst(removalCount);
+        } catch (LocalDBException e) {
+            throw new IllegalStateException("unexpected localDB error while modifying queue: " + e.getMessage(), e);
+        }
+    }
+
     public void removeLast(final int removalCount) {
         try {
             internalQueue.removeLast(removalCount);
@@ -105,11 +123,7 @@ public class
 
 
     public boolean isEmpty() {
-        try {
-            return internalQueue.size() == 0;
-        } catch (LocalDBException e) {
-            throw new IllegalStateException(e);
-        }
+        return internalQueue.size() == 0;
     }
 
     public Object[] toArray() {
@@ -148,6 +162,24 @@ public class
         }
     }
 
+    /**
+     * Add each of the values to the end of the queue, as if by calling {@link #addLast(String)} for each value in
+     * order, using a single db write.
+     */
+    public void addAllLast(final Collection<String> values) {
+        try {
+            final Collection<String> stringCollection = new ArrayList<>();
+            for (final String loopValue : values) {
+                if (loopValue != null) {
+                    stringCollection.add(loopValue);
+                }
+            }
+            internalQueue.addLast(stringCollection);
+        } catch (LocalDBException e) {
+            throw new IllegalStateException("unexpected LocalDB error while modifying queue: " + e.getMessage(), e);
+        }
+    }
+
     public boolean removeAll(final Collection<?> c) {
         throw new UnsupportedOperationException();
     }
@@ -182,11 +214,7 @@ public class
     }
 
     public int size() {
-        try {
-            return internalQueue.size();
-        } catch (LocalDBException e) {
-            throw new IllegalStateException(e);
-        }
+        return internalQueue.size();
     }
 
 // --------------------- Interface Deque ---------------------
@@ -327,21 +355,13 @@ public class
     }
 
     public Iterator<String> descendingIterator() {
-        try {
-            return new InnerIterator<String>(internalQueue, false);
-        } catch (LocalDBException e) {
-            throw new IllegalStateException(e);
-        }
+        return new InnerIterator(internalQueue, false);
     }
 
 // --------------------- Interface Iterable ---------------------
 
     public Iterator<String> iterator() {
-        try {
-            return new InnerIterator<String>(internalQueue, true);
-        } catch (LocalDBException e) {
-            throw new IllegalStateException(e);
-        }
+        return new InnerIterator(internalQueue, true);
     }
 
 // --------------------- Interface Queue ---------------------
@@ -378,43 +398,51 @@ public class
 
 // -------------------------- INNER CLASSES --------------------------
 
-    private class InnerIterator<K> implements Iterator {
-        private Position position;
+    private class InnerIterator implements Iterator<String> {
         private final InternalQueue internalQueue;
         private final boolean first;
-        private int queueSizeAtCreate;
-        private int steps;
+        private final LinkedList<String> fetchedValues = new LinkedList<>();
+        private long nextPosition;
+        private long remainingPositions;
 
-
-        private InnerIterator(final InternalQueue internalQueue, final boolean first)
-                throws LocalDBException
-        {
+        private InnerIterator(final InternalQueue internalQueue, final boolean first) {
             this.internalQueue = internalQueue;
             this.first = first;
-            position = internalQueue.size() == 0 ? null : first ? internalQueue.headPosition : internalQueue.tailPosition;
-            queueSizeAtCreate = internalQueue.size();
+            internalQueue.LOCK.readLock().lock();
+            try {
+                nextPosition = first ? internalQueue.headPosition - 1 : internalQueue.tailPosition;
+                remainingPositions = internalQueue.headPosition - internalQueue.tailPosition;
+            } finally {
+                internalQueue.LOCK.readLock().unlock();
+            }
         }
 
         public boolean hasNext() {
-            return position != null;
+            return !fetchedValues.isEmpty() || remainingPositions > 0;
         }
 
         public String next() {
-            if (position == null) {
-                throw new NoSuchElementException();
+            if (fetchedValues.isEmpty()) {
+                if (remainingPositions < 1) {
+                    throw new NoSuchElementException();
+                }
+                fetch();
+            }
+            return fetchedValues.removeFirst();
+        }
+
+        private void fetch() {
+            final List<String> keys = new ArrayList<>();
+            while (remainingPositions > 0 && keys.size() < ITERATOR_FETCH_SIZE) {
+                keys.add(positionKey(nextPosition));
+                nextPosition = first ? nextPosition - 1 : nextPosition + 1;
+                remainingPositions--;
             }
-            steps++;
             try {
-                final String nextValue = internalQueue.localDB.get(internalQueue.DB, position.toString());
-                if (first) {
-                    position = position.equals(internalQueue.tailPosition) ? null : position.previous();
-                } else {
-                    position = position.equals(internalQueue.headPosition) ? null : position.next();
+                final Map<String, String> values = internalQueue.localDB.getAll(internalQueue.DB, keys);
+                for (final String key : keys) {
+                    fetchedValues.add(values.get(key));
                 }
-                if (steps > queueSizeAtCreate) {
-                    position = null;
-                }
-                return nextValue;
             } catch (LocalDBException e) {
                 throw new IllegalStateException("unexpected localDB error while iterating queue: " + e.getMessage(), e);
             }
@@ -425,80 +453,64 @@ public class
         }
     }
 
-    private static class Position {
-        private final static int RADIX = 36;
-        private final static BigInteger MAXIMUM_POSITION = new BigInteger("zzzzzz", RADIX);
-        private final static BigInteger MINIMUM_POSITION = BigInteger.ZERO;
-
-        private final BigInteger bigInt;
+    private static final long INITIAL_POSITION = Long.MAX_VALUE / 2;
+    private static final int POSITION_KEY_LENGTH = 13;
+    private static final int POSITION_RADIX = 36;
 
-        private Position(final BigInteger bigInt) {
-            this.bigInt = bigInt;
+    private static String positionKey(final long position) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(Long.toString(position, POSITION_RADIX).toUpperCase());
+        while (sb.length() < POSITION_KEY_LENGTH) {
+            sb.insert(0, "0");
         }
+        return sb.toString();
+    }
 
-        public Position(final String bigInt) {
-            this.bigInt = new BigInteger(bigInt, RADIX);
-        }
+    /**
+     * Positions used by the previous {@code BigInteger} based format, which wrap around after six base-36 digits.
+     */
+    private static class LegacyPosition {
+        private static final int KEY_LENGTH = 6;
+        private static final long LIMIT = 2176782336L; // 36^6
 
-        public Position next() {
-            BigInteger next = bigInt.add(BigInteger.ONE);
-            if (next.compareTo(MAXIMUM_POSITION) > 0) {
-                next = MINIMUM_POSITION;
-            }
-            return new Position(next);
+        private static long parse(final String value) {
+            return value == null || value.length() == 0 ? 0 : Long.parseLong(value, POSITION_RADIX);
         }
 
-        public Position previous() {
-            BigInteger previous = bigInt.subtract(BigInteger.ONE);
-            if (previous.compareTo(MINIMUM_POSITION) < 0) {
-                previous = MAXIMUM_POSITION;
-            }
-            return new Position(previous);
+        private static long next(final long position) {
+            return (position + 1) % LIMIT;
         }
 
-        public BigInteger distanceToHead(final Position head) {
-            final int compareToValue = head.bigInt.compareTo(this.bigInt);
-            if (compareToValue == 0) {
-                return BigInteger.ZERO;
-            } else if (compareToValue == 1) {
-                return head.bigInt.subtract(this.bigInt);
-            }
-
-            final BigInteger tailToMax = MAXIMUM_POSITION.subtract(this.bigInt);
-            final BigInteger minToHead = head.bigInt.subtract(MINIMUM_POSITION);
-            return minToHead.add(tailToMax).add(BigInteger.ONE);
+        private static long distance(final long tail, final long head) {
+            return ((head - tail) % LIMIT + LIMIT) % LIMIT;
         }
 
-        public String toString() {
+        private static String key(final long position) {
             final StringBuilder sb = new StringBuilder();
-            sb.append(bigInt.toString(RADIX).toUpperCase());
-            while (sb.length() < 6) {
+            sb.append(Long.toString(position, POSITION_RADIX).toUpperCase());
+            while (sb.length() < KEY_LENGTH) {
                 sb.insert(0, "0");
             }
             return sb.toString();
         }
-
-        @Override
-        public boolean equals(final Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-
-            final Position position = (Position) o;
-
-            return bigInt.equals(position.bigInt);
-        }
-
-        @Override
-        public int hashCode() {
-            return bigInt.hashCode();
-        }
     }
 
+    /**
+     * Values occupy the positions from {@code tailPosition} (the last value) up to but not including
+     * {@code headPosition} (one past the first value), so the size is always {@code headPosition - tailPosition}.
+     * <p>
+     * The checkpoint is written before any change that would move the boundaries more than
+     * {@link #CHECKPOINT_INTERVAL} positions away from the previous checkpoint, so at startup each boundary is
+     * within that distance of the stored checkpoint.
+     */
     private static class InternalQueue {
+        private static final int CHECKPOINT_INTERVAL = 1000;
+
         private final LocalDB localDB;
         private final LocalDB.DB DB;
-        private volatile Position headPosition;
-        private volatile Position tailPosition;
+        private volatile long headPosition = INITIAL_POSITION;
+        private volatile long tailPosition = INITIAL_POSITION;
+        private int changesSinceCheckpoint;
         private boolean developerDebug = false;
         private static final int DEBUG_MAX_ROWS = 50;
         private static final int DEBUG_MAX_WIDTH = 120;
@@ -537,44 +549,33 @@ public class
 
         private void init()
                 throws LocalDBException {
-            if (!checkVersion()) {
+            final String storedVersion = localDB.get(DB, KEY_VERSION);
+            if (VALUE_VERSION.equals(storedVersion)) {
+                recover();
+            } else if (VALUE_LEGACY_VERSION.equals(storedVersion)) {
+                migrateLegacyQueue();
+            } else {
+                if (storedVersion != null) {
+                    LOGGER.warn("values in db " + DB + " use an outdated format, the stored events will be purged!");
+                }
                 clear();
             }
 
-            final String headPositionStr = localDB.get(DB, KEY_HEAD_POSITION);
-            final String tailPositionStr = localDB.get(DB, KEY_TAIL_POSITION);
-
-            headPosition = headPositionStr != null && headPositionStr.length() > 0 ? new Position(headPositionStr) : new Position("0");
-            tailPosition = tailPositionStr != null && tailPositionStr.length() > 0 ? new Position(tailPositionStr) : new Position("0");
-
-            LOGGER.trace("loaded for db " + DB + "; headPosition=" + headPosition + ", tailPosition=" + tailPosition + ", size=" + this.size());
-
-            repair();
+            LOGGER.trace("loaded for db " + DB + "; headPosition=" + positionKey(headPosition) + ", tailPosition=" + positionKey(tailPosition) + ", size=" + this.size());
 
             debugOutput("post init()");
         }
 
-        private boolean checkVersion() throws LocalDBException {
-            final String storedVersion = localDB.get(DB, KEY_VERSION);
-            if (storedVersion == null || !VALUE_VERSION.equals(storedVersion)) {
-                LOGGER.warn("values in db " + DB + " use an outdated format, the stored events will be purged!");
-                return false;
-            }
-            return true;
-        }
-
         public void clear()
                 throws LocalDBException {
             try {
                 LOCK.writeLock().lock();
                 localDB.truncate(DB);
 
-                headPosition = new Position("0");
-                tailPosition = new Position("0");
-                localDB.put(DB, KEY_HEAD_POSITION, headPosition.toString());
-                localDB.put(DB, KEY_TAIL_POSITION, tailPosition.toString());
-
+                headPosition = INITIAL_POSITION;
+                tailPosition = INITIAL_POSITION;
                 localDB.put(DB, KEY_VERSION, VALUE_VERSION);
+                writeCheckpoint();
 
                 debugOutput("post clear()");
             } finally {
@@ -582,24 +583,9 @@ public class
             }
         }
 
-        public int size()
-                throws LocalDBException
-        {
-            try {
-                LOCK.readLock().lock();
-                return internalSize();
-            } finally {
-                LOCK.readLock().unlock();
-            }
-        }
-
-        private int internalSize()
-                throws LocalDBException
-        {
-            if (headPosition.equals(tailPosition) && localDB.get(DB, headPosition.toString()) == null) {
-                return 0;
-            }
-            return tailPosition.distanceToHead(headPosition).intValue() + 1;
+        public int size() {
+            final long size = headPosition - tailPosition;
+            return size < 0 ? 0 : (int) Math.min(size, Integer.MAX_VALUE);
         }
 
         public List<String> removeFirst(final int removalCount) throws LocalDBException {
@@ -608,26 +594,20 @@ public class
 
                 debugOutput("pre removeFirst()");
 
-                if (removalCount < 1) {
-                    Collections.emptyList();
-                }
-
-                final List<String> removalKeys = new ArrayList<>();
                 final List<String> removedValues = new ArrayList<>();
-                Position previousHead = headPosition;
-                int removedPositions = 0;
-                while (removedPositions < removalCount) {
-                    removalKeys.add(previousHead.toString());
-                    final String loopValue = localDB.get(DB, previousHead.toString());
-                    if (loopValue != null) {
-                        removedValues.add(loopValue);
+                int remaining = Math.min(removalCount, size());
+                while (remaining > 0) {
+                    final int chunkSize = Math.min(remaining, CHECKPOINT_INTERVAL);
+                    beforeChange(chunkSize);
+                    final List<String> removalKeys = new ArrayList<>();
+                    for (int i = 1; i <= chunkSize; i++) {
+                        removalKeys.add(positionKey(headPosition - i));
                     }
-                    previousHead = previousHead.equals(tailPosition) ? previousHead : previousHead.previous();
-                    removedPositions++;
+                    readValues(removalKeys, removedValues);
+                    localDB.removeAll(DB, removalKeys);
+                    headPosition = headPosition - chunkSize;
+                    remaining -= chunkSize;
                 }
-                localDB.removeAll(DB, removalKeys);
-                localDB.put(DB, KEY_HEAD_POSITION, previousHead.toString());
-                headPosition = previousHead;
 
                 debugOutput("post removeFirst()");
                 return Collections.unmodifiableList(removedValues);
@@ -642,26 +622,20 @@ public class
 
                 debugOutput("pre removeLast()");
 
-                if (removalCount < 1) {
-                    Collections.emptyList();
-                }
-
-                final List<String> removalKeys = new ArrayList<>();
                 final List<String> removedValues = new ArrayList<>();
-                Position nextTail = tailPosition;
-                int removedPositions = 0;
-                while (removedPositions < removalCount) {
-                    removalKeys.add(nextTail.toString());
-                    final String loopValue = localDB.get(DB, nextTail.toString());
-                    if (loopValue != null) {
-                        removedValues.add(loopValue);
+                int remaining = Math.min(removalCount, size());
+                while (remaining > 0) {
+                    final int chunkSize = Math.min(remaining, CHECKPOINT_INTERVAL);
+                    beforeChange(chunkSize);
+                    final List<String> removalKeys = new ArrayList<>();
+                    for (int i = 0; i < chunkSize; i++) {
+                        removalKeys.add(positionKey(tailPosition + i));
                     }
-                    nextTail = nextTail.equals(headPosition) ? nextTail : nextTail.next();
-                    removedPositions++;
+                    readValues(removalKeys, removedValues);
+                    localDB.removeAll(DB, removalKeys);
+                    tailPosition = tailPosition + chunkSize;
+                    remaining -= chunkSize;
                 }
-                localDB.removeAll(DB, removalKeys);
-                localDB.put(DB, KEY_TAIL_POSITION, nextTail.toString());
-                tailPosition = nextTail;
 
                 debugOutput("post removeLast()");
                 return Collections.unmodifiableList(removedValues);
@@ -681,28 +655,23 @@ public class
                     return;
                 }
 
-                if (internalSize() + values.size() > MAX_SIZE) {
+                if ((long) size() + values.size() > MAX_SIZE) {
                     throw new IllegalStateException("queue overflow");
                 }
 
                 final Iterator<String> valueIterator = values.iterator();
-
-                final Map<String, String> keyValueMap = new HashMap<>();
-                Position nextHead = headPosition;
-
-                if (internalSize() == 0) {
-                    keyValueMap.put(nextHead.toString(), valueIterator.next());
-                }
-
                 while (valueIterator.hasNext()) {
-                    nextHead = nextHead.next();
-                    keyValueMap.put(nextHead.toString(), valueIterator.next());
+                    final Map<String, String> keyValueMap = new HashMap<>();
+                    long nextHead = headPosition;
+                    while (valueIterator.hasNext() && keyValueMap.size() < CHECKPOINT_INTERVAL) {
+                        keyValueMap.put(positionKey(nextHead), valueIterator.next());
+                        nextHead++;
+                    }
+                    beforeChange(keyValueMap.size());
+                    localDB.putAll(DB, keyValueMap);
+                    headPosition = nextHead;
                 }
 
-                localDB.putAll(DB, keyValueMap);
-                localDB.put(DB, KEY_HEAD_POSITION, String.valueOf(nextHead));
-                headPosition = nextHead;
-
                 debugOutput("post addFirst()");
             } finally {
                 LOCK.writeLock().unlock();
@@ -717,55 +686,43 @@ public class
                     return;
                 }
 
-                if (internalSize() + values.size() > MAX_SIZE) {
+                if ((long) size() + values.size() > MAX_SIZE) {
                     throw new IllegalStateException("queue overflow");
                 }
 
                 final Iterator<String> valueIterator = values.iterator();
-
-                final Map<String, String> keyValueMap = new HashMap<>();
-                Position nextTail = tailPosition;
-
-                if (internalSize() == 0) {
-                    keyValueMap.put(nextTail.toString(), valueIterator.next());
-                }
-
                 while (valueIterator.hasNext()) {
-                    nextTail = nextTail.previous();
-                    keyValueMap.put(nextTail.toString(), valueIterator.next());
+                    final Map<String, String> keyValueMap = new HashMap<>();
+                    long nextTail = tailPosition;
+                    while (valueIterator.hasNext() && keyValueMap.size() < CHECKPOINT_INTERVAL) {
+                        nextTail--;
+                        keyValueMap.put(positionKey(nextTail), valueIterator.next());
+                    }
+                    beforeChange(keyValueMap.size());
+                    localDB.putAll(DB, keyValueMap);
+                    tailPosition = nextTail;
                 }
 
-                localDB.putAll(DB, keyValueMap);
-                localDB.put(DB, KEY_TAIL_POSITION, String.valueOf(nextTail));
-                tailPosition = nextTail;
-
                 debugOutput("post addLast()");
             } finally {
                 LOCK.writeLock().unlock();
             }
         }
 
-        public List<String> getFirst(int getCount)
+        public List<String> getFirst(final int getCount)
                 throws LocalDBException {
             try {
                 LOCK.readLock().lock();
                 debugOutput("pre getFirst()");
 
-                if (getCount < 1) {
-                    return Collections.emptyList();
-                }
-
-                if (getCount > internalSize()) {
-                    getCount = internalSize();
+                final List<String> keys = new ArrayList<>();
+                final int count = Math.min(getCount, size());
+                for (int i = 1; i <= count; i++) {
+                    keys.add(positionKey(headPosition - i));
                 }
 
                 final List<String> returnList = new ArrayList<>();
-
-                Position nextHead = headPosition;
-                while (returnList.size() < getCount) {
-                    returnList.add(localDB.get(DB, nextHead.toString()));
-                    nextHead = nextHead.previous();
-                }
+                readValues(keys, returnList);
 
                 debugOutput("post getFirst()");
 
@@ -775,28 +732,21 @@ public class
             }
         }
 
-        public List<String> getLast(int getCount)
+        public List<String> getLast(final int getCount)
                 throws LocalDBException {
             try {
                 LOCK.readLock().lock();
 
                 debugOutput("pre getLast()");
 
-                if (getCount < 1) {
-                    return Collections.emptyList();
-                }
-
-                if (getCount > internalSize()) {
-                    getCount = internalSize();
+                final List<String> keys = new ArrayList<>();
+                final int count = Math.min(getCount, size());
+                for (int i = 0; i < count; i++) {
+                    keys.add(positionKey(tailPosition + i));
                 }
 
                 final List<String> returnList = new ArrayList<>();
-
-                Position nextTail = tailPosition;
-                while (returnList.size() < getCount) {
-                    returnList.add(localDB.get(DB, nextTail.toString()));
-                    nextTail = nextTail.next();
-                }
+                readValues(keys, returnList);
 
                 debugOutput("post getLast()");
 
@@ -806,6 +756,174 @@ public class
             }
         }
 
+        private void readValues(final List<String> keys, final List<String> output)
+                throws LocalDBException
+        {
+            if (keys.isEmpty()) {
+                return;
+            }
+            final Map<String, String> values = localDB.getAll(DB, keys);
+            for (final String key : keys) {
+                final String value = values.get(key);
+                if (value != null) {
+                    output.add(value);
+                }
+            }
+        }
+
+        private void beforeChange(final int changeCount)
+                throws LocalDBException
+        {
+            if (changesSinceCheckpoint + changeCount > CHECKPOINT_INTERVAL) {
+                writeCheckpoint();
+            }
+            changesSinceCheckpoint += changeCount;
+        }
+
+        private void writeCheckpoint()
+                throws LocalDBException
+        {
+            localDB.put(DB, KEY_CHECKPOINT, checkpointValue(tailPosition, headPosition));
+            changesSinceCheckpoint = 0;
+        }
+
+        private static String checkpointValue(final long tailPosition, final long headPosition) {
+            return tailPosition + ":" + headPosition;
+        }
+
+        /**
+         * Locate the boundaries from the checkpoint.  Each boundary has moved at most {@link #CHECKPOINT_INTERVAL}
+         * positions since the checkpoint was written, so both the first and last values, if any, are found within
+         * that distance of their checkpointed position.
+         */
+        private void recover() throws LocalDBException {
+            final String checkpoint = localDB.get(DB, KEY_CHECKPOINT);
+            if (checkpoint == null || !checkpoint.contains(":")) {
+                LOGGER.warn("missing queue checkpoint for db " + DB + ", the stored events will be purged!");
+                clear();
+                return;
+            }
+
+            final long checkpointTail = Long.parseLong(checkpoint.substring(0, checkpoint.indexOf(':')));
+            final long checkpointHead = Long.parseLong(checkpoint.substring(checkpoint.indexOf(':') + 1));
+
+            final SortedSet<Long> candidatePositions = new TreeSet<>();
+            for (long position = checkpointHead - CHECKPOINT_INTERVAL - 1; position <= checkpointHead + CHECKPOINT_INTERVAL; position++) {
+                candidatePositions.add(position);
+            }
+            for (long position = checkpointTail - CHECKPOINT_INTERVAL; position <= checkpointTail + CHECKPOINT_INTERVAL; position++) {
+                candidatePositions.add(position);
+            }
+
+            long lowestFound = Long.MAX_VALUE;
+            long highestFound = Long.MIN_VALUE;
+            final List<Long> positions = new ArrayList<>(candidatePositions);
+            for (int i = 0; i < positions.size(); i += CHECKPOINT_INTERVAL) {
+                final List<String> keys = new ArrayList<>();
+                for (final Long position : positions.subList(i, Math.min(positions.size(), i + CHECKPOINT_INTERVAL))) {
+                    keys.add(positionKey(position));
+                }
+                final Map<String, String> values = localDB.getAll(DB, keys);
+                for (final Long position : positions.subList(i, Math.min(positions.size(), i + CHECKPOINT_INTERVAL))) {
+                    if (values.get(positionKey(position)) != null) {
+                        lowestFound = Math.min(lowestFound, position);
+                        highestFound = Math.max(highestFound, position);
+                    }
+                }
+            }
+
+            if (highestFound == Long.MIN_VALUE) {
+                headPosition = checkpointHead;
+                tailPosition = checkpointHead;
+            } else {
+                headPosition = highestFound + 1;
+                tailPosition = lowestFound;
+            }
+
+            if (headPosition != checkpointHead || tailPosition != checkpointTail) {
+                LOGGER.debug("recovered db " + DB + " queue boundaries from checkpoint, head moved " + (headPosition - checkpointHead)
+                        + ", tail moved " + (tailPosition - checkpointTail));
+                writeCheckpoint();
+            }
+        }
+
+        /**
+         * Copy values stored by the previous {@code BigInteger} position format into the current format, oldest first.
+         * Each chunk is written together with the checkpoint and the advanced legacy tail, so an interrupted migration
+         * resumes where it stopped.
+         */
+        private void migrateLegacyQueue() throws LocalDBException {
+            final long startTime = System.currentTimeMillis();
+            final String checkpoint = localDB.get(DB, KEY_CHECKPOINT);
+            if (checkpoint != null && checkpoint.contains(":")) {
+                tailPosition = Long.parseLong(checkpoint.substring(0, checkpoint.indexOf(':')));
+                headPosition = Long.parseLong(checkpoint.substring(checkpoint.indexOf(':') + 1));
+            }
+
+            final long legacyHead = LegacyPosition.parse(localDB.get(DB, KEY_LEGACY_HEAD_POSITION));
+            long legacyPosition = LegacyPosition.parse(localDB.get(DB, KEY_LEGACY_TAIL_POSITION));
+            long legacyRemaining = legacyHead == legacyPosition && localDB.get(DB, LegacyPosition.key(legacyHead)) == null
+                    ? 0
+                    : LegacyPosition.distance(legacyPosition, legacyHead) + 1;
+
+            LOGGER.info("migrating " + legacyRemaining + " values in db " + DB + " to current queue format");
+
+            int migratedCount = 0;
+            do {
+                final List<String> legacyKeys = new ArrayList<>();
+                while (legacyRemaining > 0 && legacyKeys.size() < CHECKPOINT_INTERVAL) {
+                    legacyKeys.add(LegacyPosition.key(legacyPosition));
+                    legacyPosition = LegacyPosition.next(legacyPosition);
+                    legacyRemaining--;
+                }
+
+                final List<String> values = new ArrayList<>();
+                readValues(legacyKeys, values);
+                final Map<String, String> keyValueMap = new HashMap<>();
+                long nextHead = headPosition;
+                for (final String value : values) {
+                    keyValueMap.put(positionKey(nextHead), value);
+                    nextHead++;
+                }
+                keyValueMap.put(KEY_CHECKPOINT, checkpointValue(tailPosition, nextHead));
+                if (legacyRemaining > 0) {
+                    keyValueMap.put(KEY_LEGACY_TAIL_POSITION, LegacyPosition.key(legacyPosition));
+                } else {
+                    keyValueMap.put(KEY_VERSION, VALUE_VERSION);
+                }
+                localDB.putAll(DB, keyValueMap);
+                if (!legacyKeys.isEmpty()) {
+                    localDB.removeAll(DB, legacyKeys);
+                }
+                headPosition = nextHead;
+                migratedCount += values.size();
+            } while (legacyRemaining > 0);
+            changesSinceCheckpoint = 0;
+
+            // remove the legacy meta keys and any legacy value orphaned by an interrupted migration
+            final List<String> legacyKeys = new ArrayList<>();
+            legacyKeys.add(KEY_LEGACY_HEAD_POSITION);
+            legacyKeys.add(KEY_LEGACY_TAIL_POSITION);
+            LocalDB.LocalDBIterator<String> keyIter = null;
+            try {
+                keyIter = localDB.iterator(DB);
+                while (keyIter.hasNext()) {
+                    final String key = keyIter.next();
+                    if (key.length() == LegacyPosition.KEY_LENGTH) {
+                        legacyKeys.add(key);
+                    }
+                }
+            } finally {
+                if (keyIter != null) {
+                    keyIter.close();
+                }
+            }
+            localDB.removeAll(DB, legacyKeys);
+
+            LOGGER.info("migrated " + migratedCount + " values in db " + DB + " to current queue format in "
+                    + TimeDuration.fromCurrent(startTime).asCompactString());
+        }
+
         public void debugOutput(final String input) {
             if (!developerDebug || DEBUG_IGNORED_DBs.contains(DB)) {
                 return;
@@ -814,8 +932,8 @@ public class
             final StringBuilder sb = new StringBuilder();
             try {
                 sb.append(input);
-                sb.append("  tailPosition=").append(tailPosition).append(", headPosition=").append(headPosition).append(", db=").append(DB);
-                sb.append(", size=").append(internalSize()).append("\n");
+                sb.append("  tailPosition=").append(positionKey(tailPosition)).append(", headPosition=").append(positionKey(headPosition)).append(", db=").append(DB);
+                sb.append(", size=").append(size()).append("\n");
 
                 LocalDB.LocalDBIterator<String> keyIter = null;
                 try {
@@ -843,38 +961,5 @@ public class
 
             LOGGER.trace(sb.toString());
         }
-
-        private void repair() throws LocalDBException {
-            int headTrim = 0, tailTrim = 0;
-
-            debugOutput("pre repair()");
-
-            // trim the top.
-            while (!headPosition.equals(tailPosition) && localDB.get(DB,headPosition.toString()) == null) {
-                headPosition = headPosition.previous();
-                localDB.put(DB, KEY_HEAD_POSITION, headPosition.toString());
-                headTrim++;
-            }
-
-            // trim the bottom.
-            while (!headPosition.equals(tailPosition) && localDB.get(DB,tailPosition.toString()) == null) {
-                tailPosition = tailPosition.next();
-                localDB.put(DB, KEY_TAIL_POSITION, tailPosition.toString());
-                tailTrim++;
-            }
-
-            if (tailTrim == 0 && headTrim == 0) {
-                LOGGER.trace("repair unnecessary for " + DB);
-            } else {
-                if (headTrim > 0) {
-                    LOGGER.warn("trimmed " + headTrim + " from head position against database " + DB);
-                }
-
-                if (tailTrim > 0) {
-                    LOGGER.warn("trimmed " + tailTrim + " from tail position against database " + DB);
-                }
-            }
-
-        }
     }
 }
@@ -277,7 +277,7 @@ public class LocalDBUtility {
                 if (rawValue != null) {
                     totalValues++;
                     storedChars += rawValue.length();
-                    if (rawValue.startsWith(LocalDBCompressor.COMPRESS_PREFIX)) {
+                    if (compressorLocalDB.isCompressed(rawValue)) {
                         compressedValues++;
 
                         final String uncompressedValue = compressorLocalDB.get(db, key);
@@ -0,0 +1,611 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.localdb;
+
+import password.pwm.PwmConstants;
+import password.pwm.util.StringUtil;
+import password.pwm.util.logging.PwmLogger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Converts LocalDB values to and from a compact stored form.  Each codec marks the values it produces with its own
+ * prefix so values written by different codecs, including the original {@code c!} GZIP+Base64 values, can be read
+ * regardless of which codec is currently configured.
+ * <p/>
+ * Releases before the codecs were introduced can only read the {@code c!} format, so {@link Type#GZIP} remains the
+ * default and switching to any other codec is a one-way change for the LocalDB files.
+ * <p/>
+ * LocalDB values are strings, so the binary codecs pack their output seven bits per character.  Characters below
+ * 0x80 take a single byte in the Berkeley and JDBC providers, which makes this noticeably denser than Base64.
+ */
+abstract class LocalDBValueCodec {
+
+    private static final PwmLogger LOGGER = PwmLogger.forClass(LocalDBValueCodec.class);
+
+    enum Type {
+        GZIP,
+        DEFLATE,
+        LZ,
+        DEFLATE_DICTIONARY,
+    }
+
+    private final String prefix;
+
+    LocalDBValueCodec(final String prefix) {
+        this.prefix = prefix;
+    }
+
+    String getPrefix() {
+        return prefix;
+    }
+
+    boolean isEncodedBy(final String storedValue) {
+        return storedValue.startsWith(prefix);
+    }
+
+    /**
+     * @param db    database the value belongs to
+     * @param value value to encode
+     * @return the stored form of the value, or null if encoding does not make the value smaller
+     * @throws IOException if the value can not be encoded
+     */
+    abstract String encode(LocalDB.DB db, String value) throws IOException;
+
+    abstract String decode(LocalDB.DB db, String storedValue) throws IOException;
+
+    static LocalDBValueCodec forType(final Type type, final LocalDB innerLocalDB, final Set<LocalDB.DB> dictionaryDBs) {
+        switch (type) {
+            case GZIP:
+                return new GzipCodec();
+            case DEFLATE:
+                return new DeflateCodec();
+            case LZ:
+                return new LzCodec();
+            case DEFLATE_DICTIONARY:
+                return new DictionaryCodec(innerLocalDB, dictionaryDBs);
+            default:
+                throw new IllegalArgumentException("unknown codec type " + type);
+        }
+    }
+
+// -------------------------- CODECS --------------------------
+
+    /**
+     * The original GZIP + Base64 format.
+     */
+    static class GzipCodec extends LocalDBValueCodec {
+        GzipCodec() {
+            super("c!");
+        }
+
+        String encode(final LocalDB.DB db, final String value) throws IOException {
+            final String compressedValue = StringUtil.base64Encode(value.getBytes(PwmConstants.DEFAULT_CHARSET), StringUtil.Base64Options.GZIP);
+            return compressedValue.length() < value.length() ? getPrefix() + compressedValue : null;
+        }
+
+        String decode(final LocalDB.DB db, final String storedValue) throws IOException {
+            final String compressedValue = storedValue.substring(getPrefix().length());
+            return new String(StringUtil.base64Decode(compressedValue, StringUtil.Base64Options.GZIP), PwmConstants.DEFAULT_CHARSET);
+        }
+    }
+
+    /**
+     * Raw deflate without GZIP framing, re-using a deflater per thread.
+     */
+    static class DeflateCodec extends LocalDBValueCodec {
+        DeflateCodec() {
+            this("c1!");
+        }
+
+        DeflateCodec(final String prefix) {
+            super(prefix);
+        }
+
+        String encode(final LocalDB.DB db, final String value) throws IOException {
+            final byte[] input = value.getBytes(PwmConstants.DEFAULT_CHARSET);
+            return packIfSmaller(getPrefix(), deflate(input, null), value);
+        }
+
+        String decode(final LocalDB.DB db, final String storedValue) throws IOException {
+            return new String(inflate(unpack(storedValue, getPrefix().length()), null), PwmConstants.DEFAULT_CHARSET);
+        }
+    }
+
+    /**
+     * Deflate with a preset dictionary built from sample values of each database.  Until a database has a
+     * dictionary its values are written using the plain {@link DeflateCodec}.
+     * <p/>
+     * Dictionaries are kept in {@link LocalDB.DB#PWM_META} and are never replaced once in use, since values
+     * reference them by id.  A dictionary is a long-lived copy of the sampled values, so dictionaries are only trained
+     * for the databases listed in {@code localdb.compression.dictionaryDBs}, and never for databases holding user data.
+     */
+    static class DictionaryCodec extends LocalDBValueCodec {
+        static final Set<LocalDB.DB> SENSITIVE_DBS = Collections.unmodifiableSet(EnumSet.of(
+                LocalDB.DB.PWM_META,
+                LocalDB.DB.SHAREDHISTORY_WORDS,
+                LocalDB.DB.EVENTLOG_EVENTS,
+                LocalDB.DB.EVENTLOG_SEGMENTS,
+                LocalDB.DB.EMAIL_QUEUE,
+                LocalDB.DB.SMS_QUEUE,
+                LocalDB.DB.SYSLOG_QUEUE,
+                LocalDB.DB.RESPONSE_STORAGE,
+                LocalDB.DB.OTP_SECRET,
+                LocalDB.DB.TOKENS,
+                LocalDB.DB.TOKEN_EXPIRY,
+                LocalDB.DB.INTRUDER,
+                LocalDB.DB.AUDIT_EVENTS,
+                LocalDB.DB.USER_CACHE,
+                LocalDB.DB.REPORT_QUEUE,
+                LocalDB.DB.CACHE,
+                LocalDB.DB.TEMP
+        ));
+
+        private static final int SAMPLE_COUNT = 32;
+        private static final int MAX_SAMPLE_SIZE = 2 * 1024;
+        private static final int DICTIONARY_SIZE = 16 * 1024;
+        private static final String KEY_ACTIVE_DICTIONARY = "LocalDBCompressor.activeDictionary.";
+        private static final String KEY_DICTIONARY = "LocalDBCompressor.dictionary.";
+
+        private final LocalDB innerLocalDB;
+        private final Set<LocalDB.DB> dictionaryDBs = EnumSet.noneOf(LocalDB.DB.class);
+        private final DeflateCodec deflateCodec = new DeflateCodec();
+        private final Map<String, byte[]> dictionaries = new ConcurrentHashMap<>();
+        private final Map<LocalDB.DB, DictionaryTrainer> trainers = new ConcurrentHashMap<>();
+
+        DictionaryCodec(final LocalDB innerLocalDB, final Set<LocalDB.DB> dictionaryDBs) {
+            super("c3!");
+            this.innerLocalDB = innerLocalDB;
+            if (dictionaryDBs != null) {
+                this.dictionaryDBs.addAll(dictionaryDBs);
+                this.dictionaryDBs.removeAll(SENSITIVE_DBS);
+            }
+        }
+
+        String encode(final LocalDB.DB db, final String value) throws IOException {
+            if (!dictionaryDBs.contains(db)) {
+                return deflateCodec.encode(db, value);
+            }
+
+            final DictionaryTrainer trainer = trainerFor(db);
+            final String dictionaryID = trainer.activeDictionaryID;
+            if (dictionaryID == null) {
+                trainer.addSample(value.getBytes(PwmConstants.DEFAULT_CHARSET));
+                return deflateCodec.encode(db, value);
+            }
+
+            final byte[] input = value.getBytes(PwmConstants.DEFAULT_CHARSET);
+            return packIfSmaller(getPrefix() + dictionaryID + "!", deflate(input, readDictionary(dictionaryID)), value);
+        }
+
+        boolean isEncodedBy(final String storedValue) {
+            return super.isEncodedBy(storedValue) || deflateCodec.isEncodedBy(storedValue);
+        }
+
+        String decode(final LocalDB.DB db, final String storedValue) throws IOException {
+            if (deflateCodec.isEncodedBy(storedValue)) {
+                return deflateCodec.decode(db, storedValue);
+            }
+
+            final int idEnd = storedValue.indexOf('!', getPrefix().length());
+            if (idEnd < 0) {
+                throw new IOException("stored value is missing dictionary id");
+            }
+            final String dictionaryID = storedValue.substring(getPrefix().length(), idEnd);
+            return new String(inflate(unpack(storedValue, idEnd + 1), readDictionary(dictionaryID)), PwmConstants.DEFAULT_CHARSET);
+        }
+
+        private byte[] readDictionary(final String dictionaryID) throws IOException {
+            byte[] dictionary = dictionaries.get(dictionaryID);
+            if (dictionary == null) {
+                final String storedDictionary;
+                try {
+                    storedDictionary = innerLocalDB.get(LocalDB.DB.PWM_META, KEY_DICTIONARY + dictionaryID);
+                } catch (LocalDBException e) {
+                    throw new IOException("unable to read compression dictionary " + dictionaryID + ": " + e.getMessage());
+                }
+                if (storedDictionary == null) {
+                    throw new IOException("compression dictionary " + dictionaryID + " is missing");
+                }
+                dictionary = StringUtil.base64Decode(storedDictionary);
+                dictionaries.put(dictionaryID, dictionary);
+            }
+            return dictionary;
+        }
+
+        private DictionaryTrainer trainerFor(final LocalDB.DB db) {
+            DictionaryTrainer trainer = trainers.get(db);
+            if (trainer == null) {
+                synchronized (trainers) {
+                    trainer = trainers.get(db);
+                    if (trainer == null) {
+                        trainer = new DictionaryTrainer(db);
+                        trainers.put(db, trainer);
+                    }
+                }
+            }
+            return trainer;
+        }
+
+        private class DictionaryTrainer {
+            private final LocalDB.DB db;
+            private final List<byte[]> samples = new ArrayList<>();
+            private volatile String activeDictionaryID;
+            private boolean trainingEnabled = true;
+
+            private DictionaryTrainer(final LocalDB.DB db) {
+                this.db = db;
+                try {
+                    activeDictionaryID = innerLocalDB.get(LocalDB.DB.PWM_META, KEY_ACTIVE_DICTIONARY + db);
+                } catch (LocalDBException e) {
+                    LOGGER.warn("unable to read active compression dictionary for " + db + ": " + e.getMessage());
+                    trainingEnabled = false;
+                }
+            }
+
+            private synchronized void addSample(final byte[] value) {
+                if (!trainingEnabled || activeDictionaryID != null) {
+                    return;
+                }
+
+                final int sampleLength = Math.min(value.length, MAX_SAMPLE_SIZE);
+                final byte[] sample = new byte[sampleLength];
+                System.arraycopy(value, 0, sample, 0, sampleLength);
+                samples.add(sample);
+
+                if (samples.size() >= SAMPLE_COUNT) {
+                    trainingEnabled = false;
+                    try {
+                        activeDictionaryID = storeDictionary(buildDictionary());
+                        LOGGER.debug("created compression dictionary " + activeDictionaryID + " for " + db);
+                    } catch (Exception e) {
+                        LOGGER.warn("unable to store compression dictionary for " + db + ": " + e.getMessage());
+                    }
+                    samples.clear();
+                }
+            }
+
+            /**
+             * Deflate favours matches near the end of the dictionary, so the most recent samples are placed last.
+             */
+            private byte[] buildDictionary() {
+                final ByteArrayOutputStream dictionary = new ByteArrayOutputStream(DICTIONARY_SIZE);
+                int startSample = samples.size();
+                int length = 0;
+                while (startSample > 0 && length + samples.get(startSample - 1).length <= DICTIONARY_SIZE) {
+                    startSample--;
+                    length += samples.get(startSample).length;
+                }
+                for (int i = startSample; i < samples.size(); i++) {
+                    dictionary.write(samples.get(i), 0, samples.get(i).length);
+                }
+                return dictionary.toByteArray();
+            }
+
+            private String storeDictionary(final byte[] dictionary) throws LocalDBException {
+                final CRC32 crc32 = new CRC32();
+                crc32.update(dictionary);
+                final String dictionaryID = Long.toString(crc32.getValue(), 36) + Integer.toString(dictionary.length, 36);
+                innerLocalDB.put(LocalDB.DB.PWM_META, KEY_DICTIONARY + dictionaryID, StringUtil.base64Encode(dictionary));
+                innerLocalDB.put(LocalDB.DB.PWM_META, KEY_ACTIVE_DICTIONARY + db, dictionaryID);
+                dictionaries.put(dictionaryID, dictionary);
+                return dictionaryID;
+            }
+        }
+    }
+
+    /**
+     * A byte-oriented LZ77 block format in the style of LZ4: sequences of literal runs followed by back references,
+     * found with a single-probe hash table.  Much faster than deflate at a lower compression ratio.
+     */
+    static class LzCodec extends LocalDBValueCodec {
+        private static final int MIN_MATCH = 4;
+        private static final int MAX_OFFSET = 0xFFFF;
+        private static final int HASH_BITS = 12;
+        private static final int LAST_LITERALS = 5;
+
+        LzCodec() {
+            super("c2!");
+        }
+
+        String encode(final LocalDB.DB db, final String value) throws IOException {
+            return packIfSmaller(getPrefix(), compress(value.getBytes(PwmConstants.DEFAULT_CHARSET)), value);
+        }
+
+        String decode(final LocalDB.DB db, final String storedValue) throws IOException {
+            return new String(decompress(unpack(storedValue, getPrefix().length())), PwmConstants.DEFAULT_CHARSET);
+        }
+
+        static byte[] compress(final byte[] input) {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 2 + 16);
+            writeVarInt(output, input.length);
+
+            final int[] hashTable = new int[1 << HASH_BITS];
+            final int matchLimit = input.length - LAST_LITERALS;
+            int literalStart = 0;
+            int position = 0;
+
+            while (position + MIN_MATCH <= matchLimit) {
+                final int sequence = readInt(input, position);
+                final int hash = (sequence * 0x9E3779B1) >>> (32 - HASH_BITS);
+                final int candidate = hashTable[hash] - 1;
+                hashTable[hash] = position + 1;
+
+                if (candidate < 0 || position - candidate > MAX_OFFSET || readInt(input, candidate) != sequence) {
+                    position++;
+                    continue;
+                }
+
+                int matchLength = MIN_MATCH;
+                while (position + matchLength < matchLimit && input[candidate + matchLength] == input[position + matchLength]) {
+                    matchLength++;
+                }
+
+                writeSequence(output, input, literalStart, position - literalStart, position - candidate, matchLength);
+                position += matchLength;
+                literalStart = position;
+            }
+
+            writeSequence(output, input, literalStart, input.length - literalStart, 0, 0);
+            return output.toByteArray();
+        }
+
+        static byte[] decompress(final byte[] input) throws IOException {
+            final int[] readPosition = new int[]{0};
+            final int outputLength = readVarInt(input, readPosition);
+            final byte[] output = new byte[outputLength];
+            int inputPosition = readPosition[0];
+            int outputPosition = 0;
+
+            try {
+                while (true) {
+                    final int token = input[inputPosition++] & 0xFF;
+
+                    int literalLength = token >>> 4;
+                    if (literalLength == 15) {
+                        int extra;
+                        do {
+                            extra = input[inputPosition++] & 0xFF;
+                            literalLength += extra;
+                        } while (extra == 255);
+                    }
+                    System.arraycopy(input, inputPosition, output, outputPosition, literalLength);
+                    inputPosition += literalLength;
+                    outputPosition += literalLength;
+
+                    if (outputPosition >= outputLength) {
+                        break;
+                    }
+
+                    final int offset = (input[inputPosition] & 0xFF) | (input[inputPosition + 1] & 0xFF) << 8;
+                    inputPosition += 2;
+                    int matchLength = (token & 0x0F);
+                    if (matchLength == 15) {
+                        int extra;
+                        do {
+                            extra = input[inputPosition++] & 0xFF;
+                            matchLength += extra;
+                        } while (extra == 255);
+                    }
+                    matchLength += MIN_MATCH;
+
+                    if (offset == 0 || offset > outputPosition || outputPosition + matchLength > outputLength) {
+                        throw new IOException("corrupt compressed value");
+                    }
+                    for (int i = 0; i < matchLength; i++) {
+                        output[outputPosition] = output[outputPosition - offset];
+                        outputPosition++;
+                    }
+                }
+            } catch (ArrayIndexOutOfBoundsException e) {
+                throw new IOException("corrupt compressed value");
+            }
+            return output;
+        }
+
+        private static void writeSequence(
+                final ByteArrayOutputStream output,
+                final byte[] input,
+                final int literalStart,
+                final int literalLength,
+                final int offset,
+                final int matchLength
+        ) {
+            final int matchCode = matchLength == 0 ? 0 : matchLength - MIN_MATCH;
+            output.write((Math.min(literalLength, 15) << 4) | Math.min(matchCode, 15));
+            if (literalLength >= 15) {
+                writeLengthExtension(output, literalLength - 15);
+            }
+            output.write(input, literalStart, literalLength);
+            if (matchLength > 0) {
+                output.write(offset & 0xFF);
+                output.write((offset >>> 8) & 0xFF);
+                if (matchCode >= 15) {
+                    writeLengthExtension(output, matchCode - 15);
+                }
+            }
+        }
+
+        private static void writeLengthExtension(final ByteArrayOutputStream output, int length) {
+            while (length >= 255) {
+                output.write(255);
+                length -= 255;
+            }
+            output.write(length);
+        }
+
+        private static int readInt(final byte[] input, final int position) {
+            return (input[position] & 0xFF)
+                    | (input[position + 1] & 0xFF) << 8
+                    | (input[position + 2] & 0xFF) << 16
+                    | (input[position + 3] & 0xFF) << 24;
+        }
+    }
+
+// -------------------------- SHARED HELPERS --------------------------
+
+    private static final ThreadLocal<Deflater> DEFLATERS = new ThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        }
+    };
+
+    private static final ThreadLocal<Inflater> INFLATERS = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater(true);
+        }
+    };
+
+    static byte[] deflate(final byte[] input, final byte[] dictionary) {
+        final Deflater deflater = DEFLATERS.get();
+        deflater.reset();
+        if (dictionary != null) {
+            deflater.setDictionary(dictionary);
+        }
+        deflater.setInput(input);
+        deflater.finish();
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 2 + 16);
+        writeVarInt(output, input.length);
+        final byte[] buffer = new byte[Math.max(64, Math.min(input.length, 8 * 1024))];
+        while (!deflater.finished()) {
+            final int length = deflater.deflate(buffer);
+            output.write(buffer, 0, length);
+        }
+        return output.toByteArray();
+    }
+
+    static byte[] inflate(final byte[] input, final byte[] dictionary) throws IOException {
+        final int[] readPosition = new int[]{0};
+        final int outputLength = readVarInt(input, readPosition);
+        final byte[] output = new byte[outputLength];
+
+        final Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        if (dictionary != null) {
+            inflater.setDictionary(dictionary);
+        }
+        inflater.setInput(input, readPosition[0], input.length - readPosition[0]);
+        try {
+            int outputPosition = 0;
+            while (outputPosition < outputLength) {
+                final int length = inflater.inflate(output, outputPosition, outputLength - outputPosition);
+                if (length == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("compressed value is truncated");
+                }
+                outputPosition += length;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("corrupt compressed value: " + e.getMessage());
+        }
+        return output;
+    }
+
+    private static String packIfSmaller(final String prefix, final byte[] encodedBytes, final String value) {
+        final int packedLength = prefix.length() + (encodedBytes.length * 8 + 6) / 7;
+        if (packedLength >= value.length()) {
+            return null;
+        }
+        return pack(prefix, encodedBytes);
+    }
+
+    /**
+     * Pack bytes into characters seven bits at a time.  Every character is below 0x80.
+     */
+    static String pack(final String prefix, final byte[] bytes) {
+        final StringBuilder sb = new StringBuilder(prefix.length() + (bytes.length * 8 + 6) / 7);
+        sb.append(prefix);
+        int buffer = 0;
+        int bufferedBits = 0;
+        for (final byte b : bytes) {
+            buffer = (buffer << 8) | (b & 0xFF);
+            bufferedBits += 8;
+            while (bufferedBits >= 7) {
+                bufferedBits -= 7;
+                sb.append((char) ((buffer >>> bufferedBits) & 0x7F));
+            }
+            buffer &= (1 << bufferedBits) - 1;
+        }
+        if (bufferedBits > 0) {
+            sb.append((char) ((buffer << (7 - bufferedBits)) & 0x7F));
+        }
+        return sb.toString();
+    }
+
+    static byte[] unpack(final String packed, final int offset) throws IOException {
+        final int charCount = packed.length() - offset;
+        final byte[] bytes = new byte[charCount * 7 / 8];
+        int buffer = 0;
+        int bufferedBits = 0;
+        int byteIndex = 0;
+        for (int i = offset; i < packed.length(); i++) {
+            final char c = packed.charAt(i);
+            if (c > 0x7F) {
+                throw new IOException("invalid character in packed value");
+            }
+            buffer = (buffer << 7) | c;
+            bufferedBits += 7;
+            if (bufferedBits >= 8) {
+                bufferedBits -= 8;
+                if (byteIndex < bytes.length) {
+                    bytes[byteIndex++] = (byte) (buffer >>> bufferedBits);
+                }
+                buffer &= (1 << bufferedBits) - 1;
+            }
+        }
+        return bytes;
+    }
+
+    private static void writeVarInt(final ByteArrayOutputStream output, int value) {
+        while ((value & ~0x7F) != 0) {
+            output.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.write(value);
+    }
+
+    private static int readVarInt(final byte[] input, final int[] position) throws IOException {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            if (position[0] >= input.length || shift > 28) {
+                throw new IOException("corrupt compressed value header");
+            }
+            final int b = input[position[0]++] & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
@@ -29,17 +29,22 @@ import password.pwm.util.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
 import java.io.File;
-import java.io.IOException;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static password.pwm.util.localdb.LocalDB.DB;
 
 /**
+ * LocalDB provider backed by MapDB.
+ * <p/>
+ * Each {@link LocalDB.DB} is stored in its own MapDB tree, which is safe for concurrent use.  Reads therefore go
+ * directly to the tree without locking.  Writes are serialized per {@link LocalDB.DB} so that a bulk load of one
+ * database (for example the wordlist) does not block reads or writes of the others.  MapDB commits are store-wide,
+ * so the commit itself is serialized by a separate lock; a commit may include uncommitted writes of another database
+ * which are then simply made durable early.
+ *
  * @author Jason D. Rivard
  */
 public class MapDB_LocalDB implements LocalDBProvider {
@@ -48,18 +53,22 @@ public class MapDB_LocalDB implements LocalDBProvider {
     private static final PwmLogger LOGGER = PwmLogger.forClass(MapDB_LocalDB.class, true);
     private static final String FILE_NAME = "mapdb";
 
-    private org.mapdb.DB recman;
-    private final Map<LocalDB.DB, Map<String, String>> treeMap = new HashMap<>();
+    private volatile org.mapdb.DB recman;
+    private final Map<LocalDB.DB, ConcurrentMap<String, String>> treeMap = new EnumMap<>(LocalDB.DB.class);
     private File dbDirectory;
 
-    // operation lock
-    private final ReadWriteLock LOCK = new ReentrantReadWriteLock();
+    // per-db write locks; the lock of every db is held during open and close
+    private final Map<LocalDB.DB, Lock> dbLocks = new EnumMap<>(LocalDB.DB.class);
+    private final Lock commitLock = new ReentrantLock();
 
-    private LocalDB.Status status = LocalDB.Status.NEW;
+    private volatile LocalDB.Status status = LocalDB.Status.NEW;
 
 // --------------------------- CONSTRUCTORS ---------------------------
 
     MapDB_LocalDB() {
+        for (final LocalDB.DB db : LocalDB.DB.values()) {
+            dbLocks.put(db, new ReentrantLock());
+        }
     }
 
 // ------------------------ INTERFACE METHODS ------------------------
@@ -76,7 +85,7 @@ public class MapDB_LocalDB implements LocalDBProvider {
         }
 
         try {
-            LOCK.writeLock().lock();
+            lockAll();
             final long startTime = System.currentTimeMillis();
             LOGGER.debug("closing pwmDB");
             recman.commit();
@@ -87,7 +96,7 @@ public class MapDB_LocalDB implements LocalDBProvider {
             LOGGER.error("error while closing LocalDB: " + e.getMessage(), e);
             throw new LocalDBException(new ErrorInformation(PwmError.ERROR_LOCALDB_UNAVAILABLE,e.getMessage()));
         } finally {
-            LOCK.writeLock().unlock();
+            unlockAll();
         }
     }
 
@@ -98,24 +107,51 @@ public class MapDB_LocalDB implements LocalDBProvider {
     public boolean contains(final LocalDB.DB db, final String key)
             throws LocalDBException {
         try {
-            LOCK.readLock().lock();
-            return get(db, key) != null;
-        } finally {
-            LOCK.readLock().unlock();
+            return getHTree(db).containsKey(key);
+        } catch (RuntimeException e) {
+            throw new LocalDBException(new ErrorInformation(PwmError.ERROR_LOCALDB_UNAVAILABLE,e.getMessage()));
         }
     }
 
     public String get(final LocalDB.DB db, final String key)
             throws LocalDBException {
         try {
-            LOCK.readLock().lock();
-            final Map<String, String> tree = getHTree(db);
-            final Object value = tree.get(key);
+            final Object value = getHTree(db).get(key);
             return value == null ? null : value.toString();
-        } catch (IOException e) {
+        } catch (RuntimeException e) {
+            throw new LocalDBException(new ErrorInformation(PwmError.ERROR_LOCALDB_UNAVAILABLE,e.getMessage()));
+        }
+    }
+
+    public Map<String, String> getAll(final LocalDB.DB db, final Collection<String> keys)
+            throws LocalDBException {
+        try {
+            final Map<String, String> tree = getHTree(db);
+            final Map<String, String> returnMap = new LinkedHashMap<>();
+            for (final String key : keys) {
+                final Object value = tree.get(key);
+                if (value != null) {
+                    returnMap.put(key, value.toString());
+                }
+            }
+            return returnMap;
+        } catch (RuntimeException e) {
+            throw new LocalDBException(new ErrorInformation(PwmError.ERROR_LOCALDB_UNAVAILABLE,e.getMessage()));
+        }
+    }
+
+    public boolean containsAny(final LocalDB.DB db, final Collection<String> keys)
+            throws LocalDBException {
+        try {
+            final Map<String, String> tree = getHTree(db);
+            for (final String key : keys) {
+                if (tree.containsKey(key)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (RuntimeException e) {
             throw new LocalDBException(new ErrorInformation(PwmError.ERROR_LOCALDB_UNAVAILABLE,e.getMessage()));
-        } finally {
-            LOCK.readLock().unlock();
         }
     }
 
@@ -131,10 +167,13 @@ public class MapDB_LocalDB implements LocalDBProvider {
 
         final long startTime = System.currentTimeMillis();
         try {
-            LOCK.writeLock().lock();
+            lockAll();
             this.dbDirectory = dbDirectory;
             final File dbFile = new File(dbDirectory.getAbsolutePath() + File.separator + FILE_NAME);
             recman = DBMaker.newFileDB(dbFile).make();
+            for (final LocalDB.DB db : LocalDB.DB.values()) {
+                treeMap.put(db, openHTree(db.toString(), recman));
+            }
 
             LOGGER.info("LocalDB opened in " + TimeDuration.fromCurrent(startTime).asCompactString());
             status = LocalDB.Status.OPEN;
@@ -142,7 +181,7 @@ public class MapDB_LocalDB implements LocalDBProvider {
             LOGGER.error("error while opening localDB: " + e.getMessage(), e);
             throw new LocalDBException(new ErrorInformation(PwmError.ERROR_LOCALDB_UNAVAILABLE,e.getMessage()));
         } finally {
-            LOCK.writeLock().unlock();
+            unlockAll();
         }
     }
 
@@ -157,61 +196,86 @@ public class MapDB_LocalDB implements LocalDBProvider {
 
     public void putAll(final DB db, final Map<String, String> keyValueMap)
             throws LocalDBException {
+        final Lock writeLock = dbLocks.get(db);
         try {
-            LOCK.writeLock().lock();
+            writeLock.lock();
             final Map<String, String> tree = getHTree(db);
-            tree.putAll(keyValueMap);
-            recman.commit();
-        } catch (IOException e) {
-            recman.rollback();
+            final Map<String, String> previousValues = new HashMap<>();
+            try {
+                for (final Map.Entry<String, String> entry : keyValueMap.entrySet()) {
+                    final String previousValue = tree.put(entry.getKey(), entry.getValue());
+                    if (!previousValues.containsKey(entry.getKey())) {
+                        previousValues.put(entry.getKey(), previousValue);
+                    }
+                }
+                commit();
+            } catch (RuntimeException e) {
+                rollback(db, tree, previousValues);
+                throw new LocalDBException(new ErrorInformation(PwmError.ERROR_LOCALDB_UNAVAILABLE,e.getMessage()));
+            }
         } finally {
-            LOCK.writeLock().unlock();
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Restores the values replaced by a failed batch.  The store-wide {@code recman.rollback()} cannot be used once
+     * databases are written concurrently, it would also discard uncommitted writes made to other databases.
+     */
+    private void rollback(final LocalDB.DB db, final Map<String, String> tree, final Map<String, String> previousValues) {
+        try {
+            for (final Map.Entry<String, String> entry : previousValues.entrySet()) {
+                if (entry.getValue() == null) {
+                    tree.remove(entry.getKey());
+                } else {
+                    tree.put(entry.getKey(), entry.getValue());
+                }
+            }
+            commit();
+        } catch (RuntimeException e) {
+            LOGGER.error("error rolling back failed putAll on " + db + ": " + e.getMessage());
         }
     }
 
     public boolean put(final LocalDB.DB db, final String key, final String value)
             throws LocalDBException {
-        final boolean preExists;
+        final Lock writeLock = dbLocks.get(db);
         try {
-            LOCK.writeLock().lock();
-            preExists = remove(db, key);
+            writeLock.lock();
             final Map<String, String> tree = getHTree(db);
-            tree.put(key, value);
-            recman.commit();
-        } catch (IOException e) {
+            final boolean preExists = tree.put(key, value) != null;
+            commit();
+            return preExists;
+        } catch (RuntimeException e) {
             throw new LocalDBException(new ErrorInformation(PwmError.ERROR_LOCALDB_UNAVAILABLE,e.getMessage()));
         } finally {
-            LOCK.writeLock().unlock();
+            writeLock.unlock();
         }
-
-        return preExists;
     }
 
 
     public boolean remove(final LocalDB.DB db, final String key)
             throws LocalDBException {
+        final Lock writeLock = dbLocks.get(db);
         try {
-            LOCK.writeLock().lock();
+            writeLock.lock();
             final Map<String, String> tree = getHTree(db);
             final String removedValue = tree.remove(key);
-            recman.commit();
+            commit();
             return removedValue != null;
-        } catch (IOException e) {
+        } catch (RuntimeException e) {
             throw new LocalDBException(new ErrorInformation(PwmError.ERROR_LOCALDB_UNAVAILABLE,e.getMessage()));
         } finally {
-            LOCK.writeLock().unlock();
+            writeLock.unlock();
         }
     }
 
     public int size(final LocalDB.DB db)
             throws LocalDBException {
         try {
-            LOCK.readLock().lock();
             return getHTree(db).size();
-        } catch (IOException e) {
+        } catch (RuntimeException e) {
             throw new LocalDBException(new ErrorInformation(PwmError.ERROR_LOCALDB_UNAVAILABLE,e.getMessage()));
-        } finally {
-            LOCK.readLock().unlock();
         }
     }
 
@@ -223,15 +287,16 @@ public class MapDB_LocalDB implements LocalDBProvider {
 
         final long startTime = System.currentTimeMillis();
 
+        final Lock writeLock = dbLocks.get(db);
         try {
-            LOCK.writeLock().lock();
+            writeLock.lock();
             final Map<String, String> tree = getHTree(db);
             tree.keySet().clear();
-            recman.commit();
-        } catch (IOException e) {
+            commit();
+        } catch (RuntimeException e) {
             throw new LocalDBException(new ErrorInformation(PwmError.ERROR_LOCALDB_UNAVAILABLE,e.getMessage()));
         } finally {
-            LOCK.writeLock().unlock();
+            writeLock.unlock();
         }
 
         LOGGER.debug("truncate complete of " + db.toString() + ", " + startSize + " records in " + new TimeDuration(System.currentTimeMillis(), startTime).asCompactString() + ", " + size(db) + " records in database");
@@ -243,44 +308,63 @@ public class MapDB_LocalDB implements LocalDBProvider {
 
     public void removeAll(final LocalDB.DB db, final Collection<String> keys)
             throws LocalDBException {
+        final Lock writeLock = dbLocks.get(db);
         try {
-            LOCK.writeLock().lock();
+            writeLock.lock();
             final Map<String, String> tree = getHTree(db);
             tree.keySet().removeAll(keys);
-            recman.commit();
-        } catch (IOException e) {
+            commit();
+        } catch (RuntimeException e) {
             throw new LocalDBException(new ErrorInformation(PwmError.ERROR_LOCALDB_UNAVAILABLE,e.getMessage()));
         } finally {
-            LOCK.writeLock().unlock();
+            writeLock.unlock();
         }
     }
 
 // -------------------------- OTHER METHODS --------------------------
 
     private Map<String, String> getHTree(final DB keyName)
-            throws IOException {
-        Map<String, String> tree = treeMap.get(keyName);
-        if (tree == null) {
-            tree = openHTree(keyName.toString(), recman);
-            treeMap.put(keyName, tree);
+            throws LocalDBException {
+        if (status != LocalDB.Status.OPEN) {
+            throw new LocalDBException(new ErrorInformation(PwmError.ERROR_LOCALDB_UNAVAILABLE,"LocalDB is not open"));
         }
-        return tree;
+        return treeMap.get(keyName);
     }
 
-    private static Map<String, String> openHTree(
+    private static ConcurrentMap<String, String> openHTree(
             final String name,
             final org.mapdb.DB recman
-    )
-            throws IOException {
+    ) {
         return recman.getTreeMap(name);
     }
 
+    private void commit() {
+        commitLock.lock();
+        try {
+            recman.commit();
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private void lockAll() {
+        for (final LocalDB.DB db : LocalDB.DB.values()) {
+            dbLocks.get(db).lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (final LocalDB.DB db : LocalDB.DB.values()) {
+            dbLocks.get(db).unlock();
+        }
+    }
+
 // -------------------------- INNER CLASSES --------------------------
 
     private class MapDBIterator<K> implements LocalDB.LocalDBIterator<String> {
         private Iterator<String> theIterator;
 
-        private MapDBIterator(final DB db) throws IOException, LocalDBException {
+        private MapDBIterator(final DB db) throws LocalDBException {
             this.theIterator = getHTree(db).keySet().iterator();
         }
 
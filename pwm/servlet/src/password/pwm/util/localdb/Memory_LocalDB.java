@@ -101,6 +101,32 @@ public class Memory_LocalDB implements LocalDBProvider {
         return map.get(key);
     }
 
+    public Map<String, String> getAll(final DB db, final Collection<String> keys)
+            throws LocalDBException {
+        opertationPreCheck();
+        final Map<String, String> map = maps.get(db);
+        final Map<String, String> returnMap = new LinkedHashMap<>();
+        for (final String key : keys) {
+            final String value = map.get(key);
+            if (value != null) {
+                returnMap.put(key, value);
+            }
+        }
+        return returnMap;
+    }
+
+    public boolean containsAny(final DB db, final Collection<String> keys)
+            throws LocalDBException {
+        opertationPreCheck();
+        final Map<String, String> map = maps.get(db);
+        for (final String key : keys) {
+            if (map.containsKey(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @LocalDB.WriteOperation
     public void init(final File dbDirectory, final Map<String, String> initParameters, final boolean readOnly)
             throws LocalDBException {
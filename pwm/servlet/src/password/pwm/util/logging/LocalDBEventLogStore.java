@@ -0,0 +1,298 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.logging;
+
+import password.pwm.util.JsonUtil;
+import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBException;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Stores log events in time partitioned segments.  A segment holds up to {@code segmentMaxEvents} consecutive events
+ * written within {@code segmentMaxDurationMs}, each under its own key, plus a {@link SegmentIndex} recording the
+ * segment's time range, the level of each event and the distinct actors.  Searches use the indexes to skip whole
+ * segments, and events below the requested level, without reading or decoding them.  Retention removes whole
+ * segments from the oldest end.
+ * <p/>
+ * Appends and removals are done by the single writer thread; searches may run concurrently on other threads.
+ */
+class LocalDBEventLogStore {
+    private static final PwmLogger LOGGER = PwmLogger.forClass(LocalDBEventLogStore.class);
+
+    private static final LocalDB.DB EVENT_DB = LocalDB.DB.EVENTLOG_SEGMENTS;
+    private static final String KEY_STATE = "_STATE";
+    private static final String KEY_INDEX_PREFIX = "_INDEX_";
+
+    // segments with more distinct actors than this are not pruned by actor
+    private static final int MAX_INDEXED_ACTORS = 256;
+
+    private final LocalDB localDB;
+    private final int segmentMaxEvents;
+    private final long segmentMaxDurationMs;
+
+    // guarded by this; only the newest segment is ever modified
+    private final TreeMap<Long,SegmentIndex> segments = new TreeMap<>();
+    private long eventCount;
+
+    LocalDBEventLogStore(final LocalDB localDB, final int segmentMaxEvents, final long segmentMaxDurationMs)
+            throws LocalDBException
+    {
+        this.localDB = localDB;
+        this.segmentMaxEvents = Math.max(1, segmentMaxEvents);
+        this.segmentMaxDurationMs = segmentMaxDurationMs;
+
+        final String stateValue = localDB.get(EVENT_DB, KEY_STATE);
+        if (stateValue != null) {
+            final StoreState state = JsonUtil.deserialize(stateValue, StoreState.class);
+            for (long segmentID = state.firstSegment; segmentID <= state.lastSegment; segmentID++) {
+                final String indexValue = localDB.get(EVENT_DB, indexKey(segmentID));
+                if (indexValue != null) {
+                    final SegmentIndex segmentIndex = JsonUtil.deserialize(indexValue, SegmentIndex.class);
+                    segments.put(segmentID, segmentIndex);
+                    eventCount += segmentIndex.count;
+                }
+            }
+        }
+    }
+
+    synchronized void append(final List<PwmLogEvent> events)
+            throws LocalDBException
+    {
+        final Map<String,String> writes = new LinkedHashMap<>();
+        final Map<Long,SegmentIndex> updatedSegments = new LinkedHashMap<>();
+        int addedCount = 0;
+        final long startingLastSegment = segments.isEmpty() ? -1 : segments.lastKey();
+        SegmentIndex current = segments.isEmpty() ? null : segments.lastEntry().getValue().copy();
+        long currentID = startingLastSegment;
+
+        for (final PwmLogEvent event : events) {
+            final String encodedEvent;
+            try {
+                encodedEvent = event.toEncodedString();
+            } catch (IOException e) {
+                LOGGER.error("unable to encode log event, discarding: " + e.getMessage());
+                continue;
+            }
+            if (encodedEvent.length() >= LocalDB.MAX_VALUE_LENGTH) {
+                continue;
+            }
+
+            final long eventTime = event.getDate() == null ? System.currentTimeMillis() : event.getDate().getTime();
+            if (current == null || current.count >= segmentMaxEvents || eventTime - current.startTime > segmentMaxDurationMs) {
+                if (current != null) {
+                    writes.put(indexKey(currentID), JsonUtil.serialize(current));
+                    updatedSegments.put(currentID, current);
+                }
+                currentID++;
+                current = new SegmentIndex(eventTime);
+            }
+
+            writes.put(eventKey(currentID, current.count), encodedEvent);
+            current.add(event, eventTime);
+            addedCount++;
+        }
+
+        if (addedCount == 0) {
+            return;
+        }
+
+        writes.put(indexKey(currentID), JsonUtil.serialize(current));
+        updatedSegments.put(currentID, current);
+        if (currentID != startingLastSegment) {
+            final long firstSegment = segments.isEmpty() ? updatedSegments.keySet().iterator().next() : segments.firstKey();
+            writes.put(KEY_STATE, JsonUtil.serialize(new StoreState(firstSegment, currentID)));
+        }
+        localDB.putAll(EVENT_DB, writes);
+
+        segments.putAll(updatedSegments);
+        eventCount += addedCount;
+    }
+
+    /**
+     * @return the number of events removed
+     */
+    synchronized int removeOldestSegment()
+            throws LocalDBException
+    {
+        if (segments.isEmpty()) {
+            return 0;
+        }
+
+        final long segmentID = segments.firstKey();
+        final SegmentIndex segmentIndex = segments.get(segmentID);
+        final List<String> keys = new ArrayList<>(segmentIndex.count + 1);
+        for (int i = 0; i < segmentIndex.count; i++) {
+            keys.add(eventKey(segmentID, i));
+        }
+        keys.add(indexKey(segmentID));
+
+        segments.remove(segmentID);
+        eventCount -= segmentIndex.count;
+        if (segments.isEmpty()) {
+            localDB.remove(EVENT_DB, KEY_STATE);
+        } else {
+            localDB.put(EVENT_DB, KEY_STATE, JsonUtil.serialize(new StoreState(segments.firstKey(), segments.lastKey())));
+        }
+        localDB.removeAll(EVENT_DB, keys);
+        return segmentIndex.count;
+    }
+
+    synchronized void clear()
+            throws LocalDBException
+    {
+        localDB.truncate(EVENT_DB);
+        segments.clear();
+        eventCount = 0;
+    }
+
+    synchronized int size() {
+        return (int)Math.min(Integer.MAX_VALUE, eventCount);
+    }
+
+    synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * @return index of the oldest segment, or null if the store is empty
+     */
+    synchronized SegmentIndex oldestSegment() {
+        return segments.isEmpty() ? null : segments.firstEntry().getValue();
+    }
+
+    /**
+     * @return the current segments ordered from newest to oldest.  Index objects are replaced rather than modified
+     * when events are appended, so the returned indexes do not change.
+     */
+    synchronized List<Map.Entry<Long,SegmentIndex>> segmentsNewestFirst() {
+        return new ArrayList<>(segments.descendingMap().entrySet());
+    }
+
+    /**
+     * @return the stored encoded event, or null if its segment has since been removed
+     */
+    String readEncodedEvent(final long segmentID, final int position)
+            throws LocalDBException
+    {
+        return localDB.get(EVENT_DB, eventKey(segmentID, position));
+    }
+
+    private static String eventKey(final long segmentID, final int position) {
+        return Long.toString(segmentID, 36) + "." + Integer.toString(position, 36);
+    }
+
+    private static String indexKey(final long segmentID) {
+        return KEY_INDEX_PREFIX + Long.toString(segmentID, 36);
+    }
+
+    private static class StoreState implements Serializable {
+        private long firstSegment;
+        private long lastSegment;
+
+        private StoreState(final long firstSegment, final long lastSegment) {
+            this.firstSegment = firstSegment;
+            this.lastSegment = lastSegment;
+        }
+    }
+
+    static class SegmentIndex implements Serializable {
+        private long startTime;
+        private long endTime;
+        private int count;
+        private StringBuilder levels = new StringBuilder(); // ordinal of each event's PwmLogLevel, in write order; stored as a string
+        private Set<String> actors = new HashSet<>();
+        private boolean actorsOverflow;
+
+        private SegmentIndex(final long startTime) {
+            this.startTime = startTime;
+            this.endTime = startTime;
+        }
+
+        private SegmentIndex copy() {
+            final SegmentIndex copy = new SegmentIndex(startTime);
+            copy.endTime = endTime;
+            copy.count = count;
+            copy.levels = new StringBuilder(levels);
+            copy.actors = new HashSet<>(actors);
+            copy.actorsOverflow = actorsOverflow;
+            return copy;
+        }
+
+        private void add(final PwmLogEvent event, final long eventTime) {
+            startTime = Math.min(startTime, eventTime);
+            endTime = Math.max(endTime, eventTime);
+            count++;
+            levels.append((char)('0' + (event.getLevel() == null ? 0 : event.getLevel().ordinal())));
+            if (!actorsOverflow) {
+                actors.add(event.getActor() == null ? "" : event.getActor());
+                if (actors.size() > MAX_INDEXED_ACTORS) {
+                    actors = new HashSet<>();
+                    actorsOverflow = true;
+                }
+            }
+        }
+
+        long getStartTime() {
+            return startTime;
+        }
+
+        long getEndTime() {
+            return endTime;
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        PwmLogLevel levelAt(final int position) {
+            return PwmLogLevel.values()[levels.charAt(position) - '0'];
+        }
+
+        boolean hasLevelAtLeast(final PwmLogLevel minimumLevel) {
+            for (int i = 0; i < levels.length(); i++) {
+                if (levels.charAt(i) - '0' >= minimumLevel.ordinal()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return the distinct actors of the segment's events, with the empty string for system events, or null if
+         * the segment has too many distinct actors to index
+         */
+        Set<String> getActors() {
+            return actorsOverflow ? null : Collections.unmodifiableSet(actors);
+        }
+    }
+}
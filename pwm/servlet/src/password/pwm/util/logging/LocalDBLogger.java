@@ -41,13 +41,15 @@ import password.pwm.util.localdb.LocalDBStoredQueue;
 import java.io.Serializable;
 import java.text.NumberFormat;
 import java.util.*;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.regex.Matcher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 /**
- * Saves a recent copy of PWM events in the pwmDB.
+ * Saves a recent copy of PWM events in the pwmDB.  Events are stored in time partitioned segments, see
+ * {@link LocalDBEventLogStore}.
  *
  * @author Jason D. Rivard
  */
@@ -58,13 +60,23 @@ public class LocalDBLogger implements PwmService {
 
     private final static int MINIMUM_MAXIMUM_EVENTS = 100;
 
+    // rough encoded size of an event beyond its text fields, and of a serialized throwable
+    private final static int EVENT_SIZE_OVERHEAD = 128;
+    private final static int THROWABLE_SIZE_ESTIMATE = 4096;
+
     private volatile long tailTimestampMs = -1L;
-    private long lastQueueFlushTimestamp = System.currentTimeMillis();
+    private volatile long lastQueueFlushTimestamp = System.currentTimeMillis();
 
     private final LocalDB localDB;
     private final Settings settings;
-    private final Queue<PwmLogEvent> eventQueue = new LinkedBlockingQueue<>(PwmConstants.LOCALDB_LOGGER_MAX_QUEUE_SIZE);
-    private final LocalDBStoredQueue localDBListQueue;
+    private final LogEventRingBuffer eventQueue = new LogEventRingBuffer(PwmConstants.LOCALDB_LOGGER_MAX_QUEUE_SIZE);
+    private final int writerWakeThreshold = Math.max(1, eventQueue.capacity() / 8);
+    private final int debugEventHighWater = eventQueue.capacity() * 3 / 4;
+    private volatile Thread writerThread;
+
+    private final AtomicLong writtenEventCount = new AtomicLong();
+    private final AtomicLong droppedEventCount = new AtomicLong();
+    private final LocalDBEventLogStore eventStore;
 
     private volatile STATUS status = STATUS.NEW;
     private volatile boolean writerThreadActive = false;
@@ -81,12 +93,14 @@ public class LocalDBLogger implements PwmService {
         status = STATUS.OPENING;
         this.settings = settings.copy();
         this.localDB = localDB;
-        this.localDBListQueue = LocalDBStoredQueue.createLocalDBStoredQueue(pwmApplication,
-                this.localDB, LocalDB.DB.EVENTLOG_EVENTS);
+        // keep segments small relative to maxEvents, as retention removes whole segments
+        final int segmentMaxEvents = Math.max(MINIMUM_MAXIMUM_EVENTS / 10, Math.min(settings.getSegmentMaxEvents(), settings.getMaxEvents() / 10));
+        this.eventStore = new LocalDBEventLogStore(localDB, segmentMaxEvents, settings.getSegmentMaxDurationMs());
 
         if (settings.maxEvents == 0) {
             LOGGER.info("maxEvents set to zero, clearing LocalDBLogger history and LocalDBLogger will remain closed");
-            localDBListQueue.clear();
+            eventStore.clear();
+            localDB.truncate(LocalDB.DB.EVENTLOG_EVENTS);
             throw new IllegalArgumentException("maxEvents=0, will remain closed");
         }
 
@@ -99,14 +113,16 @@ public class LocalDBLogger implements PwmService {
             throw new IllegalArgumentException("LocalDB is not available");
         }
 
+        migrateStoredQueue(pwmApplication);
         this.tailTimestampMs = readTailTimestamp();
         status = STATUS.OPEN;
 
         { // start the writer thread
-            final Thread writerThread = new Thread(new WriterThread());
-            writerThread.setName(Helper.makeThreadName(pwmApplication, LocalDBLogger.class));
-            writerThread.setDaemon(true);
-            writerThread.start();
+            final Thread thread = new Thread(new WriterThread());
+            thread.setName(Helper.makeThreadName(pwmApplication, LocalDBLogger.class));
+            thread.setDaemon(true);
+            writerThread = thread;
+            thread.start();
         }
 
         final TimeDuration timeDuration = TimeDuration.fromCurrent(startTime);
@@ -115,26 +131,53 @@ public class LocalDBLogger implements PwmService {
 
 
     private long readTailTimestamp() {
-        final PwmLogEvent loopEvent;
-        try {
-            loopEvent = readEvent(localDBListQueue.getLast());
-            if (loopEvent != null) {
-                final Date tailDate = loopEvent.getDate();
-                if (tailDate != null) {
-                    return tailDate.getTime();
-                }
+        final LocalDBEventLogStore.SegmentIndex oldestSegment = eventStore.oldestSegment();
+        return oldestSegment == null ? -1 : oldestSegment.getStartTime();
+    }
+
+    /**
+     * Move events stored by previous versions in a {@link LocalDBStoredQueue} into the segment store, oldest first.
+     */
+    private void migrateStoredQueue(final PwmApplication pwmApplication)
+            throws LocalDBException
+    {
+        if (localDB.size(LocalDB.DB.EVENTLOG_EVENTS) == 0) {
+            return;
+        }
+
+        final long startTime = System.currentTimeMillis();
+        final LocalDBStoredQueue storedQueue = LocalDBStoredQueue.createLocalDBStoredQueue(pwmApplication, localDB, LocalDB.DB.EVENTLOG_EVENTS);
+        final int skipCount = Math.max(0, storedQueue.size() - settings.getMaxEvents());
+        final List<PwmLogEvent> events = new ArrayList<>();
+        int position = 0;
+        int migratedCount = 0;
+        for (final Iterator<String> iterator = storedQueue.descendingIterator(); iterator.hasNext(); ) {
+            final String storedValue = iterator.next();
+            if (position++ < skipCount) {
+                continue;
+            }
+            final PwmLogEvent logEvent = readEvent(storedValue);
+            if (logEvent != null) {
+                events.add(logEvent);
+            }
+            if (events.size() >= settings.getSegmentMaxEvents()) {
+                eventStore.append(events);
+                migratedCount += events.size();
+                events.clear();
             }
-        } catch (Exception e) {
-            LOGGER.error("unexpected error attempting to determine tail event timestamp: " + e.getMessage());
         }
+        eventStore.append(events);
+        migratedCount += events.size();
 
-        return -1;
+        localDB.truncate(LocalDB.DB.EVENTLOG_EVENTS);
+        LOGGER.info("migrated " + migratedCount + " events to segmented event log in " + TimeDuration.fromCurrent(startTime).asCompactString());
     }
 
 
     private String debugStats() {
         final StringBuilder sb = new StringBuilder();
-        sb.append("events=").append(localDBListQueue.size());
+        sb.append("events=").append(eventStore.size());
+        sb.append(", segments=").append(eventStore.segmentCount());
         sb.append(", tailAge=").append(TimeDuration.fromCurrent(tailTimestampMs).asCompactString());
         sb.append(", maxEvents=").append(settings.getMaxEvents());
         sb.append(", maxAge=").append(settings.getMaxAgeMs() > 1 ? new TimeDuration(settings.getMaxAgeMs()).asCompactString() : "none");
@@ -147,6 +190,7 @@ public class LocalDBLogger implements PwmService {
     public void close() {
         LOGGER.debug("LocalDBLogger closing... (" + debugStats() + ")");
         status = STATUS.CLOSED;
+        wakeWriter();
 
         { // wait for the writer to die.
             final long startTime = System.currentTimeMillis();
@@ -176,35 +220,47 @@ public class LocalDBLogger implements PwmService {
         LOGGER.debug("LocalDBLogger close completed (" + debugStats() + ")");
     }
 
+    /**
+     * Write one batch of queued events, bounded by the calculated transaction size and by {@link Settings#getMaxBatchBytes()}.
+     */
     private int flushQueue() {
         final List<PwmLogEvent> tempList = new ArrayList<>();
         final int desiredTransactionSize = transactionCalculator.getTransactionSize();
-        PwmLogEvent nextEvent = eventQueue.poll();
-        while (nextEvent != null && tempList.size() < desiredTransactionSize) {
+        long batchBytes = 0;
+        while (tempList.size() < desiredTransactionSize && batchBytes < settings.getMaxBatchBytes()) {
+            final PwmLogEvent nextEvent = eventQueue.poll();
+            if (nextEvent == null) {
+                break;
+            }
             tempList.add(nextEvent);
-            nextEvent = eventQueue.poll();
+            batchBytes += estimateEncodedSize(nextEvent);
         }
 
         if (!tempList.isEmpty()) {
             doWrite(tempList);
             lastQueueFlushTimestamp = System.currentTimeMillis();
-            //System.out.println("flush size: " + tempList.size());
+            writtenEventCount.addAndGet(tempList.size());
         }
 
         return tempList.size();
     }
 
+    private static int estimateEncodedSize(final PwmLogEvent event) {
+        int size = EVENT_SIZE_OVERHEAD;
+        size += event.getMessage() == null ? 0 : event.getMessage().length();
+        size += event.getTopic() == null ? 0 : event.getTopic().length();
+        size += event.getActor() == null ? 0 : event.getActor().length();
+        size += event.getLabel() == null ? 0 : event.getLabel().length();
+        size += event.getSource() == null ? 0 : event.getSource().length();
+        size += event.getThrowable() == null ? 0 : THROWABLE_SIZE_ESTIMATE;
+        return size;
+    }
+
     private void doWrite(final Collection<PwmLogEvent> events) {
-        final List<String> transactions = new ArrayList<>();
+        final List<PwmLogEvent> transactions = new ArrayList<>(events);
         try {
-            for (final PwmLogEvent event : events) {
-                final String encodedString = event.toEncodedString();
-                if (encodedString.length() < LocalDB.MAX_VALUE_LENGTH) {
-                    transactions.add(encodedString);
-                }
-            }
 
-            localDBListQueue.addAll(transactions);
+            eventStore.append(transactions);
         } catch (Exception e) {
             LOGGER.error("error writing to localDBLogger: " + e.getMessage(), e);
         }
@@ -215,44 +271,36 @@ public class LocalDBLogger implements PwmService {
     }
 
     public int getStoredEventCount() {
-        return localDBListQueue.size();
+        return eventStore.size();
     }
 
     public int getPendingEventCount() {
         return eventQueue.size();
     }
 
-    private int determineTailRemovalCount() {
-        final int currentItemCount = localDBListQueue.size();
-
-        // must keep at least one position populated
-        if (currentItemCount <= 1) {
+    /**
+     * Remove the oldest segment if the remaining segments still hold at least the maximum event count, or if all of
+     * its events are older than the maximum age.  The newest segment is never removed.
+     *
+     * @return the number of events removed
+     */
+    private int purgeOldestSegment()
+            throws LocalDBException
+    {
+        final LocalDBEventLogStore.SegmentIndex oldestSegment = eventStore.oldestSegment();
+        if (oldestSegment == null || eventStore.segmentCount() <= 1) {
             return 0;
         }
 
-        // purge excess events by count
-        if (currentItemCount > settings.getMaxEvents()) {
-            return currentItemCount - settings.getMaxEvents();
-        }
-
-        // purge the tail if it is missing or has invalid timestamp
-        if (tailTimestampMs == -1) {
-            return 1;
+        final boolean excessCount = eventStore.size() - oldestSegment.getCount() >= settings.getMaxEvents();
+        final boolean excessAge = settings.getMaxAgeMs() > 0 && TimeDuration.fromCurrent(oldestSegment.getEndTime()).isLongerThan(settings.getMaxAgeMs());
+        if (!excessCount && !excessAge) {
+            return 0;
         }
 
-        // purge excess events by age;
-        if (settings.getMaxAgeMs() > 0 && tailTimestampMs > 0) {
-            final TimeDuration tailAge = TimeDuration.fromCurrent(tailTimestampMs);
-            if (tailAge.isLongerThan(settings.getMaxAgeMs())) {
-                final long maxRemovalPercentageOfSize = getStoredEventCount() / 500;
-                if (maxRemovalPercentageOfSize > 100) {
-                    return 500;
-                } else {
-                    return 1;
-                }
-            }
-        }
-        return 0;
+        final int removedCount = eventStore.removeOldestSegment();
+        tailTimestampMs = readTailTimestamp();
+        return removedCount;
     }
 
 
@@ -267,6 +315,8 @@ public class LocalDBLogger implements PwmService {
         final private String text;
         final private long maxQueryTime;
         final private EventType eventType;
+        final private Date startDate;
+        final private Date endDate;
 
         public SearchParameters(
                 final PwmLogLevel minimumLevel,
@@ -276,6 +326,26 @@ public class LocalDBLogger implements PwmService {
                 final long maxQueryTime,
                 final EventType eventType        )
         {
+            this(minimumLevel, count, username, text, maxQueryTime, eventType, null, null);
+        }
+
+        /**
+         * @param startDate if not null, only events at or after this date are returned
+         * @param endDate if not null, only events at or before this date are returned
+         */
+        public SearchParameters(
+                final PwmLogLevel minimumLevel,
+                final int count,
+                final String username,
+                final String text,
+                final long maxQueryTime,
+                final EventType eventType,
+                final Date startDate,
+                final Date endDate
+        )
+        {
+            this.startDate = startDate;
+            this.endDate = endDate;
             this.eventType = eventType;
             this.maxQueryTime = maxQueryTime;
             this.text = text;
@@ -313,12 +383,22 @@ public class LocalDBLogger implements PwmService {
         {
             return eventType;
         }
+
+        public Date getStartDate()
+        {
+            return startDate;
+        }
+
+        public Date getEndDate()
+        {
+            return endDate;
+        }
     }
 
     public SearchResults readStoredEvents(
             final SearchParameters searchParameters
     ) {
-        return new SearchResults(localDBListQueue.iterator(), searchParameters);
+        return new SearchResults(eventStore.segmentsNewestFirst(), searchParameters);
     }
 
     public TimeDuration getDirtyQueueTime() {
@@ -341,94 +421,171 @@ public class LocalDBLogger implements PwmService {
         return null;
     }
 
-    private boolean checkEventForParams(
-            final PwmLogEvent event,
-            final SearchParameters searchParameters
-    ) {
-        if (event == null) {
-            return false;
+    /**
+     * Search parameters prepared once per search: the username regex is compiled and the text search is turned into
+     * a case insensitive pattern, so matching an event does not allocate.
+     */
+    private static class CompiledSearch {
+        private final SearchParameters searchParameters;
+        private final Pattern usernamePattern;
+        private final String usernameText;
+        private final Pattern textPattern;
+        private final long startTime;
+        private final long endTime;
+
+        private CompiledSearch(final SearchParameters searchParameters) {
+            this.searchParameters = searchParameters;
+
+            final String username = searchParameters.getUsername();
+            Pattern pattern = null;
+            try {
+                if (username != null && username.length() > 0) {
+                    pattern = Pattern.compile(username);
+                }
+            } catch (PatternSyntaxException e) {
+                LOGGER.trace("invalid regex syntax for " + username + ", reverting to plaintext search");
+            }
+            usernamePattern = pattern;
+            usernameText = pattern == null && username != null && username.length() > 1 ? username : null;
+
+            final String text = searchParameters.getText();
+            textPattern = text != null && text.length() > 0
+                    ? Pattern.compile(Pattern.quote(text), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE)
+                    : null;
+
+            startTime = searchParameters.getStartDate() == null ? Long.MIN_VALUE : searchParameters.getStartDate().getTime();
+            endTime = searchParameters.getEndDate() == null ? Long.MAX_VALUE : searchParameters.getEndDate().getTime();
         }
 
-        boolean eventMatchesParams = true;
+        /**
+         * @return false if no event in the segment can match, judged from the segment index alone
+         */
+        private boolean matchesSegment(final LocalDBEventLogStore.SegmentIndex segmentIndex) {
+            if (segmentIndex.getEndTime() < startTime || segmentIndex.getStartTime() > endTime) {
+                return false;
+            }
+
+            if (searchParameters.getMinimumLevel() != null && !segmentIndex.hasLevelAtLeast(searchParameters.getMinimumLevel())) {
+                return false;
+            }
 
-        if (searchParameters.getMinimumLevel()!= null) {
-            if (event.getLevel().compareTo(searchParameters.getMinimumLevel()) <= -1) {
-                eventMatchesParams = false;
+            final Set<String> actors = segmentIndex.getActors();
+            if (actors != null) {
+                for (final String actor : actors) {
+                    if (matchesActor(actor)) {
+                        return true;
+                    }
+                }
+                return false;
             }
+
+            return true;
         }
 
-        Pattern pattern = null;
-        try {
-            if (searchParameters.getUsername() != null && searchParameters.getUsername().length() > 0) {
-                pattern = Pattern.compile(searchParameters.getUsername());
-            }
-        } catch (PatternSyntaxException e) {
-            LOGGER.trace("invalid regex syntax for " + searchParameters.getUsername() + ", reverting to plaintext search");
+        private boolean matchesLevel(final PwmLogLevel level) {
+            return searchParameters.getMinimumLevel() == null || level.compareTo(searchParameters.getMinimumLevel()) >= 0;
         }
-        if (pattern != null) {
-            final Matcher matcher = pattern.matcher(event.getActor() == null ? "" : event.getActor());
-            if (!matcher.find()) {
-                eventMatchesParams = false;
+
+        private boolean matches(final PwmLogEvent event) {
+            if (event == null) {
+                return false;
             }
-        } else if (eventMatchesParams && (searchParameters.getUsername() != null && searchParameters.getUsername().length() > 1)) {
-            final String eventUsername = event.getActor();
-            if (eventUsername == null || !eventUsername.equalsIgnoreCase(searchParameters.getUsername())) {
-                eventMatchesParams = false;
+
+            if (event.getDate() != null && (event.getDate().getTime() < startTime || event.getDate().getTime() > endTime)) {
+                return false;
             }
+
+            return matchesLevel(event.getLevel()) && matchesActor(event.getActor()) && matchesText(event);
         }
 
-        if (eventMatchesParams && (searchParameters.getText() != null && searchParameters.getText().length() > 0)) {
-            final String eventMessage = event.getMessage();
-            final String textLowercase = searchParameters.getText() .toLowerCase();
-            boolean isAMatch = false;
-            if (eventMessage != null && eventMessage.length() > 0) {
-                if (eventMessage.toLowerCase().contains(textLowercase)) {
-                    isAMatch = true;
-                } else if (event.getTopic() != null && event.getTopic().length() > 0) {
-                    if (event.getTopic().toLowerCase().contains(textLowercase)) {
-                        isAMatch = true;
-                    }
+        private boolean matchesActor(final String actor) {
+            final boolean hasActor = actor != null && actor.length() > 0;
+
+            if (usernamePattern != null) {
+                if (!usernamePattern.matcher(hasActor ? actor : "").find()) {
+                    return false;
                 }
-                if (!isAMatch) {
-                    eventMatchesParams = false;
+            } else if (usernameText != null) {
+                if (!hasActor || !actor.equalsIgnoreCase(usernameText)) {
+                    return false;
                 }
             }
-        }
 
-        if (searchParameters.getEventType() != null) {
             if (searchParameters.getEventType() == EventType.System) {
-                if (event.getActor() != null && event.getActor().length() > 0) {
-                    eventMatchesParams = false;
-                }
+                return !hasActor;
             } else if (searchParameters.getEventType() == EventType.User) {
-                if (event.getActor() == null || event.getActor().length() < 1) {
-                    eventMatchesParams = false;
-                }
+                return hasActor;
             }
+            return true;
         }
 
-        return eventMatchesParams;
+        private boolean matchesText(final PwmLogEvent event) {
+            final String eventMessage = event.getMessage();
+            if (textPattern == null || eventMessage == null || eventMessage.length() < 1) {
+                return true;
+            }
+
+            if (textPattern.matcher(eventMessage).find()) {
+                return true;
+            }
+
+            final String eventTopic = event.getTopic();
+            return eventTopic != null && eventTopic.length() > 0 && textPattern.matcher(eventTopic).find();
+        }
     }
 
 
     public void writeEvent(final PwmLogEvent event) {
-        if (status == STATUS.OPEN) {
-            if (settings.getMaxEvents() > 0) {
-                boolean success = eventQueue.offer(event);
-                if (!success) { // if event queue isn't overflowed, simply add event to write queue
-                    final long startEventTime = System.currentTimeMillis();
-                    while (TimeDuration.fromCurrent(startEventTime).isShorterThan(30 * 1000) && !success) {
-                        Helper.pause(100);
-                        success = eventQueue.offer(event);
-                    }
-                    if (!success) {
-                        LOGGER.warn("discarding event due to full write queue: " + event.toString());
-                    }
+        if (status != STATUS.OPEN || settings.getMaxEvents() <= 0) {
+            return;
+        }
+
+        if (queueEvent(event)) {
+            if (eventQueue.size() >= writerWakeThreshold) {
+                wakeWriter();
+            }
+        } else {
+            droppedEventCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Add the event to the write queue, applying the {@link OverflowPolicy} if the queue is full.  Events are not
+     * logged when discarded, as that would only add to the queue.
+     *
+     * @return false if the event was discarded
+     */
+    private boolean queueEvent(final PwmLogEvent event) {
+        switch (settings.getOverflowPolicy()) {
+            case DROP_OLDEST:
+                return eventQueue.offerDiscardingOldest(event);
+
+            case BLOCK_WITH_DEADLINE: {
+                if (eventQueue.offer(event)) {
+                    return true;
                 }
+                wakeWriter();
+                return eventQueue.offer(event, TimeUnit.MILLISECONDS.toNanos(settings.getBlockDeadlineMs()));
+            }
+
+            case DROP_DEBUG_FIRST:
+            default: {
+                // the last quarter of the queue is reserved for info and higher events
+                final boolean debugEvent = event.getLevel() == null || event.getLevel().compareTo(PwmLogLevel.DEBUG) <= 0;
+                return debugEvent
+                        ? eventQueue.offerBelow(event, debugEventHighWater)
+                        : eventQueue.offer(event);
             }
         }
     }
 
+    private void wakeWriter() {
+        final Thread thread = writerThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
 // -------------------------- INNER CLASSES --------------------------
 
     private class WriterThread implements Runnable {
@@ -450,55 +607,49 @@ public class LocalDBLogger implements PwmService {
                 long startLoopTime = System.currentTimeMillis();
                 final int writesDone = flushQueue();
 
-                final int purgeCount = determineTailRemovalCount();
-                int purgesDone = 0;
-                if (purgeCount > 0) {
-                    int removalCount = purgeCount > transactionCalculator.getTransactionSize() + 1 ? transactionCalculator.getTransactionSize() + 1 : purgeCount;
-                    localDBListQueue.removeLast(removalCount);
-                    tailTimestampMs = readTailTimestamp();
-                    purgesDone = removalCount;
-                }
+                final int purgesDone = purgeOldestSegment();
 
                 final int totalWork = writesDone + purgesDone;
-                if (totalWork == 0) {
-                    Helper.pause(settings.getMaxDirtyQueueAgeMs());
-                    if (settings.isDevDebug()) {
-                        LOGGER.trace("no work on last cycle, sleeping for " + new TimeDuration(settings.getMaxDirtyQueueAgeMs()).asCompactString() + " queue size=" + getPendingEventCount());
-                    }
-                } else if (totalWork < 5) {
-                    Helper.pause(settings.getMaxDirtyQueueAgeMs());
-                    if (settings.isDevDebug()) {
-                        LOGGER.trace("minor work on last cycle, sleeping for " + new TimeDuration(settings.getMaxDirtyQueueAgeMs()).asCompactString() + " queue size=" + getPendingEventCount());
-                    }
-                } else {
+                if (totalWork >= 5) {
                     final TimeDuration txnDuration = TimeDuration.fromCurrent(startLoopTime);
                     transactionCalculator.recordLastTransactionDuration(txnDuration);
                     if (settings.isDevDebug()) {
                         LOGGER.trace("tick writes=" + writesDone+ ", purges=" + purgesDone + ", queue=" + getPendingEventCount() + ", txnCalcSize=" + transactionCalculator.getTransactionSize() + ", txnDuration=" + txnDuration.getTotalMilliseconds());
                     }
                 }
+
+                if (purgesDone == 0 && eventQueue.size() < writerWakeThreshold) {
+                    // sleep until producers have queued a batch worth of events, or until queued events reach the maximum dirty age
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(settings.getMaxDirtyQueueAgeMs()));
+                }
             }
             LOGGER.debug("writer thread exiting");
         }
     }
 
     public class SearchResults implements Serializable, Iterator<PwmLogEvent> {
-        final private Iterator<String> localDBIterator;
+        final private Iterator<Map.Entry<Long,LocalDBEventLogStore.SegmentIndex>> segmentIterator;
+        final private CompiledSearch compiledSearch;
         final private SearchParameters searchParameters;
 
         private final Date startTime;
 
+        private long segmentID;
+        private LocalDBEventLogStore.SegmentIndex segmentIndex;
+        private int position = -1;
+
         private PwmLogEvent nextEvent;
         private int eventCount = 0;
         private Date finishTime;
 
         private SearchResults(
-                final Iterator<String> localDBIterator,
+                final List<Map.Entry<Long,LocalDBEventLogStore.SegmentIndex>> segments,
                 final SearchParameters searchParameters
         ) {
             startTime = new Date();
-            this.localDBIterator = localDBIterator;
+            this.segmentIterator = segments.iterator();
             this.searchParameters = searchParameters;
+            this.compiledSearch = new CompiledSearch(searchParameters);
             nextEvent = readNextEvent();
         }
 
@@ -529,6 +680,9 @@ public class LocalDBLogger implements PwmService {
             return TimeDuration.fromCurrent(startTime).isLongerThan(new TimeDuration(searchParameters.getMaxQueryTime()));
         }
 
+        /**
+         * Events are read newest first: segments in descending order, and each segment from its last position.
+         */
         private PwmLogEvent readNextEvent()
         {
             if (eventCount >= searchParameters.getMaxEvents() || isTimedout()) {
@@ -536,18 +690,40 @@ public class LocalDBLogger implements PwmService {
                 return null;
             }
 
-            while (!isTimedout() && localDBIterator.hasNext()) {
-                final String nextDbValue = localDBIterator.next();
-                if (nextDbValue == null) {
-                    finishTime = new Date();
-                    return null;
-                }
+            try {
+                while (!isTimedout()) {
+                    if (position < 0) {
+                        if (!segmentIterator.hasNext()) {
+                            break;
+                        }
+                        final Map.Entry<Long,LocalDBEventLogStore.SegmentIndex> entry = segmentIterator.next();
+                        if (compiledSearch.matchesSegment(entry.getValue())) {
+                            segmentID = entry.getKey();
+                            segmentIndex = entry.getValue();
+                            position = segmentIndex.getCount() - 1;
+                        }
+                        continue;
+                    }
+
+                    final int eventPosition = position--;
+                    if (!compiledSearch.matchesLevel(segmentIndex.levelAt(eventPosition))) {
+                        continue;
+                    }
+
+                    final String storedValue = eventStore.readEncodedEvent(segmentID, eventPosition);
+                    if (storedValue == null) { // segment removed since the search started
+                        position = -1;
+                        continue;
+                    }
 
-                final PwmLogEvent logEvent = readEvent(nextDbValue);
-                if (logEvent != null && checkEventForParams(logEvent, searchParameters)) {
-                    eventCount++;
-                    return logEvent;
+                    final PwmLogEvent logEvent = readEvent(storedValue);
+                    if (compiledSearch.matches(logEvent)) {
+                        eventCount++;
+                        return logEvent;
+                    }
                 }
+            } catch (LocalDBException e) {
+                LOGGER.error("error reading localDBLogger event: " + e.getMessage());
             }
 
             finishTime = new Date();
@@ -578,6 +754,15 @@ public class LocalDBLogger implements PwmService {
             return healthRecords;
         }
 
+        {
+            final NumberFormat numberFormat = NumberFormat.getInstance();
+            final long droppedEvents = droppedEventCount.get() + eventQueue.discardedCount();
+            final String message = "LocalDBLogger has written " + numberFormat.format(writtenEventCount.get()) + " events, "
+                    + numberFormat.format(getPendingEventCount()) + " queued, " + numberFormat.format(droppedEvents)
+                    + " discarded (overflow policy " + settings.getOverflowPolicy() + ")";
+            healthRecords.add(new HealthRecord(droppedEvents > 0 ? HealthStatus.CAUTION : HealthStatus.GOOD, HealthTopic.Application, message));
+        }
+
         final int eventCount = getStoredEventCount();
         if (eventCount > settings.getMaxEvents() + 5000) {
             healthRecords.add(new HealthRecord(HealthStatus.CAUTION, HealthTopic.Application, "Record count of " + NumberFormat.getInstance().format(eventCount) + " records, is more than the configured maximum of " + NumberFormat.getInstance().format(settings.getMaxEvents())));
@@ -585,7 +770,7 @@ public class LocalDBLogger implements PwmService {
 
         final Date tailDate = getTailDate();
         final TimeDuration timeDuration = TimeDuration.fromCurrent(tailDate);
-        if (timeDuration.isLongerThan(settings.getMaxAgeMs())) { // older than max age
+        if (timeDuration.isLongerThan(settings.getMaxAgeMs() + settings.getSegmentMaxDurationMs())) { // older than max age, allowing for the oldest segment's time span
             healthRecords.add(new HealthRecord(HealthStatus.CAUTION, HealthTopic.Application, "Oldest record is " + timeDuration.asCompactString() + ", configured maximum is " + new TimeDuration(settings.getMaxAgeMs()).asCompactString()));
         }
 
@@ -615,11 +800,30 @@ public class LocalDBLogger implements PwmService {
         return new ServiceInfo(Collections.singletonList(DataStorageMethod.LOCALDB));
     }
 
+    /**
+     * What {@link #writeEvent(PwmLogEvent)} does when the write queue is full.
+     */
+    public enum OverflowPolicy {
+        /** discard the oldest queued event to make room */
+        DROP_OLDEST,
+
+        /** discard trace and debug events once the queue is three quarters full, and other events when it is full */
+        DROP_DEBUG_FIRST,
+
+        /** wait up to {@link Settings#getBlockDeadlineMs()} for room, then discard */
+        BLOCK_WITH_DEADLINE,
+    }
+
     public static class Settings implements Serializable {
         private int maxEvents = 100 * 1000;
         private long maxAgeMs = (long)4 * (long)7 * (long)24 * (long)60 * (long)60 * (long)1000; // 4 weeks
         private long maxDirtyQueueAgeMs = PwmConstants.LOCALDB_LOGGER_MAX_DIRTY_BUFFER_MS;
         private boolean devDebug = false;
+        private int segmentMaxEvents = 1000;
+        private long segmentMaxDurationMs = 60 * 60 * 1000; // 1 hour
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_DEBUG_FIRST;
+        private long blockDeadlineMs = 1000;
+        private long maxBatchBytes = 1024 * 1024;
 
         public int getMaxEvents()
         {
@@ -661,6 +865,56 @@ public class LocalDBLogger implements PwmService {
             this.devDebug = devDebug;
         }
 
+        public int getSegmentMaxEvents()
+        {
+            return segmentMaxEvents;
+        }
+
+        public void setSegmentMaxEvents(int segmentMaxEvents)
+        {
+            this.segmentMaxEvents = segmentMaxEvents;
+        }
+
+        public long getSegmentMaxDurationMs()
+        {
+            return segmentMaxDurationMs;
+        }
+
+        public void setSegmentMaxDurationMs(long segmentMaxDurationMs)
+        {
+            this.segmentMaxDurationMs = segmentMaxDurationMs;
+        }
+
+        public OverflowPolicy getOverflowPolicy()
+        {
+            return overflowPolicy;
+        }
+
+        public void setOverflowPolicy(OverflowPolicy overflowPolicy)
+        {
+            this.overflowPolicy = overflowPolicy;
+        }
+
+        public long getBlockDeadlineMs()
+        {
+            return blockDeadlineMs;
+        }
+
+        public void setBlockDeadlineMs(long blockDeadlineMs)
+        {
+            this.blockDeadlineMs = blockDeadlineMs;
+        }
+
+        public long getMaxBatchBytes()
+        {
+            return maxBatchBytes;
+        }
+
+        public void setMaxBatchBytes(long maxBatchBytes)
+        {
+            this.maxBatchBytes = maxBatchBytes;
+        }
+
         private Settings copy() {
             return JsonUtil.deserialize(JsonUtil.serialize(this),this.getClass());
         }
@@ -0,0 +1,173 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.logging;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded lock-free queue of log events for any number of producer and consumer threads.  Each slot carries a
+ * sequence number that tells producers and consumers whether the slot is free or filled for their position, so a
+ * full or empty buffer is detected without locking and {@link #offer(PwmLogEvent)} never waits.  The other offer
+ * methods implement the {@link LocalDBLogger.OverflowPolicy} choices for a full buffer.
+ */
+class LogEventRingBuffer {
+    private static final int MAX_DISCARD_ATTEMPTS = 16;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<PwmLogEvent> events;
+    private final AtomicLongArray sequences;
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    private final AtomicLong dequeuePosition = new AtomicLong();
+    private final AtomicLong discardedCount = new AtomicLong();
+
+    LogEventRingBuffer(final int requestedCapacity) {
+        int size = 2;
+        while (size < requestedCapacity && size < (1 << 30)) {
+            size <<= 1;
+        }
+        capacity = size;
+        mask = size - 1;
+        events = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return false if the buffer is full
+     */
+    boolean offer(final PwmLogEvent event) {
+        long position = enqueuePosition.get();
+        while (true) {
+            final int index = (int)(position & mask);
+            final long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    events.set(index, event);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = enqueuePosition.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = enqueuePosition.get();
+            }
+        }
+    }
+
+    /**
+     * Offer the event, discarding the oldest queued events to make room if the buffer is full.
+     *
+     * @return false if other producers kept the buffer full
+     */
+    boolean offerDiscardingOldest(final PwmLogEvent event) {
+        for (int attempts = 0; attempts < MAX_DISCARD_ATTEMPTS; attempts++) {
+            if (offer(event)) {
+                return true;
+            }
+            if (poll() != null) {
+                discardedCount.incrementAndGet();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Offer the event only while the buffer holds fewer than {@code limit} events.
+     *
+     * @return false if the buffer holds {@code limit} or more events, or is full
+     */
+    boolean offerBelow(final PwmLogEvent event, final int limit) {
+        return size() < limit && offer(event);
+    }
+
+    /**
+     * Offer the event, waiting up to the timeout for a consumer to make room if the buffer is full.
+     *
+     * @return false if the buffer was still full when the timeout expired
+     */
+    boolean offer(final PwmLogEvent event, final long timeoutNanos) {
+        if (offer(event)) {
+            return true;
+        }
+        final long deadline = System.nanoTime() + timeoutNanos;
+        while (System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            if (offer(event)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the oldest event, or null if the buffer is empty
+     */
+    PwmLogEvent poll() {
+        long position = dequeuePosition.get();
+        while (true) {
+            final int index = (int)(position & mask);
+            final long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (dequeuePosition.compareAndSet(position, position + 1)) {
+                    final PwmLogEvent event = events.get(index);
+                    events.set(index, null);
+                    sequences.set(index, position + capacity);
+                    return event;
+                }
+                position = dequeuePosition.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = dequeuePosition.get();
+            }
+        }
+    }
+
+    int size() {
+        final long size = enqueuePosition.get() - dequeuePosition.get();
+        return (int)Math.max(0, Math.min(capacity, size));
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of queued events removed by {@link #offerDiscardingOldest(PwmLogEvent)}
+     */
+    long discardedCount() {
+        return discardedCount.get();
+    }
+}
@@ -204,6 +204,9 @@ public class PwmLogManager {
             settings.setMaxEvents(maxEvents);
             settings.setMaxAgeMs(maxAgeMS);
             settings.setDevDebug(devDebugMode);
+            settings.setOverflowPolicy(LocalDBLogger.OverflowPolicy.valueOf(pwmApplication.getConfig().readAppProperty(AppProperty.LOGGING_LOCALDB_OVERFLOW_POLICY)));
+            settings.setBlockDeadlineMs(Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.LOGGING_LOCALDB_BLOCK_DEADLINE_MS)));
+            settings.setMaxBatchBytes(Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.LOGGING_LOCALDB_MAX_BATCH_BYTES)));
             return new LocalDBLogger(pwmApplication, pwmDB, settings);
         } catch (LocalDBException e) {
             //nothing to do;
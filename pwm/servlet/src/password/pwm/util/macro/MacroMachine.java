@@ -22,6 +22,9 @@
 
 package password.pwm.util.macro;
 
+import com.novell.ldapchai.exception.ChaiException;
+import com.novell.ldapchai.exception.ChaiOperationException;
+import com.novell.ldapchai.exception.ChaiUnavailableException;
 import password.pwm.PwmApplication;
 import password.pwm.PwmConstants;
 import password.pwm.bean.SessionLabel;
@@ -38,18 +41,18 @@ import password.pwm.util.StringUtil;
 import password.pwm.util.logging.PwmLogger;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class MacroMachine {
     private static final PwmLogger LOGGER = PwmLogger.forClass(MacroMachine.class);
 
+    private static final List<MacroImplementation> BUILT_IN_MACROS = makeBuiltInMacros();
+
     private final PwmApplication pwmApplication;
     private final SessionLabel sessionLabel;
     private final UserInfoBean userInfoBean;
     private final LoginInfoBean loginInfoBean;
     private final UserDataReader userDataReader;
-    private final Map<Pattern,MacroImplementation> macroImplementations;
+    private final List<MacroImplementation> macroImplementations;
 
     public MacroMachine(
             final PwmApplication pwmApplication,
@@ -67,34 +70,39 @@ public class MacroMachine {
         this.macroImplementations = makeImplementations();
     }
 
-    private Map<Pattern,MacroImplementation> makeImplementations() {
-        final Set<Class<? extends MacroImplementation>> implementations = new HashSet<>();
+    private static List<MacroImplementation> makeBuiltInMacros() {
+        // order is significant, when more than one pattern matches at the same position the first one listed is used.
+        final List<Class<? extends MacroImplementation>> implementations = new ArrayList<>();
         implementations.addAll(StandardMacros.STANDARD_MACROS);
         implementations.addAll(InternalMacros.INTERNAL_MACROS);
-        final LinkedHashMap<Pattern,MacroImplementation> map = new LinkedHashMap<>();
+        final List<MacroImplementation> list = new ArrayList<>();
 
-        for (Class macroClass : implementations) {
+        for (final Class<? extends MacroImplementation> macroClass : implementations) {
             try {
-                final MacroImplementation macroImplementation = (MacroImplementation)macroClass.newInstance();
-                final Pattern pattern = macroImplementation.getRegExPattern();
-                map.put(pattern,macroImplementation);
+                list.add(macroClass.newInstance());
             } catch (Exception e) {
-                LOGGER.error(sessionLabel, "unable to load macro class " + macroClass.getName() + ", error: " + e.getMessage());
+                LOGGER.error("unable to load macro class " + macroClass.getName() + ", error: " + e.getMessage());
             }
         }
+        return Collections.unmodifiableList(list);
+    }
 
+    private List<MacroImplementation> makeImplementations() {
         final List<String> externalMethods = pwmApplication == null
                 ? Collections.<String>emptyList()
                 : pwmApplication.getConfig().readSettingAsStringArray(PwmSetting.EXTERNAL_MACROS_REST_URLS);
 
+        if (externalMethods.isEmpty()) {
+            return BUILT_IN_MACROS;
+        }
+
+        final List<MacroImplementation> list = new ArrayList<>(BUILT_IN_MACROS);
         int iteration = 0;
         for (final String url : externalMethods) {
             iteration++;
-            final MacroImplementation macroImplementation = new ExternalRestMacro(iteration,url);
-            final Pattern pattern = macroImplementation.getRegExPattern();
-            map.put(pattern,macroImplementation);
+            list.add(new ExternalRestMacro(iteration,url));
         }
-        return map;
+        return Collections.unmodifiableList(list);
     }
 
 
@@ -110,15 +118,57 @@ public class MacroMachine {
             final String input,
             final StringReplacer stringReplacer
     )
+    {
+        return expandMacros(input, stringReplacer, false);
+    }
+
+    /**
+     * Expand macros in text read directly from the configuration.  The compiled template is kept in the
+     * configuration's {@link MacroTemplateCache}, so only pass text that has not had tokens, passwords or other per-user
+     * values substituted into it; use {@link #expandMacros(String)} for anything else.
+     */
+    public String expandConfiguredMacros(
+            final String input
+    ) {
+        return expandConfiguredMacros(input, null);
+    }
+
+    public String expandConfiguredMacros(
+            final String input,
+            final StringReplacer stringReplacer
+    )
+    {
+        return expandMacros(input, stringReplacer, true);
+    }
+
+    private String expandMacros(
+            final String input,
+            final StringReplacer stringReplacer,
+            final boolean configuredInput
+    )
     {
         if (input == null) {
             return null;
         }
 
-        if (input.length() < 1) {
+        // every macro pattern begins with '@'
+        if (input.indexOf('@') < 0) {
             return input;
         }
 
+        final MacroTemplate macroTemplate = compileTemplate(input, configuredInput);
+        final MacroUserDataReader macroUserDataReader = userDataReader == null
+                ? null
+                : new MacroUserDataReader(userDataReader);
+
+        if (macroUserDataReader != null && !macroTemplate.getLdapAttributes().isEmpty()) {
+            try {
+                macroUserDataReader.readStringAttributes(macroTemplate.getLdapAttributes());
+            } catch (ChaiException e) {
+                LOGGER.debug(sessionLabel, "unable to read ldap attributes " + macroTemplate.getLdapAttributes() + " for macro expansion, error: " + e.getMessage());
+            }
+        }
+
         final MacroImplementation.MacroRequestInfo macroRequestInfo = new MacroImplementation.MacroRequestInfo() {
             @Override
             public PwmApplication getPwmApplication()
@@ -141,39 +191,59 @@ public class MacroMachine {
             @Override
             public UserDataReader getUserDataReader()
             {
-                return userDataReader;
+                return macroUserDataReader;
             }
         };
 
+        final StringBuilder output = new StringBuilder(macroTemplate.getLiteralLength() + 16 * macroTemplate.getSegments().size());
+        expandTemplate(macroTemplate, output, stringReplacer, macroRequestInfo);
+        return output.toString();
+    }
 
-        String workingString = input;
+    private MacroTemplate compileTemplate(final String input, final boolean configuredInput) {
+        if (!configuredInput || pwmApplication == null) {
+            return MacroTemplate.compile(input, macroImplementations);
+        }
+
+        final MacroTemplateCache templateCache = pwmApplication.getConfig().getMacroTemplateCache();
+        MacroTemplate macroTemplate = templateCache.get(input);
+        if (macroTemplate == null) {
+            macroTemplate = MacroTemplate.compile(input, macroImplementations);
+            templateCache.put(input, macroTemplate);
+        }
+        return macroTemplate;
+    }
 
-        for (final Pattern pattern : macroImplementations.keySet()) {
-            final MacroImplementation pwmMacro = macroImplementations.get(pattern);
-            boolean matched = true;
-            while (matched) {
-                final Matcher matcher = pattern.matcher(workingString);
-                if (matcher.find()) {
-                    workingString = doReplace(workingString, pwmMacro, matcher, stringReplacer, macroRequestInfo);
+    private void expandTemplate(
+            final MacroTemplate macroTemplate,
+            final StringBuilder output,
+            final StringReplacer stringReplacer,
+            final MacroImplementation.MacroRequestInfo macroRequestInfo
+    ) {
+        for (final MacroTemplate.Segment segment : macroTemplate.getSegments()) {
+            if (segment.isLiteral()) {
+                output.append(segment.getText());
+            } else {
+                final String matchedStr;
+                if (segment.getNestedTemplate() != null) {
+                    final StringBuilder nestedValue = new StringBuilder(segment.getNestedPrefix());
+                    expandTemplate(segment.getNestedTemplate(), nestedValue, stringReplacer, macroRequestInfo);
+                    matchedStr = nestedValue.append("]]@").toString();
                 } else {
-                    matched = false;
+                    matchedStr = segment.getText();
                 }
+                final MacroImplementation macroImplementation = macroImplementations.get(segment.getImplementationIndex());
+                output.append(doReplace(matchedStr, macroImplementation, stringReplacer, macroRequestInfo));
             }
         }
-
-        return workingString;
     }
 
     private String doReplace(
-            final String input,
+            final String matchedStr,
             final MacroImplementation macroImplementation,
-            final Matcher matcher,
             final StringReplacer stringReplacer,
             final MacroImplementation.MacroRequestInfo macroRequestInfo
     ) {
-        final String matchedStr = matcher.group();
-        final int startPos = matcher.start();
-        final int endPos = matcher.end();
         String replaceStr = "";
         try {
             replaceStr = macroImplementation.replaceValue(matchedStr, macroRequestInfo);
@@ -189,7 +259,7 @@ public class MacroMachine {
         }
 
         if (replaceStr == null) {
-            return input;
+            return matchedStr;
         }
 
         if (stringReplacer != null) {
@@ -204,7 +274,7 @@ public class MacroMachine {
             LOGGER.trace(sessionLabel, "replaced macro " + matchedStr + " with value: "
                     + (macroImplementation.isSensitive() ? PwmConstants.LOG_REMOVED_VALUE_REPLACEMENT : replaceStr));
         }
-        return new StringBuilder(input).replace(startPos, endPos, replaceStr).toString();
+        return replaceStr == null ? "" : replaceStr;
     }
 
     public static MacroMachine forStatic() {
@@ -254,4 +324,89 @@ public class MacroMachine {
         return new MacroMachine(pwmApplication, sessionLabel, null, null, null);
     }
 
+    /**
+     * Remembers attribute values for the duration of a single expansion, so every attribute referenced by a template
+     * can be read in one batch up front and an attribute referenced more than once is only read once.
+     */
+    private static class MacroUserDataReader implements UserDataReader {
+        private final UserDataReader userDataReader;
+        private final Map<String,String> values = new HashMap<>();
+
+        private MacroUserDataReader(final UserDataReader userDataReader) {
+            this.userDataReader = userDataReader;
+        }
+
+        @Override
+        public String getUserDN() {
+            return userDataReader.getUserDN();
+        }
+
+        @Override
+        public String readStringAttribute(final String attribute)
+                throws ChaiUnavailableException, ChaiOperationException
+        {
+            return readStringAttribute(attribute, false);
+        }
+
+        @Override
+        public String readStringAttribute(
+                final String attribute,
+                final boolean ignoreCache
+        )
+                throws ChaiUnavailableException, ChaiOperationException
+        {
+            if (!ignoreCache && values.containsKey(attribute)) {
+                return values.get(attribute);
+            }
+            final String value = userDataReader.readStringAttribute(attribute, ignoreCache);
+            values.put(attribute, value);
+            return value;
+        }
+
+        @Override
+        public Date readDateAttribute(final String attribute)
+                throws ChaiUnavailableException, ChaiOperationException
+        {
+            return userDataReader.readDateAttribute(attribute);
+        }
+
+        @Override
+        public Map<String,String> readStringAttributes(final Collection<String> attributes)
+                throws ChaiUnavailableException, ChaiOperationException
+        {
+            return readStringAttributes(attributes, false);
+        }
+
+        @Override
+        public Map<String,String> readStringAttributes(
+                final Collection<String> attributes,
+                final boolean ignoreCache
+        )
+                throws ChaiUnavailableException, ChaiOperationException
+        {
+            final Map<String,String> returnObj = new LinkedHashMap<>();
+            final List<String> unreadAttributes = new ArrayList<>();
+            for (final String attribute : attributes) {
+                if (!ignoreCache && values.containsKey(attribute)) {
+                    if (values.get(attribute) != null) {
+                        returnObj.put(attribute, values.get(attribute));
+                    }
+                } else {
+                    unreadAttributes.add(attribute);
+                }
+            }
+
+            if (!unreadAttributes.isEmpty()) {
+                final Map<String,String> readData = userDataReader.readStringAttributes(unreadAttributes, ignoreCache);
+                for (final String attribute : unreadAttributes) {
+                    final String value = readData == null ? null : readData.get(attribute);
+                    values.put(attribute, value);
+                    if (value != null) {
+                        returnObj.put(attribute, value);
+                    }
+                }
+            }
+            return returnObj;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,187 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.macro;
+
+import java.util.*;
+import java.util.regex.Matcher;
+
+/**
+ * A macro input string split into literal text and macro references.  A template is compiled once against the ordered
+ * macro implementations of a {@link MacroMachine}; expanding it afterwards only walks the segment list, so the macro
+ * patterns are never re-run over the text and values substituted into the output are not scanned for further macros.
+ * <p>
+ * Instances are immutable and may be shared between threads.
+ */
+class MacroTemplate {
+    private final List<Segment> segments;
+    private final Set<String> ldapAttributes;
+    private final int literalLength;
+
+    private MacroTemplate(
+            final List<Segment> segments,
+            final Set<String> ldapAttributes,
+            final int literalLength
+    ) {
+        this.segments = segments;
+        this.ldapAttributes = ldapAttributes;
+        this.literalLength = literalLength;
+    }
+
+    List<Segment> getSegments() {
+        return segments;
+    }
+
+    /**
+     * @return the ldap attribute names referenced by {@code @LDAP@} macros anywhere in the template
+     */
+    Set<String> getLdapAttributes() {
+        return ldapAttributes;
+    }
+
+    int getLiteralLength() {
+        return literalLength;
+    }
+
+    static MacroTemplate compile(final String input, final List<MacroImplementation> implementations) {
+        final List<Segment> segments = new ArrayList<>();
+        final Set<String> ldapAttributes = new LinkedHashSet<>();
+        final Matcher[] matchers = new Matcher[implementations.size()];
+
+        int literalStart = 0;
+        int literalLength = 0;
+        int position = input.indexOf('@');
+        while (position >= 0) {
+            Segment macroSegment = null;
+            int macroEnd = position + 1;
+            for (int i = 0; i < implementations.size() && macroSegment == null; i++) {
+                if (matchers[i] == null) {
+                    matchers[i] = implementations.get(i).getRegExPattern().matcher(input);
+                }
+                final Matcher matcher = matchers[i];
+                matcher.region(position, input.length());
+                if (matcher.lookingAt()) {
+                    macroSegment = makeMacroSegment(matcher.group(), i, implementations, ldapAttributes);
+                    macroEnd = matcher.end();
+                }
+            }
+
+            if (macroSegment != null) {
+                if (position > literalStart) {
+                    segments.add(Segment.literal(input.substring(literalStart, position)));
+                    literalLength += position - literalStart;
+                }
+                segments.add(macroSegment);
+                literalStart = macroEnd;
+            }
+            position = input.indexOf('@', macroEnd);
+        }
+
+        if (literalStart < input.length()) {
+            segments.add(Segment.literal(input.substring(literalStart)));
+            literalLength += input.length() - literalStart;
+        }
+
+        return new MacroTemplate(
+                Collections.unmodifiableList(segments),
+                Collections.unmodifiableSet(ldapAttributes),
+                literalLength
+        );
+    }
+
+    private static Segment makeMacroSegment(
+            final String matchedStr,
+            final int implementationIndex,
+            final List<MacroImplementation> implementations,
+            final Set<String> ldapAttributes
+    ) {
+        final MacroImplementation implementation = implementations.get(implementationIndex);
+
+        if (implementation instanceof StandardMacros.EncodingMacro) {
+            // the encoded value may itself contain macros, which are expanded before the value is encoded.
+            final int valueStart = matchedStr.indexOf(":[[", "@Encode:".length()) + ":[[".length();
+            final int valueEnd = matchedStr.length() - "]]@".length();
+            final MacroTemplate nested = compile(matchedStr.substring(valueStart, valueEnd), implementations);
+            ldapAttributes.addAll(nested.getLdapAttributes());
+            return new Segment(matchedStr, implementationIndex, matchedStr.substring(0, valueStart), nested);
+        }
+
+        if (implementation instanceof StandardMacros.LdapMacro) {
+            final List<String> parameters = AbstractMacro.splitMacroParameters(matchedStr, "LDAP");
+            if (!parameters.isEmpty() && !parameters.get(0).isEmpty() && !parameters.get(0).equalsIgnoreCase("dn")) {
+                ldapAttributes.add(parameters.get(0));
+            }
+        }
+
+        return new Segment(matchedStr, implementationIndex, null, null);
+    }
+
+    static class Segment {
+        private final String text;
+        private final int implementationIndex;
+        private final String nestedPrefix;
+        private final MacroTemplate nestedTemplate;
+
+        private Segment(
+                final String text,
+                final int implementationIndex,
+                final String nestedPrefix,
+                final MacroTemplate nestedTemplate
+        ) {
+            this.text = text;
+            this.implementationIndex = implementationIndex;
+            this.nestedPrefix = nestedPrefix;
+            this.nestedTemplate = nestedTemplate;
+        }
+
+        private static Segment literal(final String text) {
+            return new Segment(text, -1, null, null);
+        }
+
+        boolean isLiteral() {
+            return implementationIndex < 0;
+        }
+
+        /**
+         * @return the literal text, or the macro exactly as it appeared in the input
+         */
+        String getText() {
+            return text;
+        }
+
+        int getImplementationIndex() {
+            return implementationIndex;
+        }
+
+        /**
+         * @return the part of the macro before its nested value, such as {@code @Encode:base64:[[}, or null if the
+         * macro has no nested value.
+         */
+        String getNestedPrefix() {
+            return nestedPrefix;
+        }
+
+        MacroTemplate getNestedTemplate() {
+            return nestedTemplate;
+        }
+    }
+}
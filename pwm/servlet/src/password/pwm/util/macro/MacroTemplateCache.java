@@ -0,0 +1,57 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.macro;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compiled templates for macro text read from a single {@link password.pwm.config.Configuration}.  Only configured
+ * text belongs here; text with tokens, passwords or other user data already substituted in would make those values
+ * cache keys and would only churn the cache.  Each configuration starts with an empty cache, so templates compiled
+ * against a previous configuration's external macros are never reused.
+ */
+public class MacroTemplateCache {
+    private static final int MAX_CACHED_TEMPLATES = 500;
+
+    private final Map<String,MacroTemplate> templates = Collections.synchronizedMap(
+            new LinkedHashMap<String,MacroTemplate>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String,MacroTemplate> eldest) {
+                    return size() > MAX_CACHED_TEMPLATES;
+                }
+            });
+
+    MacroTemplate get(final String input) {
+        return templates.get(input);
+    }
+
+    void put(final String input, final MacroTemplate macroTemplate) {
+        templates.put(input, macroTemplate);
+    }
+
+    public int size() {
+        return templates.size();
+    }
+}
@@ -140,13 +140,13 @@ public class ActionExecutor {
                 }
                 final MacroMachine macroMachine = settings.getMacroMachine();
 
-                url = macroMachine.expandMacros(url, new MacroMachine.URLEncoderReplacer());
-                body = body == null ? "" : macroMachine.expandMacros(body);
+                url = macroMachine.expandConfiguredMacros(url, new MacroMachine.URLEncoderReplacer());
+                body = body == null ? "" : macroMachine.expandConfiguredMacros(body);
 
                 for (final String headerName : headers.keySet()) {
                     final String headerValue = headers.get(headerName);
                     if (headerValue != null) {
-                        headers.put(headerName, macroMachine.expandMacros(headerValue));
+                        headers.put(headerName, macroMachine.expandConfiguredMacros(headerValue));
                     }
                 }
             }
@@ -191,7 +191,7 @@ public class ActionExecutor {
         }
 
         if (macroMachine != null) {
-            attrValue  = macroMachine.expandMacros(attrValue);
+            attrValue  = macroMachine.expandConfiguredMacros(attrValue);
         }
 
         LOGGER.trace(pwmSession,"beginning ldap " + ldapMethod.toString() + " operation on " + theUser.getEntryDN() + ", attribute " + attrName);
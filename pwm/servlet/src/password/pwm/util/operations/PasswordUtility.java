@@ -241,6 +241,7 @@ public class PasswordUtility {
     )
             throws ChaiUnavailableException, PwmUnrecoverableException, PwmOperationalException
     {
+        final long startNanos = System.nanoTime();
         final UserInfoBean uiBean = pwmSession.getUserInfoBean();
 
         if (!pwmSession.getSessionManager().checkPermission(pwmApplication, Permission.CHANGE_PASSWORD)) {
@@ -338,6 +339,7 @@ public class PasswordUtility {
             pwmApplication.getStatisticsManager().updateEps(Statistic.EpsType.PASSWORD_CHANGES,1);
             final int passwordStrength = PasswordUtility.judgePasswordStrength(newPassword.getStringValue());
             pwmApplication.getStatisticsManager().updateAverageValue(Statistic.AVG_PASSWORD_STRENGTH,passwordStrength);
+            pwmApplication.getStatisticsManager().updateHistogramValue(Statistic.PASSWORD_CHANGE_TIME, (System.nanoTime() - startNanos) / 1000);
         }
 
         // add the old password to the global history list (if the old password is known)
@@ -650,8 +652,19 @@ public class PasswordUtility {
             return 0;
         }
 
+        return judgePasswordStrength(password, new PasswordCharCounter(password));
+    }
+
+    public static int judgePasswordStrength(
+            final String password,
+            final PasswordCharCounter charCounter
+    )
+    {
+        if (password == null || password.length() < 1) {
+            return 0;
+        }
+
         int score = 0;
-        final PasswordCharCounter charCounter = new PasswordCharCounter(password);
 
         // -- Additions --
         // amount of unique chars
@@ -29,21 +29,28 @@ import password.pwm.config.option.DataStorageMethod;
 import password.pwm.error.*;
 import password.pwm.health.HealthMessage;
 import password.pwm.health.HealthRecord;
+import password.pwm.health.HealthStatus;
+import password.pwm.health.HealthTopic;
 import password.pwm.util.Helper;
 import password.pwm.util.JsonUtil;
 import password.pwm.util.TimeDuration;
 import password.pwm.util.localdb.LocalDB;
 import password.pwm.util.localdb.LocalDBStoredQueue;
 import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.stats.LatencyHistogram;
 
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 public abstract class AbstractQueueManager implements PwmService {
     protected PwmLogger LOGGER = PwmLogger.forClass(AbstractQueueManager.class);
 
     private static final long QUEUE_POLL_INTERVAL = 30 * 1003;
+    private static final long MAX_RETRY_BACKOFF_MS = 60 * 60 * 1000;
 
     protected PwmApplication pwmApplication;
     protected STATUS status = PwmService.STATUS.NEW;
@@ -56,7 +63,16 @@ public abstract class AbstractQueueManager implements PwmService {
     protected PwmApplication.AppAttribute itemCountAppAttribute;
     protected String serviceName = AbstractQueueManager.class.getSimpleName();
 
-    protected FailureInfo lastFailure;
+    protected volatile FailureInfo lastFailure;
+
+    private ExecutorService sendExecutor;
+    private SendRateLimiter sendRateLimiter;
+    private final AtomicLong deliveredCount = new AtomicLong();
+    private final AtomicLong retriedCount = new AtomicLong();
+    private final AtomicLong discardedCount = new AtomicLong();
+    private final LatencyHistogram deliveryLag = new LatencyHistogram();
+    private volatile int lastPassDelivered;
+    private volatile long lastPassDurationMs;
 
     static class FailureInfo {
         private Date time = new Date();
@@ -135,6 +151,8 @@ public abstract class AbstractQueueManager implements PwmService {
         private String item;
         private Date timestamp;
         private int itemID;
+        private int attempts;
+        private Date nextAttempt;
 
         protected QueueEvent(
                 final String item,
@@ -146,6 +164,22 @@ public abstract class AbstractQueueManager implements PwmService {
             this.itemID = itemID;
         }
 
+        /**
+         * @return a copy of this event with the attempt count incremented and the next attempt deferred by an
+         * exponential backoff starting at {@code retryWait}
+         */
+        QueueEvent nextRetry(final TimeDuration retryWait) {
+            final QueueEvent retryEvent = new QueueEvent(item, timestamp, itemID);
+            retryEvent.attempts = attempts + 1;
+            final long backoffMs = Math.min(MAX_RETRY_BACKOFF_MS, retryWait.getTotalMilliseconds() << Math.min(attempts, 16));
+            retryEvent.nextAttempt = new Date(System.currentTimeMillis() + backoffMs);
+            return retryEvent;
+        }
+
+        boolean isDue() {
+            return nextAttempt == null || nextAttempt.getTime() <= System.currentTimeMillis();
+        }
+
         public String getItem() {
             return item;
         }
@@ -158,6 +192,11 @@ public abstract class AbstractQueueManager implements PwmService {
         {
             return itemID;
         }
+
+        public int getAttempts()
+        {
+            return attempts;
+        }
     }
 
     boolean sendIsRetryable(final Exception e) {
@@ -201,6 +240,13 @@ public abstract class AbstractQueueManager implements PwmService {
         sendQueue = LocalDBStoredQueue.createLocalDBStoredQueue(pwmApplication, localDB, DB);
         final String threadName = Helper.makeThreadName(pwmApplication, this.getClass()) + " timer thread";
         timerThread = new Timer(threadName,true);
+        if (settings.getWorkerCount() > 1) {
+            sendExecutor = Executors.newFixedThreadPool(
+                    settings.getWorkerCount(),
+                    Helper.makePwmThreadFactory(Helper.makeThreadName(pwmApplication, this.getClass()) + "-sender", true)
+            );
+        }
+        sendRateLimiter = new SendRateLimiter(settings.getMaxSendsPerSecond());
         status = PwmService.STATUS.OPEN;
         LOGGER.debug(settings.getDebugName() + " is now open, " + sendQueue.size() + " items in queue");
         timerThread.schedule(new QueueProcessorTask(),1,QUEUE_POLL_INTERVAL);
@@ -257,6 +303,17 @@ public abstract class AbstractQueueManager implements PwmService {
             timerThread.cancel();
         }
         timerThread = null;
+
+        if (sendExecutor != null) {
+            sendExecutor.shutdown();
+            try {
+                sendExecutor.awaitTermination(maxCloseWaitMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                LOGGER.warn("interrupted while waiting for send workers to stop");
+            }
+        }
+        sendExecutor = null;
+        closeSendResources();
     }
 
     public List<HealthRecord> healthCheck() {
@@ -275,6 +332,12 @@ public abstract class AbstractQueueManager implements PwmService {
         return Collections.emptyList();
     }
 
+    /**
+     * Deliver queued items in batches read from the head of the queue.  The items of a batch are sent by the worker
+     * pool, and any item that fails with a retryable error is appended to the tail of the queue with a backoff, so
+     * it does not hold up the items behind it.  Only when every item in a batch fails is delivery paused for the
+     * error retry wait time.
+     */
     private void processQueue() {
         if (lastFailure != null) {
             final TimeDuration timeSinceFailure = TimeDuration.fromCurrent(lastSendTime);
@@ -284,42 +347,158 @@ public abstract class AbstractQueueManager implements PwmService {
         }
 
         lastSendTime = new Date();
+        final long startTime = System.currentTimeMillis();
+        final int batchSize = Math.max(10, settings.getWorkerCount() * 10);
+        int passDelivered = 0;
+        int deferredInSequence = 0;
+
+        try {
+            while (!sendQueue.isEmpty() && timerThread != null) {
+                final List<String> batch = new ArrayList<>();
+                for (final Iterator<String> iter = sendQueue.iterator(); iter.hasNext() && batch.size() < batchSize; ) {
+                    batch.add(iter.next());
+                }
 
-        boolean sendFailure = false;
-        while (sendQueue.peekFirst() != null && !sendFailure) {
-            final String jsonEvent = sendQueue.peekFirst();
-            if (jsonEvent != null) {
-                final QueueEvent event = JsonUtil.deserialize(jsonEvent, QueueEvent.class);
-
-                if (event == null || event.getTimestamp() == null) {
-                    sendQueue.pollFirst();
-                } else if (TimeDuration.fromCurrent(event.getTimestamp()).isLongerThan(
-                        settings.getMaxQueueItemAge())) {
-                    LOGGER.debug("discarding event due to maximum retry age: " + queueItemToDebugString(event));
-                    sendQueue.pollFirst();
-                    noteDiscardedItem(event);
-                } else {
-                    final String item = event.getItem();
-
-                    LOGGER.trace("preparing to send item in queue: " + queueItemToDebugString(
-                            event) + ", queue size: " + sendQueue.size());
-
-                    // execute operation
-                    try {
-                        sendItem(item);
-                        sendQueue.pollFirst();
-                        LOGGER.trace("queued item processed and removed from queue: " + queueItemToDebugString(event) + ", queue size: " + sendQueue.size());
-                        lastFailure = null;
-                    } catch (PwmOperationalException e) {
-                        sendFailure = true;
-                        lastFailure = new FailureInfo(e.getErrorInformation(),event);
-                        LOGGER.debug("queued item was not successfully processed, will retry: " + queueItemToDebugString(event) + ", queue size: " + sendQueue.size());
+                final List<QueueEvent> dispatchEvents = new ArrayList<>();
+                final List<String> requeueItems = new ArrayList<>();
+                for (final String jsonEvent : batch) {
+                    final QueueEvent event = jsonEvent == null ? null : JsonUtil.deserialize(jsonEvent, QueueEvent.class);
+                    if (event == null || event.getTimestamp() == null) {
+                        LOGGER.debug("discarding unreadable queue item");
+                    } else if (TimeDuration.fromCurrent(event.getTimestamp()).isLongerThan(settings.getMaxQueueItemAge())) {
+                        LOGGER.debug("discarding event due to maximum retry age: " + queueItemToDebugString(event));
+                        discardedCount.incrementAndGet();
+                        noteDiscardedItem(event);
+                    } else if (!event.isDue()) {
+                        requeueItems.add(jsonEvent);
+                    } else {
+                        dispatchEvents.add(event);
                     }
                 }
+
+                final Map<QueueEvent, PwmOperationalException> failures = sendAll(dispatchEvents);
+                for (final QueueEvent event : dispatchEvents) {
+                    if (failures.containsKey(event)) {
+                        requeueItems.add(JsonUtil.serialize(event.nextRetry(settings.getErrorRetryWaitTime())));
+                        retriedCount.incrementAndGet();
+                    }
+                }
+
+                // re-queued items are written before the batch is removed, so an interruption can repeat a send but never lose an item
+                sendQueue.addAllLast(requeueItems);
+                sendQueue.removeFirst(batch.size());
+
+                final int batchDelivered = dispatchEvents.size() - failures.size();
+                passDelivered += batchDelivered;
+                if (batchDelivered > 0) {
+                    lastFailure = null;
+                } else if (!failures.isEmpty()) {
+                    final Map.Entry<QueueEvent, PwmOperationalException> failure = failures.entrySet().iterator().next();
+                    lastFailure = new FailureInfo(failure.getValue().getErrorInformation(), failure.getKey());
+                    LOGGER.debug("no items in batch of " + dispatchEvents.size() + " could be processed, pausing queue for " + settings.getErrorRetryWaitTime().asCompactString());
+                    break;
+                }
+
+                deferredInSequence = dispatchEvents.isEmpty() ? deferredInSequence + batch.size() : 0;
+                if (deferredInSequence >= sendQueue.size()) {
+                    // every remaining item is waiting out its retry backoff
+                    break;
+                }
+            }
+        } finally {
+            if (passDelivered > 0) {
+                lastPassDelivered = passDelivered;
+                lastPassDurationMs = System.currentTimeMillis() - startTime;
+                LOGGER.trace("queue pass processed " + passDelivered + " items in " + TimeDuration.fromCurrent(startTime).asCompactString() + ", queue size: " + sendQueue.size());
             }
+            afterQueuePass();
         }
     }
 
+    private Map<QueueEvent, PwmOperationalException> sendAll(final List<QueueEvent> events) {
+        final Map<QueueEvent, PwmOperationalException> failures = new ConcurrentHashMap<>();
+        final ExecutorService executor = sendExecutor;
+        if (executor == null || events.size() < 2) {
+            for (final QueueEvent event : events) {
+                sendEvent(event, failures);
+            }
+            return failures;
+        }
+
+        final Map<QueueEvent, Future<?>> futures = new LinkedHashMap<>();
+        for (final QueueEvent event : events) {
+            try {
+                futures.put(event, executor.submit(new Runnable() {
+                    public void run() {
+                        sendEvent(event, failures);
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                failures.put(event, new PwmOperationalException(new ErrorInformation(PwmError.ERROR_CLOSING)));
+            }
+        }
+        for (final Map.Entry<QueueEvent, Future<?>> entry : futures.entrySet()) {
+            try {
+                entry.getValue().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return failures;
+            } catch (ExecutionException e) {
+                final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_UNKNOWN, "unexpected error sending queued item: " + e.getCause());
+                failures.put(entry.getKey(), new PwmOperationalException(errorInformation));
+                LOGGER.error(errorInformation.toDebugStr(), e.getCause());
+            }
+        }
+        return failures;
+    }
+
+    private void sendEvent(final QueueEvent event, final Map<QueueEvent, PwmOperationalException> failures) {
+        sendRateLimiter.acquire();
+        try {
+            LOGGER.trace("preparing to send item in queue: " + queueItemToDebugString(event));
+            sendItem(event.getItem());
+            deliveredCount.incrementAndGet();
+            deliveryLag.record(TimeUnit.MILLISECONDS.toMicros(TimeDuration.fromCurrent(event.getTimestamp()).getTotalMilliseconds()));
+            LOGGER.trace("queued item processed: " + queueItemToDebugString(event));
+        } catch (PwmOperationalException e) {
+            failures.put(event, e);
+            LOGGER.debug("queued item was not successfully processed, will retry: " + queueItemToDebugString(event) + ", attempt " + (event.getAttempts() + 1));
+        }
+    }
+
+    /**
+     * @return delivery statistics since the service was opened, for inclusion in a subclass health check
+     */
+    protected HealthRecord deliveryHealthRecord(final HealthTopic healthTopic) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(settings.getDebugName()).append(" processed ").append(deliveredCount.get()).append(" items");
+        sb.append(", ").append(retriedCount.get()).append(" retries, ").append(discardedCount.get()).append(" expired");
+        if (lastPassDurationMs > 0) {
+            sb.append("; last pass ").append(lastPassDelivered * 1000L / lastPassDurationMs).append(" items/second");
+        }
+        if (deliveryLag.getCount() > 0) {
+            sb.append("; delivery lag p50=").append(LatencyHistogram.formatMs(deliveryLag.getPercentile(0.50))).append("ms");
+            sb.append(" p99=").append(LatencyHistogram.formatMs(deliveryLag.getPercentile(0.99))).append("ms");
+        }
+        sb.append("; ").append(queueSize()).append(" items queued");
+        final Date eldestItem = eldestItem();
+        if (eldestItem != null) {
+            sb.append(", oldest queued for ").append(TimeDuration.fromCurrent(eldestItem).asCompactString());
+        }
+        return new HealthRecord(HealthStatus.GOOD, healthTopic, sb.toString());
+    }
+
+    /**
+     * Called on the queue thread at the end of every queue pass, including the periodic polls of an empty queue.
+     */
+    protected void afterQueuePass() {
+    }
+
+    /**
+     * Called when the service is closed, after the queue thread and send workers have stopped.
+     */
+    protected void closeSendResources() {
+    }
 
     abstract void sendItem(String item) throws PwmOperationalException;
 
@@ -338,11 +517,44 @@ public abstract class AbstractQueueManager implements PwmService {
         }
     }
 
+    /**
+     * Spaces sends evenly so that no more than the configured number start per second across all workers.  A limit of
+     * zero disables the limiter.
+     */
+    static class SendRateLimiter {
+        private final long intervalNanos;
+        private long nextPermitNanos = System.nanoTime();
+
+        SendRateLimiter(final int permitsPerSecond) {
+            this.intervalNanos = permitsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / permitsPerSecond : 0;
+        }
+
+        void acquire() {
+            if (intervalNanos == 0) {
+                return;
+            }
+
+            final long permitNanos;
+            synchronized (this) {
+                permitNanos = Math.max(System.nanoTime(), nextPermitNanos);
+                nextPermitNanos = permitNanos + intervalNanos;
+            }
+
+            long waitNanos = permitNanos - System.nanoTime();
+            while (waitNanos > 0 && !Thread.currentThread().isInterrupted()) {
+                LockSupport.parkNanos(this, waitNanos);
+                waitNanos = permitNanos - System.nanoTime();
+            }
+        }
+    }
+
     protected static class Settings {
         private TimeDuration maxQueueItemAge;
         private TimeDuration errorRetryWaitTime;
         private int maxQueueItemCount;
         private String debugName;
+        private int workerCount = 1;
+        private int maxSendsPerSecond = 0;
 
         public Settings(TimeDuration maxQueueItemAge, TimeDuration errorRetryWaitTime, int maxQueueItemCount, String debugName) {
             this.maxQueueItemAge = maxQueueItemAge;
@@ -351,6 +563,12 @@ public abstract class AbstractQueueManager implements PwmService {
             this.debugName = debugName;
         }
 
+        public Settings(TimeDuration maxQueueItemAge, TimeDuration errorRetryWaitTime, int maxQueueItemCount, String debugName, int workerCount, int maxSendsPerSecond) {
+            this(maxQueueItemAge, errorRetryWaitTime, maxQueueItemCount, debugName);
+            this.workerCount = Math.max(1, workerCount);
+            this.maxSendsPerSecond = Math.max(0, maxSendsPerSecond);
+        }
+
         public TimeDuration getMaxQueueItemAge() {
             return maxQueueItemAge;
         }
@@ -366,6 +584,14 @@ public abstract class AbstractQueueManager implements PwmService {
         public String getDebugName() {
             return debugName;
         }
+
+        public int getWorkerCount() {
+            return workerCount;
+        }
+
+        public int getMaxSendsPerSecond() {
+            return maxSendsPerSecond;
+        }
     }
 
     public ServiceInfo serviceInfo()
@@ -35,6 +35,7 @@ import password.pwm.error.PwmOperationalException;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.health.HealthMessage;
 import password.pwm.health.HealthRecord;
+import password.pwm.health.HealthTopic;
 import password.pwm.util.JsonUtil;
 import password.pwm.util.PasswordData;
 import password.pwm.util.StringUtil;
@@ -59,7 +60,11 @@ public class
         EmailQueueManager extends AbstractQueueManager {
 // ------------------------------ FIELDS ------------------------------
 
+    private static final long TRANSPORT_IDLE_TIMEOUT_MS = 30 * 1000;
+
     private Properties javaMailProps = new Properties();
+    private javax.mail.Session mailSession;
+    private SmtpTransportPool transportPool;
 
 // --------------------------- CONSTRUCTORS ---------------------------
 
@@ -76,11 +81,23 @@ public class
     {
         LOGGER = PwmLogger.forClass(EmailQueueManager.class);
         javaMailProps = makeJavaMailProps(pwmApplication.getConfig());
+        mailSession = javax.mail.Session.getInstance(javaMailProps, null);
+        transportPool = new SmtpTransportPool(
+                new SmtpTransportPool.Connector() {
+                    public SmtpTransportPool.PooledTransport connect() throws MessagingException {
+                        return connectTransport();
+                    }
+                },
+                Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.QUEUE_EMAIL_MAX_MESSAGES_PER_CONNECTION)),
+                TRANSPORT_IDLE_TIMEOUT_MS
+        );
         final Settings settings = new Settings(
                 new TimeDuration(Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.QUEUE_EMAIL_MAX_AGE_MS))),
                 new TimeDuration(Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.QUEUE_EMAIL_RETRY_TIMEOUT_MS))),
                 Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.QUEUE_EMAIL_MAX_COUNT)),
-                EmailQueueManager.class.getSimpleName()
+                EmailQueueManager.class.getSimpleName(),
+                Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.QUEUE_EMAIL_WORKER_THREADS)),
+                Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.QUEUE_EMAIL_MAX_SENDS_PER_SECOND))
         );
         super.init(
                 pwmApplication,
@@ -166,31 +183,10 @@ public class
         // create a new MimeMessage object (using the Session created above)
         try {
             final Message message = convertEmailItemToMessage(emailItemBean, this.pwmApplication.getConfig());
-            final String mailuser = this.pwmApplication.getConfig().readSettingAsString(PwmSetting.EMAIL_USERNAME);
-            final PasswordData mailpassword = this.pwmApplication.getConfig().readSettingAsPassword(PwmSetting.EMAIL_PASSWORD);
-
-            // Login to SMTP server first if both username and password is given
-            final String logText;
-            if (mailuser == null || mailuser.length() < 1 || mailpassword == null) {
-
-                logText = "plaintext";
-                Transport.send(message);
-            } else {
-                // create a new Session object for the message
-                final javax.mail.Session session = javax.mail.Session.getInstance(javaMailProps, null);
-
-                final String mailhost = this.pwmApplication.getConfig().readSettingAsString(PwmSetting.EMAIL_SERVER_ADDRESS);
-                final int mailport = (int)this.pwmApplication.getConfig().readSettingAsLong(PwmSetting.EMAIL_SERVER_PORT);
-
-                final Transport tr = session.getTransport("smtp");
-                tr.connect(mailhost, mailport, mailuser, mailpassword.getStringValue());
-                message.saveChanges();
-                tr.sendMessage(message, message.getAllRecipients());
-                tr.close();
-                logText = "authenticated ";
-            }
+            message.saveChanges();
+            final String logText = transportPool.send(message);
 
-            LOGGER.debug("successfully sent " + logText + "email: " + emailItemBean.toString());
+            LOGGER.debug("successfully sent " + logText + " email: " + emailItemBean.toString());
             StatisticsManager.incrementStat(pwmApplication, Statistic.EMAIL_SEND_SUCCESSES);
 
         } catch (Exception e) {
@@ -208,6 +204,50 @@ public class
         }
     }
 
+    private SmtpTransportPool.PooledTransport connectTransport()
+            throws MessagingException
+    {
+        final String mailuser = this.pwmApplication.getConfig().readSettingAsString(PwmSetting.EMAIL_USERNAME);
+        final PasswordData mailpassword = this.pwmApplication.getConfig().readSettingAsPassword(PwmSetting.EMAIL_PASSWORD);
+        final Transport transport = mailSession.getTransport("smtp");
+
+        // Login to SMTP server first if both username and password is given
+        if (mailuser == null || mailuser.length() < 1 || mailpassword == null) {
+            transport.connect();
+            return new SmtpTransportPool.PooledTransport(transport, "plaintext");
+        }
+
+        final String mailhost = this.pwmApplication.getConfig().readSettingAsString(PwmSetting.EMAIL_SERVER_ADDRESS);
+        final int mailport = (int)this.pwmApplication.getConfig().readSettingAsLong(PwmSetting.EMAIL_SERVER_PORT);
+        try {
+            transport.connect(mailhost, mailport, mailuser, mailpassword.getStringValue());
+        } catch (PwmUnrecoverableException e) {
+            throw new MessagingException("unable to read smtp password: " + e.getMessage());
+        }
+        return new SmtpTransportPool.PooledTransport(transport, "authenticated");
+    }
+
+    @Override
+    protected void afterQueuePass() {
+        transportPool.closeIdle();
+    }
+
+    @Override
+    protected void closeSendResources() {
+        if (transportPool != null) {
+            transportPool.close();
+        }
+    }
+
+    @Override
+    public List<HealthRecord> healthCheck() {
+        final List<HealthRecord> healthRecords = new ArrayList<>(super.healthCheck());
+        if (status() == STATUS.OPEN) {
+            healthRecords.add(deliveryHealthRecord(HealthTopic.Email));
+        }
+        return healthRecords;
+    }
+
     @Override
     List<HealthRecord> failureToHealthRecord(FailureInfo failureInfo) {
         return Collections.singletonList(HealthRecord.forMessage(HealthMessage.Email_SendFailure, failureInfo.getErrorInformation().toDebugStr()));
@@ -219,10 +259,7 @@ public class
         final boolean hasHtml = emailItemBean.getBodyHtml() != null && emailItemBean.getBodyHtml().length() > 0;
 
 
-        // create a new Session object for the message
-        final javax.mail.Session session = javax.mail.Session.getInstance(javaMailProps, null);
-
-        final Message message = new MimeMessage(session);
+        final Message message = new MimeMessage(mailSession);
         message.setFrom();
         message.setFrom(makeInternetAddress(emailItemBean.getFrom()));
         message.setRecipients(Message.RecipientType.TO, new InternetAddress[]{makeInternetAddress(emailItemBean.getTo())});
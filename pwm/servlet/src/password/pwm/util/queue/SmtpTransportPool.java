@@ -0,0 +1,167 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.queue;
+
+import password.pwm.util.logging.PwmLogger;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Transport;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Pool of connected SMTP transports shared by the email send threads.  A connection is reused for up to
+ * {@code maxMessagesPerConnection} messages and closed once it has been idle for {@code idleTimeoutMs}.
+ * <p/>
+ * A send that fails because a reused connection was dropped by the server is retried once on a new connection.
+ * Any other failure is returned to the caller; a {@link SendFailedException} (rejected recipients) leaves the
+ * connection open and in the pool.
+ */
+class SmtpTransportPool {
+    private static final PwmLogger LOGGER = PwmLogger.forClass(SmtpTransportPool.class);
+
+    interface Connector {
+        /**
+         * @return a newly connected transport
+         */
+        PooledTransport connect() throws MessagingException;
+    }
+
+    private final Connector connector;
+    private final int maxMessagesPerConnection;
+    private final long idleTimeoutMs;
+    private final Queue<PooledTransport> idleTransports = new ConcurrentLinkedQueue<>();
+
+    SmtpTransportPool(final Connector connector, final int maxMessagesPerConnection, final long idleTimeoutMs) {
+        this.connector = connector;
+        this.maxMessagesPerConnection = Math.max(1, maxMessagesPerConnection);
+        this.idleTimeoutMs = idleTimeoutMs;
+    }
+
+    /**
+     * Send the message on a pooled connection.
+     *
+     * @return description of the connection type, for logging
+     */
+    String send(final Message message)
+            throws MessagingException
+    {
+        final PooledTransport idleTransport = idleTransports.poll();
+        final PooledTransport pooledTransport = idleTransport != null ? idleTransport : connector.connect();
+        try {
+            return sendOn(pooledTransport, message);
+        } catch (SendFailedException e) {
+            throw e;
+        } catch (MessagingException e) {
+            final boolean connectionDropped = pooledTransport.messageCount > 0 && !pooledTransport.transport.isConnected();
+            closeTransport(pooledTransport);
+            if (!connectionDropped) {
+                throw e;
+            }
+
+            // the server dropped the reused connection while it was idle
+            LOGGER.trace("send failed on dropped connection, retrying on a new connection: " + e.getMessage());
+            final PooledTransport newTransport = connector.connect();
+            try {
+                return sendOn(newTransport, message);
+            } catch (SendFailedException retryException) {
+                throw retryException;
+            } catch (MessagingException retryException) {
+                closeTransport(newTransport);
+                throw retryException;
+            }
+        }
+    }
+
+    /**
+     * Close connections that have been idle longer than the idle timeout.
+     */
+    void closeIdle() {
+        final long idleCutoff = System.currentTimeMillis() - idleTimeoutMs;
+        for (final Iterator<PooledTransport> iter = idleTransports.iterator(); iter.hasNext(); ) {
+            final PooledTransport pooledTransport = iter.next();
+            if (pooledTransport.lastUsed < idleCutoff) {
+                iter.remove();
+                closeTransport(pooledTransport);
+            }
+        }
+    }
+
+    void close() {
+        PooledTransport pooledTransport;
+        while ((pooledTransport = idleTransports.poll()) != null) {
+            closeTransport(pooledTransport);
+        }
+    }
+
+    int idleCount() {
+        return idleTransports.size();
+    }
+
+    private String sendOn(final PooledTransport pooledTransport, final Message message)
+            throws MessagingException
+    {
+        try {
+            pooledTransport.transport.sendMessage(message, message.getAllRecipients());
+        } catch (SendFailedException e) {
+            // the server rejected the message or its recipients; the connection is still usable
+            release(pooledTransport);
+            throw e;
+        }
+        pooledTransport.messageCount++;
+        release(pooledTransport);
+        return pooledTransport.logText;
+    }
+
+    private void release(final PooledTransport pooledTransport) {
+        pooledTransport.lastUsed = System.currentTimeMillis();
+        if (pooledTransport.messageCount >= maxMessagesPerConnection) {
+            closeTransport(pooledTransport);
+        } else {
+            idleTransports.offer(pooledTransport);
+        }
+    }
+
+    private static void closeTransport(final PooledTransport pooledTransport) {
+        try {
+            pooledTransport.transport.close();
+        } catch (MessagingException e) {
+            LOGGER.trace("error closing smtp connection: " + e.getMessage());
+        }
+    }
+
+    static class PooledTransport {
+        private final Transport transport;
+        private final String logText;
+        private int messageCount;
+        private long lastUsed = System.currentTimeMillis();
+
+        PooledTransport(final Transport transport, final String logText) {
+            this.transport = transport;
+            this.logText = logText;
+        }
+    }
+}
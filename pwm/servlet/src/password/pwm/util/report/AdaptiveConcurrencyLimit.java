@@ -0,0 +1,99 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.report;
+
+/**
+ * Additive-increase / multiplicative-decrease limit on the number of concurrent ldap reads performed by the report
+ * crawl.  Results are evaluated in windows; the limit grows by one while the window latency stays close to the best
+ * latency observed so far, shrinks when the latency climbs, and is halved when the error rate exceeds the threshold.
+ * <p>
+ * Instances are not thread safe, results must be reported from a single dispatching thread.
+ */
+class AdaptiveConcurrencyLimit {
+    static final float LATENCY_TOLERANCE = 2.0f;
+    static final float LATENCY_BACKOFF = 0.75f;
+    static final float ERROR_RATE_THRESHOLD = 0.10f;
+    static final int MIN_WINDOW_SIZE = 10;
+
+    private final int maxLimit;
+
+    private float limit = 1;
+    private float baselineLatency = -1;
+
+    private int windowSamples;
+    private long windowLatency;
+    private int windowErrors;
+
+    AdaptiveConcurrencyLimit(final int maxLimit) {
+        this.maxLimit = maxLimit < 1 ? 1 : maxLimit;
+    }
+
+    int getLimit() {
+        return (int) limit;
+    }
+
+    float getBaselineLatency() {
+        return baselineLatency;
+    }
+
+    void recordSuccess(final long latencyMs) {
+        windowSamples++;
+        windowLatency += latencyMs;
+        evaluateWindow();
+    }
+
+    void recordError() {
+        windowSamples++;
+        windowErrors++;
+        evaluateWindow();
+    }
+
+    private void evaluateWindow() {
+        if (windowSamples < Math.max(MIN_WINDOW_SIZE, getLimit() * 2)) {
+            return;
+        }
+
+        final int successes = windowSamples - windowErrors;
+        if (windowErrors > windowSamples * ERROR_RATE_THRESHOLD) {
+            limit = Math.max(1, limit / 2);
+        } else if (successes > 0) {
+            final float averageLatency = (float) windowLatency / successes;
+            if (baselineLatency < 0 || averageLatency < baselineLatency) {
+                baselineLatency = averageLatency;
+            } else {
+                // let the baseline follow a directory that has become permanently slower
+                baselineLatency += (averageLatency - baselineLatency) / 20;
+            }
+
+            if (averageLatency > baselineLatency * LATENCY_TOLERANCE) {
+                limit = Math.max(1, limit * LATENCY_BACKOFF);
+            } else {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+        }
+
+        windowSamples = 0;
+        windowLatency = 0;
+        windowErrors = 0;
+    }
+}
@@ -47,28 +47,32 @@ import password.pwm.util.JsonUtil;
 import password.pwm.util.TimeDuration;
 import password.pwm.util.localdb.LocalDB;
 import password.pwm.util.localdb.LocalDBException;
+import password.pwm.util.localdb.LocalDBStoredQueue;
 import password.pwm.util.logging.PwmLogger;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.math.BigDecimal;
-import java.math.BigInteger;
-import java.math.MathContext;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class ReportService implements PwmService {
     private static final PwmLogger LOGGER = PwmLogger.forClass(ReportService.class);
 
-    private final AvgTracker avgTracker = new AvgTracker(100);
+    private static final TimeDuration CLOSE_WAIT_TIME = new TimeDuration(30 * 1000);
+
+    private final Lock updateLock = new ReentrantLock();
 
     private PwmApplication pwmApplication;
-    private STATUS status = STATUS.NEW;
-    private boolean cancelFlag = false;
+    private volatile STATUS status = STATUS.NEW;
+    private volatile boolean cancelFlag = false;
     private ReportStatusInfo reportStatus = new ReportStatusInfo("");
     private ReportSummaryData summaryData = ReportSummaryData.newSummaryData(null);
     private Timer timer;
 
     private UserCacheService userCacheService;
+    private LocalDBStoredQueue workQueue;
     private ReportSettings settings = new ReportSettings();
 
     public ReportService() {
@@ -87,6 +91,9 @@ public class ReportService implements PwmService {
         if (userCacheService != null) {
             userCacheService.clear();
         }
+        if (workQueue != null) {
+            workQueue.clear();
+        }
         summaryData = ReportSummaryData.newSummaryData(settings.getTrackDays());
         reportStatus = new ReportStatusInfo(settings.getSettingsHash());
         saveTempData();
@@ -122,6 +129,7 @@ public class ReportService implements PwmService {
         try {
             userCacheService = new UserCacheService();
             userCacheService.init(pwmApplication);
+            workQueue = LocalDBStoredQueue.createLocalDBStoredQueue(pwmApplication, pwmApplication.getLocalDB(), LocalDB.DB.REPORT_QUEUE);
         } catch (Exception e) {
             LOGGER.error(PwmConstants.REPORTING_SESSION_LABEL,"unable to init cache service");
             status = STATUS.CLOSED;
@@ -132,14 +140,18 @@ public class ReportService implements PwmService {
         summaryData = ReportSummaryData.newSummaryData(settings.getTrackDays());
         initTempData();
 
-        reportStatus.setInProgress(false);
+        final boolean resumeUpdate = reportStatus.isInProgress() && !workQueue.isEmpty();
+        if (!resumeUpdate) {
+            reportStatus.setInProgress(false);
+            workQueue.clear();
+        }
 
         timer = new Timer();
 
         final long nextZuluZeroTime = Helper.nextZuluZeroTime().getTime();
         if (settings.getJobOffsetSeconds() >= 0) {
             final long nextScheduleTime = nextZuluZeroTime + (settings.getJobOffsetSeconds() * 1000);
-            timer.scheduleAtFixedRate(new DredgeTask(),new Date(nextScheduleTime), TimeDuration.DAY.getTotalMilliseconds());
+            timer.scheduleAtFixedRate(new DredgeTask(false),new Date(nextScheduleTime), TimeDuration.DAY.getTotalMilliseconds());
         }
 
         String startupMsg = "report service started with " + this.userCacheService.size() + " cached records";
@@ -149,6 +161,10 @@ public class ReportService implements PwmService {
         LOGGER.debug(startupMsg);
         timer.schedule(new RolloverTask(), 1);
         timer.scheduleAtFixedRate(new RolloverTask(),new Date(nextZuluZeroTime), TimeDuration.DAY.getTotalMilliseconds());
+        if (resumeUpdate) {
+            LOGGER.debug(PwmConstants.REPORTING_SESSION_LABEL,"will resume interrupted user cache update with " + workQueue.size() + " users remaining");
+            timer.schedule(new DredgeTask(true), 1);
+        }
 
         status = STATUS.OPEN;
     }
@@ -156,12 +172,25 @@ public class ReportService implements PwmService {
     @Override
     public void close()
     {
+        status = STATUS.CLOSED;
+        if (timer != null) {
+            timer.cancel();
+        }
+        try {
+            // let a running update finish its in-flight users and put back the ones it did not start
+            if (updateLock.tryLock(CLOSE_WAIT_TIME.getTotalMilliseconds(), TimeUnit.MILLISECONDS)) {
+                updateLock.unlock();
+            } else {
+                LOGGER.warn(PwmConstants.REPORTING_SESSION_LABEL,"timed out waiting for user cache update to stop");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         saveTempData();
         pwmApplication.writeAppAttribute(PwmApplication.AppAttribute.REPORT_CLEAN_FLAG, "true");
         if (userCacheService != null) {
             userCacheService.close();
         }
-        status = STATUS.CLOSED;
     }
 
     private void saveTempData() {
@@ -216,7 +245,7 @@ public class ReportService implements PwmService {
 
     public void scheduleImmediateUpdate() {
         if (!reportStatus.isInProgress()) {
-            timer.schedule(new DredgeTask(),1);
+            timer.schedule(new DredgeTask(false),1);
         }
     }
 
@@ -224,56 +253,200 @@ public class ReportService implements PwmService {
         cancelFlag = true;
     }
 
-    private void updateCacheFromLdap()
-            throws ChaiUnavailableException, ChaiOperationException, PwmOperationalException, PwmUnrecoverableException
+    private void updateCacheFromLdap(final boolean resume)
+            throws ChaiUnavailableException, ChaiOperationException, PwmOperationalException, PwmUnrecoverableException, LocalDBException
     {
-        LOGGER.debug(PwmConstants.REPORTING_SESSION_LABEL,"beginning process to updating user cache records from ldap");
         if (status != STATUS.OPEN) {
             return;
         }
-        cancelFlag = false;
-        reportStatus = new ReportStatusInfo(settings.getSettingsHash());
-        reportStatus.setInProgress(true);
-        reportStatus.setStartDate(new Date());
+        updateLock.lock();
         try {
-            final Queue<UserIdentity> allUsers = new LinkedList<>(getListOfUsers());
-            reportStatus.setTotal(allUsers.size());
-            while (status == STATUS.OPEN && !allUsers.isEmpty() && !cancelFlag) {
-                final Date startUpdateTime = new Date();
-                final UserIdentity userIdentity = allUsers.poll();
-                try {
-                    if (updateCache(userIdentity)) {
-                        reportStatus.setUpdated(reportStatus.getUpdated() + 1);
-                    }
-                } catch (Exception e) {
-                    String errorMsg = "error while updating report cache for " + userIdentity.toString() + ", cause: ";
-                    errorMsg += e instanceof PwmException ? ((PwmException) e).getErrorInformation().toDebugStr() : e.getMessage();
-                    final ErrorInformation errorInformation;
-                    errorInformation = new ErrorInformation(PwmError.ERROR_REPORTING_ERROR,errorMsg);
-                    LOGGER.error(PwmConstants.REPORTING_SESSION_LABEL,errorInformation.toDebugStr());
-                    reportStatus.setLastError(errorInformation);
-                    reportStatus.setErrors(reportStatus.getErrors() + 1);
-                }
-                reportStatus.setCount(reportStatus.getCount() + 1);
-                reportStatus.getEventRateMeter().markEvents(1);
-                final TimeDuration totalUpdateTime = TimeDuration.fromCurrent(startUpdateTime);
-                if (settings.isAutoCalcRest()) {
-                    avgTracker.addSample(totalUpdateTime.getTotalMilliseconds());
-                    Helper.pause(avgTracker.avgAsLong());
-                } else {
-                    Helper.pause(settings.getRestTime().getTotalMilliseconds());
+            cancelFlag = false;
+            if (resume && !workQueue.isEmpty()) {
+                LOGGER.debug(PwmConstants.REPORTING_SESSION_LABEL,"resuming process to update user cache records from ldap, "
+                        + workQueue.size() + " of " + reportStatus.getTotal() + " users remaining");
+                reportStatus.setInProgress(true);
+            } else {
+                LOGGER.debug(PwmConstants.REPORTING_SESSION_LABEL,"beginning process to updating user cache records from ldap");
+                reportStatus = new ReportStatusInfo(settings.getSettingsHash());
+                reportStatus.setInProgress(true);
+                reportStatus.setStartDate(new Date());
+                workQueue.clear();
+                final List<UserIdentity> allUsers = getListOfUsers();
+                final List<String> userKeys = new ArrayList<>(allUsers.size());
+                for (final UserIdentity userIdentity : allUsers) {
+                    userKeys.add(JsonUtil.serialize(userIdentity));
                 }
+                workQueue.addAllLast(userKeys);
+                reportStatus.setTotal(userKeys.size());
             }
+            saveTempData();
+            processWorkQueue();
             if (cancelFlag) {
+                workQueue.clear();
                 reportStatus.setLastError(new ErrorInformation(PwmError.ERROR_SERVICE_NOT_AVAILABLE,"report cancelled by operator"));
             }
         } finally {
-            reportStatus.setFinishDate(new Date());
-            reportStatus.setInProgress(false);
+            reportStatus.setWorkerCount(0);
+            if (status == STATUS.OPEN) {
+                reportStatus.setFinishDate(new Date());
+                reportStatus.setInProgress(false);
+            }
+            saveTempData();
+            updateLock.unlock();
         }
         LOGGER.debug(PwmConstants.REPORTING_SESSION_LABEL,"update user cache process completed: " + JsonUtil.serialize(reportStatus));
     }
 
+    /**
+     * Drain the work queue using a pool of worker threads.  Users are removed from the queue as they are handed to a
+     * worker, and the number of concurrent workers follows the observed ldap latency and error rate.  When the
+     * service closes, users handed out but not yet started are returned to the queue so the update can resume later.
+     */
+    private void processWorkQueue()
+            throws LocalDBException
+    {
+        final boolean fixedRestTime = !settings.isAutoCalcRest();
+        final int maxThreads = fixedRestTime
+                ? 1
+                : Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.REPORTING_LDAP_MAX_THREADS));
+        final AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(maxThreads);
+        final ExecutorService executorService = Executors.newFixedThreadPool(
+                Math.max(1, maxThreads),
+                Helper.makePwmThreadFactory(Helper.makeThreadName(pwmApplication, this.getClass()) + "-worker-", true)
+        );
+        final CompletionService<UpdateResult> completionService = new ExecutorCompletionService<>(executorService);
+
+        int inFlight = 0;
+        try {
+            while (true) {
+                while (status == STATUS.OPEN && !cancelFlag && inFlight < concurrencyLimit.getLimit()) {
+                    final String userKey = workQueue.pollFirst();
+                    if (userKey == null) {
+                        break;
+                    }
+                    completionService.submit(new UpdateCacheTask(userKey));
+                    inFlight++;
+                }
+                reportStatus.setWorkerCount(inFlight);
+                if (inFlight == 0) {
+                    break;
+                }
+
+                final UpdateResult updateResult = completionService.take().get();
+                inFlight--;
+
+                final int previousLimit = concurrencyLimit.getLimit();
+                recordResult(updateResult, concurrencyLimit);
+                if (previousLimit != concurrencyLimit.getLimit()) {
+                    LOGGER.trace(PwmConstants.REPORTING_SESSION_LABEL,"adjusted concurrent ldap reads to " + concurrencyLimit.getLimit()
+                            + ", baseline latency " + (int) concurrencyLimit.getBaselineLatency() + "ms");
+                }
+
+                if (fixedRestTime) {
+                    Helper.pause(settings.getRestTime().getTotalMilliseconds());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.error(PwmConstants.REPORTING_SESSION_LABEL,"unexpected error from report worker: " + e.getMessage());
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    private void recordResult(final UpdateResult updateResult, final AdaptiveConcurrencyLimit concurrencyLimit) {
+        if (!updateResult.isStarted()) {
+            workQueue.addFirst(updateResult.getUserKey());
+            return;
+        }
+
+        if (updateResult.getErrorInformation() != null) {
+            reportStatus.setLastError(updateResult.getErrorInformation());
+            reportStatus.setErrors(reportStatus.getErrors() + 1);
+            concurrencyLimit.recordError();
+        } else if (updateResult.isUpdated()) {
+            // only ldap reads are sampled, skipped users never reach the directory
+            reportStatus.setUpdated(reportStatus.getUpdated() + 1);
+            concurrencyLimit.recordSuccess(updateResult.getDurationMs());
+        }
+        reportStatus.setCount(reportStatus.getCount() + 1);
+        reportStatus.getEventRateMeter().markEvents(1);
+    }
+
+    private class UpdateCacheTask implements Callable<UpdateResult> {
+        private final String userKey;
+
+        private UpdateCacheTask(final String userKey) {
+            this.userKey = userKey;
+        }
+
+        @Override
+        public UpdateResult call() {
+            if (status != STATUS.OPEN || cancelFlag) {
+                return new UpdateResult(userKey, false, false, 0, null);
+            }
+
+            final long startTime = System.currentTimeMillis();
+            UserIdentity userIdentity = null;
+            try {
+                userIdentity = JsonUtil.deserialize(userKey, UserIdentity.class);
+                final boolean updated = updateCache(userIdentity);
+                return new UpdateResult(userKey, true, updated, System.currentTimeMillis() - startTime, null);
+            } catch (Exception e) {
+                String errorMsg = "error while updating report cache for " + (userIdentity == null ? userKey : userIdentity.toString()) + ", cause: ";
+                errorMsg += e instanceof PwmException ? ((PwmException) e).getErrorInformation().toDebugStr() : e.getMessage();
+                final ErrorInformation errorInformation = new ErrorInformation(PwmError.ERROR_REPORTING_ERROR,errorMsg);
+                LOGGER.error(PwmConstants.REPORTING_SESSION_LABEL,errorInformation.toDebugStr());
+                return new UpdateResult(userKey, true, false, System.currentTimeMillis() - startTime, errorInformation);
+            }
+        }
+    }
+
+    private static class UpdateResult {
+        private final String userKey;
+        private final boolean started;
+        private final boolean updated;
+        private final long durationMs;
+        private final ErrorInformation errorInformation;
+
+        private UpdateResult(
+                final String userKey,
+                final boolean started,
+                final boolean updated,
+                final long durationMs,
+                final ErrorInformation errorInformation
+        )
+        {
+            this.userKey = userKey;
+            this.started = started;
+            this.updated = updated;
+            this.durationMs = durationMs;
+            this.errorInformation = errorInformation;
+        }
+
+        public String getUserKey() {
+            return userKey;
+        }
+
+        public boolean isStarted() {
+            return started;
+        }
+
+        public boolean isUpdated() {
+            return updated;
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        public ErrorInformation getErrorInformation() {
+            return errorInformation;
+        }
+    }
+
     private void updateRestingCacheData() {
         final long startTime = System.currentTimeMillis();
         LOGGER.debug(PwmConstants.REPORTING_SESSION_LABEL,"beginning cache review process");
@@ -424,40 +597,52 @@ public class ReportService implements PwmService {
 
     public class RecordIterator implements ClosableIterator<UserCacheRecord> {
 
+        private static final int READ_BATCH_SIZE = 100;
+
         private ClosableIterator<UserCacheService.StorageKey> storageKeyIterator;
+        private final Queue<UserCacheRecord> pendingRecords = new LinkedList<>();
 
         public RecordIterator(ClosableIterator<UserCacheService.StorageKey> storageKeyIterator) {
             this.storageKeyIterator = storageKeyIterator;
         }
 
         public boolean hasNext() {
-            return this.storageKeyIterator.hasNext();
+            return !pendingRecords.isEmpty() || this.storageKeyIterator.hasNext();
         }
 
         public UserCacheRecord next()
         {
             try {
-                UserCacheRecord returnBean = null;
-                while (returnBean == null && this.storageKeyIterator.hasNext()) {
-                    UserCacheService.StorageKey key = this.storageKeyIterator.next();
-                    returnBean = userCacheService.readStorageKey(key);
-                    if (returnBean != null) {
-                        if (returnBean.getCacheTimestamp() == null) {
-                            LOGGER.debug(PwmConstants.REPORTING_SESSION_LABEL,"purging record due to missing cache timestamp: " + JsonUtil.serialize(returnBean));
-                            userCacheService.removeStorageKey(key);
-                        } else if (TimeDuration.fromCurrent(returnBean.getCacheTimestamp()).isLongerThan(settings.getMaxCacheAge())) {
-                            LOGGER.debug(PwmConstants.REPORTING_SESSION_LABEL,"purging record due to old age timestamp: " + JsonUtil.serialize(returnBean));
-                            userCacheService.removeStorageKey(key);
-                        } else {
-                            return returnBean;
-                        }
-                    }
-
+                while (pendingRecords.isEmpty() && this.storageKeyIterator.hasNext()) {
+                    readNextBatch();
                 }
             } catch (LocalDBException e) {
                 throw new IllegalStateException("unexpected iterator traversal error while reading LocalDB: " + e.getMessage());
             }
-            return null;
+            return pendingRecords.poll();
+        }
+
+        private void readNextBatch()
+                throws LocalDBException
+        {
+            final List<UserCacheService.StorageKey> keys = new ArrayList<>();
+            while (keys.size() < READ_BATCH_SIZE && this.storageKeyIterator.hasNext()) {
+                keys.add(this.storageKeyIterator.next());
+            }
+
+            final Map<UserCacheService.StorageKey, UserCacheRecord> records = userCacheService.readStorageKeys(keys);
+            for (final UserCacheService.StorageKey key : records.keySet()) {
+                final UserCacheRecord record = records.get(key);
+                if (record.getCacheTimestamp() == null) {
+                    LOGGER.debug(PwmConstants.REPORTING_SESSION_LABEL,"purging record due to missing cache timestamp: " + JsonUtil.serialize(record));
+                    userCacheService.removeStorageKey(key);
+                } else if (TimeDuration.fromCurrent(record.getCacheTimestamp()).isLongerThan(settings.getMaxCacheAge())) {
+                    LOGGER.debug(PwmConstants.REPORTING_SESSION_LABEL,"purging record due to old age timestamp: " + JsonUtil.serialize(record));
+                    userCacheService.removeStorageKey(key);
+                } else {
+                    pendingRecords.add(record);
+                }
+            }
         }
 
         public void remove()
@@ -580,16 +765,22 @@ public class ReportService implements PwmService {
     }
 
     private class DredgeTask extends TimerTask {
+        private final boolean resume;
+
+        private DredgeTask(final boolean resume) {
+            this.resume = resume;
+        }
+
         @Override
         public void run()
         {
             try {
-                updateCacheFromLdap();
+                updateCacheFromLdap(resume);
             } catch (Exception e) {
                 if (e instanceof PwmException) {
                     if (((PwmException) e).getErrorInformation().getError() == PwmError.ERROR_DIRECTORY_UNAVAILABLE) {
                         if (timer != null) {
-                            timer.schedule(new DredgeTask(),10 * 60 * 1000);
+                            timer.schedule(new DredgeTask(false),10 * 60 * 1000);
                         }
                     }
                 }
@@ -598,40 +789,6 @@ public class ReportService implements PwmService {
         }
     }
 
-    public static class AvgTracker {
-        private final int maxSamples;
-        private final Queue<BigInteger> samples = new LinkedList<>();
-
-        public AvgTracker(int maxSamples)
-        {
-            this.maxSamples = maxSamples;
-        }
-
-        public void addSample(final long input) {
-            samples.add(new BigInteger(Long.toString(input)));
-            while (samples.size() > maxSamples) {
-                samples.remove();
-            }
-        }
-
-        public BigDecimal avg() {
-            if (samples.isEmpty()) {
-                throw new IllegalStateException("unable to compute avg without samples");
-            }
-
-            BigInteger total = BigInteger.ZERO;
-            for (final BigInteger sample : samples) {
-                total = total.add(sample);
-            }
-            final BigDecimal maxAsBD = new BigDecimal(Integer.toString(maxSamples));
-            return new BigDecimal(total).divide(maxAsBD, MathContext.DECIMAL32);
-        }
-
-        public long avgAsLong() {
-            return avg().longValue();
-        }
-    }
-
     private class RolloverTask extends TimerTask {
         public void run()
         {
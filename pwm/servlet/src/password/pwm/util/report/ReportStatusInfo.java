@@ -27,6 +27,8 @@ import password.pwm.util.TimeDuration;
 import password.pwm.util.stats.EventRateMeter;
 
 import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.Date;
 
 public class ReportStatusInfo implements Serializable {
@@ -38,6 +40,7 @@ public class ReportStatusInfo implements Serializable {
     private int total;
     private EventRateMeter eventRateMeter = new EventRateMeter(TimeDuration.MINUTE);
     private int errors;
+    private int workerCount;
     private ErrorInformation lastError;
     private String settingsHash;
 
@@ -113,6 +116,36 @@ public class ReportStatusInfo implements Serializable {
         this.errors = errors;
     }
 
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    public void setWorkerCount(int workerCount) {
+        this.workerCount = workerCount;
+    }
+
+    /**
+     * @return the recent user processing rate, or zero if no report is running
+     */
+    public BigDecimal getUsersPerSecond() {
+        if (!inProgress || count == 0) {
+            return BigDecimal.ZERO;
+        }
+        return eventRateMeter.readEventRate().setScale(2, RoundingMode.UP);
+    }
+
+    /**
+     * @return the time needed to process the remaining users at the recent rate, or null if it can not be estimated
+     */
+    public TimeDuration getEstimatedTimeRemaining() {
+        final BigDecimal usersPerSecond = getUsersPerSecond();
+        if (usersPerSecond.signum() == 0 || total < count) {
+            return null;
+        }
+        final float secondsRemaining = (total - count) / usersPerSecond.floatValue();
+        return new TimeDuration(((long) secondsRemaining) * 1000);
+    }
+
     public ErrorInformation getLastError() {
         return lastError;
     }
@@ -40,8 +40,11 @@ import password.pwm.util.localdb.LocalDB;
 import password.pwm.util.localdb.LocalDBException;
 import password.pwm.util.logging.PwmLogger;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class UserCacheService implements PwmService {
 
@@ -83,6 +86,19 @@ public class UserCacheService implements PwmService {
         return userCacheRecord;
     }
 
+    /**
+     * Read multiple records with a single LocalDB operation.
+     *
+     * @param storageKeys keys to read
+     * @return the records that exist, in the order of the supplied keys
+     * @throws LocalDBException if the LocalDB can not be read
+     */
+    public Map<StorageKey, UserCacheRecord> readStorageKeys(final Collection<StorageKey> storageKeys)
+            throws LocalDBException
+    {
+        return cacheStore.readAll(storageKeys);
+    }
+
     public boolean removeStorageKey(final StorageKey storageKey)
             throws LocalDBException
     {
@@ -178,6 +194,18 @@ public class UserCacheService implements PwmService {
             return key;
         }
 
+        @Override
+        public boolean equals(final Object o)
+        {
+            return o instanceof StorageKey && key.equals(((StorageKey) o).key);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return key.hashCode();
+        }
+
         public static StorageKey fromUserInfoBean(final UserInfoBean userInfoBean)
                 throws PwmUnrecoverableException
         {
@@ -231,6 +259,30 @@ public class UserCacheService implements PwmService {
             return null;
         }
 
+        private Map<StorageKey, UserCacheRecord> readAll(Collection<StorageKey> keys)
+                throws LocalDBException
+        {
+            final Map<String, StorageKey> keyMap = new LinkedHashMap<>();
+            for (final StorageKey key : keys) {
+                keyMap.put(key.getKey(), key);
+            }
+
+            final Map<String, String> jsonValues = localDB.getAll(DB, keyMap.keySet());
+            final Map<StorageKey, UserCacheRecord> returnMap = new LinkedHashMap<>();
+            for (final String key : jsonValues.keySet()) {
+                final String jsonValue = jsonValues.get(key);
+                if (jsonValue != null && !jsonValue.isEmpty()) {
+                    try {
+                        returnMap.put(keyMap.get(key), JsonUtil.deserialize(jsonValue, UserCacheRecord.class));
+                    } catch (JsonSyntaxException e) {
+                        LOGGER.error("error reading record from cache store for key=" + key + ", error: " + e.getMessage());
+                        localDB.remove(DB, key);
+                    }
+                }
+            }
+            return returnMap;
+        }
+
         private boolean remove(StorageKey key)
                 throws LocalDBException
         {
@@ -0,0 +1,183 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.stats;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with log-linear buckets.  Values below {@link #SUB_BUCKET_COUNT} are counted exactly;
+ * above that each power of two is split into {@link #SUB_BUCKET_COUNT} linear sub-buckets, so any reported value is
+ * within about 6% of the recorded value.  Values are recorded in microseconds.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_MAGNITUDE = 36; // 2^36 microseconds, about 19 hours
+    private static final long MAX_VALUE = (1L << MAX_MAGNITUDE) - 1;
+    private static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+
+    public static final double[] REPORTED_PERCENTILES = {0.50, 0.90, 0.99, 0.999};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(final long microseconds) {
+        final long value = Math.min(Math.max(microseconds, 0), MAX_VALUE);
+        buckets.incrementAndGet(bucketIndex(value));
+        total.addAndGet(value);
+
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param fraction percentile as a fraction, for example 0.99
+     * @return highest value (in microseconds) equivalent to the requested percentile, or zero if nothing was recorded
+     */
+    public long getPercentile(final double fraction) {
+        final long[] counts = snapshot();
+        long count = 0;
+        for (final long bucketCount : counts) {
+            count += bucketCount;
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        final long target = Math.max(1, (long)Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(bucketUpperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * @return count, reported percentiles and max, with times in milliseconds
+     */
+    public Map<String,String> percentileSummary() {
+        final Map<String,String> returnMap = new LinkedHashMap<>();
+        returnMap.put("count", String.valueOf(getCount()));
+        for (final double percentile : REPORTED_PERCENTILES) {
+            returnMap.put(percentileLabel(percentile), formatMs(getPercentile(percentile)));
+        }
+        returnMap.put("max", formatMs(getMax()));
+        return returnMap;
+    }
+
+    public static String percentileLabel(final double percentile) {
+        final String digits = BigDecimal.valueOf(percentile).movePointRight(2).stripTrailingZeros().toPlainString();
+        return "p" + digits.replace(".", "");
+    }
+
+    public static String formatMs(final long microseconds) {
+        return BigDecimal.valueOf(microseconds).movePointLeft(3).setScale(3, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    HistogramBean toBean() {
+        final HistogramBean bean = new HistogramBean();
+        final long[] counts = snapshot();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                bean.buckets.put(i, counts[i]);
+            }
+        }
+        bean.total = total.get();
+        bean.max = max.get();
+        return bean;
+    }
+
+    static LatencyHistogram fromBean(final HistogramBean bean) {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        if (bean.buckets != null) {
+            for (final Map.Entry<Integer,Long> entry : bean.buckets.entrySet()) {
+                final int index = entry.getKey();
+                if (index >= 0 && index < BUCKET_COUNT && entry.getValue() != null) {
+                    histogram.buckets.set(index, entry.getValue());
+                }
+            }
+        }
+        histogram.total.set(bean.total);
+        histogram.max.set(bean.max);
+        return histogram;
+    }
+
+    private long[] snapshot() {
+        final long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    static int bucketIndex(final long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int)value;
+        }
+        final int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int)(value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long bucketUpperBound(final int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        final int magnitude = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        final int subBucket = index % SUB_BUCKET_COUNT;
+        final int shift = magnitude - SUB_BUCKET_BITS;
+        return ((long)(SUB_BUCKET_COUNT + subBucket) << shift) + (1L << shift) - 1;
+    }
+
+    static class HistogramBean implements Serializable {
+        Map<Integer,Long> buckets = new TreeMap<>();
+        long total;
+        long max;
+    }
+}
@@ -71,6 +71,8 @@ public enum Statistic {
     UPDATE_ATTRIBUTES                   (Type.INCREMENTOR, "UpdateAttributes", new ConfigSettingDetail(PwmSetting.UPDATE_PROFILE_ENABLE)),
     SHORTCUTS_SELECTED                  (Type.INCREMENTOR, "ShortcutsSelected", new ConfigSettingDetail(PwmSetting.SHORTCUT_ENABLE)),
     GENERATED_PASSWORDS                 (Type.INCREMENTOR, "GeneratedPasswords", null),
+    GENERATED_PASSWORD_POOL_HITS        (Type.INCREMENTOR, "GeneratedPasswordPoolHits", null),
+    GENERATED_PASSWORD_POOL_MISSES      (Type.INCREMENTOR, "GeneratedPasswordPoolMisses", null),
     RECOVERY_SUCCESSES                  (Type.INCREMENTOR, "RecoverySuccesses", null),
     RECOVERY_FAILURES                   (Type.INCREMENTOR, "RecoveryFailures", null),
     TOKENS_SENT                         (Type.INCREMENTOR, "TokensSent",null),
@@ -104,6 +106,28 @@ public enum Statistic {
     AVG_AUTHENTICATION_TIME             (Type.AVERAGE, "AvgAuthenticationTime", null),
     AVG_PASSWORD_STRENGTH               (Type.AVERAGE, "AvgPasswordStrength", null),
     AVG_LDAP_SEARCH_TIME                (Type.AVERAGE, "AvgLdapSearchTime", null),
+    AVG_LDAP_USER_READ_OPERATIONS       (Type.AVERAGE, "AvgLdapUserReadOperations", null),
+    AVG_PASSWORD_GENERATE_TIME          (Type.AVERAGE, "AvgPasswordGenerateTime", null),
+
+    LDAP_SEARCH_TIME                    (Type.HISTOGRAM, "LdapSearchTime", null),
+    LDAP_BIND_TIME                      (Type.HISTOGRAM, "LdapBindTime", null),
+    PASSWORD_CHANGE_TIME                (Type.HISTOGRAM, "PasswordChangeTime", null),
+    WORDLIST_CHECK_TIME                 (Type.HISTOGRAM, "WordlistCheckTime", null),
+    LOCALDB_READ_TIME                   (Type.HISTOGRAM, "LocalDBReadTime", null),
+    LOCALDB_WRITE_TIME                  (Type.HISTOGRAM, "LocalDBWriteTime", null),
+    REST_APPDATA_TIME                   (Type.HISTOGRAM, "RestAppDataTime", null),
+    REST_CHALLENGES_TIME                (Type.HISTOGRAM, "RestChallengesTime", null),
+    REST_CHECKPASSWORD_TIME             (Type.HISTOGRAM, "RestCheckPasswordTime", null),
+    REST_COMMAND_TIME                   (Type.HISTOGRAM, "RestCommandTime", null),
+    REST_HEALTH_TIME                    (Type.HISTOGRAM, "RestHealthTime", null),
+    REST_PROFILE_TIME                   (Type.HISTOGRAM, "RestProfileTime", null),
+    REST_RANDOMPASSWORD_TIME            (Type.HISTOGRAM, "RestRandomPasswordTime", null),
+    REST_REPORT_TIME                    (Type.HISTOGRAM, "RestReportTime", null),
+    REST_SETPASSWORD_TIME               (Type.HISTOGRAM, "RestSetPasswordTime", null),
+    REST_STATISTICS_TIME                (Type.HISTOGRAM, "RestStatisticsTime", null),
+    REST_STATUS_TIME                    (Type.HISTOGRAM, "RestStatusTime", null),
+    REST_VERIFYOTP_TIME                 (Type.HISTOGRAM, "RestVerifyOtpTime", null),
+    REST_VERIFYRESPONSES_TIME           (Type.HISTOGRAM, "RestVerifyResponsesTime", null),
 
     ;
 
@@ -151,6 +175,7 @@ public enum Statistic {
     public enum Type {
         INCREMENTOR,
         AVERAGE,
+        HISTOGRAM,
     }
 
     public String getLabel(final Locale locale) {
@@ -31,7 +31,15 @@ import java.text.SimpleDateFormat;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+/**
+ * Holds one set of statistic values.  Values are kept as striped {@code long} slots indexed by
+ * {@link Statistic#ordinal()} so that updates from concurrent request threads neither lock nor allocate; the stored
+ * string/json form is only produced by {@link #output()} and {@link #getStatistic(Statistic)}.  Histogram
+ * statistics are held in a {@link LatencyHistogram}, created on first use.
+ */
 public class StatisticsBundle {
 
     private static final PwmLogger LOGGER = PwmLogger.forClass(StatisticsBundle.class);
@@ -42,13 +50,51 @@ public class StatisticsBundle {
         STORED_DATETIME_FORMATTER.setTimeZone(TimeZone.getTimeZone("Zulu"));
     }
 
+    private static final int STAT_COUNT = Statistic.values().length;
+    private static final int STRIPE_COUNT = stripeCount();
 
-    private final Map<Statistic, String> valueMap = new HashMap<>();
+    // each stripe holds a full row of statistics, so threads on different stripes updating the same statistic
+    // do not write to the same cache line.
+    private final AtomicLongArray counterValues = new AtomicLongArray(STRIPE_COUNT * STAT_COUNT);
+    private final AtomicLongArray averageTotals = new AtomicLongArray(STRIPE_COUNT * STAT_COUNT);
+    private final AtomicLongArray averageCounts = new AtomicLongArray(STRIPE_COUNT * STAT_COUNT);
+    private final AtomicReferenceArray<LatencyHistogram> histograms = new AtomicReferenceArray<>(STAT_COUNT);
 
     public StatisticsBundle() {
     }
 
     public String output() {
+        final Map<Statistic, String> valueMap = new HashMap<>();
+        for (final Statistic statistic : Statistic.values()) {
+            switch (statistic.getType()) {
+                case INCREMENTOR: {
+                    final long value = sum(counterValues, statistic);
+                    if (value != 0) {
+                        valueMap.put(statistic, String.valueOf(value));
+                    }
+                }
+                break;
+
+                case AVERAGE: {
+                    final long count = sum(averageCounts, statistic);
+                    if (count != 0) {
+                        valueMap.put(statistic, JsonUtil.serialize(new AverageBean(sum(averageTotals, statistic), count)));
+                    }
+                }
+                break;
+
+                case HISTOGRAM: {
+                    final LatencyHistogram histogram = histograms.get(statistic.ordinal());
+                    if (histogram != null && histogram.getCount() != 0) {
+                        valueMap.put(statistic, JsonUtil.serialize(histogram.toBean()));
+                    }
+                }
+                break;
+
+                default:
+                    // nothing to output
+            }
+        }
         return JsonUtil.serializeMap(valueMap);
     }
 
@@ -67,77 +113,139 @@ public class StatisticsBundle {
         for (final Statistic loopStat : Statistic.values()) {
             final String value = srcMap.get(loopStat);
             if (value != null && !value.equals("")) {
-                bundle.valueMap.put(loopStat, value);
+                bundle.loadValue(loopStat, value);
             }
         }
 
         return bundle;
     }
 
-    public synchronized void incrementValue(final Statistic statistic) {
+    private void loadValue(final Statistic statistic, final String value) {
+        switch (statistic.getType()) {
+            case INCREMENTOR:
+                try {
+                    counterValues.set(statistic.ordinal(), clampToLong(new BigInteger(value)));
+                } catch (NumberFormatException e) {
+                    LOGGER.error("error reading counter/incremental stat " + statistic);
+                }
+                break;
+
+            case AVERAGE:
+                try {
+                    final AverageBean avgBean = JsonUtil.deserialize(value, AverageBean.class);
+                    if (avgBean != null && avgBean.total != null && avgBean.count != null) {
+                        averageTotals.set(statistic.ordinal(), clampToLong(avgBean.total));
+                        averageCounts.set(statistic.ordinal(), clampToLong(avgBean.count));
+                    }
+                } catch (Exception e) {
+                    LOGGER.trace("unable to parse statistics value for stat " + statistic.toString() + ", value=" + value);
+                }
+                break;
+
+            case HISTOGRAM:
+                try {
+                    final LatencyHistogram.HistogramBean histogramBean = JsonUtil.deserialize(value, LatencyHistogram.HistogramBean.class);
+                    if (histogramBean != null) {
+                        histograms.set(statistic.ordinal(), LatencyHistogram.fromBean(histogramBean));
+                    }
+                } catch (Exception e) {
+                    LOGGER.trace("unable to parse statistics value for stat " + statistic.toString() + ", value=" + value);
+                }
+                break;
+
+            default:
+                // nothing to load
+        }
+    }
+
+    public void incrementValue(final Statistic statistic) {
         if (Statistic.Type.INCREMENTOR != statistic.getType()) {
             LOGGER.error("attempt to increment non-counter/incremental stat " + statistic);
             return;
         }
 
-        BigInteger currentValue = BigInteger.ZERO;
-        try {
-            if (valueMap.containsKey(statistic)) {
-                currentValue = new BigInteger(valueMap.get(statistic));
-            } else {
-                currentValue = BigInteger.ZERO;
-            }
-        } catch (NumberFormatException e) {
-            LOGGER.error("error reading counter/incremental stat " + statistic);
-        }
-        final BigInteger newValue = currentValue.add(BigInteger.ONE);
-        valueMap.put(statistic, newValue.toString());
+        counterValues.incrementAndGet(slot(statistic));
     }
 
-    public synchronized void updateAverageValue(final Statistic statistic, final long timeDuration) {
+    public void updateAverageValue(final Statistic statistic, final long timeDuration) {
         if (Statistic.Type.AVERAGE != statistic.getType()) {
             LOGGER.error("attempt to update average value of non-average stat " + statistic);
             return;
         }
 
-        final String avgStrValue = valueMap.get(statistic);
+        final int slot = slot(statistic);
+        averageTotals.addAndGet(slot, timeDuration);
+        averageCounts.incrementAndGet(slot);
+    }
 
-        AverageBean avgBean = new AverageBean();
-        if (avgStrValue != null && avgStrValue.length() > 0) {
-            try {
-                avgBean = JsonUtil.deserialize(avgStrValue, AverageBean.class);
-            } catch (Exception e) {
-                LOGGER.trace("unable to parse statistics value for stat " + statistic.toString() + ", value=" + avgStrValue);
-            }
+    public void updateHistogramValue(final Statistic statistic, final long microseconds) {
+        if (Statistic.Type.HISTOGRAM != statistic.getType()) {
+            LOGGER.error("attempt to update histogram value of non-histogram stat " + statistic);
+            return;
+        }
+
+        LatencyHistogram histogram = histograms.get(statistic.ordinal());
+        if (histogram == null) {
+            histograms.compareAndSet(statistic.ordinal(), null, new LatencyHistogram());
+            histogram = histograms.get(statistic.ordinal());
         }
+        histogram.record(microseconds);
+    }
 
-        avgBean.appendValue(timeDuration);
-        valueMap.put(statistic, JsonUtil.serialize(avgBean));
+    /**
+     * @param statistic a {@link Statistic.Type#HISTOGRAM} statistic
+     * @return the histogram for the statistic, empty if no values have been recorded
+     */
+    public LatencyHistogram getHistogram(final Statistic statistic) {
+        final LatencyHistogram histogram = histograms.get(statistic.ordinal());
+        return histogram == null ? new LatencyHistogram() : histogram;
     }
 
     public String getStatistic(final Statistic statistic) {
         switch (statistic.getType()) {
             case INCREMENTOR:
-                return valueMap.containsKey(statistic) ? valueMap.get(statistic) : "0";
+                return String.valueOf(sum(counterValues, statistic));
 
             case AVERAGE:
-                final String avgStrValue = valueMap.get(statistic);
-
-                AverageBean avgBean = new AverageBean();
-                if (avgStrValue != null && avgStrValue.length() > 0) {
-                    try {
-                        avgBean = JsonUtil.deserialize(avgStrValue, AverageBean.class);
-                    } catch (Exception e) {
-                        LOGGER.trace("unable to parse statistics value for stat " + statistic.toString() + ", value=" + avgStrValue);
-                    }
+                final long count = sum(averageCounts, statistic);
+                if (count == 0) {
+                    return "0";
                 }
-                return avgBean.getAverage().toString();
+                return String.valueOf(sum(averageTotals, statistic) / count);
+
+            case HISTOGRAM:
+                return LatencyHistogram.formatMs(getHistogram(statistic).getPercentile(0.99));
 
             default:
                 return "";
         }
     }
 
+    private static int slot(final Statistic statistic) {
+        final int stripe = (int)(Thread.currentThread().getId() & (STRIPE_COUNT - 1));
+        return stripe * STAT_COUNT + statistic.ordinal();
+    }
+
+    private static long sum(final AtomicLongArray values, final Statistic statistic) {
+        long total = 0;
+        for (int stripe = 0; stripe < STRIPE_COUNT; stripe++) {
+            total += values.get(stripe * STAT_COUNT + statistic.ordinal());
+        }
+        return total;
+    }
+
+    private static long clampToLong(final BigInteger value) {
+        if (value.bitLength() > 63) {
+            return value.signum() > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+        }
+        return value.longValue();
+    }
+
+    private static int stripeCount() {
+        final int processors = Math.min(Runtime.getRuntime().availableProcessors(), 16);
+        return Integer.highestOneBit(Math.max(processors, 1) * 2 - 1);
+    }
+
     private static class AverageBean implements Serializable {
         BigInteger total = BigInteger.ZERO;
         BigInteger count = BigInteger.ZERO;
@@ -145,17 +253,9 @@ public class StatisticsBundle {
         public AverageBean() {
         }
 
-        BigInteger getAverage() {
-            if (BigInteger.ZERO.equals(count)) {
-                return BigInteger.ZERO;
-            }
-
-            return total.divide(count);
-        }
-
-        void appendValue(final long value) {
-            count = count.add(BigInteger.ONE);
-            total = total.add(BigInteger.valueOf(value));
+        AverageBean(final long total, final long count) {
+            this.total = BigInteger.valueOf(total);
+            this.count = BigInteger.valueOf(count);
         }
     }
 }
@@ -79,8 +79,8 @@ public class StatisticsManager implements PwmService {
     private Timer daemonTimer;
 
     private final StatisticsBundle statsCurrent = new StatisticsBundle();
-    private StatisticsBundle statsDaily = new StatisticsBundle();
-    private StatisticsBundle statsCummulative = new StatisticsBundle();
+    private volatile StatisticsBundle statsDaily = new StatisticsBundle();
+    private volatile StatisticsBundle statsCummulative = new StatisticsBundle();
     private Map<String, EventRateMeter> epsMeterMap = new HashMap<>();
 
     private PwmApplication pwmApplication;
@@ -99,18 +99,30 @@ public class StatisticsManager implements PwmService {
     public StatisticsManager() {
     }
 
-    public synchronized void incrementValue(final Statistic statistic) {
+    public void incrementValue(final Statistic statistic) {
         statsCurrent.incrementValue(statistic);
         statsDaily.incrementValue(statistic);
         statsCummulative.incrementValue(statistic);
     }
 
-    public synchronized void updateAverageValue(final Statistic statistic, final long value) {
+    public void updateAverageValue(final Statistic statistic, final long value) {
         statsCurrent.updateAverageValue(statistic,value);
         statsDaily.updateAverageValue(statistic,value);
         statsCummulative.updateAverageValue(statistic,value);
     }
 
+    /**
+     * Record a duration for a {@link Statistic.Type#HISTOGRAM} statistic.
+     *
+     * @param statistic    histogram statistic
+     * @param microseconds duration of the operation
+     */
+    public void updateHistogramValue(final Statistic statistic, final long microseconds) {
+        statsCurrent.updateHistogramValue(statistic,microseconds);
+        statsDaily.updateHistogramValue(statistic,microseconds);
+        statsCummulative.updateHistogramValue(statistic,microseconds);
+    }
+
     public Map<String,String> getStatHistory(final Statistic statistic, final int days) {
         final Map<String,String> returnMap = new LinkedHashMap<>();
         DailyKey loopKey = currentDailyKey;
@@ -529,7 +541,13 @@ public class StatisticsManager implements PwmService {
             headers.add("YEAR");
             headers.add("DAY");
             for (Statistic stat : Statistic.values()) {
-                headers.add(stat.getLabel(locale));
+                if (stat.getType() == Statistic.Type.HISTOGRAM) {
+                    for (final double percentile : LatencyHistogram.REPORTED_PERCENTILES) {
+                        headers.add(stat.getLabel(locale) + " " + LatencyHistogram.percentileLabel(percentile));
+                    }
+                } else {
+                    headers.add(stat.getLabel(locale));
+                }
             }
             csvPrinter.printRecord(headers);
         }
@@ -544,7 +562,14 @@ public class StatisticsManager implements PwmService {
             lineOutput.add(String.valueOf(loopKey.year));
             lineOutput.add(String.valueOf(loopKey.day));
             for (final Statistic stat : Statistic.values()) {
-                lineOutput.add(bundle.getStatistic(stat));
+                if (stat.getType() == Statistic.Type.HISTOGRAM) {
+                    final LatencyHistogram histogram = bundle.getHistogram(stat);
+                    for (final double percentile : LatencyHistogram.REPORTED_PERCENTILES) {
+                        lineOutput.add(LatencyHistogram.formatMs(histogram.getPercentile(percentile)));
+                    }
+                } else {
+                    lineOutput.add(bundle.getStatistic(stat));
+                }
             }
             csvPrinter.printRecord(lineOutput);
         }
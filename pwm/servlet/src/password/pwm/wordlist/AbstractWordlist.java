@@ -22,6 +22,7 @@
 
 package password.pwm.wordlist;
 
+import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.PwmService;
 import password.pwm.config.option.DataStorageMethod;
@@ -32,6 +33,7 @@ import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.health.HealthRecord;
 import password.pwm.health.HealthStatus;
 import password.pwm.health.HealthTopic;
+import password.pwm.util.ClosableIterator;
 import password.pwm.util.Helper;
 import password.pwm.util.SecureHelper;
 import password.pwm.util.Sleeper;
@@ -39,10 +41,12 @@ import password.pwm.util.TimeDuration;
 import password.pwm.util.localdb.LocalDB;
 import password.pwm.util.localdb.LocalDBException;
 import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.stats.Statistic;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 abstract class AbstractWordlist implements Wordlist, PwmService {
     protected LocalDB.DB META_DB = null;
@@ -53,15 +57,30 @@ abstract class AbstractWordlist implements Wordlist, PwmService {
     protected volatile STATUS wlStatus = STATUS.NEW;
     protected LocalDB localDB;
     protected Populator populator;
+    protected WordStorage wordStorage;
 
     protected static final PwmLogger LOGGER = PwmLogger.forClass(AbstractWordlist.class);
     protected String DEBUG_LABEL = "Generic Wordlist";
 
     protected int storedSize = 0;
     protected boolean debugTrace;
+    protected int populatorThreads = 1;
+    private WordStorage.Type storageType = WordStorage.Type.LOCALDB;
 
     private ErrorInformation lastError;
+    private PwmApplication pwmApplication;
 
+    private static final String FILTER_FILE_SUFFIX = ".filter";
+
+    protected volatile WordlistBloomFilter filter;
+    private boolean filterEnabled;
+    private double filterFalsePositiveRate;
+    private long filterMaxBytes;
+    private boolean filterRebuildRequired;
+
+    private final AtomicLong filterSkippedProbes = new AtomicLong(0);
+    private final AtomicLong filterPassedProbes = new AtomicLong(0);
+    private final AtomicLong filterFalsePositives = new AtomicLong(0);
 
 
 // --------------------------- CONSTRUCTORS ---------------------------
@@ -70,9 +89,20 @@ abstract class AbstractWordlist implements Wordlist, PwmService {
     }
 
     public void init(final PwmApplication pwmApplication) throws PwmException {
+        this.pwmApplication = pwmApplication;
         if (pwmApplication.getConfig().isDevDebugMode()) {
             debugTrace = true;
         }
+        filterEnabled = isFilterSupported()
+                && Boolean.parseBoolean(pwmApplication.getConfig().readAppProperty(AppProperty.WORDLIST_FILTER_ENABLE));
+        filterFalsePositiveRate = Double.parseDouble(pwmApplication.getConfig().readAppProperty(AppProperty.WORDLIST_FILTER_FALSE_POSITIVE_RATE));
+        filterMaxBytes = Long.parseLong(pwmApplication.getConfig().readAppProperty(AppProperty.WORDLIST_FILTER_MAX_BYTES));
+        populatorThreads = Integer.parseInt(pwmApplication.getConfig().readAppProperty(AppProperty.WORDLIST_IMPORT_THREADS));
+        try {
+            storageType = WordStorage.Type.valueOf(pwmApplication.getConfig().readAppProperty(AppProperty.WORDLIST_STORAGE_METHOD));
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("unknown wordlist storage method, using " + WordStorage.Type.LOCALDB + ": " + e.getMessage());
+        }
     }
 
     protected final void startup(final LocalDB localDB, final WordlistConfiguration wordlistConfiguration) {
@@ -89,10 +119,13 @@ abstract class AbstractWordlist implements Wordlist, PwmService {
             return;
         }
 
+        wordStorage = makeWordStorage();
+
         if (wordlistConfiguration.getWordlistFile() == null) {
             LOGGER.warn("wordlist file is not specified, " + DEBUG_LABEL + " will remain closed");
             try {
                 resetDB("-1");
+                wordStorage.clear();
             } catch (Exception e) {
                 final String errorMsg = "error while clearing " + DEBUG_LABEL + " DB: " + e.getMessage();
                 LOGGER.warn(errorMsg);
@@ -137,6 +170,8 @@ abstract class AbstractWordlist implements Wordlist, PwmService {
             return;
         }
 
+        openFilter();
+
         if (wlStatus == STATUS.OPENING) {
             wlStatus = STATUS.OPEN;
             final int wordlistSize = size();
@@ -150,6 +185,38 @@ abstract class AbstractWordlist implements Wordlist, PwmService {
         }
     }
 
+    private boolean checkCandidates(final List<String> candidates, final WordlistBloomFilter currentFilter)
+            throws LocalDBException
+    {
+        final boolean found = wordStorage.containsAny(candidates);
+        if (!found && currentFilter != null) {
+            filterFalsePositives.addAndGet(candidates.size());
+        }
+        candidates.clear();
+        return found;
+    }
+
+    private WordStorage makeWordStorage() {
+        if (storageType == WordStorage.Type.SEGMENT) {
+            if (localDB.getFileLocation() != null) {
+                return new SegmentWordStorage(localDB, WORD_DB, localDB.getFileLocation());
+            }
+            LOGGER.warn(DEBUG_LABEL + " LocalDB has no file location, segment storage is not available, using LocalDB storage");
+        }
+        return new LocalDBWordStorage(localDB, WORD_DB);
+    }
+
+    /**
+     * @return the version string stored in the meta db, including the storage method if it is not the default.
+     */
+    private String currentVersionString() {
+        final String versionString = makeVersionString();
+        if (wordStorage == null || wordStorage.getType() == WordStorage.Type.LOCALDB) {
+            return versionString;
+        }
+        return versionString + "_" + wordStorage.getType();
+    }
+
     String normalizeWord(final String input) {
         if (input == null) {
             return null;
@@ -180,7 +247,9 @@ abstract class AbstractWordlist implements Wordlist, PwmService {
         LOGGER.trace("hash of " + wordlistConfiguration.getWordlistFile().getAbsolutePath() + " complete, result: " + checksumString);
 
         final boolean clearRequired = !checkDbStatus() || !checkDbVersion() || !checkChecksum(checksumString);
-        final boolean isComplete = !clearRequired && VALUE_STATUS.COMPLETE.equals(VALUE_STATUS.forString(localDB.get(META_DB, KEY_STATUS)));
+        final boolean isComplete = !clearRequired
+                && VALUE_STATUS.COMPLETE.equals(VALUE_STATUS.forString(localDB.get(META_DB, KEY_STATUS)))
+                && wordStorage.isAvailable();
 
         if (!clearRequired && isComplete) {
             return;
@@ -241,7 +310,7 @@ abstract class AbstractWordlist implements Wordlist, PwmService {
         LOGGER.trace("checking version number stored in LocalDB");
 
         final Object versionInDB = localDB.get(META_DB, KEY_VERSION);
-        final String currentVersion = makeVersionString();
+        final String currentVersion = currentVersionString();
         final boolean result = currentVersion.equals(versionInDB);
 
         if (!result) {
@@ -255,14 +324,17 @@ abstract class AbstractWordlist implements Wordlist, PwmService {
 
     private void resetDB(final String checksum)
             throws Exception {
-        localDB.put(META_DB, KEY_VERSION, makeVersionString() + "_ClearInProgress");
+        localDB.put(META_DB, KEY_VERSION, currentVersionString() + "_ClearInProgress");
 
-        for (final LocalDB.DB db : new LocalDB.DB[]{META_DB, WORD_DB}) {
-            LOGGER.debug("clearing " + db);
-            localDB.truncate(db);
-        }
+        closeFilter();
+        WordlistBloomFilter.delete(filterFile());
 
-        localDB.put(META_DB, KEY_VERSION, makeVersionString());
+        LOGGER.debug("clearing " + WORD_DB);
+        wordStorage.truncate();
+        LOGGER.debug("clearing " + META_DB);
+        localDB.truncate(META_DB);
+
+        localDB.put(META_DB, KEY_VERSION, currentVersionString());
         localDB.put(META_DB, KEY_CHECKSUM, checksum);
     }
 
@@ -278,21 +350,50 @@ abstract class AbstractWordlist implements Wordlist, PwmService {
         }
 
 
-        final Set<String> testWords = chunkWord(testWord, this.wordlistConfiguration.getCheckSize());
+        final SubstringProbe probe = new SubstringProbe(testWord, this.wordlistConfiguration.getCheckSize());
+
+        final WordlistBloomFilter currentFilter = filter;
+
+        // each LocalDB call carries a fixed overhead, so candidates of the same length are checked in one call;
+        // segment lookups compare the window in place and are done one at a time.
+        final boolean batchLookups = wordStorage.getType() == WordStorage.Type.LOCALDB;
+        final List<String> candidates = new ArrayList<>();
 
-        final Date startTime = new Date();
+        final long startTime = System.currentTimeMillis();
+        final long startNanos = System.nanoTime();
         try {
             boolean result = false;
-            for (final String t : testWords) {
-                if (!result) { // stop checking once found
-                    if (localDB.contains(WORD_DB, t)) {
-                        result = true;
+            while (!result && probe.next()) { // stop checking once found
+                if (!candidates.isEmpty() && probe.length() != candidates.get(0).length()) {
+                    result = checkCandidates(candidates, currentFilter);
+                    if (result) {
+                        break;
                     }
                 }
+                if (currentFilter != null) {
+                    if (!currentFilter.mightContain(probe.chars(), probe.offset(), probe.length())) {
+                        filterSkippedProbes.incrementAndGet();
+                        continue;
+                    }
+                    filterPassedProbes.incrementAndGet();
+                }
+                if (batchLookups) {
+                    candidates.add(probe.window().toString());
+                } else if (wordStorage.contains(probe.window())) {
+                    result = true;
+                } else if (currentFilter != null) {
+                    filterFalsePositives.incrementAndGet();
+                }
+            }
+            if (!result && !candidates.isEmpty()) {
+                result = checkCandidates(candidates, currentFilter);
             }
             final TimeDuration timeDuration = TimeDuration.fromCurrent(startTime);
             if (timeDuration.isLongerThan(100)) {
-                LOGGER.debug("wordlist search time for " + testWords.size() + " wordlist permutations was greater then 100ms: " + timeDuration.asCompactString());
+                LOGGER.debug("wordlist search time for " + probe.getProbeCount() + " wordlist permutations was greater then 100ms: " + timeDuration.asCompactString());
+            }
+            if (pwmApplication != null && pwmApplication.getStatisticsManager() != null) {
+                pwmApplication.getStatisticsManager().updateHistogramValue(Statistic.WORDLIST_CHECK_TIME, (System.nanoTime() - startNanos) / 1000);
             }
             return result;
         } catch (Exception e) {
@@ -325,6 +426,11 @@ abstract class AbstractWordlist implements Wordlist, PwmService {
             LOGGER.error("wordlist populator failed to exit");
         }
 
+        closeFilter();
+        if (wordStorage != null) {
+            wordStorage.close();
+        }
+
         if (wlStatus != STATUS.CLOSED) {
             LOGGER.debug("closed");
         }
@@ -348,15 +454,163 @@ abstract class AbstractWordlist implements Wordlist, PwmService {
     public String getDebugStatus() {
         if (wlStatus == STATUS.OPENING && populator != null) {
             return populator.makeStatString();
-        } else {
-            return wlStatus.toString();
         }
+
+        final WordlistBloomFilter currentFilter = filter;
+        if (wlStatus == STATUS.OPEN && currentFilter != null) {
+            return wlStatus.toString()
+                    + ", filter: " + currentFilter.debugString()
+                    + ", skippedProbes=" + filterSkippedProbes.get()
+                    + ", passedProbes=" + filterPassedProbes.get()
+                    + ", falsePositives=" + filterFalsePositives.get();
+        }
+
+        return wlStatus.toString();
+    }
+
+    private File filterFile() {
+        final File dbDirectory = localDB == null ? null : localDB.getFileLocation();
+        if (dbDirectory == null || WORD_DB == null) {
+            return null;
+        }
+        return new File(dbDirectory, WORD_DB.toString() + FILTER_FILE_SUFFIX);
+    }
+
+    private long filterFingerprint()
+            throws LocalDBException
+    {
+        return WordlistBloomFilter.fingerprint(currentVersionString() + "," + localDB.get(META_DB, KEY_CHECKSUM));
     }
 
+    /**
+     * Called by the {@link Populator} before population begins.  If population is resuming, an existing filter
+     * file is re-used, otherwise a new one is created and sized for the expected number of keys.
+     */
+    void prepareFilterForPopulation(final long expectedInsertions, final boolean resuming) {
+        closeFilter();
+        final File file = filterFile();
+        if (!filterEnabled || file == null) {
+            WordlistBloomFilter.delete(file);
+            return;
+        }
+
+        try {
+            final long fingerprint = filterFingerprint();
+            final WordlistBloomFilter existingFilter = resuming ? WordlistBloomFilter.open(file, fingerprint) : null;
+            if (existingFilter != null) {
+                LOGGER.debug(DEBUG_LABEL + " resuming filter population, " + existingFilter.debugString());
+                filter = existingFilter;
+                filterRebuildRequired = false;
+            } else {
+                filter = WordlistBloomFilter.create(file, fingerprint, expectedInsertions, filterFalsePositiveRate, filterMaxBytes);
+                filterRebuildRequired = resuming;
+                LOGGER.debug(DEBUG_LABEL + " created filter for " + expectedInsertions + " expected keys, " + filter.debugString());
+            }
+        } catch (Exception e) {
+            LOGGER.warn(DEBUG_LABEL + " unable to create filter, wordlist lookups will not be filtered: " + e.getMessage());
+            closeFilter();
+            WordlistBloomFilter.delete(file);
+        }
+    }
+
+    void addToFilter(final Collection<String> keys) {
+        final WordlistBloomFilter currentFilter = filter;
+        if (currentFilter != null) {
+            for (final String key : keys) {
+                currentFilter.add(key);
+            }
+            currentFilter.flush();
+        }
+    }
+
+    void completeFilterPopulation() {
+        final WordlistBloomFilter currentFilter = filter;
+        if (currentFilter != null && !filterRebuildRequired) {
+            currentFilter.markComplete();
+        }
+    }
+
+    private void openFilter() {
+        final File file = filterFile();
+        if (!filterEnabled || file == null) {
+            closeFilter();
+            WordlistBloomFilter.delete(file);
+            return;
+        }
+
+        if (filter != null && filter.isComplete()) {
+            LOGGER.debug(DEBUG_LABEL + " filter open: " + filter.debugString());
+            return;
+        }
+
+        closeFilter();
+        try {
+            final long fingerprint = filterFingerprint();
+            WordlistBloomFilter loadedFilter = WordlistBloomFilter.open(file, fingerprint);
+            if (loadedFilter == null || !loadedFilter.isComplete()) {
+                if (loadedFilter != null) {
+                    loadedFilter.close();
+                }
+                loadedFilter = rebuildFilter(file, fingerprint);
+            }
+            filter = loadedFilter;
+            if (filter != null) {
+                LOGGER.debug(DEBUG_LABEL + " filter open: " + filter.debugString());
+            }
+        } catch (Exception e) {
+            LOGGER.warn(DEBUG_LABEL + " unable to open filter, wordlist lookups will not be filtered: " + e.getMessage());
+            closeFilter();
+        }
+    }
+
+    private WordlistBloomFilter rebuildFilter(final File file, final long fingerprint)
+            throws IOException, LocalDBException
+    {
+        final long startTime = System.currentTimeMillis();
+        LOGGER.debug(DEBUG_LABEL + " rebuilding filter from " + storedSize + " stored keys");
+        final WordlistBloomFilter newFilter = WordlistBloomFilter.create(file, fingerprint, storedSize, filterFalsePositiveRate, filterMaxBytes);
+        ClosableIterator<String> iterator = null;
+        try {
+            iterator = wordStorage.keyIterator();
+            while (iterator.hasNext()) {
+                if (wlStatus != STATUS.OPENING) {
+                    newFilter.close();
+                    return null;
+                }
+                newFilter.add(iterator.next());
+            }
+        } finally {
+            if (iterator != null) {
+                iterator.close();
+            }
+        }
+        newFilter.markComplete();
+        LOGGER.debug(DEBUG_LABEL + " filter rebuild completed in " + TimeDuration.fromCurrent(startTime).asCompactString());
+        return newFilter;
+    }
+
+    private void closeFilter() {
+        final WordlistBloomFilter currentFilter = filter;
+        filter = null;
+        if (currentFilter != null) {
+            currentFilter.close();
+        }
+    }
+
+    /**
+     * Called concurrently by the {@link Populator} normalizer threads, implementations must be thread safe.
+     */
     protected abstract Map<String, String> getWriteTxnForValue(String value);
 
     protected abstract String makeVersionString();
 
+    /**
+     * @return true if lookups against this wordlist probe for membership and so benefit from a bloom filter
+     */
+    protected boolean isFilterSupported() {
+        return true;
+    }
+
 // -------------------------- ENUMERATIONS --------------------------
 
     static enum VALUE_STATUS {
@@ -398,6 +652,18 @@ abstract class AbstractWordlist implements Wordlist, PwmService {
         }
     }
 
+    /**
+     * @return the number of substrings {@link #chunkWord(String, int)} produces for an input of the given length.
+     */
+    static long chunkCount(final int length, final int size) {
+        if (length < 1) {
+            return 0;
+        }
+        final int checkSize = size == 0 || size > length ? length : size;
+        final long windowSizes = length - checkSize + 1;
+        return windowSizes * (windowSizes + 1) / 2;
+    }
+
     protected Set<String> chunkWord(final String input, final int size) {
         int checkSize = size == 0 || size > input.length() ? input.length() : size;
         final TreeSet<String> testWords = new TreeSet<>();
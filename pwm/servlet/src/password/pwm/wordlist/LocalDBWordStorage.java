@@ -0,0 +1,105 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.wordlist;
+
+import password.pwm.util.ClosableIterator;
+import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBException;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Stores each word as an individual key in a {@link LocalDB} database.
+ */
+class LocalDBWordStorage implements WordStorage {
+    private final LocalDB localDB;
+    private final LocalDB.DB wordDB;
+
+    LocalDBWordStorage(final LocalDB localDB, final LocalDB.DB wordDB) {
+        this.localDB = localDB;
+        this.wordDB = wordDB;
+    }
+
+    public Type getType() {
+        return Type.LOCALDB;
+    }
+
+    public boolean isAvailable() {
+        return true;
+    }
+
+    public boolean contains(final CharSequence key)
+            throws LocalDBException
+    {
+        return localDB.contains(wordDB, key.toString());
+    }
+
+    public boolean containsAny(final Collection<String> keys)
+            throws LocalDBException
+    {
+        return localDB.containsAny(wordDB, keys);
+    }
+
+    public String get(final String key)
+            throws LocalDBException
+    {
+        return localDB.get(wordDB, key);
+    }
+
+    public void putAll(final Map<String, String> keyValueMap)
+            throws LocalDBException
+    {
+        localDB.putAll(wordDB, keyValueMap);
+    }
+
+    public void populationComplete() {
+    }
+
+    public int size()
+            throws LocalDBException
+    {
+        return localDB.size(wordDB);
+    }
+
+    public void truncate()
+            throws LocalDBException
+    {
+        localDB.truncate(wordDB);
+    }
+
+    public void clear()
+            throws LocalDBException
+    {
+        localDB.truncate(wordDB);
+    }
+
+    public ClosableIterator<String> keyIterator()
+            throws LocalDBException
+    {
+        return localDB.iterator(wordDB);
+    }
+
+    public void close() {
+    }
+}
@@ -38,8 +38,11 @@ import java.io.File;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.*;
 
 /**
  * @author Jason D. Rivard
@@ -55,24 +58,29 @@ class Populator {
     private static final long DEBUG_OUTPUT_FREQUENCY = 3 * 60 * 1000;  // 3 minutes
 
     private static final String COMMENT_PREFIX = "!#comment:"; // words tarting with this prefix are ignored.
+
+    private static final int READ_BATCH_SIZE = 1000; // lines handed to a normalizer thread at a time
+    private static final int BATCHES_PER_THREAD = 4; // bound of the reader to writer queue, per normalizer thread
     private static final NumberFormat PERCENT_FORMAT = DecimalFormat.getPercentInstance();
 
     private final ZipReader zipFileReader;
 
     private volatile boolean abortFlag;
+    private volatile boolean readerStopFlag;
     private volatile PwmService.STATUS status = PwmService.STATUS.NEW;
 
     private final PopulationStats overallStats = new PopulationStats();
     private PopulationStats perReportStats = new PopulationStats();
     private int totalLines;
+    private long estimatedKeys;
     private TransactionSizeCalculator transactionCalculator = new TransactionSizeCalculator(600, 10, 50 * 1000);
     private int loopLines;
 
     private final Map<String,String> bufferedWords = new TreeMap<>();
+    private String bufferedPosition;
 
     private final Sleeper sleeper;
 
-    private final LocalDB.DB wordlistDB;
     private final LocalDB.DB wordlistMetaDB;
     private final LocalDB localDB;
 
@@ -80,6 +88,8 @@ class Populator {
 
     private final AbstractWordlist rootWordlist;
 
+    private final int normalizerThreads;
+
 // -------------------------- STATIC METHODS --------------------------
 
     static {
@@ -97,11 +107,11 @@ class Populator {
     {
         this.zipFileReader = zipFileReader;
         this.localDB = rootWordlist.localDB;
-        this.wordlistDB = rootWordlist.WORD_DB;
         this.wordlistMetaDB = rootWordlist.META_DB;
         this.sleeper = sleeper;
         this.DEBUG_LABEL = rootWordlist.DEBUG_LABEL;
         this.rootWordlist = rootWordlist;
+        this.normalizerThreads = Math.max(1, rootWordlist.populatorThreads);
 
         sleeper.reset();
     }
@@ -139,11 +149,18 @@ class Populator {
             LOGGER.info(DEBUG_LABEL + " source ZIP has " + totalLines + " lines");
         }
 
+        if (abortFlag) return;
+
+        rootWordlist.prepareFilterForPopulation(estimatedKeys, lastLineValue != null);
+
         localDB.put(wordlistMetaDB, WordlistManager.KEY_STATUS, WordlistManager.VALUE_STATUS.DIRTY.toString());
 
         if (overallStats.getLines() > 0) {
-            for (int i = 0; i < overallStats.getLines(); i++) {
-                zipFileReader.nextLine();
+            final String zipPosition = localDB.get(wordlistMetaDB, WordlistManager.KEY_ZIPPOSITION);
+            if (!zipFileReader.seek(zipPosition)) {
+                for (int i = 0; i < overallStats.getLines(); i++) {
+                    zipFileReader.nextLine();
+                }
             }
         }
         status = PwmService.STATUS.OPEN;
@@ -155,9 +172,13 @@ class Populator {
         LOGGER.trace(DEBUG_LABEL + " beginning to count total input ZIP file lines");
         final ZipReader zipFileReader = new ZipReader(wordlistFile);
         totalLines = 0;
+        estimatedKeys = 0;
 
-        while (zipFileReader.nextLine() != null) {
+        final int checkSize = rootWordlist.wordlistConfiguration.getCheckSize();
+        String line;
+        while ((line = zipFileReader.nextLine()) != null) {
             totalLines++;
+            estimatedKeys += AbstractWordlist.chunkCount(Math.min(line.trim().length(), MAX_LINE_LENGTH), checkSize);
             if (abortFlag) return;
         }
 
@@ -208,6 +229,7 @@ class Populator {
         }
 
         final int lps = perReportStats.getElapsedSeconds() <= 0 ? 0 : perReportStats.getLines() / perReportStats.getElapsedSeconds();
+        final long bps = perReportStats.getElapsedSeconds() <= 0 ? 0 : perReportStats.getBytes() / perReportStats.getElapsedSeconds();
         final int linesRemaining = totalLines - overallStats.getLines();
         final int msRemaining = lps <= 0 ? 0 : (linesRemaining / lps) * 1000;
 
@@ -223,6 +245,8 @@ class Populator {
         }
 
         sb.append(", lines/second=").append(lps);
+        sb.append(", bytes/second=").append(bps);
+        sb.append(", threads=").append(normalizerThreads);
         sb.append(", line=").append(overallStats.getLines());
         sb.append(")");
         sb.append(" current zipEntry=").append(zipFileReader.currentZipName());
@@ -231,21 +255,44 @@ class Populator {
         return sb.toString();
     }
 
+    /**
+     * Runs the population pipeline.  A reader thread decompresses the zip file into batches of lines, the batches are
+     * normalized in parallel by a pool of normalizer threads, and the calling thread writes the results in the
+     * original line order so the stored line count and zip position remain a valid resume point.
+     */
     void populate() throws IOException, LocalDBException, PwmUnrecoverableException {
+        final ExecutorService normalizerService = Executors.newFixedThreadPool(
+                normalizerThreads,
+                Helper.makePwmThreadFactory(DEBUG_LABEL + "-Populator-Normalizer", true)
+        );
+        final BlockingQueue<Future<NormalizedBatch>> pendingBatches = new ArrayBlockingQueue<>(normalizerThreads * BATCHES_PER_THREAD);
+        final Thread readerThread = new Thread(new ReaderStage(normalizerService, pendingBatches), DEBUG_LABEL + "-Populator-Reader");
+        readerThread.setDaemon(true);
 
         try {
             long lastReportTime = System.currentTimeMillis() - (long)(DEBUG_OUTPUT_FREQUENCY * 0.33);
 
             sleeper.reset();
-            String line;
-            while (!abortFlag && (line = zipFileReader.nextLine()) != null) {
+            readerThread.start();
+
+            boolean endOfInput = false;
+            while (!abortFlag && !endOfInput) {
+                final Future<NormalizedBatch> nextBatch = pendingBatches.poll(1, TimeUnit.SECONDS);
+                if (nextBatch == null) {
+                    continue;
+                }
+
+                final NormalizedBatch batch = readBatchResult(nextBatch);
+                endOfInput = batch.isEndOfInput();
                 sleeper.sleep();
 
-                overallStats.incrementLines();
-                perReportStats.incrementLines();
+                overallStats.incrementLines(batch.lineCount);
+                perReportStats.incrementLines(batch.lineCount);
+                perReportStats.incrementBytes(batch.byteCount);
 
-                addLine(line);
-                loopLines++;
+                bufferedWords.putAll(batch.words);
+                bufferedPosition = batch.zipPosition;
+                loopLines += batch.lineCount;
 
                 if (TimeDuration.fromCurrent(lastReportTime).isLongerThan(DEBUG_OUTPUT_FREQUENCY)) {
                     LOGGER.info(makeStatString());
@@ -256,7 +303,16 @@ class Populator {
                     flushBuffer();
                 }
             }
+        } catch (InterruptedException e) {
+            LOGGER.warn(DEBUG_LABEL + " population interrupted");
+            abortFlag = true;
         } finally {
+            readerStopFlag = true;
+            readerThread.interrupt();
+            normalizerService.shutdownNow();
+            try {
+                readerThread.join(DEBUG_OUTPUT_FREQUENCY);
+            } catch (InterruptedException e) { /* do nothing */ }
             zipFileReader.close();
         }
 
@@ -269,22 +325,141 @@ class Populator {
         status = PwmService.STATUS.CLOSED;
     }
 
-    private void addLine(String line)
-            throws IOException
+    private static NormalizedBatch readBatchResult(final Future<NormalizedBatch> future)
+            throws IOException, InterruptedException
     {
-        // check for word suitability
-        line = rootWordlist.normalizeWord(line);
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            throw new IOException("unexpected error processing wordlist batch: " + cause.getMessage(), cause);
+        }
+    }
 
-        if (line == null || line.length() < 1 || line.startsWith(COMMENT_PREFIX)) {
-            return;
+    private NormalizedBatch normalizeLines(final List<String> lines, final long byteCount, final String zipPosition)
+    {
+        final Map<String,String> words = new TreeMap<>();
+        for (final String line : lines) {
+            // check for word suitability
+            String word = rootWordlist.normalizeWord(line);
+
+            if (word == null || word.length() < 1 || word.startsWith(COMMENT_PREFIX)) {
+                continue;
+            }
+
+            if (word.length() > MAX_LINE_LENGTH) {
+                word = word.substring(0,MAX_LINE_LENGTH);
+            }
+
+            words.putAll(rootWordlist.getWriteTxnForValue(word));
+        }
+        return new NormalizedBatch(lines.size(), byteCount, zipPosition, words, false);
+    }
+
+    /**
+     * Reads the zip file in batches of lines and hands each batch to the normalizer pool.  Futures are queued in
+     * read order; the bounded queue throttles the reader when the writer falls behind.
+     */
+    private class ReaderStage implements Runnable {
+        private final ExecutorService normalizerService;
+        private final BlockingQueue<Future<NormalizedBatch>> pendingBatches;
+
+        private ReaderStage(final ExecutorService normalizerService, final BlockingQueue<Future<NormalizedBatch>> pendingBatches) {
+            this.normalizerService = normalizerService;
+            this.pendingBatches = pendingBatches;
         }
 
-        if (line.length() > MAX_LINE_LENGTH) {
-            line = line.substring(0,MAX_LINE_LENGTH);
+        public void run() {
+            try {
+                while (!readerStopFlag) {
+                    final long startBytes = zipFileReader.getBytesRead();
+                    final List<String> lines = new ArrayList<>(READ_BATCH_SIZE);
+                    String line;
+                    while (lines.size() < READ_BATCH_SIZE && (line = zipFileReader.nextLine()) != null) {
+                        lines.add(line);
+                    }
+
+                    final long byteCount = zipFileReader.getBytesRead() - startBytes;
+                    final String zipPosition = zipFileReader.currentPosition();
+                    if (!lines.isEmpty()) {
+                        enqueue(normalizerService.submit(new Callable<NormalizedBatch>() {
+                            public NormalizedBatch call() {
+                                return normalizeLines(lines, byteCount, zipPosition);
+                            }
+                        }));
+                    }
+
+                    if (lines.size() < READ_BATCH_SIZE) {
+                        enqueue(completedFuture(new NormalizedBatch(0, 0, zipPosition, new TreeMap<String, String>(), true)));
+                        return;
+                    }
+                }
+            } catch (final IOException e) {
+                final FutureTask<NormalizedBatch> failedTask = new FutureTask<>(new Callable<NormalizedBatch>() {
+                    public NormalizedBatch call() throws IOException {
+                        throw e;
+                    }
+                });
+                failedTask.run();
+                try {
+                    enqueue(failedTask);
+                } catch (InterruptedException e2) { /* do nothing */ }
+            } catch (InterruptedException | RejectedExecutionException e) {
+                /* population is stopping */
+            }
         }
 
-        final Map<String,String> wordTxn = rootWordlist.getWriteTxnForValue(line);
-        bufferedWords.putAll(wordTxn);
+        private void enqueue(final Future<NormalizedBatch> future)
+                throws InterruptedException
+        {
+            while (!readerStopFlag) {
+                if (pendingBatches.offer(future, 1, TimeUnit.SECONDS)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static Future<NormalizedBatch> completedFuture(final NormalizedBatch batch) {
+        final FutureTask<NormalizedBatch> futureTask = new FutureTask<>(new Callable<NormalizedBatch>() {
+            public NormalizedBatch call() {
+                return batch;
+            }
+        });
+        futureTask.run();
+        return futureTask;
+    }
+
+    private static class NormalizedBatch {
+        private final int lineCount;
+        private final long byteCount;
+        private final String zipPosition;
+        private final Map<String,String> words;
+        private final boolean endOfInput;
+
+        private NormalizedBatch(
+                final int lineCount,
+                final long byteCount,
+                final String zipPosition,
+                final Map<String, String> words,
+                final boolean endOfInput
+        ) {
+            this.lineCount = lineCount;
+            this.byteCount = byteCount;
+            this.zipPosition = zipPosition;
+            this.words = words;
+            this.endOfInput = endOfInput;
+        }
+
+        private boolean isEndOfInput() {
+            return endOfInput;
+        }
     }
 
     private void flushBuffer()
@@ -293,10 +468,14 @@ class Populator {
         final long startTime = System.currentTimeMillis();
 
         //add the elements
-        localDB.putAll(wordlistDB, bufferedWords);
+        rootWordlist.wordStorage.putAll(bufferedWords);
+        rootWordlist.addToFilter(bufferedWords.keySet());
 
-        //update the src ZIP line counter in the localdb.
+        //update the src ZIP line counter and position in the localdb.
         localDB.put(wordlistMetaDB, WordlistManager.KEY_LASTLINE, String.valueOf(overallStats.getLines()));
+        if (bufferedPosition != null) {
+            localDB.put(wordlistMetaDB, WordlistManager.KEY_ZIPPOSITION, bufferedPosition);
+        }
 
         if (abortFlag) {
             return;
@@ -329,11 +508,13 @@ class Populator {
         flushBuffer();
         localDB.put(wordlistMetaDB, WordlistManager.KEY_STATUS, WordlistManager.VALUE_STATUS.IN_PROGRESS.toString());
         LOGGER.info(makeStatString());
+        rootWordlist.wordStorage.populationComplete();
         LOGGER.trace("beginning wordlist size query");
-        final int wordlistSize = localDB.size(wordlistDB);
+        final int wordlistSize = rootWordlist.wordStorage.size();
         if (wordlistSize > 0) {
             localDB.put(wordlistMetaDB, WordlistManager.KEY_SIZE, String.valueOf(wordlistSize));
             localDB.put(wordlistMetaDB, WordlistManager.KEY_STATUS, WordlistManager.VALUE_STATUS.COMPLETE.toString());
+            rootWordlist.completeFilterPopulation();
         } else {
             throw new PwmUnrecoverableException(new ErrorInformation(PwmError.ERROR_UNKNOWN, DEBUG_LABEL + " population completed, but no words stored"));
         }
@@ -351,6 +532,7 @@ class Populator {
 
         private long startTime = System.currentTimeMillis();
         private int lines;
+        private long bytes;
 
         // --------------------- GETTER / SETTER METHODS ---------------------
 
@@ -361,11 +543,26 @@ class Populator {
 
         // -------------------------- OTHER METHODS --------------------------
 
+        public long getBytes()
+        {
+            return bytes;
+        }
+
         public void incrementLines()
         {
             lines++;
         }
 
+        public void incrementLines(final int count)
+        {
+            lines += count;
+        }
+
+        public void incrementBytes(final long count)
+        {
+            bytes += count;
+        }
+
         public int getElapsedSeconds()
         {
             return (int) (System.currentTimeMillis() - startTime) / 1000;
@@ -35,12 +35,13 @@ import password.pwm.util.logging.PwmLogger;
 import java.io.File;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class SeedlistManager extends AbstractWordlist implements Wordlist {
 
     private static final PwmLogger LOGGER = PwmLogger.forClass(SeedlistManager.class);
 
-    private int initialPopulationCounter = 0;
+    private final AtomicInteger initialPopulationCounter = new AtomicInteger(0);
 
     public SeedlistManager() {
     }
@@ -55,7 +56,7 @@ public class SeedlistManager extends AbstractWordlist implements Wordlist {
             final int seedCount = size();
             if (seedCount > 1000) {
                 final int randomKey = PwmRandom.getInstance().nextInt(size());
-                final Object obj = localDB.get(WORD_DB, String.valueOf(randomKey));
+                final Object obj = wordStorage.get(String.valueOf(randomKey));
                 if (obj != null) {
                     returnValue = obj.toString();
                 }
@@ -71,9 +72,7 @@ public class SeedlistManager extends AbstractWordlist implements Wordlist {
     }
 
     protected Map<String, String> getWriteTxnForValue(final String value) {
-        final Map<String, String> txItem = Collections.singletonMap(String.valueOf(initialPopulationCounter), value);
-        initialPopulationCounter++;
-        return txItem;
+        return Collections.singletonMap(String.valueOf(initialPopulationCounter.getAndIncrement()), value);
     }
 
     @Override
@@ -82,7 +81,7 @@ public class SeedlistManager extends AbstractWordlist implements Wordlist {
         if (!isComplete) {
             LOGGER.info(DEBUG_LABEL + " prior population did not complete, clearing wordlist");
             localDB.truncate(META_DB);
-            localDB.truncate(WORD_DB);
+            wordStorage.truncate();
         }
         super.checkPopulation();
     }
@@ -113,4 +112,11 @@ public class SeedlistManager extends AbstractWordlist implements Wordlist {
     {
         return VALUE_VERSION;
     }
+
+    @Override
+    protected boolean isFilterSupported()
+    {
+        // seeds are only ever sampled at random, never probed for membership
+        return false;
+    }
 }
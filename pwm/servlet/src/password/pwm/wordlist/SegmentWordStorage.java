@@ -0,0 +1,475 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.wordlist;
+
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmError;
+import password.pwm.util.ClosableIterator;
+import password.pwm.util.TimeDuration;
+import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBException;
+import password.pwm.util.logging.PwmLogger;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Stores words in an immutable {@link WordlistSegment} file instead of as individual LocalDB keys.
+ * <p/>
+ * During population each {@link #putAll(Map)} call writes a sorted run file.  When population completes the runs
+ * are merged into a new segment file, which is then swapped in as the active segment in a single step.  The
+ * previous segment stays in place until the new one has been written and synced, and run files written before a
+ * restart are kept so that population can resume.
+ */
+class SegmentWordStorage implements WordStorage {
+    private static final PwmLogger LOGGER = PwmLogger.forClass(SegmentWordStorage.class);
+
+    private static final int MERGE_FAN_IN = 64;
+    private static final String SEGMENT_SUFFIX = ".segment";
+    private static final String RUN_INFIX = ".run.";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final LocalDB localDB;
+    private final LocalDB.DB wordDB;
+    private final File directory;
+    private final String baseName;
+
+    private volatile WordlistSegment activeSegment;
+    private int runCounter;
+
+    SegmentWordStorage(final LocalDB localDB, final LocalDB.DB wordDB, final File directory) {
+        this.localDB = localDB;
+        this.wordDB = wordDB;
+        this.directory = directory;
+        this.baseName = wordDB.toString();
+        runCounter = highestRunNumber();
+        openNewestSegment();
+    }
+
+    public Type getType() {
+        return Type.SEGMENT;
+    }
+
+    public boolean isAvailable() {
+        return activeSegment != null;
+    }
+
+    public boolean contains(final CharSequence key) {
+        final WordlistSegment segment = activeSegment;
+        return segment != null && segment.contains(key);
+    }
+
+    public boolean containsAny(final Collection<String> keys) {
+        final WordlistSegment segment = activeSegment;
+        if (segment == null) {
+            return false;
+        }
+        for (final String key : keys) {
+            if (segment.contains(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String get(final String key) {
+        final WordlistSegment segment = activeSegment;
+        return segment == null ? null : segment.get(key);
+    }
+
+    public void putAll(final Map<String, String> keyValueMap)
+            throws LocalDBException
+    {
+        if (keyValueMap.isEmpty()) {
+            return;
+        }
+
+        final SortedMap<String,String> sortedMap = keyValueMap instanceof SortedMap && ((SortedMap)keyValueMap).comparator() == null
+                ? (SortedMap<String,String>)keyValueMap
+                : new TreeMap<>(keyValueMap);
+
+        runCounter++;
+        final File runFile = runFile(runCounter);
+        try {
+            writeRun(runFile, sortedMap.entrySet().iterator());
+        } catch (IOException e) {
+            throw makeException("unable to write wordlist run file " + runFile.getAbsolutePath(), e);
+        }
+    }
+
+    public void populationComplete()
+            throws LocalDBException
+    {
+        final long startTime = System.currentTimeMillis();
+        final File tempFile = new File(directory, baseName + SEGMENT_SUFFIX + TEMP_SUFFIX);
+        try {
+            List<File> runFiles = listRunFiles();
+            LOGGER.debug("merging " + runFiles.size() + " run files into new " + baseName + " segment");
+
+            while (runFiles.size() > MERGE_FAN_IN) {
+                runFiles = mergeRunsOnce(runFiles);
+            }
+
+            final WordlistSegment.Writer writer = new WordlistSegment.Writer(tempFile);
+            try {
+                mergeRuns(runFiles, new SegmentSink(writer));
+                writer.finish();
+            } catch (IOException | RuntimeException e) {
+                writer.abort();
+                throw e;
+            }
+
+            final File segmentFile = new File(directory, baseName + "." + System.currentTimeMillis() + SEGMENT_SUFFIX);
+            if (!tempFile.renameTo(segmentFile)) {
+                throw new IOException("unable to rename " + tempFile.getAbsolutePath() + " to " + segmentFile.getAbsolutePath());
+            }
+
+            final WordlistSegment newSegment = WordlistSegment.open(segmentFile);
+            final WordlistSegment oldSegment = activeSegment;
+            activeSegment = newSegment;
+            if (oldSegment != null) {
+                oldSegment.close();
+            }
+
+            deleteStaleSegments();
+            for (final File runFile : runFiles) {
+                runFile.delete();
+            }
+            runCounter = 0;
+
+            LOGGER.debug("activated new " + baseName + " segment with " + newSegment.size() + " entries ("
+                    + segmentFile.length() + " bytes) in " + TimeDuration.fromCurrent(startTime).asCompactString());
+        } catch (IOException e) {
+            tempFile.delete();
+            throw makeException("unable to build wordlist segment: " + e.getMessage(), e);
+        }
+    }
+
+    public int size() {
+        final WordlistSegment segment = activeSegment;
+        return segment == null ? 0 : (int)Math.min(Integer.MAX_VALUE, segment.size());
+    }
+
+    public void truncate()
+            throws LocalDBException
+    {
+        for (final File runFile : listRunFiles()) {
+            runFile.delete();
+        }
+        runCounter = 0;
+
+        // reclaim any words left in the LocalDB by a previous storage method
+        localDB.truncate(wordDB);
+    }
+
+    public ClosableIterator<String> keyIterator() {
+        final WordlistSegment segment = activeSegment;
+        if (segment == null) {
+            return new ClosableIterator<String>() {
+                public void close() {
+                }
+
+                public boolean hasNext() {
+                    return false;
+                }
+
+                public String next() {
+                    throw new NoSuchElementException();
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+        return segment.keyIterator();
+    }
+
+    public void close() {
+        final WordlistSegment segment = activeSegment;
+        activeSegment = null;
+        if (segment != null) {
+            segment.close();
+        }
+    }
+
+    public void clear()
+            throws LocalDBException
+    {
+        close();
+        localDB.truncate(wordDB);
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                if (file.getName().startsWith(baseName + ".")) {
+                    file.delete();
+                }
+            }
+        }
+        runCounter = 0;
+    }
+
+    private void openNewestSegment() {
+        final List<File> segmentFiles = listSegmentFiles();
+        if (segmentFiles.isEmpty()) {
+            return;
+        }
+
+        final File newestFile = segmentFiles.get(segmentFiles.size() - 1);
+        try {
+            activeSegment = WordlistSegment.open(newestFile);
+            LOGGER.trace("opened " + baseName + " segment " + newestFile.getName() + " with " + activeSegment.size() + " entries");
+        } catch (IOException e) {
+            LOGGER.warn("unable to open " + baseName + " segment " + newestFile.getAbsolutePath() + ", discarding: " + e.getMessage());
+            newestFile.delete();
+        }
+        deleteStaleSegments();
+    }
+
+    private void deleteStaleSegments() {
+        final WordlistSegment segment = activeSegment;
+        for (final File segmentFile : listSegmentFiles()) {
+            if (segment == null || !segmentFile.equals(segment.getFile())) {
+                segmentFile.delete();
+            }
+        }
+    }
+
+    private List<File> listSegmentFiles() {
+        final List<File> returnList = new ArrayList<>();
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                final String name = file.getName();
+                if (name.startsWith(baseName + ".") && name.endsWith(SEGMENT_SUFFIX)) {
+                    returnList.add(file);
+                }
+            }
+        }
+        Collections.sort(returnList);
+        return returnList;
+    }
+
+    private List<File> listRunFiles() {
+        final List<File> returnList = new ArrayList<>();
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                final String name = file.getName();
+                if (name.startsWith(baseName + RUN_INFIX)) {
+                    if (name.endsWith(TEMP_SUFFIX)) {
+                        file.delete();
+                    } else {
+                        returnList.add(file);
+                    }
+                }
+            }
+        }
+        Collections.sort(returnList);
+        return returnList;
+    }
+
+    private int highestRunNumber() {
+        int highest = 0;
+        for (final File runFile : listRunFiles()) {
+            try {
+                highest = Math.max(highest, Integer.parseInt(runFile.getName().substring((baseName + RUN_INFIX).length())));
+            } catch (NumberFormatException e) {
+                runFile.delete();
+            }
+        }
+        return highest;
+    }
+
+    private File runFile(final int number) {
+        return new File(directory, baseName + RUN_INFIX + String.format("%09d", number));
+    }
+
+    /**
+     * Write a sorted run to a temporary file, sync it and rename it into place so that only complete runs are
+     * ever visible under a run file name.
+     */
+    private static void writeRun(final File runFile, final Iterator<Map.Entry<String,String>> entries)
+            throws IOException
+    {
+        final File tempFile = new File(runFile.getAbsolutePath() + TEMP_SUFFIX);
+        final FileOutputStream fileOutputStream = new FileOutputStream(tempFile);
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutputStream, 64 * 1024))) {
+            while (entries.hasNext()) {
+                final Map.Entry<String,String> entry = entries.next();
+                output.writeBoolean(true);
+                output.writeUTF(entry.getKey());
+                output.writeUTF(entry.getValue() == null ? "" : entry.getValue());
+            }
+            output.writeBoolean(false);
+            output.flush();
+            fileOutputStream.getFD().sync();
+        }
+        if (!tempFile.renameTo(runFile)) {
+            tempFile.delete();
+            throw new IOException("unable to rename run file " + tempFile.getAbsolutePath());
+        }
+    }
+
+    private List<File> mergeRunsOnce(final List<File> runFiles)
+            throws IOException
+    {
+        final List<File> mergedFiles = new ArrayList<>();
+        for (int i = 0; i < runFiles.size(); i += MERGE_FAN_IN) {
+            final List<File> group = runFiles.subList(i, Math.min(runFiles.size(), i + MERGE_FAN_IN));
+            runCounter++;
+            final File mergedFile = runFile(runCounter);
+            final File tempFile = new File(mergedFile.getAbsolutePath() + TEMP_SUFFIX);
+            final FileOutputStream fileOutputStream = new FileOutputStream(tempFile);
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutputStream, 64 * 1024))) {
+                mergeRuns(group, new RunSink(output));
+                output.writeBoolean(false);
+                output.flush();
+                fileOutputStream.getFD().sync();
+            }
+            if (!tempFile.renameTo(mergedFile)) {
+                throw new IOException("unable to rename run file " + tempFile.getAbsolutePath());
+            }
+            for (final File inputFile : group) {
+                inputFile.delete();
+            }
+            mergedFiles.add(mergedFile);
+        }
+        return mergedFiles;
+    }
+
+    /**
+     * K-way merge of sorted run files, discarding duplicate keys.
+     */
+    private static void mergeRuns(final List<File> runFiles, final MergeSink sink)
+            throws IOException
+    {
+        final PriorityQueue<RunReader> queue = new PriorityQueue<>();
+        try {
+            for (final File runFile : runFiles) {
+                final RunReader reader = new RunReader(runFile);
+                if (reader.advance()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+
+            String lastKey = null;
+            while (!queue.isEmpty()) {
+                final RunReader reader = queue.poll();
+                if (lastKey == null || !lastKey.equals(reader.key)) {
+                    sink.write(reader.key, reader.value);
+                    lastKey = reader.key;
+                }
+                if (reader.advance()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+        } finally {
+            for (final RunReader reader : queue) {
+                reader.close();
+            }
+        }
+    }
+
+    private static LocalDBException makeException(final String message, final Exception cause) {
+        LOGGER.error(message + ", " + cause.getMessage());
+        return new LocalDBException(new ErrorInformation(PwmError.ERROR_UNKNOWN, message + ", " + cause.getMessage()));
+    }
+
+    private interface MergeSink {
+        void write(String key, String value) throws IOException;
+    }
+
+    private static class SegmentSink implements MergeSink {
+        private final WordlistSegment.Writer writer;
+
+        private SegmentSink(final WordlistSegment.Writer writer) {
+            this.writer = writer;
+        }
+
+        public void write(final String key, final String value)
+                throws IOException
+        {
+            writer.add(key, value);
+        }
+    }
+
+    private static class RunSink implements MergeSink {
+        private final DataOutputStream output;
+
+        private RunSink(final DataOutputStream output) {
+            this.output = output;
+        }
+
+        public void write(final String key, final String value)
+                throws IOException
+        {
+            output.writeBoolean(true);
+            output.writeUTF(key);
+            output.writeUTF(value);
+        }
+    }
+
+    private static class RunReader implements Comparable<RunReader> {
+        private final File file;
+        private final DataInputStream input;
+        private String key;
+        private String value;
+
+        private RunReader(final File file)
+                throws IOException
+        {
+            this.file = file;
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+        }
+
+        private boolean advance()
+                throws IOException
+        {
+            try {
+                if (!input.readBoolean()) {
+                    return false;
+                }
+                key = input.readUTF();
+                value = input.readUTF();
+                return true;
+            } catch (EOFException e) {
+                throw new IOException("run file " + file.getAbsolutePath() + " is truncated");
+            }
+        }
+
+        private void close() {
+            try {
+                input.close();
+            } catch (IOException e) { /* do nothing */ }
+        }
+
+        public int compareTo(final RunReader o) {
+            return key.compareTo(o.key);
+        }
+    }
+}
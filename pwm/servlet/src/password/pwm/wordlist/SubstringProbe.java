@@ -0,0 +1,190 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.wordlist;
+
+import java.util.Arrays;
+
+/**
+ * Walks every substring of a word that is at least the configured check size long, without creating a
+ * {@link String} per substring.  Shorter windows are visited first, since short dictionary words are the most
+ * likely matches, and windows whose contents have already been visited are skipped.
+ * <p/>
+ * Typical use:
+ * <pre>
+ * final SubstringProbe probe = new SubstringProbe(word, checkSize);
+ * while (probe.next()) {
+ *     if (lookup(probe.window())) { ... }
+ * }
+ * </pre>
+ * The current window is exposed both as a range over {@link #chars()} and as a reusable {@link CharSequence} view,
+ * which is only valid until the next call to {@link #next()}.  Instances are not thread safe.
+ */
+class SubstringProbe {
+
+    private static final long HASH_BASE = 0x100000001b3L;
+
+    private final char[] chars;
+    private final int minLength;
+    private final Window window = new Window();
+
+    // open addressing table of the windows already visited at the current length
+    private final long[] seenHashes;
+    private final int[] seenOffsets;
+    private final int tableMask;
+
+    private int length;
+    private int offset;
+    private long hash;
+    private long highPower;
+    private int probeCount;
+
+    SubstringProbe(final String word, final int checkSize) {
+        chars = word.toCharArray();
+        minLength = checkSize <= 0 || checkSize > chars.length ? chars.length : checkSize;
+        int tableSize = Integer.highestOneBit(Math.max(1, chars.length - minLength + 1)) << 2;
+        tableSize = Math.max(tableSize, 4);
+        seenHashes = new long[tableSize];
+        seenOffsets = new int[tableSize];
+        tableMask = tableSize - 1;
+        length = Math.max(minLength, 1) - 1;
+        offset = chars.length; // forces the first call to next() to start a new length
+    }
+
+    /**
+     * Advance to the next distinct window.
+     *
+     * @return false once every window has been visited
+     */
+    boolean next() {
+        while (true) {
+            if (!advance()) {
+                return false;
+            }
+            if (markSeen()) {
+                probeCount++;
+                window.offset = offset;
+                window.length = length;
+                return true;
+            }
+        }
+    }
+
+    char[] chars() {
+        return chars;
+    }
+
+    int offset() {
+        return offset;
+    }
+
+    int length() {
+        return length;
+    }
+
+    /**
+     * @return a view of the current window; the view is reused and changes on each call to {@link #next()}.
+     */
+    CharSequence window() {
+        return window;
+    }
+
+    /**
+     * @return the number of distinct windows visited so far.
+     */
+    int getProbeCount() {
+        return probeCount;
+    }
+
+    private boolean advance() {
+        if (offset + length < chars.length) {
+            hash = (hash - chars[offset] * highPower) * HASH_BASE + chars[offset + length];
+            offset++;
+            return true;
+        }
+
+        length++;
+        if (length > chars.length) {
+            return false;
+        }
+
+        offset = 0;
+        hash = 0;
+        highPower = 1;
+        for (int i = 0; i < length; i++) {
+            hash = hash * HASH_BASE + chars[i];
+            if (i > 0) {
+                highPower *= HASH_BASE;
+            }
+        }
+        Arrays.fill(seenOffsets, -1);
+        return true;
+    }
+
+    /**
+     * @return true if the current window has not been visited before at this length.
+     */
+    private boolean markSeen() {
+        int slot = (int)(hash ^ (hash >>> 32)) & tableMask;
+        while (seenOffsets[slot] >= 0) {
+            if (seenHashes[slot] == hash && regionEquals(seenOffsets[slot], offset, length)) {
+                return false;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+        seenHashes[slot] = hash;
+        seenOffsets[slot] = offset;
+        return true;
+    }
+
+    private boolean regionEquals(final int offset1, final int offset2, final int regionLength) {
+        for (int i = 0; i < regionLength; i++) {
+            if (chars[offset1 + i] != chars[offset2 + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private class Window implements CharSequence {
+        private int offset;
+        private int length;
+
+        public int length() {
+            return length;
+        }
+
+        public char charAt(final int index) {
+            return chars[offset + index];
+        }
+
+        public CharSequence subSequence(final int start, final int end) {
+            return new String(chars, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, offset, length);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.wordlist;
+
+import password.pwm.util.ClosableIterator;
+import password.pwm.util.localdb.LocalDBException;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Storage backend for the words of an {@link AbstractWordlist}.  The {@link Populator} writes words through
+ * {@link #putAll(Map)} and then calls {@link #populationComplete()}; lookups use {@link #contains(CharSequence)} and
+ * {@link #get(String)}.
+ */
+interface WordStorage {
+
+    enum Type {
+        LOCALDB,
+        SEGMENT,
+    }
+
+    Type getType();
+
+    /**
+     * @return true if the storage holds a set of words which can be used for lookups, even if it belongs to a
+     * previous population.
+     */
+    boolean isAvailable();
+
+    boolean contains(CharSequence key)
+            throws LocalDBException;
+
+    /**
+     * @return true if at least one of the keys is present.
+     */
+    boolean containsAny(Collection<String> keys)
+            throws LocalDBException;
+
+    String get(String key)
+            throws LocalDBException;
+
+    /**
+     * Add words during population.  Data must be durable once this method returns, as the populator records its
+     * resume position immediately afterwards.
+     */
+    void putAll(Map<String, String> keyValueMap)
+            throws LocalDBException;
+
+    /**
+     * Called once all words have been passed to {@link #putAll(Map)}.
+     */
+    void populationComplete()
+            throws LocalDBException;
+
+    int size()
+            throws LocalDBException;
+
+    /**
+     * Discard any words added by an incomplete population.
+     */
+    void truncate()
+            throws LocalDBException;
+
+    /**
+     * Remove all stored words, including those of a completed population.
+     */
+    void clear()
+            throws LocalDBException;
+
+    ClosableIterator<String> keyIterator()
+            throws LocalDBException;
+
+    void close();
+}
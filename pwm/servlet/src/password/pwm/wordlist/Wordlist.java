@@ -29,6 +29,7 @@ public interface Wordlist extends PwmService {
 
     static final String KEY_STATUS = "STATUS";
     static final String KEY_LASTLINE = "LASTLINE";
+    static final String KEY_ZIPPOSITION = "ZIPPOSITION";
     static final String KEY_VERSION = "VERSION";
     static final String KEY_CHECKSUM = "CHECKSUM";
     static final String KEY_ELAPSEDSECONDS = "RUNTIME";
@@ -0,0 +1,311 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.wordlist;
+
+import password.pwm.util.Helper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Persistent, memory-mapped bloom filter used in front of the wordlist LocalDB.  A negative result from
+ * {@link #mightContain(char[], int, int)} guarantees the key was never added, so the LocalDB probe can be skipped.
+ * <p/>
+ * The filter file is written by the {@link Populator} while the wordlist is being imported, and is only trusted
+ * for lookups once it has been marked complete.  The stored fingerprint ties the file to a specific wordlist
+ * population; a file with a different fingerprint is discarded.
+ */
+class WordlistBloomFilter {
+
+    private static final int MAGIC = 0x50574D42; // "PWMB"
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int OFFSET_MAGIC = 0;
+    private static final int OFFSET_VERSION = 4;
+    private static final int OFFSET_FINGERPRINT = 8;
+    private static final int OFFSET_BIT_COUNT = 16;
+    private static final int OFFSET_HASH_COUNT = 24;
+    private static final int OFFSET_COMPLETE = 28;
+    private static final int OFFSET_INSERTIONS = 32;
+    private static final int HEADER_SIZE = 40;
+
+    private static final int MAX_HASH_COUNT = 16;
+    private static final long MIN_BIT_COUNT = 64 * 64;
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final MappedByteBuffer buffer;
+    private final long bitCount;
+    private final int hashCount;
+
+    private long insertions;
+
+    private WordlistBloomFilter(
+            final File file,
+            final RandomAccessFile randomAccessFile,
+            final MappedByteBuffer buffer
+    ) {
+        this.file = file;
+        this.randomAccessFile = randomAccessFile;
+        this.buffer = buffer;
+        this.bitCount = buffer.getLong(OFFSET_BIT_COUNT);
+        this.hashCount = buffer.getInt(OFFSET_HASH_COUNT);
+        this.insertions = buffer.getLong(OFFSET_INSERTIONS);
+    }
+
+    /**
+     * Create a new, empty filter file sized for the expected number of insertions, replacing any existing file.
+     *
+     * @param file               location of the filter file
+     * @param fingerprint        identifier of the wordlist population this filter belongs to
+     * @param expectedInsertions number of keys expected to be added
+     * @param falsePositiveRate  desired false positive rate, for example 0.01
+     * @param maxBytes           upper bound on the size of the bit array
+     * @return an open filter
+     * @throws IOException if the file can not be created
+     */
+    static WordlistBloomFilter create(
+            final File file,
+            final long fingerprint,
+            final long expectedInsertions,
+            final double falsePositiveRate,
+            final long maxBytes
+    )
+            throws IOException
+    {
+        final long insertionCount = Math.max(1, expectedInsertions);
+        final double fpp = falsePositiveRate <= 0 || falsePositiveRate >= 1 ? 0.01 : falsePositiveRate;
+        final long maxBits = Math.min(maxBytes, Integer.MAX_VALUE - HEADER_SIZE) * 8;
+
+        long bits = (long)Math.ceil(-insertionCount * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        bits = Math.min(bits, maxBits);
+        bits = Math.max(bits, MIN_BIT_COUNT);
+        bits = ((bits + 63) / 64) * 64;
+
+        final int hashes = (int)Math.max(1, Math.min(MAX_HASH_COUNT, Math.round((double)bits / insertionCount * Math.log(2))));
+
+        if (file.exists() && !file.delete()) {
+            throw new IOException("unable to remove existing filter file " + file.getAbsolutePath());
+        }
+
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            final long fileSize = HEADER_SIZE + bits / 8;
+            raf.setLength(fileSize);
+            final MappedByteBuffer mappedBuffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            mappedBuffer.putInt(OFFSET_MAGIC, MAGIC);
+            mappedBuffer.putInt(OFFSET_VERSION, FORMAT_VERSION);
+            mappedBuffer.putLong(OFFSET_FINGERPRINT, fingerprint);
+            mappedBuffer.putLong(OFFSET_BIT_COUNT, bits);
+            mappedBuffer.putInt(OFFSET_HASH_COUNT, hashes);
+            mappedBuffer.putInt(OFFSET_COMPLETE, 0);
+            mappedBuffer.putLong(OFFSET_INSERTIONS, 0);
+            mappedBuffer.force();
+            return new WordlistBloomFilter(file, raf, mappedBuffer);
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Open an existing filter file.
+     *
+     * @param file        location of the filter file
+     * @param fingerprint expected fingerprint
+     * @return the open filter, or null if the file does not exist, is damaged or belongs to a different population
+     * @throws IOException if the file can not be read
+     */
+    static WordlistBloomFilter open(final File file, final long fingerprint)
+            throws IOException
+    {
+        if (file == null || !file.exists() || file.length() < HEADER_SIZE) {
+            return null;
+        }
+
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        boolean success = false;
+        try {
+            final long fileSize = raf.length();
+            final MappedByteBuffer mappedBuffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            if (mappedBuffer.getInt(OFFSET_MAGIC) != MAGIC
+                    || mappedBuffer.getInt(OFFSET_VERSION) != FORMAT_VERSION
+                    || mappedBuffer.getLong(OFFSET_FINGERPRINT) != fingerprint
+                    || HEADER_SIZE + mappedBuffer.getLong(OFFSET_BIT_COUNT) / 8 != fileSize
+                    ) {
+                return null;
+            }
+            success = true;
+            return new WordlistBloomFilter(file, raf, mappedBuffer);
+        } finally {
+            if (!success) {
+                raf.close();
+            }
+        }
+    }
+
+    /**
+     * @param value any string
+     * @return a stable 64 bit fingerprint of the value
+     */
+    static long fingerprint(final String value) {
+        return hash(value, 0, value.length(), 0);
+    }
+
+    static void delete(final File file) {
+        if (file != null && file.exists()) {
+            file.delete();
+        }
+    }
+
+    void add(final String key) {
+        final long hash1 = hash(key, 0, key.length(), 0);
+        final long hash2 = hash(key, 0, key.length(), hash1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            final long bitIndex = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+            final int wordOffset = HEADER_SIZE + (int)(bitIndex >>> 6) * 8;
+            final long mask = 1L << (bitIndex & 63);
+            final long word = buffer.getLong(wordOffset);
+            if ((word & mask) == 0) {
+                buffer.putLong(wordOffset, word | mask);
+            }
+        }
+        insertions++;
+    }
+
+    boolean mightContain(final String key) {
+        return mightContain(key, 0, key.length());
+    }
+
+    /**
+     * Test a range of characters without creating a substring.
+     *
+     * @param chars  source characters
+     * @param offset offset of the first character
+     * @param length number of characters
+     * @return false if the key is definitely not present
+     */
+    boolean mightContain(final CharSequence chars, final int offset, final int length) {
+        final long hash1 = hash(chars, offset, length, 0);
+        return testBits(hash1, hash(chars, offset, length, hash1) | 1);
+    }
+
+    boolean mightContain(final char[] chars, final int offset, final int length) {
+        final long hash1 = hash(chars, offset, length, 0);
+        return testBits(hash1, hash(chars, offset, length, hash1) | 1);
+    }
+
+    private boolean testBits(final long hash1, final long hash2) {
+        for (int i = 0; i < hashCount; i++) {
+            final long bitIndex = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+            final int wordOffset = HEADER_SIZE + (int)(bitIndex >>> 6) * 8;
+            if ((buffer.getLong(wordOffset) & (1L << (bitIndex & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Persist the bit array and insertion count to disk.
+     */
+    void flush() {
+        buffer.putLong(OFFSET_INSERTIONS, insertions);
+        buffer.force();
+    }
+
+    void markComplete() {
+        buffer.putInt(OFFSET_COMPLETE, 1);
+        flush();
+    }
+
+    boolean isComplete() {
+        return buffer.getInt(OFFSET_COMPLETE) == 1;
+    }
+
+    void close() {
+        try {
+            flush();
+        } catch (Exception e) { /* do nothing */ }
+        try {
+            randomAccessFile.close();
+        } catch (Exception e) { /* do nothing */ }
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    long getInsertions() {
+        return insertions;
+    }
+
+    /**
+     * @return the expected false positive rate given the current number of insertions
+     */
+    double expectedFalsePositiveRate() {
+        if (insertions <= 0) {
+            return 0;
+        }
+        return Math.pow(1 - Math.exp(-(double)hashCount * insertions / bitCount), hashCount);
+    }
+
+    String debugString() {
+        return "bits=" + bitCount
+                + ", hashes=" + hashCount
+                + ", insertions=" + insertions
+                + ", size=" + Helper.formatDiskSize(HEADER_SIZE + bitCount / 8)
+                + ", expectedFpp=" + String.format("%.5f", expectedFalsePositiveRate());
+    }
+
+    /**
+     * 64 bit hash over a character range, seeded so two independent hashes can be derived for double hashing.
+     */
+    private static long hash(final CharSequence chars, final int offset, final int length, final long seed) {
+        long h = seed ^ 0xcbf29ce484222325L ^ (length * 0x9E3779B97F4A7C15L);
+        for (int i = offset; i < offset + length; i++) {
+            h = (h ^ chars.charAt(i)) * 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long hash(final char[] chars, final int offset, final int length, final long seed) {
+        long h = seed ^ 0xcbf29ce484222325L ^ (length * 0x9E3779B97F4A7C15L);
+        for (int i = offset; i < offset + length; i++) {
+            h = (h ^ chars[i]) * 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
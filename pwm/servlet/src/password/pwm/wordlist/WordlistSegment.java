@@ -0,0 +1,431 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.wordlist;
+
+import password.pwm.util.ClosableIterator;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable, sorted key/value file read through memory mapping.
+ * <p/>
+ * Entries are stored in key order in blocks of {@link #BLOCK_ENTRIES}.  Within a block each key is front-coded
+ * against the previous key; the first key of every block is stored in full.  A sparse index holding the file offset
+ * of every block follows the data, so a lookup is a binary search over the block index followed by a short scan of
+ * one block.  Lookups compare characters directly against the mapped file and do not allocate.
+ * <p/>
+ * Blocks never span a {@link #REGION_SIZE} boundary, which allows files larger than a single mapping.
+ */
+class WordlistSegment {
+
+    private static final int MAGIC = 0x50574D53; // "PWMS"
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int OFFSET_MAGIC = 0;
+    private static final int OFFSET_VERSION = 4;
+    private static final int OFFSET_ENTRY_COUNT = 8;
+    private static final int OFFSET_BLOCK_COUNT = 16;
+    private static final int OFFSET_INDEX = 24;
+    private static final int HEADER_SIZE = 32;
+
+    static final int BLOCK_ENTRIES = 16;
+    static final long REGION_SIZE = 1L << 30;
+    private static final int MAX_KEY_LENGTH = 0xFFFF;
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final MappedByteBuffer[] regions;
+    private final MappedByteBuffer index;
+    private final long entryCount;
+    private final int blockCount;
+
+    private WordlistSegment(final File file)
+            throws IOException
+    {
+        this.file = file;
+        randomAccessFile = new RandomAccessFile(file, "r");
+        boolean success = false;
+        try {
+            final FileChannel channel = randomAccessFile.getChannel();
+            final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(OFFSET_MAGIC) != MAGIC || header.getInt(OFFSET_VERSION) != FORMAT_VERSION) {
+                throw new IOException("file " + file.getAbsolutePath() + " is not a wordlist segment");
+            }
+            entryCount = header.getLong(OFFSET_ENTRY_COUNT);
+            final long blocks = header.getLong(OFFSET_BLOCK_COUNT);
+            final long indexOffset = header.getLong(OFFSET_INDEX);
+            if (blocks * 8 > Integer.MAX_VALUE || indexOffset + blocks * 8 != channel.size()) {
+                throw new IOException("segment file " + file.getAbsolutePath() + " is damaged");
+            }
+            blockCount = (int)blocks;
+            index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, blocks * 8);
+
+            final int regionCount = (int)((indexOffset + REGION_SIZE - 1) / REGION_SIZE);
+            regions = new MappedByteBuffer[regionCount];
+            for (int i = 0; i < regionCount; i++) {
+                final long regionStart = i * REGION_SIZE;
+                final long regionLength = Math.min(REGION_SIZE, indexOffset - regionStart);
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, regionLength);
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                randomAccessFile.close();
+            }
+        }
+    }
+
+    static WordlistSegment open(final File file)
+            throws IOException
+    {
+        return new WordlistSegment(file);
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    long size() {
+        return entryCount;
+    }
+
+    boolean contains(final CharSequence key) {
+        return findValuePosition(key) >= 0;
+    }
+
+    String get(final CharSequence key) {
+        final long valuePosition = findValuePosition(key);
+        if (valuePosition < 0) {
+            return null;
+        }
+        final ByteBuffer region = regions[(int)(valuePosition / REGION_SIZE)];
+        final int position = (int)(valuePosition % REGION_SIZE);
+        final char[] value = new char[region.getInt(position)];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = region.getChar(position + 4 + i * 2);
+        }
+        return new String(value);
+    }
+
+    void close() {
+        try {
+            randomAccessFile.close();
+        } catch (IOException e) { /* do nothing */ }
+    }
+
+    ClosableIterator<String> keyIterator() {
+        return new KeyIterator();
+    }
+
+    private long blockOffset(final int block) {
+        return index.getLong(block * 8);
+    }
+
+    private int blockEntryCount(final int block) {
+        return (int)Math.min(BLOCK_ENTRIES, entryCount - (long)block * BLOCK_ENTRIES);
+    }
+
+    /**
+     * Compare the first (full) key of a block against the search key, using {@link String#compareTo(String)} ordering.
+     */
+    private int compareFirstKey(final int block, final CharSequence key) {
+        final long offset = blockOffset(block);
+        final ByteBuffer region = regions[(int)(offset / REGION_SIZE)];
+        final int position = (int)(offset % REGION_SIZE);
+        final int length = region.getShort(position + 2) & 0xFFFF;
+        final int compareLength = Math.min(length, key.length());
+        for (int i = 0; i < compareLength; i++) {
+            final int difference = region.getChar(position + 4 + i * 2) - key.charAt(i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - key.length();
+    }
+
+    /**
+     * @return the absolute file position of the value of the matching entry, or -1 if the key is not present.
+     */
+    private long findValuePosition(final CharSequence key) {
+        int low = 0;
+        int high = blockCount - 1;
+        int block = -1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            if (compareFirstKey(middle, key) <= 0) {
+                block = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        if (block < 0) {
+            return -1;
+        }
+
+        final long offset = blockOffset(block);
+        final int regionNumber = (int)(offset / REGION_SIZE);
+        final ByteBuffer region = regions[regionNumber];
+        final int entries = blockEntryCount(block);
+        final int keyLength = key.length();
+
+        int position = (int)(offset % REGION_SIZE);
+        int matched = 0; // length of the common prefix of the search key and the previous (smaller) entry
+        for (int entry = 0; entry < entries; entry++) {
+            final int shared = region.getShort(position) & 0xFFFF;
+            final int suffixLength = region.getShort(position + 2) & 0xFFFF;
+            final int suffixPosition = position + 4;
+            final int valuePosition = suffixPosition + suffixLength * 2;
+            final int nextPosition = valuePosition + 4 + region.getInt(valuePosition) * 2;
+
+            if (shared > matched) {
+                // entry agrees with the previous entry past the point where the previous entry was smaller than the key
+                position = nextPosition;
+                continue;
+            }
+
+            if (shared < matched) {
+                // entry differs from the previous entry within the matched prefix, so it sorts after the key
+                return -1;
+            }
+
+            int i = 0;
+            while (i < suffixLength && matched + i < keyLength) {
+                final char entryChar = region.getChar(suffixPosition + i * 2);
+                final char keyChar = key.charAt(matched + i);
+                if (entryChar != keyChar) {
+                    if (entryChar > keyChar) {
+                        return -1;
+                    }
+                    break;
+                }
+                i++;
+            }
+
+            if (i == suffixLength && matched + i == keyLength) {
+                return (long)regionNumber * REGION_SIZE + valuePosition;
+            }
+
+            if (i < suffixLength && matched + i == keyLength) {
+                // key is a prefix of the entry, entry sorts after the key
+                return -1;
+            }
+
+            matched += i;
+            position = nextPosition;
+        }
+
+        return -1;
+    }
+
+    private class KeyIterator implements ClosableIterator<String> {
+        private int block = 0;
+        private int entryInBlock = 0;
+        private int position;
+        private ByteBuffer region;
+        private long remaining = entryCount;
+        private char[] currentKey = new char[64];
+
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        public String next() {
+            if (remaining <= 0) {
+                throw new NoSuchElementException();
+            }
+
+            if (entryInBlock == 0) {
+                final long offset = blockOffset(block);
+                region = regions[(int)(offset / REGION_SIZE)];
+                position = (int)(offset % REGION_SIZE);
+            }
+
+            final int shared = region.getShort(position) & 0xFFFF;
+            final int suffixLength = region.getShort(position + 2) & 0xFFFF;
+            if (shared + suffixLength > currentKey.length) {
+                final char[] newKey = new char[shared + suffixLength];
+                System.arraycopy(currentKey, 0, newKey, 0, shared);
+                currentKey = newKey;
+            }
+            for (int i = 0; i < suffixLength; i++) {
+                currentKey[shared + i] = region.getChar(position + 4 + i * 2);
+            }
+            final int valuePosition = position + 4 + suffixLength * 2;
+            position = valuePosition + 4 + region.getInt(valuePosition) * 2;
+
+            entryInBlock++;
+            if (entryInBlock == BLOCK_ENTRIES) {
+                entryInBlock = 0;
+                block++;
+            }
+            remaining--;
+            return new String(currentKey, 0, shared + suffixLength);
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("segments are immutable");
+        }
+
+        public void close() {
+        }
+    }
+
+    /**
+     * Writes a segment file.  Keys must be added in strictly ascending {@link String#compareTo(String)} order.
+     */
+    static class Writer {
+        private final File file;
+        private final File indexFile;
+        private final DataOutputStream dataOutput;
+        private final DataOutputStream indexOutput;
+
+        private final ByteArrayOutputStream blockBytes = new ByteArrayOutputStream();
+        private final DataOutputStream blockOutput = new DataOutputStream(blockBytes);
+
+        private long position = HEADER_SIZE;
+        private long entryCount = 0;
+        private long blockCount = 0;
+        private int entriesInBlock = 0;
+        private String previousKey = null;
+
+        Writer(final File file)
+                throws IOException
+        {
+            this.file = file;
+            this.indexFile = new File(file.getAbsolutePath() + ".index");
+            dataOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1024 * 1024));
+            indexOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+            dataOutput.write(new byte[HEADER_SIZE]);
+        }
+
+        void add(final String key, final String value)
+                throws IOException
+        {
+            if (key.length() > MAX_KEY_LENGTH) {
+                throw new IllegalArgumentException("key length " + key.length() + " exceeds maximum segment key length");
+            }
+            if (previousKey != null && previousKey.compareTo(key) >= 0) {
+                throw new IllegalArgumentException("segment keys must be added in ascending order");
+            }
+
+            int shared = 0;
+            if (entriesInBlock > 0) {
+                final int maxShared = Math.min(previousKey.length(), key.length());
+                while (shared < maxShared && previousKey.charAt(shared) == key.charAt(shared)) {
+                    shared++;
+                }
+            }
+
+            blockOutput.writeShort(shared);
+            blockOutput.writeShort(key.length() - shared);
+            blockOutput.writeChars(key.substring(shared));
+            final String storedValue = value == null ? "" : value;
+            blockOutput.writeInt(storedValue.length());
+            blockOutput.writeChars(storedValue);
+
+            previousKey = key;
+            entryCount++;
+            entriesInBlock++;
+            if (entriesInBlock == BLOCK_ENTRIES) {
+                writeBlock();
+            }
+        }
+
+        private void writeBlock()
+                throws IOException
+        {
+            if (entriesInBlock == 0) {
+                return;
+            }
+
+            blockOutput.flush();
+            final int blockSize = blockBytes.size();
+            if (blockSize > REGION_SIZE) {
+                throw new IOException("segment block size exceeds region size");
+            }
+            if ((position % REGION_SIZE) + blockSize > REGION_SIZE) {
+                final long padding = REGION_SIZE - (position % REGION_SIZE);
+                for (long i = 0; i < padding; i++) {
+                    dataOutput.write(0);
+                }
+                position += padding;
+            }
+
+            indexOutput.writeLong(position);
+            blockBytes.writeTo(dataOutput);
+            position += blockSize;
+            blockCount++;
+
+            blockBytes.reset();
+            entriesInBlock = 0;
+        }
+
+        /**
+         * Write any pending block and the index, then complete the header and sync the file to disk.
+         */
+        void finish()
+                throws IOException
+        {
+            writeBlock();
+            indexOutput.close();
+
+            final long indexOffset = position;
+            try (InputStream indexInput = new BufferedInputStream(new FileInputStream(indexFile))) {
+                final byte[] buffer = new byte[64 * 1024];
+                int count;
+                while ((count = indexInput.read(buffer)) > 0) {
+                    dataOutput.write(buffer, 0, count);
+                }
+            }
+            dataOutput.close();
+            indexFile.delete();
+
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.seek(0);
+                raf.writeInt(MAGIC);
+                raf.writeInt(FORMAT_VERSION);
+                raf.writeLong(entryCount);
+                raf.writeLong(blockCount);
+                raf.writeLong(indexOffset);
+                raf.getFD().sync();
+            }
+        }
+
+        void abort() {
+            try {
+                dataOutput.close();
+            } catch (IOException e) { /* do nothing */ }
+            try {
+                indexOutput.close();
+            } catch (IOException e) { /* do nothing */ }
+            file.delete();
+            indexFile.delete();
+        }
+    }
+}
@@ -26,9 +26,11 @@ import password.pwm.PwmConstants;
 import password.pwm.util.logging.PwmLogger;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
-import java.util.zip.ZipInputStream;
 
 /**
  * @author Jason D. Rivard
@@ -37,14 +39,19 @@ class ZipReader {
 
     private static final PwmLogger LOGGER = PwmLogger.forClass(ZipReader.class);
 
+    private static final String POSITION_SEPARATOR = ":";
+
 // ------------------------------ FIELDS ------------------------------
 
-    private final ZipInputStream zipStream;
+    private final ZipFile zipFile;
     private final File sourceFile;
+    private final List<ZipEntry> zipEntries = new ArrayList<>();
 
     private BufferedReader reader;
     private ZipEntry zipEntry;
+    private int entryIndex = -1;
     private int lineCounter = 0;
+    private volatile long bytesRead = 0;
 
 // --------------------------- CONSTRUCTORS ---------------------------
 
@@ -52,13 +59,19 @@ class ZipReader {
             throws Exception
     {
         this.sourceFile = sourceFile;
-        final ZipFile zipFile = new ZipFile(sourceFile);
+        zipFile = new ZipFile(sourceFile);
         if (zipFile.size() == 0) {
             throw new Exception("zip file contains no entries");
         }
 
+        final Enumeration<? extends ZipEntry> entryEnumeration = zipFile.entries();
+        while (entryEnumeration.hasMoreElements()) {
+            final ZipEntry loopEntry = entryEnumeration.nextElement();
+            if (!loopEntry.isDirectory()) {
+                zipEntries.add(loopEntry);
+            }
+        }
 
-        zipStream = new ZipInputStream(new BufferedInputStream(new FileInputStream(sourceFile)));
         nextZipEntry();
     }
 
@@ -69,15 +82,24 @@ class ZipReader {
             LOGGER.trace("finished reading " + zipEntry.getName() + ", lines=" + lineCounter);
         }
 
-        zipEntry = zipStream.getNextEntry();
+        openZipEntry(entryIndex + 1);
+    }
 
-        while (zipEntry != null && zipEntry.isDirectory()) {
-            zipEntry = zipStream.getNextEntry();
+    private void openZipEntry(final int index)
+            throws IOException
+    {
+        if (reader != null) {
+            reader.close();
+            reader = null;
         }
 
+        entryIndex = index;
+        lineCounter = 0;
+        zipEntry = entryIndex < zipEntries.size() ? zipEntries.get(entryIndex) : null;
+
         if (zipEntry != null) {
-            lineCounter = 0;
-            reader = new BufferedReader(new InputStreamReader(zipStream, PwmConstants.DEFAULT_CHARSET));
+            final InputStream entryStream = new CountingInputStream(zipFile.getInputStream(zipEntry));
+            reader = new BufferedReader(new InputStreamReader(entryStream, PwmConstants.DEFAULT_CHARSET));
         }
     }
 
@@ -88,6 +110,14 @@ class ZipReader {
         return sourceFile;
     }
 
+    /**
+     * @return number of uncompressed bytes read from the zip file so far
+     */
+    long getBytesRead()
+    {
+        return bytesRead;
+    }
+
 // ------------------------ CANONICAL METHODS ------------------------
 
     protected void finalize()
@@ -100,10 +130,12 @@ class ZipReader {
     void close()
     {
         try {
-            zipStream.close();
+            if (reader != null) {
+                reader.close();
+            }
         } catch (Exception e) { /* do nothing */ }
         try {
-            reader.close();
+            zipFile.close();
         } catch (Exception e) { /* do nothing */ }
     }
 
@@ -117,17 +149,124 @@ class ZipReader {
     String nextLine()
             throws IOException
     {
-        String line;
-
-        while ((line = reader.readLine()) == null && zipEntry != null) {
+        while (zipEntry != null) {
+            final String line = reader.readLine();
+            if (line != null) {
+                lineCounter++;
+                return line;
+            }
             nextZipEntry();
         }
 
-        if (line != null) {
+        //crazy debug line: LOGGER.trace("read line " + fileStats.getLines() + " '" + line + "' from " +   currentZipName());
+        return null;
+    }
+
+    /**
+     * @return an opaque representation of the current read position, suitable for use with {@link #seek(String)}
+     */
+    String currentPosition()
+    {
+        return String.valueOf(entryIndex) + POSITION_SEPARATOR + String.valueOf(lineCounter);
+    }
+
+    /**
+     * Move the reader to a position previously returned by {@link #currentPosition()}.  Preceding zip entries are
+     * skipped without being decompressed, lines within the target entry are read and discarded.
+     *
+     * @param position position to seek to
+     * @return true if the position was valid and the reader now points to it; if false the reader is left at the
+     * position it had before the call
+     * @throws IOException if an error occurs reading the zip file
+     */
+    boolean seek(final String position)
+            throws IOException
+    {
+        if (position == null || !position.contains(POSITION_SEPARATOR)) {
+            return false;
+        }
+
+        final int targetEntry;
+        final int targetLine;
+        try {
+            final String[] parts = position.split(POSITION_SEPARATOR);
+            targetEntry = Integer.parseInt(parts[0]);
+            targetLine = Integer.parseInt(parts[1]);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return false;
+        }
+
+        if (targetEntry < entryIndex || targetEntry >= zipEntries.size() || targetLine < 0) {
+            return false;
+        }
+
+        final int startEntry = entryIndex;
+        final int startLine = lineCounter;
+        final long startBytesRead = bytesRead;
+        if (!skipTo(targetEntry, targetLine)) {
+            // the entry ended before the target line, so put the reader back where the caller left it
+            skipTo(startEntry, startLine);
+            bytesRead = startBytesRead;
+            return false;
+        }
+
+        LOGGER.trace("positioned reader at line " + lineCounter + " of " + currentZipName());
+        return true;
+    }
+
+    private boolean skipTo(final int targetEntry, final int targetLine)
+            throws IOException
+    {
+        if (targetEntry != entryIndex || targetLine < lineCounter) {
+            openZipEntry(targetEntry);
+        }
+
+        while (lineCounter < targetLine) {
+            if (reader == null || reader.readLine() == null) {
+                return false;
+            }
             lineCounter++;
         }
+        return true;
+    }
+
+    private class CountingInputStream extends FilterInputStream {
+        private CountingInputStream(final InputStream in)
+        {
+            super(in);
+        }
 
-        //crazy debug line: LOGGER.trace("read line " + fileStats.getLines() + " '" + line + "' from " +   currentZipName());
-        return line;
+        @Override
+        public int read()
+                throws IOException
+        {
+            final int value = super.read();
+            if (value >= 0) {
+                bytesRead++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len)
+                throws IOException
+        {
+            final int count = super.read(b, off, len);
+            if (count > 0) {
+                bytesRead += count;
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(final long n)
+                throws IOException
+        {
+            final long count = super.skip(n);
+            if (count > 0) {
+                bytesRead += count;
+            }
+            return count;
+        }
     }
 }
@@ -85,8 +85,8 @@ public class PwmNAAFVerificationMethod implements RecoveryVerificationMethod {
         String naafUsername = pwmApplication.getConfig().readSettingAsString(PwmSetting.NAAF_USER_IDENTIFIER);
 
         final MacroMachine macroMachine = MacroMachine.forUser(pwmApplication, PwmConstants.DEFAULT_LOCALE, sessionLabel, userInfoBean.getUserIdentity());
-        serverUrl = macroMachine.expandMacros(serverUrl);
-        naafUsername = macroMachine.expandMacros(naafUsername);
+        serverUrl = macroMachine.expandConfiguredMacros(serverUrl);
+        naafUsername = macroMachine.expandConfiguredMacros(naafUsername);
 
         NAAFEndPoint naafEndPoint = new NAAFEndPoint(pwmApplication, serverUrl, locale);
         naafEndPoint.establishEndpointSession();
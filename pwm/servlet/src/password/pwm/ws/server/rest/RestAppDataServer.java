@@ -330,7 +330,7 @@ public class RestAppDataServer extends AbstractRestServer {
             final MacroMachine macroMachine = pwmSession.getSessionManager().getMacroMachine(pwmApplication);
             for (final String key : new TreeSet<>(Collections.list(bundle.getKeys()))) {
                 String displayValue = LocaleHelper.getLocalizedMessage(userLocale, key, config, displayClass);
-                displayValue = macroMachine.expandMacros(displayValue);
+                displayValue = macroMachine.expandConfiguredMacros(displayValue);
                 displayStrings.put(key, displayValue);
             }
         } catch (Exception e) {
@@ -376,7 +376,7 @@ public class RestAppDataServer extends AbstractRestServer {
         {
             String passwordGuideText = pwmApplication.getConfig().readSettingAsLocalizedString(PwmSetting.DISPLAY_PASSWORD_GUIDE_TEXT,pwmSession.getSessionStateBean().getLocale());
             final MacroMachine macroMachine = pwmSession.getSessionManager().getMacroMachine(pwmApplication);
-            passwordGuideText = macroMachine.expandMacros(passwordGuideText);
+            passwordGuideText = macroMachine.expandConfiguredMacros(passwordGuideText);
             settingMap.put("passwordGuideText",passwordGuideText);
         }
 
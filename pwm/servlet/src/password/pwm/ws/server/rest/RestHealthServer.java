@@ -132,7 +132,7 @@ public class RestHealthServer extends AbstractRestServer {
                 pwmApplication.getConfig());
         final HealthData returnMap = new HealthData();
         returnMap.timestamp = healthMonitor.getLastHealthCheckDate();
-        returnMap.overall = healthMonitor.getMostSevereHealthStatus().toString();
+        returnMap.overall = HealthMonitor.getMostSevereHealthStatus(healthRecords).toString();
         returnMap.records = healthRecordBeans;
         return returnMap;
     }
@@ -70,6 +70,7 @@ public class RestStatisticsServer extends AbstractRestServer {
         public Map<String,String> EPS;
         public Map<String,Object> nameData;
         public Map<String,Object> keyData;
+        public Map<String,Map<String,String>> histogramData;
     }
 
     @GET
@@ -98,6 +99,7 @@ public class RestStatisticsServer extends AbstractRestServer {
                 jsonOutput.nameData = doNameStat(statisticsManager, statName, days);
             } else {
                 jsonOutput.keyData = doKeyStat(statisticsManager, statKey);
+                jsonOutput.histogramData = doHistogramStat(statisticsManager, statKey);
             }
 
             if (restRequestBean.isExternal()) {
@@ -140,6 +142,22 @@ public class RestStatisticsServer extends AbstractRestServer {
         return outputValueMap;
     }
 
+    private Map<String,Map<String,String>> doHistogramStat(final StatisticsManager statisticsManager, String statKey) {
+        if (statKey == null || statKey.length() < 1) {
+            statKey = StatisticsManager.KEY_CUMULATIVE;
+        }
+
+        final StatisticsBundle statisticsBundle = statisticsManager.getStatBundleForKey(statKey);
+        final Map<String,Map<String,String>> outputValueMap = new TreeMap<>();
+        for (Statistic stat : Statistic.values()) {
+            if (stat.getType() == Statistic.Type.HISTOGRAM) {
+                outputValueMap.put(stat.getKey(), statisticsBundle.getHistogram(stat).percentileSummary());
+            }
+        }
+
+        return outputValueMap;
+    }
+
     private Map<String,String> addEpsStats(final StatisticsManager statisticsManager){
         final Map<String,String> outputMap = new TreeMap<>();
         for (final Statistic.EpsType loopEps : Statistic.EpsType.values()) {
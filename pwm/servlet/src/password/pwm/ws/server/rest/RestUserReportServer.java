@@ -46,8 +46,6 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.text.NumberFormat;
 import java.util.*;
 
@@ -198,15 +196,15 @@ public class RestUserReportServer extends AbstractRestServer {
             presentableMap.put("Total Time",new TimeDuration(reportInfo.getStartDate(),reportInfo.getFinishDate()).asCompactString());
         }
         if (reportInfo.isInProgress() && reportInfo.getCount() > 0) {
-            final BigDecimal eventRate = reportInfo.getEventRateMeter().readEventRate().setScale(2,RoundingMode.UP);
-            presentableMap.put("Users/Second",eventRate);
-            if (!eventRate.equals(BigDecimal.ZERO)) {
-                final int usersRemaining = reportInfo.getTotal() - reportInfo.getCount();
-                final float secondsRemaining = usersRemaining / eventRate.floatValue();
-                final TimeDuration remainingDuration = new TimeDuration(((int)secondsRemaining) * 1000);
+            presentableMap.put("Users/Second",reportInfo.getUsersPerSecond());
+            final TimeDuration remainingDuration = reportInfo.getEstimatedTimeRemaining();
+            if (remainingDuration != null) {
                 presentableMap.put("Estimated Time Remaining",remainingDuration.asLongString(locale));
             }
         }
+        if (reportInfo.isInProgress() && reportInfo.getWorkerCount() > 0) {
+            presentableMap.put("Worker Threads",numberFormat.format(reportInfo.getWorkerCount()));
+        }
         if (reportInfo.getLastError() != null) {
             presentableMap.put("Last Error", reportInfo.getLastError().toDebugStr());
         }
@@ -0,0 +1,79 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.config;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import password.pwm.AppProperty;
+import password.pwm.config.value.StringArrayValue;
+
+import java.util.Arrays;
+
+public class ConfigurationTest extends TestCase {
+
+    public void testSnapshotMatchesStoredConfiguration() throws Exception {
+        final StoredConfiguration storedConfiguration = StoredConfiguration.newStoredConfiguration();
+        final Configuration configuration = new Configuration(storedConfiguration);
+
+        for (final PwmSetting setting : PwmSetting.values()) {
+            if (setting.getCategory().hasProfiles()) {
+                continue;
+            }
+            final StoredValue storedValue = storedConfiguration.readSetting(setting);
+            switch (setting.getSyntax()) {
+                case BOOLEAN:
+                    Assert.assertEquals(Configuration.JavaTypeConverter.valueToBoolean(storedValue), configuration.readSettingAsBoolean(setting));
+                    break;
+                case NUMERIC:
+                    Assert.assertEquals(Configuration.JavaTypeConverter.valueToLong(storedValue), configuration.readSettingAsLong(setting));
+                    break;
+                case STRING:
+                    Assert.assertEquals(Configuration.JavaTypeConverter.valueToString(storedValue), configuration.readSettingAsString(setting));
+                    break;
+                case STRING_ARRAY:
+                    Assert.assertEquals(Configuration.JavaTypeConverter.valueToStringArray(storedValue), configuration.readSettingAsStringArray(setting));
+                    break;
+            }
+        }
+    }
+
+    public void testAppPropertyOverrides() throws Exception {
+        final StoredConfiguration storedConfiguration = StoredConfiguration.newStoredConfiguration();
+        storedConfiguration.writeSetting(
+                PwmSetting.APP_PROPERTY_OVERRIDES,
+                new StringArrayValue(Arrays.asList(AppProperty.QUEUE_EMAIL_MAX_COUNT.getKey() + "=42")),
+                null
+        );
+        final Configuration configuration = new Configuration(storedConfiguration);
+
+        Assert.assertEquals("42", configuration.readAppProperty(AppProperty.QUEUE_EMAIL_MAX_COUNT));
+        Assert.assertEquals(AppProperty.QUEUE_SMS_MAX_COUNT.getDefaultValue(), configuration.readAppProperty(AppProperty.QUEUE_SMS_MAX_COUNT));
+    }
+
+    public void testReturnedStringArrayIsACopy() throws Exception {
+        final Configuration configuration = new Configuration(StoredConfiguration.newStoredConfiguration());
+        final int originalSize = configuration.readSettingAsStringArray(PwmSetting.APP_PROPERTY_OVERRIDES).size();
+        configuration.readSettingAsStringArray(PwmSetting.APP_PROPERTY_OVERRIDES).add("value");
+        Assert.assertEquals(originalSize, configuration.readSettingAsStringArray(PwmSetting.APP_PROPERTY_OVERRIDES).size());
+    }
+}
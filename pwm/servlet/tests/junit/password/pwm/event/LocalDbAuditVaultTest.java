@@ -0,0 +1,120 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.event;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import password.pwm.util.TimeDuration;
+import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+public class LocalDbAuditVaultTest extends TestCase {
+
+    private static final long HOUR_MS = 60 * 60 * 1000;
+
+    private File localDBPath;
+    private LocalDB localDB;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        localDBPath = File.createTempFile("auditvault", "localdb");
+        localDBPath.delete();
+        localDB = LocalDBFactory.getInstance(localDBPath, false, null, null);
+        localDB.truncate(LocalDB.DB.AUDIT_EVENTS);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        localDB.close();
+        delete(localDBPath);
+        super.tearDown();
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    public void testBatchKeepsOrderAndTrimsOldestFirst() throws Exception {
+        final LocalDbAuditVault vault = openVault(5, new TimeDuration(24 * HOUR_MS));
+        final Date now = new Date();
+
+        vault.add(makeRecord("0", now));
+        vault.addAll(Arrays.asList(makeRecord("1", now), makeRecord("2", now), makeRecord("3", now)));
+        Assert.assertEquals(Arrays.asList("3", "2", "1", "0"), readMessages(vault));
+
+        vault.addAll(Arrays.asList(makeRecord("4", now), null, makeRecord("5", now), makeRecord("6", now)));
+        Assert.assertEquals(5, vault.size());
+        Assert.assertEquals(Arrays.asList("6", "5", "4", "3", "2"), readMessages(vault));
+
+        vault.add(makeRecord("7", now));
+        Assert.assertEquals(Arrays.asList("7", "6", "5", "4", "3"), readMessages(vault));
+    }
+
+    public void testBatchTrimsExpiredRecords() throws Exception {
+        final LocalDbAuditVault vault = openVault(100, new TimeDuration(HOUR_MS));
+        final long now = System.currentTimeMillis();
+
+        vault.addAll(Arrays.asList(
+                makeRecord("expired1", new Date(now - 3 * HOUR_MS)),
+                makeRecord("expired2", new Date(now - 2 * HOUR_MS)),
+                makeRecord("current1", new Date(now - 1000)),
+                makeRecord("current2", new Date(now))
+        ));
+        Assert.assertEquals(Arrays.asList("current2", "current1"), readMessages(vault));
+    }
+
+    private LocalDbAuditVault openVault(final int maxRecords, final TimeDuration maxAge) throws Exception {
+        final LocalDbAuditVault vault = new LocalDbAuditVault(null, localDB);
+        vault.init(new AuditVault.Settings(maxRecords, maxAge));
+        return vault;
+    }
+
+    private static AuditRecord makeRecord(final String message, final Date timestamp) {
+        return UserAuditRecord.create(timestamp, AuditEvent.CHANGE_PASSWORD, "user", "cn=user", "default", message, "127.0.0.1", "localhost");
+    }
+
+    /**
+     * @return the stored record messages, newest first
+     */
+    private static List<String> readMessages(final LocalDbAuditVault vault) {
+        final List<String> messages = new ArrayList<>();
+        for (final Iterator<AuditRecord> iterator = vault.readVault(); iterator.hasNext(); ) {
+            messages.add(iterator.next().getMessage());
+        }
+        return messages;
+    }
+}
@@ -216,6 +216,24 @@ public class LocalDBStoredQueueTest extends TestCase {
         assertEquals(initialSize, storedQueue.size());
     }
 
+    /**
+     * a new instance finds values written after the last checkpoint
+     */
+    public void testReopen() throws Exception {
+        storedQueue.clear();
+        for (int i = 0; i < 2500; i++) {
+            storedQueue.addLast(String.valueOf(i));
+        }
+        for (int i = 0; i < 700; i++) {
+            storedQueue.removeFirst();
+        }
+
+        final LocalDBStoredQueue reopenedQueue = LocalDBStoredQueue.createLocalDBStoredQueue(localDB, LocalDB.DB.TEMP, false);
+        assertEquals(1800, reopenedQueue.size());
+        assertEquals("700", reopenedQueue.peekFirst());
+        assertEquals("2499", reopenedQueue.peekLast());
+    }
+
     @Override
     protected void tearDown() throws Exception {
         System.out.println("tearing down");
@@ -30,6 +30,7 @@ import password.pwm.util.localdb.LocalDBException;
 import password.pwm.util.localdb.LocalDBFactory;
 
 import java.io.File;
+import java.util.*;
 
 public class LocalDBTest extends TestCase {
 
@@ -52,6 +53,23 @@ public class LocalDBTest extends TestCase {
         Assert.assertEquals(pwmDB.get(TEST_DB,"testKey1"),"testValue1");
     }
 
+    public void testGetAll() throws LocalDBException {
+        final Map<String,String> values = new LinkedHashMap<>();
+        for (int i = 0; i < 10; i++) {
+            values.put("testKey" + i, "testValue" + i);
+        }
+        pwmDB.putAll(TEST_DB, values);
+
+        final List<String> keys = Arrays.asList("testKey7", "missingKey", "testKey2", "testKey5");
+        final Map<String,String> results = pwmDB.getAll(TEST_DB, keys);
+        Assert.assertEquals(Arrays.asList("testKey7", "testKey2", "testKey5"), new ArrayList<>(results.keySet()));
+        Assert.assertEquals("testValue2", results.get("testKey2"));
+
+        Assert.assertTrue(pwmDB.containsAny(TEST_DB, keys));
+        Assert.assertFalse(pwmDB.containsAny(TEST_DB, Arrays.asList("missingKey", "otherMissingKey")));
+        Assert.assertTrue(pwmDB.getAll(TEST_DB, Collections.<String>emptyList()).isEmpty());
+    }
+
     public void testSize() throws LocalDBException {
         final long startTime = System.currentTimeMillis();
         for (final LocalDB.DB loopDB : LocalDB.DB.values()) {
@@ -0,0 +1,167 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.token;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class LocalDBTokenExpiryIndexTest extends TestCase {
+
+    private static final long BUCKET_MS = 60 * 1000;
+
+    private File localDBPath;
+    private LocalDB localDB;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        localDBPath = File.createTempFile("tokenindex", "localdb");
+        localDBPath.delete();
+        localDB = LocalDBFactory.getInstance(localDBPath, false, null, null);
+        localDB.truncate(LocalDB.DB.TOKENS);
+        localDB.truncate(LocalDB.DB.TOKEN_EXPIRY);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        localDB.close();
+        delete(localDBPath);
+        super.tearDown();
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    public void testAddAndPurge() throws Exception {
+        final LocalDBTokenExpiryIndex index = new LocalDBTokenExpiryIndex(localDB, BUCKET_MS);
+        final long now = System.currentTimeMillis();
+        final Date oldDate = new Date(now - 10 * BUCKET_MS);
+
+        for (int i = 0; i < 50; i++) {
+            storeToken(index, "old" + i, oldDate);
+            storeToken(index, "new" + i, new Date(now));
+        }
+        // indexed but never stored, as when the token write fails
+        index.add("unstored", oldDate);
+        // stored then removed before it expired
+        localDB.remove(LocalDB.DB.TOKENS, "old0");
+
+        final long cutoff = now - 5 * BUCKET_MS;
+        Assert.assertEquals(51, index.backlog(cutoff));
+        Assert.assertEquals(51, index.purge(cutoff));
+        Assert.assertEquals(0, index.backlog(cutoff));
+        Assert.assertEquals(50, localDB.size(LocalDB.DB.TOKENS));
+        for (int i = 0; i < 50; i++) {
+            Assert.assertFalse(localDB.contains(LocalDB.DB.TOKENS, "old" + i));
+            Assert.assertTrue(localDB.contains(LocalDB.DB.TOKENS, "new" + i));
+        }
+
+        // nothing further is due, and the purged entries are gone from the index
+        Assert.assertEquals(0, index.purge(cutoff));
+        Assert.assertEquals(50, localDB.size(LocalDB.DB.TOKEN_EXPIRY));
+
+        Assert.assertEquals(50, index.purge(now + 2 * BUCKET_MS));
+        Assert.assertEquals(0, localDB.size(LocalDB.DB.TOKENS));
+        Assert.assertEquals(0, localDB.size(LocalDB.DB.TOKEN_EXPIRY));
+    }
+
+    public void testIndexIsReloaded() throws Exception {
+        final LocalDBTokenExpiryIndex index = new LocalDBTokenExpiryIndex(localDB, BUCKET_MS);
+        Assert.assertFalse(index.isIndexComplete());
+        final Date oldDate = new Date(System.currentTimeMillis() - 10 * BUCKET_MS);
+        for (int i = 0; i < 10; i++) {
+            storeToken(index, "token" + i, oldDate);
+        }
+        index.markIndexComplete();
+
+        final LocalDBTokenExpiryIndex reloadedIndex = new LocalDBTokenExpiryIndex(localDB, BUCKET_MS);
+        Assert.assertTrue(reloadedIndex.isIndexComplete());
+        Assert.assertEquals(10, reloadedIndex.backlog(System.currentTimeMillis()));
+
+        // positions continue after the reloaded entries rather than overwriting them
+        storeToken(reloadedIndex, "token10", oldDate);
+        Assert.assertEquals(11, reloadedIndex.purge(System.currentTimeMillis()));
+        Assert.assertEquals(0, localDB.size(LocalDB.DB.TOKENS));
+
+        // a different bucket width discards the index so stored tokens are indexed again
+        final LocalDBTokenExpiryIndex rebuiltIndex = new LocalDBTokenExpiryIndex(localDB, BUCKET_MS * 2);
+        Assert.assertFalse(rebuiltIndex.isIndexComplete());
+        Assert.assertEquals(0, localDB.size(LocalDB.DB.TOKEN_EXPIRY));
+    }
+
+    public void testConcurrentAdd() throws Exception {
+        final LocalDBTokenExpiryIndex index = new LocalDBTokenExpiryIndex(localDB, BUCKET_MS);
+        final Date oldDate = new Date(System.currentTimeMillis() - 10 * BUCKET_MS);
+        final int threadCount = 8;
+        final int tokensPerThread = 100;
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch doneLatch = new CountDownLatch(threadCount);
+        final List<Exception> errors = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            final int threadNumber = t;
+            new Thread() {
+                public void run() {
+                    try {
+                        startLatch.await();
+                        for (int i = 0; i < tokensPerThread; i++) {
+                            storeToken(index, "token" + threadNumber + "-" + i, oldDate);
+                        }
+                    } catch (Exception e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    } finally {
+                        doneLatch.countDown();
+                    }
+                }
+            }.start();
+        }
+        startLatch.countDown();
+        doneLatch.await();
+
+        Assert.assertTrue(errors.toString(), errors.isEmpty());
+        Assert.assertEquals(threadCount * tokensPerThread, localDB.size(LocalDB.DB.TOKEN_EXPIRY));
+        Assert.assertEquals(threadCount * tokensPerThread, index.purge(System.currentTimeMillis()));
+        Assert.assertEquals(0, localDB.size(LocalDB.DB.TOKENS));
+    }
+
+    private void storeToken(final LocalDBTokenExpiryIndex index, final String storedKey, final Date issueDate) throws Exception {
+        index.add(storedKey, issueDate);
+        localDB.put(LocalDB.DB.TOKENS, storedKey, "payload");
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+public class PasswordCharCounterTest extends TestCase {
+
+    public void testCharClassCounts() {
+        final PasswordCharCounter counter = new PasswordCharCounter("Ab1!cD2?x");
+        Assert.assertEquals(2, counter.getNumericCharCount());
+        Assert.assertEquals(2, counter.getUpperCharCount());
+        Assert.assertEquals(3, counter.getLowerCharCount());
+        Assert.assertEquals(5, counter.getAlphaCharCount());
+        Assert.assertEquals(4, counter.getNonAlphaCharCount());
+        Assert.assertEquals(2, counter.getSpecialCharsCount());
+        Assert.assertEquals("AD", counter.getUpperChars());
+        Assert.assertEquals("!?", counter.getSpecialChars());
+        Assert.assertFalse(counter.isFirstNumeric());
+        Assert.assertFalse(counter.isLastSpecial());
+    }
+
+    public void testRepeatedChars() {
+        final PasswordCharCounter counter = new PasswordCharCounter("aAbaBBbc");
+        Assert.assertEquals(4, counter.getRepeatedChars());
+        Assert.assertEquals(3, counter.getSequentialRepeatedChars());
+        Assert.assertEquals(3, counter.getUniqueChars());
+    }
+
+    public void testShortPasswords() {
+        final PasswordCharCounter empty = new PasswordCharCounter("");
+        Assert.assertEquals(0, empty.getUniqueChars());
+        Assert.assertEquals(0, empty.getRepeatedChars());
+
+        final PasswordCharCounter single = new PasswordCharCounter("a");
+        Assert.assertEquals(1, single.getUniqueChars());
+        Assert.assertEquals(0, single.getRepeatedChars());
+        Assert.assertEquals(0, single.getSequentialRepeatedChars());
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import password.pwm.config.profile.PwmPasswordPolicy;
+import password.pwm.config.profile.PwmPasswordRule;
+
+import java.util.*;
+
+public class RandomPasswordGeneratorTest extends TestCase {
+    private static final int ITERATIONS = 500;
+
+    private static final RandomPasswordGenerator.SeedMachine SEED_MACHINE
+            = new RandomPasswordGenerator.SeedMachine(RandomPasswordGenerator.DEFAULT_SEED_PHRASES);
+
+    private final PwmRandom random = PwmRandom.getInstance();
+
+    public void testMixedClassPolicy() {
+        final Map<PwmPasswordRule,String> rules = new HashMap<>();
+        rules.put(PwmPasswordRule.AllowNumeric, "true");
+        rules.put(PwmPasswordRule.AllowSpecial, "true");
+        rules.put(PwmPasswordRule.MinimumLength, "8");
+        rules.put(PwmPasswordRule.MaximumLength, "12");
+        rules.put(PwmPasswordRule.MinimumUpperCase, "2");
+        rules.put(PwmPasswordRule.MinimumLowerCase, "2");
+        rules.put(PwmPasswordRule.MinimumNumeric, "2");
+        rules.put(PwmPasswordRule.MinimumSpecial, "1");
+        rules.put(PwmPasswordRule.AllowFirstCharNumeric, "false");
+        rules.put(PwmPasswordRule.AllowFirstCharSpecial, "false");
+        rules.put(PwmPasswordRule.AllowLastCharNumeric, "false");
+        rules.put(PwmPasswordRule.AllowLastCharSpecial, "false");
+        checkShapedCandidates(rules);
+    }
+
+    public void testLettersOnlyPolicy() {
+        final Map<PwmPasswordRule,String> rules = new HashMap<>();
+        rules.put(PwmPasswordRule.MinimumLength, "10");
+        rules.put(PwmPasswordRule.MaximumLength, "16");
+        rules.put(PwmPasswordRule.AllowNumeric, "false");
+        rules.put(PwmPasswordRule.AllowSpecial, "false");
+        rules.put(PwmPasswordRule.MinimumUpperCase, "1");
+        checkShapedCandidates(rules);
+    }
+
+    public void testClassMaximumsPolicy() {
+        final Map<PwmPasswordRule,String> rules = new HashMap<>();
+        rules.put(PwmPasswordRule.AllowNumeric, "true");
+        rules.put(PwmPasswordRule.AllowSpecial, "true");
+        rules.put(PwmPasswordRule.MinimumLength, "14");
+        rules.put(PwmPasswordRule.MaximumLength, "20");
+        rules.put(PwmPasswordRule.MaximumNumeric, "1");
+        rules.put(PwmPasswordRule.MaximumSpecial, "1");
+        rules.put(PwmPasswordRule.MinimumUpperCase, "1");
+        rules.put(PwmPasswordRule.MaximumUpperCase, "2");
+        checkShapedCandidates(rules);
+    }
+
+    public void testAlphaNonAlphaPolicy() {
+        final Map<PwmPasswordRule,String> rules = new HashMap<>();
+        rules.put(PwmPasswordRule.AllowNumeric, "true");
+        rules.put(PwmPasswordRule.AllowSpecial, "true");
+        rules.put(PwmPasswordRule.MinimumLength, "8");
+        rules.put(PwmPasswordRule.MaximumLength, "10");
+        rules.put(PwmPasswordRule.MinimumAlpha, "5");
+        rules.put(PwmPasswordRule.MinimumNonAlpha, "4");
+        rules.put(PwmPasswordRule.MaximumSpecial, "2");
+        rules.put(PwmPasswordRule.AllowFirstCharSpecial, "false");
+        rules.put(PwmPasswordRule.AllowLastCharNumeric, "false");
+        checkShapedCandidates(rules);
+    }
+
+    public void testPoolHandsOutEachPasswordOnce() throws Exception {
+        final RandomPasswordService.PasswordPool pool = new RandomPasswordService.PasswordPool(makePolicy(new HashMap<PwmPasswordRule,String>()));
+        final int passwordCount = 10 * 1000;
+        final int takerCount = 8;
+        final Set<String> taken = Collections.synchronizedSet(new HashSet<String>());
+        final List<String> duplicates = Collections.synchronizedList(new ArrayList<String>());
+        final List<PasswordData> passwords = new ArrayList<>();
+        for (int i = 0; i < passwordCount; i++) {
+            passwords.add(new PasswordData("password" + i));
+        }
+
+        final Thread filler = new Thread() {
+            public void run() {
+                for (final PasswordData password : passwords) {
+                    pool.add(password);
+                }
+            }
+        };
+        final List<Thread> takers = new ArrayList<>();
+        for (int t = 0; t < takerCount; t++) {
+            takers.add(new Thread() {
+                public void run() {
+                    while (taken.size() + duplicates.size() < passwordCount) {
+                        final PasswordData password = pool.take();
+                        if (password != null) {
+                            try {
+                                if (!taken.add(password.getStringValue())) {
+                                    duplicates.add(password.getStringValue());
+                                }
+                            } catch (Exception e) {
+                                throw new IllegalStateException(e);
+                            }
+                        }
+                    }
+                }
+            });
+        }
+
+        for (final Thread taker : takers) {
+            taker.start();
+        }
+        filler.start();
+        filler.join();
+        for (final Thread taker : takers) {
+            taker.join();
+        }
+
+        Assert.assertTrue(duplicates.isEmpty());
+        Assert.assertEquals(passwordCount, taken.size());
+        Assert.assertEquals(0, pool.size());
+        Assert.assertNull(pool.take());
+    }
+
+    public void testPoolAllowsOneRefillAtATime() {
+        final RandomPasswordService.PasswordPool pool = new RandomPasswordService.PasswordPool(makePolicy(new HashMap<PwmPasswordRule,String>()));
+        Assert.assertTrue(pool.beginRefill());
+        Assert.assertFalse(pool.beginRefill());
+        pool.endRefill();
+        Assert.assertTrue(pool.beginRefill());
+    }
+
+    private void checkShapedCandidates(final Map<PwmPasswordRule,String> rules) {
+        final PwmPasswordPolicy.RuleHelper ruleHelper = makePolicy(rules).getRuleHelper();
+        for (int i = 0; i < ITERATIONS; i++) {
+            final StringBuilder password = new StringBuilder(makeCandidate());
+            final String candidate = password.toString();
+            RandomPasswordGenerator.applyCharacterRules(password, ruleHelper, SEED_MACHINE);
+            checkRules(candidate, password.toString(), ruleHelper);
+        }
+    }
+
+    private static void checkRules(final String candidate, final String password, final PwmPasswordPolicy.RuleHelper ruleHelper) {
+        final String message = "candidate '" + candidate + "' shaped to '" + password + "'";
+        int numeric = 0, special = 0, upper = 0, lower = 0;
+        for (final char c : password.toCharArray()) {
+            if (Character.isDigit(c)) {
+                numeric++;
+            } else if (Character.isUpperCase(c)) {
+                upper++;
+            } else if (Character.isLowerCase(c)) {
+                lower++;
+            } else {
+                special++;
+            }
+        }
+
+        checkRange(message, password.length(), ruleHelper.readIntValue(PwmPasswordRule.MinimumLength), ruleHelper.readIntValue(PwmPasswordRule.MaximumLength));
+        checkRange(message, upper, ruleHelper.readIntValue(PwmPasswordRule.MinimumUpperCase), ruleHelper.readIntValue(PwmPasswordRule.MaximumUpperCase));
+        checkRange(message, lower, ruleHelper.readIntValue(PwmPasswordRule.MinimumLowerCase), ruleHelper.readIntValue(PwmPasswordRule.MaximumLowerCase));
+        checkRange(message, upper + lower, ruleHelper.readIntValue(PwmPasswordRule.MinimumAlpha), 0);
+        checkRange(message, numeric + special, ruleHelper.readIntValue(PwmPasswordRule.MinimumNonAlpha), 0);
+        if (ruleHelper.readBooleanValue(PwmPasswordRule.AllowNumeric)) {
+            checkRange(message, numeric, ruleHelper.readIntValue(PwmPasswordRule.MinimumNumeric), ruleHelper.readIntValue(PwmPasswordRule.MaximumNumeric));
+        } else {
+            Assert.assertEquals(message, 0, numeric);
+        }
+        if (ruleHelper.readBooleanValue(PwmPasswordRule.AllowSpecial)) {
+            checkRange(message, special, ruleHelper.readIntValue(PwmPasswordRule.MinimumSpecial), ruleHelper.readIntValue(PwmPasswordRule.MaximumSpecial));
+        } else {
+            Assert.assertEquals(message, 0, special);
+        }
+
+        final char first = password.charAt(0);
+        final char last = password.charAt(password.length() - 1);
+        if (!ruleHelper.readBooleanValue(PwmPasswordRule.AllowFirstCharNumeric)) {
+            Assert.assertFalse(message, Character.isDigit(first));
+        }
+        if (!ruleHelper.readBooleanValue(PwmPasswordRule.AllowFirstCharSpecial)) {
+            Assert.assertTrue(message, Character.isLetterOrDigit(first));
+        }
+        if (!ruleHelper.readBooleanValue(PwmPasswordRule.AllowLastCharNumeric)) {
+            Assert.assertFalse(message, Character.isDigit(last));
+        }
+        if (!ruleHelper.readBooleanValue(PwmPasswordRule.AllowLastCharSpecial)) {
+            Assert.assertTrue(message, Character.isLetterOrDigit(last));
+        }
+    }
+
+    private static void checkRange(final String message, final int value, final int minimum, final int maximum) {
+        Assert.assertTrue(message, value >= minimum);
+        if (maximum > 0) {
+            Assert.assertTrue(message, value <= maximum);
+        }
+    }
+
+    /**
+     * @return a candidate of random length and mix, with numeric and special characters placed at the ends as often
+     * as not, so that every rule has something to correct.
+     */
+    private String makeCandidate() {
+        final List<String> seeds = new ArrayList<>(RandomPasswordGenerator.DEFAULT_SEED_PHRASES);
+        final StringBuilder candidate = new StringBuilder();
+        final int length = random.nextInt(30);
+        for (int i = 0; i < length; i++) {
+            candidate.append(seeds.get(random.nextInt(seeds.size())));
+        }
+        if (random.nextBoolean()) {
+            candidate.insert(0, randomChar(random.nextBoolean() ? SEED_MACHINE.getNumChars() : SEED_MACHINE.getSpecialChars()));
+        }
+        if (random.nextBoolean()) {
+            candidate.append(randomChar(random.nextBoolean() ? SEED_MACHINE.getNumChars() : SEED_MACHINE.getSpecialChars()));
+        }
+        return candidate.toString();
+    }
+
+    private char randomChar(final String chars) {
+        return chars.charAt(random.nextInt(chars.length()));
+    }
+
+    private static PwmPasswordPolicy makePolicy(final Map<PwmPasswordRule,String> rules) {
+        final Map<String,String> policyMap = new HashMap<>();
+        for (final PwmPasswordRule rule : PwmPasswordRule.values()) {
+            policyMap.put(rule.getKey(), rule.getDefaultValue());
+        }
+        for (final Map.Entry<PwmPasswordRule,String> entry : rules.entrySet()) {
+            policyMap.put(entry.getKey().getKey(), entry.getValue());
+        }
+        return PwmPasswordPolicy.createPwmPasswordPolicy(policyMap);
+    }
+}
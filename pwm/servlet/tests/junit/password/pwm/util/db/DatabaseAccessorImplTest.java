@@ -0,0 +1,243 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package password.pwm.util.db;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import password.pwm.config.Configuration;
+import password.pwm.config.PwmSetting;
+import password.pwm.config.StoredConfiguration;
+import password.pwm.config.value.StringValue;
+import password.pwm.util.TimeDuration;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DatabaseAccessorImplTest extends TestCase {
+
+    private static final AtomicInteger DB_COUNTER = new AtomicInteger();
+
+    private DatabaseAccessorImpl accessor;
+    private String url;
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (accessor != null) {
+            accessor.close();
+        }
+    }
+
+    public void testPutOverwritesH2() throws Exception {
+        accessor = openH2();
+
+        // the H2 MERGE does not report whether the key existed, and put does not spend a query to find out
+        Assert.assertFalse(accessor.put(DatabaseTable.TOKENS, "key1", "value1"));
+        Assert.assertFalse(accessor.put(DatabaseTable.TOKENS, "key1", "value2"));
+        Assert.assertEquals("value2", accessor.get(DatabaseTable.TOKENS, "key1"));
+        Assert.assertEquals(1, accessor.size(DatabaseTable.TOKENS));
+    }
+
+    public void testPutReturnsPreExistingDerby() throws Exception {
+        accessor = openDerby();
+        checkPutReturnsPreExisting();
+    }
+
+    public void testConcurrentPutH2() throws Exception {
+        accessor = openH2();
+        checkConcurrentPut();
+    }
+
+    public void testConcurrentPutDerby() throws Exception {
+        accessor = openDerby();
+        checkConcurrentPut();
+    }
+
+    public void testBatchOperationsH2() throws Exception {
+        accessor = openH2();
+        checkBatchOperations();
+    }
+
+    public void testBatchOperationsDerby() throws Exception {
+        accessor = openDerby();
+        checkBatchOperations();
+    }
+
+    public void testRemoveOlderThanH2() throws Exception {
+        accessor = openH2();
+        checkRemoveOlderThan();
+    }
+
+    public void testRemoveOlderThanDerby() throws Exception {
+        accessor = openDerby();
+        checkRemoveOlderThan();
+    }
+
+    public void testUpsertSql() throws Exception {
+        final List<String> valueColumns = Arrays.asList("value", "modified");
+        Assert.assertEquals(
+                "MERGE INTO PWM_META (id, value, modified) KEY(id) VALUES(?,?,?)",
+                DatabaseDialect.H2.upsertSql("PWM_META", "id", valueColumns));
+        Assert.assertNull(DatabaseDialect.GENERIC.upsertSql("PWM_META", "id", valueColumns));
+    }
+
+    private void checkPutReturnsPreExisting() throws Exception {
+        Assert.assertFalse(accessor.put(DatabaseTable.TOKENS, "key1", "value1"));
+        Assert.assertTrue(accessor.put(DatabaseTable.TOKENS, "key1", "value2"));
+        Assert.assertTrue(accessor.put(DatabaseTable.TOKENS, "key1", "value2"));
+        Assert.assertEquals("value2", accessor.get(DatabaseTable.TOKENS, "key1"));
+
+        Assert.assertTrue(accessor.remove(DatabaseTable.TOKENS, "key1"));
+        Assert.assertFalse(accessor.put(DatabaseTable.TOKENS, "key1", "value3"));
+        Assert.assertEquals("value3", accessor.get(DatabaseTable.TOKENS, "key1"));
+        Assert.assertEquals(1, accessor.size(DatabaseTable.TOKENS));
+    }
+
+    private void checkConcurrentPut() throws Exception {
+        final int threadCount = 8;
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch doneLatch = new CountDownLatch(threadCount);
+        final AtomicInteger insertCount = new AtomicInteger();
+        final List<Exception> errors = Collections.synchronizedList(new ArrayList<Exception>());
+        final List<String> values = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            final String value = "value" + i;
+            values.add(value);
+            new Thread() {
+                public void run() {
+                    try {
+                        startLatch.await();
+                        if (!accessor.put(DatabaseTable.TOKENS, "sharedKey", value)) {
+                            insertCount.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.add(e);
+                    } finally {
+                        doneLatch.countDown();
+                    }
+                }
+            }.start();
+        }
+        startLatch.countDown();
+        doneLatch.await();
+
+        Assert.assertTrue(errors.toString(), errors.isEmpty());
+        Assert.assertTrue(insertCount.get() >= 1);
+        Assert.assertTrue(values.contains(accessor.get(DatabaseTable.TOKENS, "sharedKey")));
+        Assert.assertEquals(1, accessor.size(DatabaseTable.TOKENS));
+    }
+
+    private void checkBatchOperations() throws Exception {
+        accessor.put(DatabaseTable.TOKENS, "key0", "old");
+
+        // larger than the default batch size, so the statements are flushed more than once
+        final Map<String,String> values = new LinkedHashMap<>();
+        for (int i = 0; i < 250; i++) {
+            values.put("key" + i, "value" + i);
+        }
+        accessor.putAll(DatabaseTable.TOKENS, values);
+        Assert.assertEquals(250, accessor.size(DatabaseTable.TOKENS));
+        Assert.assertEquals("value0", accessor.get(DatabaseTable.TOKENS, "key0"));
+        Assert.assertEquals("value249", accessor.get(DatabaseTable.TOKENS, "key249"));
+
+        final Map<String,String> readValues = accessor.getAll(DatabaseTable.TOKENS, Arrays.asList("key3", "missing", "key1"));
+        Assert.assertEquals(new HashSet<>(Arrays.asList("key3", "key1")), readValues.keySet());
+        Assert.assertEquals("value1", readValues.get("key1"));
+
+        final List<String> removeKeys = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            removeKeys.add("key" + i);
+        }
+        removeKeys.add("missing");
+        Assert.assertEquals(200, accessor.removeAll(DatabaseTable.TOKENS, removeKeys));
+        Assert.assertEquals(50, accessor.size(DatabaseTable.TOKENS));
+        Assert.assertNull(accessor.get(DatabaseTable.TOKENS, "key199"));
+        Assert.assertEquals("value200", accessor.get(DatabaseTable.TOKENS, "key200"));
+    }
+
+    private void checkRemoveOlderThan() throws Exception {
+        final TimeDuration maxAge = new TimeDuration(60 * 60 * 1000);
+        accessor.put(DatabaseTable.TOKENS, "fresh", "value");
+        accessor.put(DatabaseTable.TOKENS, "stale", "value");
+        accessor.put(DatabaseTable.TOKENS, "unstamped", "value");
+        executeUpdate("UPDATE TOKENS SET modified=? WHERE id='stale'", System.currentTimeMillis() - 2 * maxAge.getTotalMilliseconds());
+        executeUpdate("UPDATE TOKENS SET modified=NULL WHERE id='unstamped'", null);
+
+        Assert.assertEquals(1, accessor.countOlderThan(DatabaseTable.TOKENS, maxAge));
+        Assert.assertEquals(1, accessor.removeOlderThan(DatabaseTable.TOKENS, maxAge));
+        Assert.assertFalse(accessor.contains(DatabaseTable.TOKENS, "stale"));
+        Assert.assertTrue(accessor.contains(DatabaseTable.TOKENS, "fresh"));
+
+        // a row written without a modification time ages from the first purge that sees it
+        Assert.assertTrue(accessor.contains(DatabaseTable.TOKENS, "unstamped"));
+        Thread.sleep(5);
+        Assert.assertEquals(2, accessor.removeOlderThan(DatabaseTable.TOKENS, new TimeDuration(0)));
+        Assert.assertEquals(0, accessor.size(DatabaseTable.TOKENS));
+
+        Assert.assertEquals(-1, accessor.removeOlderThan(DatabaseTable.PWM_META, maxAge));
+    }
+
+    private void executeUpdate(final String sql, final Long parameter) throws Exception {
+        final Connection connection = DriverManager.getConnection(url);
+        try {
+            final PreparedStatement statement = connection.prepareStatement(sql);
+            if (parameter != null) {
+                statement.setLong(1, parameter);
+            }
+            Assert.assertEquals(1, statement.executeUpdate());
+            statement.close();
+        } finally {
+            connection.close();
+        }
+    }
+
+    private DatabaseAccessorImpl openH2() throws Exception {
+        url = "jdbc:h2:mem:pwmtest" + DB_COUNTER.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        return open("org.h2.Driver", url, "TEXT");
+    }
+
+    private DatabaseAccessorImpl openDerby() throws Exception {
+        url = "jdbc:derby:memory:pwmtest" + DB_COUNTER.incrementAndGet() + ";create=true";
+        return open("org.apache.derby.jdbc.EmbeddedDriver", url, "VARCHAR(1024)");
+    }
+
+    private static DatabaseAccessorImpl open(final String driverClass, final String url, final String valueColumnType) throws Exception {
+        final StoredConfiguration storedConfiguration = StoredConfiguration.newStoredConfiguration();
+        storedConfiguration.writeSetting(PwmSetting.DATABASE_CLASS, new StringValue(driverClass), null);
+        storedConfiguration.writeSetting(PwmSetting.DATABASE_URL, new StringValue(url), null);
+        storedConfiguration.writeSetting(PwmSetting.DATABASE_COLUMN_TYPE_VALUE, new StringValue(valueColumnType), null);
+        final DatabaseAccessorImpl accessor = new DatabaseAccessorImpl();
+        accessor.init(new Configuration(storedConfiguration));
+        return accessor;
+    }
+}
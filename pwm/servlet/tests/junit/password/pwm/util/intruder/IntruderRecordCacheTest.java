@@ -0,0 +1,236 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.intruder;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import password.pwm.util.ClosableIterator;
+import password.pwm.util.DataStore;
+import password.pwm.util.TimeDuration;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IntruderRecordCacheTest extends TestCase {
+
+    private static final String SUBJECT = "cn=sprayTarget,ou=users,o=test";
+
+    private MemoryDataStore dataStore;
+    private IntruderRecordCache recordCache;
+
+    @Override
+    protected void setUp() throws Exception {
+        dataStore = new MemoryDataStore();
+        recordCache = new IntruderRecordCache(new DataStoreRecordStore(dataStore, new IntruderManager()), 60 * 1000);
+    }
+
+    public void testConcurrentMarks() throws Exception {
+        final RecordManager manager = makeManager(Integer.MAX_VALUE);
+        final int threadCount = 16;
+        final int marksPerThread = 500;
+
+        runConcurrently(threadCount, new Runnable() {
+            public void run() {
+                for (int i = 0; i < marksPerThread; i++) {
+                    manager.markSubject(SUBJECT);
+                    manager.checkSubject(SUBJECT);
+                }
+            }
+        });
+
+        Assert.assertEquals(threadCount * marksPerThread, manager.readIntruderRecord(SUBJECT).getAttemptCount());
+
+        // written behind to the data store, and read back once the cached copy has expired
+        recordCache.flush();
+        final IntruderRecordCache reloadedCache = new IntruderRecordCache(new DataStoreRecordStore(dataStore, new IntruderManager()), 60 * 1000);
+        Assert.assertEquals(threadCount * marksPerThread, reloadedCache.read(RecordType.USER_ID, SUBJECT).getAttemptCount());
+    }
+
+    public void testLockoutUnderContention() throws Exception {
+        final int checkCount = 10;
+        final int threadCount = 32;
+        final RecordManager manager = makeManager(checkCount);
+        final AtomicInteger lockedObservations = new AtomicInteger();
+        final AtomicInteger alertsSent = new AtomicInteger();
+
+        runConcurrently(threadCount, new Runnable() {
+            public void run() {
+                // same sequence as IntruderManager.mark()
+                manager.markSubject(SUBJECT);
+                if (manager.checkSubject(SUBJECT)) {
+                    lockedObservations.incrementAndGet();
+                    if (manager.markAlerted(SUBJECT)) {
+                        alertsSent.incrementAndGet();
+                    }
+                }
+            }
+        });
+
+        Assert.assertEquals(threadCount, manager.readIntruderRecord(SUBJECT).getAttemptCount());
+        Assert.assertTrue(manager.checkSubject(SUBJECT));
+        Assert.assertTrue(lockedObservations.get() >= threadCount - checkCount + 1);
+        Assert.assertEquals(1, alertsSent.get());
+
+        manager.clearSubject(SUBJECT);
+        Assert.assertFalse(manager.checkSubject(SUBJECT));
+        Assert.assertFalse(manager.isAlerted(SUBJECT));
+    }
+
+    public void testUnknownSubjectsAreCached() throws Exception {
+        final RecordManager manager = makeManager(5);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertFalse(manager.checkSubject("10.1.1.1"));
+        }
+        Assert.assertEquals(1, dataStore.reads.get());
+        Assert.assertEquals(0, dataStore.size());
+    }
+
+    public void testExpiredRecordsAreReloaded() throws Exception {
+        final IntruderRecordCache shortLivedCache = new IntruderRecordCache(new DataStoreRecordStore(dataStore, new IntruderManager()), 0);
+        final RecordManager manager = new RecordManagerImpl(RecordType.USER_ID, shortLivedCache, makeSettings(5));
+        manager.markSubject(SUBJECT);
+
+        // dirty records are never expired before they are written
+        Thread.sleep(5);
+        shortLivedCache.expire();
+        Assert.assertEquals(1, shortLivedCache.size());
+
+        shortLivedCache.flush();
+        shortLivedCache.expire();
+        Assert.assertEquals(0, shortLivedCache.size());
+        Assert.assertEquals(1, manager.readIntruderRecord(SUBJECT).getAttemptCount());
+    }
+
+    private RecordManager makeManager(final int checkCount) {
+        return new RecordManagerImpl(RecordType.USER_ID, recordCache, makeSettings(checkCount));
+    }
+
+    private static IntruderSettings makeSettings(final int checkCount) {
+        final IntruderSettings settings = new IntruderSettings();
+        settings.setCheckCount(checkCount);
+        settings.setCheckDuration(new TimeDuration(60 * 60 * 1000));
+        settings.setResetDuration(new TimeDuration(60 * 60 * 1000));
+        return settings;
+    }
+
+    private static void runConcurrently(final int threadCount, final Runnable runnable) throws InterruptedException {
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch doneLatch = new CountDownLatch(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            new Thread() {
+                public void run() {
+                    try {
+                        startLatch.await();
+                        runnable.run();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        doneLatch.countDown();
+                    }
+                }
+            }.start();
+        }
+        startLatch.countDown();
+        doneLatch.await();
+    }
+
+    private static class MemoryDataStore implements DataStore {
+        private final Map<String, String> values = new ConcurrentHashMap<>();
+        private final AtomicInteger reads = new AtomicInteger();
+
+        public void close() {
+        }
+
+        public boolean contains(final String key) {
+            return values.containsKey(key);
+        }
+
+        public String get(final String key) {
+            reads.incrementAndGet();
+            return values.get(key);
+        }
+
+        public ClosableIterator<String> iterator() {
+            final Iterator<String> iterator = values.keySet().iterator();
+            return new ClosableIterator<String>() {
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                public String next() {
+                    return iterator.next();
+                }
+
+                public void remove() {
+                    iterator.remove();
+                }
+
+                public void close() {
+                }
+            };
+        }
+
+        public Status status() {
+            return Status.OPEN;
+        }
+
+        public boolean put(final String key, final String value) {
+            return values.put(key, value) != null;
+        }
+
+        public boolean remove(final String key) {
+            return values.remove(key) != null;
+        }
+
+        public int size() {
+            return values.size();
+        }
+
+        public void putAll(final Map<String, String> keyValueMap) {
+            values.putAll(keyValueMap);
+        }
+
+        public Map<String, String> getAll(final Collection<String> keys) {
+            final Map<String, String> returnMap = new HashMap<>();
+            for (final String key : keys) {
+                if (values.containsKey(key)) {
+                    returnMap.put(key, values.get(key));
+                }
+            }
+            return returnMap;
+        }
+
+        public void removeAll(final Collection<String> keys) {
+            values.keySet().removeAll(keys);
+        }
+
+        public int removeOlderThan(final TimeDuration maxAge) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.localdb;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import password.pwm.PwmConstants;
+import password.pwm.util.StringUtil;
+
+import java.io.File;
+import java.util.*;
+
+public class LocalDBValueCodecTest extends TestCase {
+
+    private static final LocalDB.DB TEST_DB = LocalDB.DB.PWM_STATS;
+
+    public void testPackRoundTrip() throws Exception {
+        final Random random = new Random(1);
+        for (int length = 0; length < 100; length++) {
+            final byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            final String packed = LocalDBValueCodec.pack("x!", bytes);
+            for (int i = 2; i < packed.length(); i++) {
+                Assert.assertTrue(packed.charAt(i) < 0x80);
+            }
+            Assert.assertTrue(Arrays.equals(bytes, LocalDBValueCodec.unpack(packed, 2)));
+        }
+    }
+
+    public void testLzRoundTrip() throws Exception {
+        final Random random = new Random(2);
+        final List<byte[]> inputs = new ArrayList<>();
+        inputs.add(new byte[0]);
+        inputs.add("a".getBytes(PwmConstants.DEFAULT_CHARSET));
+        inputs.add(new byte[70000]);
+        inputs.add(sampleRecord(random, 0).getBytes(PwmConstants.DEFAULT_CHARSET));
+        for (int i = 0; i < 200; i++) {
+            final byte[] bytes = new byte[random.nextInt(3000)];
+            for (int j = 0; j < bytes.length; j++) {
+                bytes[j] = (byte) (random.nextInt(1 + i % 40) + 'a');
+            }
+            inputs.add(bytes);
+        }
+
+        for (final byte[] input : inputs) {
+            final byte[] compressed = LocalDBValueCodec.LzCodec.compress(input);
+            Assert.assertTrue(Arrays.equals(input, LocalDBValueCodec.LzCodec.decompress(compressed)));
+        }
+    }
+
+    public void testCodecRoundTrip() throws Exception {
+        final LocalDB localDB = makeLocalDB();
+        try {
+            final Random random = new Random(3);
+            for (final LocalDBValueCodec.Type type : LocalDBValueCodec.Type.values()) {
+                final LocalDBCompressor compressor = new LocalDBCompressor(localDB, 100, true, type, EnumSet.of(TEST_DB));
+                for (int i = 0; i < 100; i++) {
+                    final String value = sampleRecord(random, i);
+                    compressor.put(TEST_DB, "key" + i, value);
+                    Assert.assertEquals(value, compressor.get(TEST_DB, "key" + i));
+                }
+                final String storedValue = localDB.get(TEST_DB, "key99");
+                Assert.assertTrue(type + " did not compress", compressor.isCompressed(storedValue));
+                Assert.assertTrue(storedValue.length() < compressor.get(TEST_DB, "key99").length());
+                if (type == LocalDBValueCodec.Type.DEFLATE_DICTIONARY) {
+                    Assert.assertTrue(storedValue.startsWith("c3!"));
+                }
+
+                // values written by any codec are readable regardless of the configured codec
+                final LocalDBCompressor reader = new LocalDBCompressor(localDB, 100, false, LocalDBValueCodec.Type.LZ);
+                Assert.assertEquals(compressor.get(TEST_DB, "key42"), reader.get(TEST_DB, "key42"));
+            }
+        } finally {
+            localDB.close();
+        }
+    }
+
+    public void testLegacyValues() throws Exception {
+        final LocalDB localDB = makeLocalDB();
+        try {
+            final String value = sampleRecord(new Random(4), 1);
+            final String legacyValue = "c!" + StringUtil.base64Encode(value.getBytes(PwmConstants.DEFAULT_CHARSET), StringUtil.Base64Options.GZIP);
+            localDB.put(TEST_DB, "legacy", legacyValue);
+            localDB.put(TEST_DB, "plain", "plain value");
+
+            final LocalDBCompressor compressor = new LocalDBCompressor(localDB, 100, true, LocalDBValueCodec.Type.DEFLATE);
+            Assert.assertEquals(value, compressor.get(TEST_DB, "legacy"));
+            Assert.assertEquals("plain value", compressor.get(TEST_DB, "plain"));
+        } finally {
+            localDB.close();
+        }
+    }
+
+    public void testDefaultCodecIsLegacyFormat() throws Exception {
+        final LocalDB localDB = makeLocalDB();
+        try {
+            final String value = sampleRecord(new Random(5), 1);
+            new LocalDBCompressor(localDB, 100, true).put(TEST_DB, "key", value);
+            Assert.assertTrue(localDB.get(TEST_DB, "key").startsWith("c!"));
+        } finally {
+            localDB.close();
+        }
+    }
+
+    public void testNoDictionaryForSensitiveDB() throws Exception {
+        final LocalDB localDB = makeLocalDB();
+        try {
+            final LocalDB.DB sensitiveDB = LocalDB.DB.USER_CACHE;
+            final LocalDBCompressor compressor = new LocalDBCompressor(localDB, 100, true,
+                    LocalDBValueCodec.Type.DEFLATE_DICTIONARY, EnumSet.of(sensitiveDB, TEST_DB));
+            final Random random = new Random(6);
+            for (int i = 0; i < 100; i++) {
+                final String value = sampleRecord(random, i);
+                compressor.put(sensitiveDB, "key" + i, value);
+                compressor.put(TEST_DB, "key" + i, value);
+                Assert.assertEquals(value, compressor.get(sensitiveDB, "key" + i));
+            }
+
+            Assert.assertTrue(localDB.get(sensitiveDB, "key99").startsWith("c1!"));
+            Assert.assertNull(localDB.get(LocalDB.DB.PWM_META, "LocalDBCompressor.activeDictionary." + sensitiveDB));
+            Assert.assertTrue(localDB.get(TEST_DB, "key99").startsWith("c3!"));
+        } finally {
+            localDB.close();
+        }
+    }
+
+    private static LocalDB makeLocalDB() throws Exception {
+        final Memory_LocalDB provider = new Memory_LocalDB();
+        provider.init(new File("."), Collections.<String, String>emptyMap(), false);
+        return new LocalDBAdaptor(provider, null);
+    }
+
+    private static String sampleRecord(final Random random, final int index) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("{\"userDN\":\"cn=user").append(index).append(",ou=people,o=example\",\"ldapProfile\":\"default\"");
+        sb.append(",\"userGUID\":\"").append(Long.toHexString(random.nextLong())).append(Long.toHexString(random.nextLong())).append('"');
+        sb.append(",\"email\":\"user").append(index).append("@example.com\",\"cacheTimestamp\":\"2015-0").append(1 + random.nextInt(9)).append("-1").append(random.nextInt(10)).append("T10:15:30Z\"");
+        sb.append(",\"passwordExpirationTime\":\"2015-12-0").append(1 + random.nextInt(9)).append("T00:00:00Z\",\"hasResponses\":").append(random.nextBoolean());
+        sb.append(",\"responseStorageMethod\":\"LDAP\",\"otpStorageMethod\":null,\"requiresPasswordUpdate\":").append(random.nextBoolean());
+        sb.append(",\"requiresResponseUpdate\":false,\"requiresProfileUpdate\":false,\"requiresOtpConfig\":false}");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.localdb;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class MapDBLocalDBConcurrencyTest extends TestCase {
+
+    private static final LocalDB.DB BULK_DB = LocalDB.DB.WORDLIST_WORDS;
+    private static final LocalDB.DB[] WORKER_DBS = {LocalDB.DB.INTRUDER, LocalDB.DB.TOKENS, LocalDB.DB.CACHE, LocalDB.DB.TEMP};
+
+    private File dbDirectory;
+    private MapDB_LocalDB localDB;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        dbDirectory = File.createTempFile("pwm-mapdb-test", "");
+        dbDirectory.delete();
+        dbDirectory.mkdirs();
+        localDB = new MapDB_LocalDB();
+        localDB.init(dbDirectory, Collections.<String, String>emptyMap(), false);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        if (localDB != null) {
+            localDB.close();
+            localDB = null;
+        }
+        final File[] files = dbDirectory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        dbDirectory.delete();
+    }
+
+    /**
+     * Workers each own a set of keys in several databases while another thread bulk loads a different database;
+     * every worker must always read back its own latest value.
+     */
+    public void testConcurrentReadWrite() throws Exception {
+        final int workerCount = 8;
+        final int iterations = 300;
+        final AtomicBoolean stopBulkLoad = new AtomicBoolean(false);
+        final ExecutorService executor = Executors.newFixedThreadPool(workerCount + 1);
+        try {
+            final Future<Integer> bulkLoader = executor.submit(new Callable<Integer>() {
+                public Integer call() throws Exception {
+                    int batch = 0;
+                    while (!stopBulkLoad.get()) {
+                        final Map<String, String> values = new HashMap<>();
+                        for (int i = 0; i < 500; i++) {
+                            values.put("word-" + batch + "-" + i, "");
+                        }
+                        localDB.putAll(BULK_DB, values);
+                        batch++;
+                    }
+                    return batch;
+                }
+            });
+
+            final List<Future<Object>> workers = new ArrayList<>();
+            for (int w = 0; w < workerCount; w++) {
+                final int workerID = w;
+                workers.add(executor.submit(new Callable<Object>() {
+                    public Object call() throws Exception {
+                        for (int i = 0; i < iterations; i++) {
+                            final LocalDB.DB db = WORKER_DBS[i % WORKER_DBS.length];
+                            final String key = "worker-" + workerID + "-" + (i % 10);
+                            final String value = "value-" + i;
+                            localDB.put(db, key, value);
+                            Assert.assertEquals(value, localDB.get(db, key));
+                            Assert.assertTrue(localDB.contains(db, key));
+                            if (i % 7 == 0) {
+                                Assert.assertTrue(localDB.remove(db, key));
+                                Assert.assertNull(localDB.get(db, key));
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+
+            for (final Future<Object> worker : workers) {
+                worker.get(2, TimeUnit.MINUTES);
+            }
+            stopBulkLoad.set(true);
+            final int batches = bulkLoader.get(2, TimeUnit.MINUTES);
+            Assert.assertEquals(batches * 500, localDB.size(BULK_DB));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A 90% read / 10% write mix spread over several databases, with a bulk load running in the background.  Reads of
+     * the preloaded keys must never see another value, and every database must end up with exactly the keys written.
+     */
+    public void testMixedWorkload() throws Exception {
+        for (final LocalDB.DB db : WORKER_DBS) {
+            final Map<String, String> values = new HashMap<>();
+            for (int i = 0; i < 1000; i++) {
+                values.put("key" + i, "value" + i);
+            }
+            localDB.putAll(db, values);
+        }
+
+        final int threads = 8;
+        final int bulkBatches = 20;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        try {
+            final Future<Object> bulkLoader = executor.submit(new Callable<Object>() {
+                public Object call() throws Exception {
+                    for (int batch = 0; batch < bulkBatches; batch++) {
+                        final Map<String, String> values = new HashMap<>();
+                        for (int i = 0; i < 200; i++) {
+                            values.put("bulk-" + batch + "-" + i, "");
+                        }
+                        localDB.putAll(BULK_DB, values);
+                    }
+                    return null;
+                }
+            });
+
+            final List<Future<Map<LocalDB.DB, Map<String, String>>>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int threadID = t;
+                workers.add(executor.submit(new Callable<Map<LocalDB.DB, Map<String, String>>>() {
+                    public Map<LocalDB.DB, Map<String, String>> call() throws Exception {
+                        final Random random = new Random(threadID);
+                        final Map<LocalDB.DB, Map<String, String>> written = new EnumMap<>(LocalDB.DB.class);
+                        for (int i = 0; i < 2000; i++) {
+                            final LocalDB.DB db = WORKER_DBS[random.nextInt(WORKER_DBS.length)];
+                            if (random.nextInt(10) == 0) {
+                                final String key = "thread" + threadID + "-" + random.nextInt(50);
+                                final String value = "value" + i;
+                                localDB.put(db, key, value);
+                                if (!written.containsKey(db)) {
+                                    written.put(db, new HashMap<String, String>());
+                                }
+                                written.get(db).put(key, value);
+                            } else {
+                                final int keyNumber = random.nextInt(1000);
+                                Assert.assertEquals("value" + keyNumber, localDB.get(db, "key" + keyNumber));
+                            }
+                        }
+                        return written;
+                    }
+                }));
+            }
+
+            final Map<LocalDB.DB, Integer> expectedSizes = new EnumMap<>(LocalDB.DB.class);
+            for (final LocalDB.DB db : WORKER_DBS) {
+                expectedSizes.put(db, 1000);
+            }
+            for (final Future<Map<LocalDB.DB, Map<String, String>>> worker : workers) {
+                final Map<LocalDB.DB, Map<String, String>> written = worker.get(2, TimeUnit.MINUTES);
+                for (final LocalDB.DB db : written.keySet()) {
+                    for (final Map.Entry<String, String> entry : written.get(db).entrySet()) {
+                        Assert.assertEquals(entry.getValue(), localDB.get(db, entry.getKey()));
+                    }
+                    expectedSizes.put(db, expectedSizes.get(db) + written.get(db).size());
+                }
+            }
+            bulkLoader.get(2, TimeUnit.MINUTES);
+
+            for (final LocalDB.DB db : WORKER_DBS) {
+                Assert.assertEquals(expectedSizes.get(db).intValue(), localDB.size(db));
+            }
+            Assert.assertEquals(bulkBatches * 200, localDB.size(BULK_DB));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A batch that fails part way through must not leave any of its values behind.
+     */
+    public void testPutAllRollback() throws Exception {
+        final LocalDB.DB db = LocalDB.DB.TEMP;
+        localDB.put(db, "existing", "original");
+
+        final Map<String, String> values = new LinkedHashMap<>();
+        values.put("existing", "changed");
+        values.put("new", "value");
+        values.put("broken", null);
+        try {
+            localDB.putAll(db, values);
+            Assert.fail("putAll with a null value should fail");
+        } catch (LocalDBException e) {
+            // expected
+        }
+
+        Assert.assertEquals("original", localDB.get(db, "existing"));
+        Assert.assertNull(localDB.get(db, "new"));
+        Assert.assertEquals(1, localDB.size(db));
+    }
+}
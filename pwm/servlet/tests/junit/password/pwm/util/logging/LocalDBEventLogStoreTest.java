@@ -0,0 +1,100 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.logging;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+public class LocalDBEventLogStoreTest extends TestCase {
+
+    private File localDBPath;
+    private LocalDB localDB;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        localDBPath = File.createTempFile("eventlog", "localdb");
+        localDBPath.delete();
+        localDB = LocalDBFactory.getInstance(localDBPath, false, null, null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        localDB.close();
+        delete(localDBPath);
+        super.tearDown();
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    public void testSegmentsAndIndex() throws Exception {
+        final LocalDBEventLogStore store = new LocalDBEventLogStore(localDB, 10, 60 * 60 * 1000);
+        store.clear();
+
+        final List<PwmLogEvent> events = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            final PwmLogLevel level = i == 7 ? PwmLogLevel.ERROR : PwmLogLevel.TRACE;
+            final String actor = i < 10 ? null : "user" + (i / 10);
+            events.add(PwmLogEvent.createPwmLogEvent(new Date(), "topic", "message " + i, "", actor, null, null, level));
+        }
+        store.append(events);
+
+        Assert.assertEquals(25, store.size());
+        Assert.assertEquals(3, store.segmentCount());
+
+        final List<Map.Entry<Long,LocalDBEventLogStore.SegmentIndex>> segments = store.segmentsNewestFirst();
+        final LocalDBEventLogStore.SegmentIndex oldest = segments.get(2).getValue();
+        Assert.assertTrue(oldest.hasLevelAtLeast(PwmLogLevel.ERROR));
+        Assert.assertFalse(segments.get(1).getValue().hasLevelAtLeast(PwmLogLevel.ERROR));
+        Assert.assertEquals(PwmLogLevel.ERROR, oldest.levelAt(7));
+        Assert.assertTrue(oldest.getActors().contains(""));
+        Assert.assertTrue(segments.get(0).getValue().getActors().contains("user2"));
+
+        final String encoded = store.readEncodedEvent(segments.get(0).getKey(), 4);
+        Assert.assertEquals("message 24", PwmLogEvent.fromEncodedString(encoded).getMessage());
+
+        // indexes are reloaded from the LocalDB
+        final LocalDBEventLogStore reopened = new LocalDBEventLogStore(localDB, 10, 60 * 60 * 1000);
+        Assert.assertEquals(25, reopened.size());
+        Assert.assertEquals(10, reopened.removeOldestSegment());
+        Assert.assertEquals(15, reopened.size());
+        Assert.assertNull(reopened.readEncodedEvent(segments.get(2).getKey(), 0));
+        Assert.assertEquals(15, new LocalDBEventLogStore(localDB, 10, 60 * 60 * 1000).size());
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.logging;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LogEventRingBufferTest extends TestCase {
+
+    public void testCapacityIsPowerOfTwo() {
+        Assert.assertEquals(2, new LogEventRingBuffer(1).capacity());
+        Assert.assertEquals(4, new LogEventRingBuffer(4).capacity());
+        Assert.assertEquals(8, new LogEventRingBuffer(5).capacity());
+    }
+
+    public void testWrapAround() {
+        final LogEventRingBuffer buffer = new LogEventRingBuffer(4);
+        int nextOffered = 0;
+        int nextPolled = 0;
+        // offer three and poll two each round, so the positions wrap the slots many times while the buffer fills
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 3; i++) {
+                if (buffer.offer(makeEvent(nextOffered, PwmLogLevel.INFO))) {
+                    nextOffered++;
+                } else {
+                    Assert.assertEquals(4, buffer.size());
+                }
+            }
+            for (int i = 0; i < 2; i++) {
+                Assert.assertEquals(String.valueOf(nextPolled++), buffer.poll().getMessage());
+            }
+        }
+        while (!buffer.isEmpty()) {
+            Assert.assertEquals(String.valueOf(nextPolled++), buffer.poll().getMessage());
+        }
+        Assert.assertEquals(nextOffered, nextPolled);
+        Assert.assertNull(buffer.poll());
+        Assert.assertEquals(0, buffer.size());
+    }
+
+    public void testFullBufferRejectsOffer() {
+        final LogEventRingBuffer buffer = fill(4);
+        Assert.assertFalse(buffer.offer(makeEvent(4, PwmLogLevel.FATAL)));
+        Assert.assertEquals(4, buffer.size());
+        Assert.assertEquals("0", buffer.poll().getMessage());
+        Assert.assertTrue(buffer.offer(makeEvent(4, PwmLogLevel.INFO)));
+        assertContents(buffer, 1, 2, 3, 4);
+    }
+
+    public void testFullBufferDropOldest() {
+        final LogEventRingBuffer buffer = fill(4);
+        Assert.assertTrue(buffer.offerDiscardingOldest(makeEvent(4, PwmLogLevel.INFO)));
+        Assert.assertTrue(buffer.offerDiscardingOldest(makeEvent(5, PwmLogLevel.INFO)));
+        Assert.assertEquals(2, buffer.discardedCount());
+        assertContents(buffer, 2, 3, 4, 5);
+
+        // nothing is discarded while there is room
+        Assert.assertTrue(buffer.offerDiscardingOldest(makeEvent(6, PwmLogLevel.INFO)));
+        Assert.assertEquals(2, buffer.discardedCount());
+    }
+
+    public void testFullBufferDropDebugFirst() {
+        final LogEventRingBuffer buffer = new LogEventRingBuffer(8);
+        final int highWater = buffer.capacity() * 3 / 4;
+        for (int i = 0; i < highWater; i++) {
+            Assert.assertTrue(buffer.offerBelow(makeEvent(i, PwmLogLevel.DEBUG), highWater));
+        }
+        Assert.assertFalse(buffer.offerBelow(makeEvent(highWater, PwmLogLevel.DEBUG), highWater));
+
+        // the space above the high water mark is still available to other events, until the buffer is full
+        Assert.assertTrue(buffer.offer(makeEvent(6, PwmLogLevel.ERROR)));
+        Assert.assertTrue(buffer.offer(makeEvent(7, PwmLogLevel.ERROR)));
+        Assert.assertFalse(buffer.offer(makeEvent(8, PwmLogLevel.ERROR)));
+        Assert.assertFalse(buffer.offerBelow(makeEvent(8, PwmLogLevel.DEBUG), buffer.capacity() + 1));
+        assertContents(buffer, 0, 1, 2, 3, 4, 5, 6, 7);
+    }
+
+    public void testFullBufferBlockWithDeadline() throws Exception {
+        final LogEventRingBuffer buffer = fill(4);
+        final long startTime = System.nanoTime();
+        Assert.assertFalse(buffer.offer(makeEvent(4, PwmLogLevel.INFO), TimeUnit.MILLISECONDS.toNanos(20)));
+        Assert.assertTrue(System.nanoTime() - startTime >= TimeUnit.MILLISECONDS.toNanos(20));
+
+        final Thread consumer = new Thread() {
+            public void run() {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                buffer.poll();
+            }
+        };
+        consumer.start();
+        Assert.assertTrue(buffer.offer(makeEvent(4, PwmLogLevel.INFO), TimeUnit.SECONDS.toNanos(10)));
+        consumer.join();
+        assertContents(buffer, 1, 2, 3, 4);
+    }
+
+    public void testManyProducersOneConsumer() throws Exception {
+        final LogEventRingBuffer buffer = new LogEventRingBuffer(64);
+        final int producerCount = 8;
+        final int eventsPerProducer = 20000;
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < producerCount; p++) {
+            final int producer = p;
+            final Thread thread = new Thread() {
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < eventsPerProducer; i++) {
+                        final PwmLogEvent event = makeEvent(producer * eventsPerProducer + i, PwmLogLevel.INFO);
+                        while (!buffer.offer(event)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            };
+            thread.start();
+            producers.add(thread);
+        }
+
+        // each producer's events must arrive once, in the order that producer offered them
+        final int[] nextExpected = new int[producerCount];
+        int receivedCount = 0;
+        startLatch.countDown();
+        while (receivedCount < producerCount * eventsPerProducer) {
+            final PwmLogEvent event = buffer.poll();
+            if (event == null) {
+                Thread.yield();
+                continue;
+            }
+            final int value = Integer.parseInt(event.getMessage());
+            final int producer = value / eventsPerProducer;
+            Assert.assertEquals(nextExpected[producer], value % eventsPerProducer);
+            nextExpected[producer]++;
+            receivedCount++;
+        }
+        for (final Thread thread : producers) {
+            thread.join();
+        }
+        for (final int count : nextExpected) {
+            Assert.assertEquals(eventsPerProducer, count);
+        }
+        Assert.assertNull(buffer.poll());
+    }
+
+    public void testManyProducersDiscardingOldest() throws Exception {
+        final LogEventRingBuffer buffer = new LogEventRingBuffer(16);
+        final int producerCount = 8;
+        final int eventsPerProducer = 10000;
+        final AtomicInteger rejectedCount = new AtomicInteger();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch doneLatch = new CountDownLatch(producerCount);
+        for (int p = 0; p < producerCount; p++) {
+            final int producer = p;
+            new Thread() {
+                public void run() {
+                    try {
+                        startLatch.await();
+                        for (int i = 0; i < eventsPerProducer; i++) {
+                            if (!buffer.offerDiscardingOldest(makeEvent(producer * eventsPerProducer + i, PwmLogLevel.INFO))) {
+                                rejectedCount.incrementAndGet();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        doneLatch.countDown();
+                    }
+                }
+            }.start();
+        }
+
+        final boolean[] seen = new boolean[producerCount * eventsPerProducer];
+        int receivedCount = 0;
+        startLatch.countDown();
+        while (doneLatch.getCount() > 0 || !buffer.isEmpty()) {
+            final PwmLogEvent event = buffer.poll();
+            if (event == null) {
+                Thread.yield();
+                continue;
+            }
+            final int value = Integer.parseInt(event.getMessage());
+            Assert.assertFalse("duplicate event " + value, seen[value]);
+            seen[value] = true;
+            receivedCount++;
+        }
+
+        // every event is either delivered, discarded to make room, or rejected; none are lost or duplicated
+        Assert.assertEquals(producerCount * eventsPerProducer, receivedCount + buffer.discardedCount() + rejectedCount.get());
+    }
+
+    private static LogEventRingBuffer fill(final int capacity) {
+        final LogEventRingBuffer buffer = new LogEventRingBuffer(capacity);
+        for (int i = 0; i < buffer.capacity(); i++) {
+            Assert.assertTrue(buffer.offer(makeEvent(i, PwmLogLevel.INFO)));
+        }
+        return buffer;
+    }
+
+    private static void assertContents(final LogEventRingBuffer buffer, final int... expectedValues) {
+        for (final int expectedValue : expectedValues) {
+            Assert.assertEquals(String.valueOf(expectedValue), buffer.poll().getMessage());
+        }
+        Assert.assertNull(buffer.poll());
+    }
+
+    private static PwmLogEvent makeEvent(final int value, final PwmLogLevel level) {
+        return PwmLogEvent.createPwmLogEvent(new Date(), "topic", String.valueOf(value), "", null, null, null, level);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.macro;
+
+import com.novell.ldapchai.exception.ChaiOperationException;
+import com.novell.ldapchai.exception.ChaiUnavailableException;
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import password.pwm.config.Configuration;
+import password.pwm.config.StoredConfiguration;
+import password.pwm.ldap.UserDataReader;
+
+import java.util.*;
+
+public class MacroMachineTest extends TestCase {
+
+    public void testStaticExpansion() {
+        final MacroMachine macroMachine = MacroMachine.forStatic();
+        Assert.assertEquals("plain text", macroMachine.expandMacros("plain text"));
+        Assert.assertEquals("user@example.com @unknown@", macroMachine.expandMacros("user@example.com @unknown@"));
+        Assert.assertEquals("YWJj", macroMachine.expandMacros("@Encode:base64:[[abc]]@"));
+        Assert.assertEquals(36, macroMachine.expandMacros("@UUID@").length());
+    }
+
+    public void testUnresolvedMacroIsKept() {
+        Assert.assertEquals("setup @OtpSetupTime@", MacroMachine.forStatic().expandMacros("setup @OtpSetupTime@"));
+    }
+
+    public void testConfiguredExpansionMatchesUncached() {
+        final MacroMachine macroMachine = MacroMachine.forStatic();
+        final String input = "user@example.com @Encode:base64:[[abc]]@ @unknown@";
+        Assert.assertEquals(macroMachine.expandMacros(input), macroMachine.expandConfiguredMacros(input));
+        Assert.assertNull(macroMachine.expandConfiguredMacros(null));
+    }
+
+    public void testTemplateCacheBelongsToConfiguration() throws Exception {
+        final Configuration configuration = new Configuration(StoredConfiguration.newStoredConfiguration());
+        final MacroTemplateCache templateCache = configuration.getMacroTemplateCache();
+        Assert.assertSame(templateCache, configuration.getMacroTemplateCache());
+
+        templateCache.put("@UUID@", MacroTemplate.compile("@UUID@", Collections.<MacroImplementation>emptyList()));
+        Assert.assertEquals(1, templateCache.size());
+
+        // a reloaded configuration starts over
+        final Configuration reloadedConfiguration = new Configuration(StoredConfiguration.newStoredConfiguration());
+        Assert.assertEquals(0, reloadedConfiguration.getMacroTemplateCache().size());
+    }
+
+    public void testTemplateCacheIsBounded() {
+        final MacroTemplateCache templateCache = new MacroTemplateCache();
+        final MacroTemplate macroTemplate = MacroTemplate.compile("text", Collections.<MacroImplementation>emptyList());
+        for (int i = 0; i < 1000; i++) {
+            templateCache.put("text" + i, macroTemplate);
+        }
+        Assert.assertEquals(500, templateCache.size());
+        Assert.assertNull(templateCache.get("text0"));
+        Assert.assertSame(macroTemplate, templateCache.get("text999"));
+    }
+
+    public void testLdapAttributesReadOnce() {
+        final Map<String,String> attributes = new HashMap<>();
+        attributes.put("givenName", "Jane");
+        attributes.put("sn", "@UUID@");
+        final CountingUserDataReader userDataReader = new CountingUserDataReader(attributes);
+        final MacroMachine macroMachine = new MacroMachine(null, null, null, null, userDataReader);
+
+        final String output = macroMachine.expandMacros("@LDAP:givenName@ @LDAP:sn@ @Encode:base64:[[@LDAP:givenName@]]@ @LDAP:mail@");
+
+        // attribute values are inserted as-is and are not themselves expanded
+        Assert.assertEquals("Jane @UUID@ SmFuZQ== ", output);
+        Assert.assertEquals(1, userDataReader.reads);
+    }
+
+    private static class CountingUserDataReader implements UserDataReader {
+        private final Map<String,String> attributes;
+        private int reads;
+
+        private CountingUserDataReader(final Map<String,String> attributes) {
+            this.attributes = attributes;
+        }
+
+        public String getUserDN() {
+            return "cn=test";
+        }
+
+        public String readStringAttribute(final String attribute)
+                throws ChaiUnavailableException, ChaiOperationException
+        {
+            return readStringAttribute(attribute, false);
+        }
+
+        public String readStringAttribute(final String attribute, final boolean ignoreCache)
+                throws ChaiUnavailableException, ChaiOperationException
+        {
+            reads++;
+            return attributes.get(attribute);
+        }
+
+        public Date readDateAttribute(final String attribute)
+                throws ChaiUnavailableException, ChaiOperationException
+        {
+            return null;
+        }
+
+        public Map<String,String> readStringAttributes(final Collection<String> attributeNames)
+                throws ChaiUnavailableException, ChaiOperationException
+        {
+            return readStringAttributes(attributeNames, false);
+        }
+
+        public Map<String,String> readStringAttributes(final Collection<String> attributeNames, final boolean ignoreCache)
+                throws ChaiUnavailableException, ChaiOperationException
+        {
+            reads++;
+            final Map<String,String> returnObj = new HashMap<>();
+            for (final String attribute : attributeNames) {
+                if (attributes.containsKey(attribute)) {
+                    returnObj.put(attribute, attributes.get(attribute));
+                }
+            }
+            return returnObj;
+        }
+    }
+}
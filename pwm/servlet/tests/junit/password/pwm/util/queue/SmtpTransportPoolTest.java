@@ -0,0 +1,214 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.queue;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.URLName;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+public class SmtpTransportPoolTest extends TestCase {
+
+    private final Session session = Session.getInstance(new Properties());
+    private final List<FakeTransport> connections = new ArrayList<>();
+    private boolean failNewConnections;
+    private SmtpTransportPool pool;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        pool = new SmtpTransportPool(new FakeConnector(), 3, 60 * 1000);
+    }
+
+    public void testConnectionIsReused() throws Exception {
+        sendMessages(3);
+        Assert.assertEquals(1, connections.size());
+        Assert.assertEquals(3, connections.get(0).sentCount);
+
+        // closed once it reaches the maximum message count
+        Assert.assertFalse(connections.get(0).connected);
+        Assert.assertEquals(0, pool.idleCount());
+        sendMessages(1);
+        Assert.assertEquals(2, connections.size());
+    }
+
+    public void testRejectedMessageKeepsConnection() throws Exception {
+        sendMessages(1);
+        final FakeTransport transport = connections.get(0);
+        transport.failNext(new SendFailedException("recipient rejected"), false);
+        try {
+            pool.send(makeMessage());
+            Assert.fail("expected SendFailedException");
+        } catch (SendFailedException e) {
+            // expected
+        }
+        Assert.assertTrue(transport.connected);
+        Assert.assertEquals(1, pool.idleCount());
+
+        sendMessages(1);
+        Assert.assertEquals(1, connections.size());
+        Assert.assertEquals(2, transport.sentCount);
+    }
+
+    public void testDroppedConnectionIsRetriedOnce() throws Exception {
+        sendMessages(1);
+        final FakeTransport droppedTransport = connections.get(0);
+        droppedTransport.failNext(new MessagingException("connection reset"), true);
+        Assert.assertEquals("test", pool.send(makeMessage()));
+
+        Assert.assertEquals(2, connections.size());
+        Assert.assertEquals(1, connections.get(1).sentCount);
+        Assert.assertEquals(1, pool.idleCount());
+    }
+
+    public void testFailedRetryIsNotRetriedAgain() throws Exception {
+        sendMessages(1);
+        connections.get(0).failNext(new MessagingException("connection reset"), true);
+        failNewConnections = true;
+        try {
+            pool.send(makeMessage());
+            Assert.fail("expected MessagingException");
+        } catch (MessagingException e) {
+            // expected
+        }
+        Assert.assertEquals(2, connections.size());
+        Assert.assertFalse(connections.get(1).connected);
+        Assert.assertEquals(0, pool.idleCount());
+    }
+
+    public void testErrorOnConnectedTransportIsNotRetried() throws Exception {
+        sendMessages(1);
+        connections.get(0).failNext(new MessagingException("451 local error"), false);
+        try {
+            pool.send(makeMessage());
+            Assert.fail("expected MessagingException");
+        } catch (MessagingException e) {
+            // expected
+        }
+        Assert.assertEquals(1, connections.size());
+        Assert.assertFalse(connections.get(0).connected);
+        Assert.assertEquals(0, pool.idleCount());
+    }
+
+    public void testErrorOnNewConnectionIsNotRetried() throws Exception {
+        failNewConnections = true;
+        try {
+            pool.send(makeMessage());
+            Assert.fail("expected MessagingException");
+        } catch (MessagingException e) {
+            // expected
+        }
+        Assert.assertEquals(1, connections.size());
+    }
+
+    public void testCloseIdle() throws Exception {
+        sendMessages(1);
+        pool.closeIdle();
+        Assert.assertEquals(1, pool.idleCount());
+
+        final SmtpTransportPool expiringPool = new SmtpTransportPool(new FakeConnector(), 3, -1);
+        expiringPool.send(makeMessage());
+        expiringPool.closeIdle();
+        Assert.assertEquals(0, expiringPool.idleCount());
+        Assert.assertFalse(connections.get(1).connected);
+
+        pool.close();
+        Assert.assertEquals(0, pool.idleCount());
+        Assert.assertFalse(connections.get(0).connected);
+    }
+
+    private void sendMessages(final int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals("test", pool.send(makeMessage()));
+        }
+    }
+
+    private Message makeMessage() throws Exception {
+        final MimeMessage message = new MimeMessage(session);
+        message.setText("body");
+        return message;
+    }
+
+    private class FakeConnector implements SmtpTransportPool.Connector {
+        public SmtpTransportPool.PooledTransport connect() {
+            final FakeTransport transport = new FakeTransport(session);
+            if (failNewConnections) {
+                transport.failNext(new MessagingException("connection refused"), true);
+            }
+            connections.add(transport);
+            return new SmtpTransportPool.PooledTransport(transport, "test");
+        }
+    }
+
+    private static class FakeTransport extends Transport {
+        private boolean connected = true;
+        private int sentCount;
+        private MessagingException nextFailure;
+        private boolean dropOnFailure;
+
+        private FakeTransport(final Session session) {
+            super(session, new URLName("smtp://localhost"));
+        }
+
+        private void failNext(final MessagingException failure, final boolean dropConnection) {
+            nextFailure = failure;
+            dropOnFailure = dropConnection;
+        }
+
+        @Override
+        public void sendMessage(final Message message, final Address[] addresses) throws MessagingException {
+            if (!connected) {
+                throw new MessagingException("not connected");
+            }
+            if (nextFailure != null) {
+                final MessagingException failure = nextFailure;
+                nextFailure = null;
+                if (dropOnFailure) {
+                    connected = false;
+                }
+                throw failure;
+            }
+            sentCount++;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return connected;
+        }
+
+        @Override
+        public void close() {
+            connected = false;
+        }
+    }
+}
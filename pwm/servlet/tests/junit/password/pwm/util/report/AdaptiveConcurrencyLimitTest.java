@@ -0,0 +1,72 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.report;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+public class AdaptiveConcurrencyLimitTest extends TestCase {
+
+    /**
+     * Raise the limit from 1 to 8 with steady latency; windows of 10, 10, 10, 10, 10, 12 and 14 samples followed by
+     * four full windows of 16, so the next sample starts a fresh window.
+     */
+    private static void warmUp(final AdaptiveConcurrencyLimit limit) {
+        for (int i = 0; i < 76 + 4 * 16; i++) {
+            limit.recordSuccess(20);
+        }
+    }
+
+    public void testGrowsToMaximumWhileLatencyIsSteady() {
+        final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8);
+        Assert.assertEquals(1, limit.getLimit());
+        warmUp(limit);
+        Assert.assertEquals(8, limit.getLimit());
+    }
+
+    public void testBacksOffWhenLatencyClimbs() {
+        final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8);
+        warmUp(limit);
+        for (int i = 0; i < 16; i++) {
+            limit.recordSuccess(200);
+        }
+        Assert.assertEquals(6, limit.getLimit());
+    }
+
+    public void testHalvesOnErrors() {
+        final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8);
+        warmUp(limit);
+        for (int i = 0; i < 16; i++) {
+            if (i % 4 == 0) {
+                limit.recordError();
+            } else {
+                limit.recordSuccess(20);
+            }
+        }
+        Assert.assertEquals(4, limit.getLimit());
+        for (int i = 0; i < 1000; i++) {
+            limit.recordError();
+        }
+        Assert.assertEquals(1, limit.getLimit());
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.stats;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+public class LatencyHistogramTest extends TestCase {
+
+    public void testBucketBounds() {
+        long lastUpperBound = -1;
+        for (long value = 0; value < 1000 * 1000; value++) {
+            final int index = LatencyHistogram.bucketIndex(value);
+            final long upperBound = LatencyHistogram.bucketUpperBound(index);
+            Assert.assertTrue(value <= upperBound);
+            Assert.assertTrue(upperBound - value <= Math.max(0, value / 16));
+            if (upperBound != lastUpperBound) {
+                Assert.assertEquals(lastUpperBound + 1, value);
+                lastUpperBound = upperBound;
+            }
+        }
+    }
+
+    public void testPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i * 10);
+        }
+
+        Assert.assertEquals(10000, histogram.getCount());
+        Assert.assertEquals(100000, histogram.getMax());
+        assertWithin(50000, histogram.getPercentile(0.50));
+        assertWithin(90000, histogram.getPercentile(0.90));
+        assertWithin(99000, histogram.getPercentile(0.99));
+        assertWithin(99900, histogram.getPercentile(0.999));
+
+        final Map<String,String> summary = histogram.percentileSummary();
+        Assert.assertEquals("10000", summary.get("count"));
+        Assert.assertTrue(summary.containsKey("p50"));
+        Assert.assertTrue(summary.containsKey("p999"));
+        Assert.assertEquals("100.000", summary.get("max"));
+    }
+
+    public void testStoredFormat() {
+        final StatisticsBundle bundle = new StatisticsBundle();
+        final Random random = new Random(1);
+        for (int i = 0; i < 5000; i++) {
+            bundle.updateHistogramValue(Statistic.LDAP_SEARCH_TIME, random.nextInt(250 * 1000));
+        }
+
+        final StatisticsBundle reloaded = StatisticsBundle.input(bundle.output());
+        final LatencyHistogram original = bundle.getHistogram(Statistic.LDAP_SEARCH_TIME);
+        final LatencyHistogram loaded = reloaded.getHistogram(Statistic.LDAP_SEARCH_TIME);
+        Assert.assertEquals(original.getCount(), loaded.getCount());
+        Assert.assertEquals(original.getMax(), loaded.getMax());
+        for (final double percentile : LatencyHistogram.REPORTED_PERCENTILES) {
+            Assert.assertEquals(original.getPercentile(percentile), loaded.getPercentile(percentile));
+        }
+        Assert.assertEquals(bundle.getStatistic(Statistic.LDAP_SEARCH_TIME), reloaded.getStatistic(Statistic.LDAP_SEARCH_TIME));
+        Assert.assertEquals(0, reloaded.getHistogram(Statistic.LDAP_BIND_TIME).getCount());
+    }
+
+    public void testConcurrentRecording() throws Exception {
+        final int threadCount = 8;
+        final int iterations = 100 * 1000;
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final CountDownLatch doneLatch = new CountDownLatch(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            final int seed = i;
+            new Thread() {
+                public void run() {
+                    final Random random = new Random(seed);
+                    for (int j = 0; j < iterations; j++) {
+                        histogram.record(random.nextInt(10 * 1000));
+                    }
+                    doneLatch.countDown();
+                }
+            }.start();
+        }
+        doneLatch.await();
+        Assert.assertEquals((long)threadCount * iterations, histogram.getCount());
+    }
+
+    private static void assertWithin(final long expected, final long actual) {
+        Assert.assertTrue("expected ~" + expected + " but was " + actual, actual >= expected && actual <= expected + expected / 16 + 10);
+    }
+}
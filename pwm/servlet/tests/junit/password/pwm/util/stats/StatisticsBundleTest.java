@@ -0,0 +1,97 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.util.stats;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import password.pwm.util.JsonUtil;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+public class StatisticsBundleTest extends TestCase {
+
+    public void testStoredFormat() {
+        final Map<String,String> stored = new LinkedHashMap<>();
+        stored.put(Statistic.AUTHENTICATIONS.toString(), "41");
+        stored.put(Statistic.AVG_LDAP_SEARCH_TIME.toString(), "{\"total\":300,\"count\":3}");
+        stored.put("NOT_A_STATISTIC", "5");
+
+        final StatisticsBundle bundle = StatisticsBundle.input(JsonUtil.serializeMap(stored));
+        Assert.assertEquals("41", bundle.getStatistic(Statistic.AUTHENTICATIONS));
+        Assert.assertEquals("100", bundle.getStatistic(Statistic.AVG_LDAP_SEARCH_TIME));
+        Assert.assertEquals("0", bundle.getStatistic(Statistic.PASSWORD_CHANGES));
+
+        bundle.incrementValue(Statistic.AUTHENTICATIONS);
+        bundle.updateAverageValue(Statistic.AVG_LDAP_SEARCH_TIME, 500);
+
+        final StatisticsBundle reloaded = StatisticsBundle.input(bundle.output());
+        Assert.assertEquals("42", reloaded.getStatistic(Statistic.AUTHENTICATIONS));
+        Assert.assertEquals("200", reloaded.getStatistic(Statistic.AVG_LDAP_SEARCH_TIME));
+
+        final Map<String,String> output = JsonUtil.deserializeStringMap(reloaded.output());
+        Assert.assertEquals(2, output.size());
+        Assert.assertEquals("42", output.get(Statistic.AUTHENTICATIONS.toString()));
+    }
+
+    public void testConcurrentUpdates() throws Exception {
+        final int threadCount = 16;
+        final int iterations = 250 * 1000;
+        final StatisticsBundle bundle = new StatisticsBundle();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch doneLatch = new CountDownLatch(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            final Thread thread = new Thread() {
+                public void run() {
+                    try {
+                        startLatch.await();
+                        for (int j = 0; j < iterations; j++) {
+                            bundle.incrementValue(Statistic.HTTP_REQUESTS);
+                            bundle.updateAverageValue(Statistic.AVG_AUTHENTICATION_TIME, 10);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        doneLatch.countDown();
+                    }
+                }
+            };
+            thread.start();
+        }
+
+        startLatch.countDown();
+        doneLatch.await();
+
+        final String expectedCount = String.valueOf((long)threadCount * iterations);
+        Assert.assertEquals(expectedCount, bundle.getStatistic(Statistic.HTTP_REQUESTS));
+        Assert.assertEquals("10", bundle.getStatistic(Statistic.AVG_AUTHENTICATION_TIME));
+        Assert.assertEquals("0", bundle.getStatistic(Statistic.AUTHENTICATIONS));
+
+        final Map<String,String> output = JsonUtil.deserializeStringMap(bundle.output());
+        Assert.assertEquals(expectedCount, output.get(Statistic.HTTP_REQUESTS.toString()));
+        Assert.assertEquals("{\"total\":" + (10L * threadCount * iterations) + ",\"count\":" + expectedCount + "}",
+                output.get(Statistic.AVG_AUTHENTICATION_TIME.toString()));
+    }
+}
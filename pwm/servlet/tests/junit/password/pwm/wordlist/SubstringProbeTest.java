@@ -0,0 +1,125 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.wordlist;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import java.util.*;
+
+public class SubstringProbeTest extends TestCase {
+
+    private static final int[] PASSWORD_LENGTHS = {8, 16, 32, 64};
+
+    public void testMatchesChunkWord() throws Exception {
+        final Random random = new Random(4711);
+        final String[] fixed = {"a", "aaaaaaaa", "abababab", "password", "Password1Password1"};
+        final List<String> inputs = new ArrayList<>(Arrays.asList(fixed));
+        for (int i = 0; i < 500; i++) {
+            inputs.add(randomWord(random, 1 + random.nextInt(40), 2 + random.nextInt(20)));
+        }
+
+        for (final String input : inputs) {
+            for (final int checkSize : new int[]{0, 1, 3, 5, 100}) {
+                final Set<String> expected = chunkWord(input, checkSize);
+                final List<String> actual = new ArrayList<>();
+                final SubstringProbe probe = new SubstringProbe(input, checkSize);
+                int lastLength = 0;
+                while (probe.next()) {
+                    Assert.assertTrue("windows must be visited shortest first", probe.length() >= lastLength);
+                    lastLength = probe.length();
+                    final String window = probe.window().toString();
+                    Assert.assertEquals(window, new String(probe.chars(), probe.offset(), probe.length()));
+                    actual.add(window);
+                }
+                Assert.assertEquals("duplicate windows for '" + input + "'", new HashSet<>(actual).size(), actual.size());
+                Assert.assertEquals(expected, new TreeSet<>(actual));
+                Assert.assertEquals(actual.size(), probe.getProbeCount());
+            }
+        }
+    }
+
+    public void testDictionaryLookupAgreesWithChunkWord() throws Exception {
+        final Random random = new Random(42);
+        final Set<String> dictionary = new HashSet<>();
+        for (int i = 0; i < 10000; i++) {
+            dictionary.add(randomWord(random, 3 + random.nextInt(6), 26));
+        }
+
+        int hits = 0;
+        for (final int length : PASSWORD_LENGTHS) {
+            for (int i = 0; i < 200; i++) {
+                final String password = randomWord(random, length, 62);
+
+                int shortestMatch = -1;
+                for (final String word : chunkWord(password, 3)) {
+                    if (dictionary.contains(word) && (shortestMatch < 0 || word.length() < shortestMatch)) {
+                        shortestMatch = word.length();
+                    }
+                }
+
+                String firstProbeMatch = null;
+                final SubstringProbe probe = new SubstringProbe(password, 3);
+                while (firstProbeMatch == null && probe.next()) {
+                    if (dictionary.contains(probe.window().toString())) {
+                        firstProbeMatch = probe.window().toString();
+                    }
+                }
+
+                if (shortestMatch < 0) {
+                    Assert.assertNull("unexpected match in '" + password + "'", firstProbeMatch);
+                } else {
+                    Assert.assertNotNull("missed match in '" + password + "'", firstProbeMatch);
+                    Assert.assertEquals("first match should be a shortest match", shortestMatch, firstProbeMatch.length());
+                    Assert.assertTrue(password.contains(firstProbeMatch));
+                    hits++;
+                }
+            }
+        }
+        Assert.assertTrue("dictionary should match some passwords", hits > 0);
+    }
+
+    private static String randomWord(final Random random, final int length, final int alphabetSize) {
+        final String alphabet = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabetSize)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The chunking previously used by {@link AbstractWordlist#containsWord(String)}.
+     */
+    private static Set<String> chunkWord(final String input, final int size) {
+        int checkSize = size == 0 || size > input.length() ? input.length() : size;
+        final TreeSet<String> testWords = new TreeSet<>();
+        while (checkSize <= input.length()) {
+            for (int i = 0; i + checkSize <= input.length(); i++) {
+                testWords.add(input.substring(i, i + checkSize));
+            }
+            checkSize++;
+        }
+        return testWords;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://code.google.com/p/pwm/
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2015 The PWM Project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package password.pwm.wordlist;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+import password.pwm.PwmConstants;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class ZipReaderTest extends TestCase {
+
+    private File zipFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        zipFile = File.createTempFile("pwm-wordlist", ".zip");
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(zipFile))) {
+            zipOutputStream.putNextEntry(new ZipEntry("first.txt"));
+            zipOutputStream.write("a1\na2\na3\n".getBytes(PwmConstants.DEFAULT_CHARSET));
+            zipOutputStream.closeEntry();
+            zipOutputStream.putNextEntry(new ZipEntry("second.txt"));
+            zipOutputStream.write("b1\nb2\nb3\n".getBytes(PwmConstants.DEFAULT_CHARSET));
+            zipOutputStream.closeEntry();
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        zipFile.delete();
+    }
+
+    public void testSeekToRecordedPosition() throws Exception {
+        final ZipReader zipReader = new ZipReader(zipFile);
+        String position = null;
+        for (int i = 0; i < 4; i++) {
+            zipReader.nextLine();
+            position = zipReader.currentPosition();
+        }
+        zipReader.close();
+
+        final ZipReader resumedReader = new ZipReader(zipFile);
+        Assert.assertTrue(resumedReader.seek(position));
+        Assert.assertEquals("b2", resumedReader.nextLine());
+        resumedReader.close();
+    }
+
+    public void testFailedSeekLeavesReaderInPlace() throws Exception {
+        final ZipReader zipReader = new ZipReader(zipFile);
+        Assert.assertEquals("a1", zipReader.nextLine());
+        final long bytesRead = zipReader.getBytesRead();
+
+        // past the end of the second entry
+        Assert.assertFalse(zipReader.seek("1:10"));
+        Assert.assertEquals(bytesRead, zipReader.getBytesRead());
+        Assert.assertEquals("a2", zipReader.nextLine());
+
+        Assert.assertFalse(zipReader.seek("0:10"));
+        Assert.assertFalse(zipReader.seek("nonsense"));
+        Assert.assertEquals("a3", zipReader.nextLine());
+        Assert.assertEquals("b1", zipReader.nextLine());
+        zipReader.close();
+    }
+}
@@ -190,7 +190,14 @@
                                     <span id="Statistic_Key_<%=loopStat.getKey()%>"><%= loopStat.getLabel(locale) %><span/>
                                 </td>
                                 <td>
+                                    <% if (loopStat.getType() == Statistic.Type.HISTOGRAM) { %>
+                                    <% final Map<String,String> percentiles = stats.getHistogram(loopStat).percentileSummary(); %>
+                                    <% for (final String percentileKey : percentiles.keySet()) { %>
+                                    <%= percentileKey %>: <%= percentiles.get(percentileKey) %><%= "count".equals(percentileKey) ? "" : " ms" %><br/>
+                                    <% } %>
+                                    <% } else { %>
                                     <%= stats.getStatistic(loopStat) %><%= loopStat.getType() == Statistic.Type.AVERAGE && loopStat != Statistic.AVG_PASSWORD_STRENGTH ? " ms" : "" %>
+                                    <% } %>
                                 </td>
                             </tr>
                             <% } %>